@@ -0,0 +1,29 @@
+-- =============================================
+-- Keyset Pagination Indexes Migration Script
+-- =============================================
+-- Description: Composite (sort key, id) indexes for cursor-paginated listings
+-- Date: October 16, 2026
+--
+-- Changes:
+--   1. Products: (price, id), (product_name, id), (created_at, id)
+--   2. Orders: (order_date, id), (user_id, order_date, id), (total_amount, id)
+--
+-- A cursor page is read as WHERE (key, id) > (last key, last id) ORDER BY key, id
+-- LIMIT n, which these indexes answer with one range scan from the cursor, in either
+-- direction. Sorting by id alone uses the primary key.
+-- The single-column indexes on price, created_at and order_date are covered by the
+-- new ones and can be dropped once the new ones are in place.
+-- CONCURRENTLY cannot run inside a transaction block; run statements one by one.
+-- =============================================
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_products_price_id ON products(price, product_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_products_name_id ON products(product_name, product_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_products_created_at_id ON products(created_at, product_id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_orders_order_date_id ON orders(order_date, order_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_orders_user_date_id ON orders(user_id, order_date, order_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_orders_total_amount_id ON orders(total_amount, order_id);
+
+-- Keep the row count estimates used for totalCount=ESTIMATED current after bulk loads
+ANALYZE products;
+ANALYZE orders;
@@ -0,0 +1,23 @@
+-- =============================================
+-- Revoked Tokens Migration Script
+-- =============================================
+-- Description: Creates the shared JWT blacklist. Tokens are identified by a
+--              128-bit hash of their jti (32 hex characters). Every node loads the
+--              table on startup and polls it for new revocations by revoked_at.
+--              Rows are deleted once the token has expired.
+-- =============================================
+
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    token_hash VARCHAR(32) PRIMARY KEY,
+    expires_at TIMESTAMP NOT NULL,
+    revoked_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_revoked_tokens_expires_at ON revoked_tokens(expires_at);
+CREATE INDEX IF NOT EXISTS idx_revoked_tokens_revoked_at ON revoked_tokens(revoked_at);
+
+COMMENT ON TABLE revoked_tokens IS 'Revoked JWTs by jti hash, kept until the token expires';
+COMMENT ON COLUMN revoked_tokens.token_hash IS '128-bit hash of the token jti, hex encoded';
+
+-- Verification query
+-- SELECT COUNT(*) FROM revoked_tokens WHERE expires_at > CURRENT_TIMESTAMP;
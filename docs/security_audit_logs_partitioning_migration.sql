@@ -0,0 +1,91 @@
+-- =============================================
+-- Security Audit Logs Partitioning Migration Script
+-- =============================================
+-- Description: Converts security_audit_logs into a table range-partitioned by month
+--              on timestamp. Existing rows are copied into monthly partitions.
+--              Partitions for upcoming months are created by the application
+--              (AuditPartitionManager), which also detaches or drops partitions
+--              older than app.audit.partitions.retention-months.
+-- Run after: security_audit_logs_migration.sql, update_security_audit_constraint.sql
+-- =============================================
+
+BEGIN;
+
+ALTER TABLE security_audit_logs RENAME TO security_audit_logs_legacy;
+ALTER INDEX IF EXISTS idx_username RENAME TO idx_legacy_username;
+ALTER INDEX IF EXISTS idx_event_type RENAME TO idx_legacy_event_type;
+ALTER INDEX IF EXISTS idx_timestamp RENAME TO idx_legacy_timestamp;
+ALTER INDEX IF EXISTS idx_username_timestamp RENAME TO idx_legacy_username_timestamp;
+ALTER INDEX IF EXISTS idx_event_type_timestamp RENAME TO idx_legacy_event_type_timestamp;
+
+-- The partition key has to be part of the primary key
+CREATE TABLE security_audit_logs (
+    log_id BIGINT NOT NULL DEFAULT nextval('security_audit_logs_log_id_seq'),
+    username VARCHAR(100),
+    event_type VARCHAR(50) NOT NULL,
+    ip_address VARCHAR(100),
+    user_agent VARCHAR(500),
+    timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    details TEXT,
+    success BOOLEAN,
+    PRIMARY KEY (log_id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- Keep the event type constraint of the original table
+DO $$
+DECLARE
+    check_definition TEXT;
+BEGIN
+    SELECT pg_get_constraintdef(oid) INTO check_definition
+    FROM pg_constraint
+    WHERE conrelid = 'security_audit_logs_legacy'::regclass AND conname = 'chk_event_type';
+
+    ALTER TABLE security_audit_logs_legacy DROP CONSTRAINT IF EXISTS chk_event_type;
+    IF check_definition IS NOT NULL THEN
+        EXECUTE 'ALTER TABLE security_audit_logs ADD CONSTRAINT chk_event_type ' || check_definition;
+    END IF;
+END $$;
+
+ALTER SEQUENCE security_audit_logs_log_id_seq OWNED BY security_audit_logs.log_id;
+
+-- Indexes are created on every partition automatically
+CREATE INDEX idx_username ON security_audit_logs(username);
+CREATE INDEX idx_event_type ON security_audit_logs(event_type);
+CREATE INDEX idx_timestamp ON security_audit_logs(timestamp);
+CREATE INDEX idx_username_timestamp ON security_audit_logs(username, timestamp DESC);
+CREATE INDEX idx_event_type_timestamp ON security_audit_logs(event_type, timestamp DESC);
+
+-- Monthly partitions from the oldest existing row up to three months ahead
+DO $$
+DECLARE
+    month_start DATE;
+    last_month DATE := date_trunc('month', CURRENT_DATE + INTERVAL '3 months')::DATE;
+BEGIN
+    SELECT COALESCE(date_trunc('month', MIN(timestamp))::DATE, date_trunc('month', CURRENT_DATE)::DATE)
+    INTO month_start
+    FROM security_audit_logs_legacy;
+
+    WHILE month_start <= last_month LOOP
+        EXECUTE format(
+            'CREATE TABLE IF NOT EXISTS %I PARTITION OF security_audit_logs FOR VALUES FROM (%L) TO (%L)',
+            'security_audit_logs_p' || to_char(month_start, 'YYYYMM'),
+            month_start,
+            (month_start + INTERVAL '1 month')::DATE);
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+END $$;
+
+INSERT INTO security_audit_logs (log_id, username, event_type, ip_address, user_agent, timestamp, details, success)
+SELECT log_id, username, event_type, ip_address, user_agent, timestamp, details, success
+FROM security_audit_logs_legacy;
+
+DROP TABLE security_audit_logs_legacy;
+
+COMMENT ON TABLE security_audit_logs IS 'Stores security audit trail for authentication and authorization events, partitioned by month';
+
+COMMIT;
+
+-- Verification queries
+-- SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+--     WHERE i.inhparent = 'security_audit_logs'::regclass ORDER BY c.relname;
+-- EXPLAIN SELECT * FROM security_audit_logs WHERE timestamp >= now() - INTERVAL '7 days';
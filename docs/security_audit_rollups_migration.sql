@@ -0,0 +1,42 @@
+-- =============================================
+-- Security Audit Rollups Migration Script
+-- =============================================
+-- Description: Creates the per-minute and per-hour security event counters.
+--              Rows are maintained by the application as audit events are written;
+--              dimension is ALL (dimension_value ''), USERNAME or IP_ADDRESS.
+--              The MERGE used to maintain them requires PostgreSQL 15 or later.
+-- =============================================
+
+CREATE TABLE IF NOT EXISTS security_audit_rollups (
+    rollup_id BIGSERIAL PRIMARY KEY,
+    granularity VARCHAR(10) NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    event_type VARCHAR(50) NOT NULL,
+    dimension VARCHAR(20) NOT NULL,
+    dimension_value VARCHAR(100) NOT NULL,
+    event_count BIGINT NOT NULL,
+    CONSTRAINT chk_audit_rollup_granularity CHECK (granularity IN ('MINUTE', 'HOUR')),
+    CONSTRAINT chk_audit_rollup_dimension CHECK (dimension IN ('ALL', 'USERNAME', 'IP_ADDRESS')),
+    -- Leading columns match the lookups: one series, scanned by bucket range
+    CONSTRAINT uk_audit_rollup_bucket UNIQUE (dimension, dimension_value, event_type, granularity, bucket_start)
+);
+
+-- Used by the retention purge
+CREATE INDEX IF NOT EXISTS idx_audit_rollup_granularity_bucket ON security_audit_rollups(granularity, bucket_start);
+
+COMMENT ON TABLE security_audit_rollups IS 'Per-minute and per-hour counts of security events by type, username and IP address';
+
+-- Backfill the hour buckets from existing audit rows (minute buckets only fill from now on)
+INSERT INTO security_audit_rollups (granularity, bucket_start, event_type, dimension, dimension_value, event_count)
+SELECT 'HOUR', date_trunc('hour', timestamp), event_type, 'ALL', '', COUNT(*)
+FROM security_audit_logs GROUP BY 2, 3
+UNION ALL
+SELECT 'HOUR', date_trunc('hour', timestamp), event_type, 'USERNAME', username, COUNT(*)
+FROM security_audit_logs WHERE username IS NOT NULL GROUP BY 2, 3, 5
+UNION ALL
+SELECT 'HOUR', date_trunc('hour', timestamp), event_type, 'IP_ADDRESS', ip_address, COUNT(*)
+FROM security_audit_logs WHERE ip_address IS NOT NULL GROUP BY 2, 3, 5
+ON CONFLICT (dimension, dimension_value, event_type, granularity, bucket_start) DO NOTHING;
+
+-- Verification query
+-- SELECT granularity, COUNT(*), SUM(event_count) FROM security_audit_rollups GROUP BY granularity;
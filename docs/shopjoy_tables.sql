@@ -50,6 +50,7 @@ CREATE TABLE inventory (
     inventory_id SERIAL PRIMARY KEY,
     product_id INTEGER UNIQUE NOT NULL REFERENCES products(product_id) ON DELETE CASCADE,
     quantity_in_stock INTEGER DEFAULT 0 CHECK (quantity_in_stock >= 0),
+    reserved_quantity INTEGER NOT NULL DEFAULT 0 CHECK (reserved_quantity >= 0),
     reorder_level INTEGER DEFAULT 10,
     warehouse_location VARCHAR(100),
     last_restocked TIMESTAMP,
@@ -86,6 +87,21 @@ CREATE TABLE order_items (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- ============================================
+-- STOCK_RESERVATIONS TABLE (soft holds for pending orders)
+-- ============================================
+CREATE TABLE stock_reservations (
+    reservation_id BIGSERIAL PRIMARY KEY,
+    order_id INTEGER NOT NULL REFERENCES orders(order_id) ON DELETE CASCADE,
+    product_id INTEGER NOT NULL REFERENCES products(product_id) ON DELETE CASCADE,
+    quantity INTEGER NOT NULL CHECK (quantity > 0),
+    status VARCHAR(20) NOT NULL DEFAULT 'HELD'
+        CHECK (status IN ('HELD', 'COMMITTED', 'RELEASED', 'EXPIRED')),
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
 -- ============================================
 -- REVIEWS TABLE
 -- ============================================
@@ -191,6 +207,12 @@ CREATE INDEX idx_order_items_product_id ON order_items(product_id);
 -- Composite for order details retrieval
 CREATE INDEX idx_order_items_order_product ON order_items(order_id, product_id);
 
+-- ============================================
+-- STOCK_RESERVATIONS TABLE INDEXES
+-- ============================================
+CREATE INDEX idx_stock_reservations_order ON stock_reservations(order_id);
+CREATE INDEX idx_stock_reservations_status_expires ON stock_reservations(status, expires_at);
+
 -- ============================================
 -- REVIEWS TABLE INDEXES
 -- ============================================
@@ -0,0 +1,48 @@
+-- =============================================
+-- Stock Reservations Migration Script
+-- =============================================
+-- Description: Adds soft holds (reservations with a TTL) for pending orders
+-- Date: October 16, 2026
+--
+-- Changes:
+--   1. Add reserved_quantity to inventory (stock held for unpaid orders)
+--   2. Create stock_reservations table (one hold per order and product)
+--
+-- Available stock is quantity_in_stock - reserved_quantity.
+-- Execute before enabling app.inventory.holds.enabled.
+-- =============================================
+
+-- Add reserved_quantity column
+ALTER TABLE inventory
+ADD COLUMN IF NOT EXISTS reserved_quantity INTEGER NOT NULL DEFAULT 0;
+
+ALTER TABLE inventory
+ADD CONSTRAINT chk_inventory_reserved_quantity
+CHECK (reserved_quantity >= 0);
+
+-- Create stock_reservations table
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    reservation_id BIGSERIAL PRIMARY KEY,
+    order_id INTEGER NOT NULL REFERENCES orders(order_id) ON DELETE CASCADE,
+    product_id INTEGER NOT NULL REFERENCES products(product_id) ON DELETE CASCADE,
+    quantity INTEGER NOT NULL CHECK (quantity > 0),
+    status VARCHAR(20) NOT NULL DEFAULT 'HELD',
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT chk_reservation_status CHECK (
+        status IN ('HELD', 'COMMITTED', 'RELEASED', 'EXPIRED')
+    )
+);
+
+-- Create indexes for performance
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_order ON stock_reservations(order_id);
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_status_expires ON stock_reservations(status, expires_at);
+
+-- Add comments
+COMMENT ON TABLE stock_reservations IS 'Soft holds on stock for pending orders, expired by the hold sweeper';
+COMMENT ON COLUMN inventory.reserved_quantity IS 'Stock held for pending orders, not yet taken from quantity_in_stock';
+COMMENT ON COLUMN stock_reservations.expires_at IS 'Time after which the sweeper returns the hold to available stock';
+
+-- Verification query
+-- SELECT product_id, quantity_in_stock, reserved_quantity FROM inventory WHERE reserved_quantity > 0;
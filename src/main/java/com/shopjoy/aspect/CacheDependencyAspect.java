@@ -0,0 +1,103 @@
+package com.shopjoy.aspect;
+
+import com.shopjoy.cache.CacheDependencyRegistry;
+import com.shopjoy.cache.EntityKey;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Applies {@link EvictDependents}: evaluates the changed ids and evicts only the
+ * cache entries whose values reference them.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class CacheDependencyAspect {
+
+    private final CacheDependencyRegistry cacheDependencyRegistry;
+
+    private final ExpressionParser parser = new SpelExpressionParser();
+    private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+    private final Map<String, Expression> expressions = new ConcurrentHashMap<>();
+
+    /**
+     * Evict dependents after a successful write.
+     *
+     * @param joinPoint the join point
+     * @param evictDependents the annotation
+     * @param result the method result
+     */
+    @AfterReturning(pointcut = "@annotation(evictDependents)", returning = "result")
+    public void evictDependents(JoinPoint joinPoint, EvictDependents evictDependents, Object result) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(
+                null, method, joinPoint.getArgs(), parameterNameDiscoverer);
+        context.setVariable("result", result);
+
+        Object ids = expressions.computeIfAbsent(evictDependents.ids(), parser::parseExpression).getValue(context);
+        List<EntityKey> entities = toEntityKeys(evictDependents.entity(), ids);
+        if (entities.isEmpty()) {
+            return;
+        }
+
+        List<String> cacheNames = List.of(evictDependents.caches());
+        Runnable invalidate = () -> cacheDependencyRegistry.invalidateAll(entities, cacheNames);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate.run();
+                }
+            });
+        } else {
+            invalidate.run();
+        }
+    }
+
+    /**
+     * Evict dependents for each of several {@link EvictDependents} on one method.
+     *
+     * @param joinPoint the join point
+     * @param evictDependentsList the repeated annotations
+     * @param result the method result
+     */
+    @AfterReturning(pointcut = "@annotation(evictDependentsList)", returning = "result")
+    public void evictDependentsOfEach(JoinPoint joinPoint, EvictDependents.List evictDependentsList, Object result) {
+        for (EvictDependents evictDependents : evictDependentsList.value()) {
+            evictDependents(joinPoint, evictDependents, result);
+        }
+    }
+
+    private static List<EntityKey> toEntityKeys(String entity, Object ids) {
+        List<EntityKey> keys = new ArrayList<>();
+        if (ids instanceof Iterable<?> iterable) {
+            for (Object id : iterable) {
+                if (id != null) {
+                    keys.add(EntityKey.of(entity, id));
+                }
+            }
+        } else if (ids != null) {
+            keys.add(EntityKey.of(entity, ids));
+        }
+        return keys;
+    }
+}
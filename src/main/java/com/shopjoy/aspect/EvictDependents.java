@@ -0,0 +1,44 @@
+package com.shopjoy.aspect;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Evicts the cache entries that reference the entities changed by the annotated method,
+ * instead of clearing whole caches. Runs after the method returns, and after commit
+ * when called inside a transaction. Repeat it to evict dependents of several entity types.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Repeatable(EvictDependents.List.class)
+public @interface EvictDependents {
+
+    /**
+     * The entity type, e.g. {@link com.shopjoy.cache.EntityKey#PRODUCT}.
+     */
+    String entity();
+
+    /**
+     * SpEL expression for the changed id, or a collection of ids.
+     * Method parameters and #result are available.
+     */
+    String ids();
+
+    /**
+     * Caches to evict from. Empty means every dependency-tracking cache.
+     */
+    String[] caches() default {};
+
+    /**
+     * Container for repeated {@link EvictDependents} annotations.
+     */
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface List {
+
+        EvictDependents[] value();
+    }
+}
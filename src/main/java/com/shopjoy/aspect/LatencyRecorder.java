@@ -0,0 +1,139 @@
+package com.shopjoy.aspect;
+
+import org.HdrHistogram.AbstractHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.PackedHistogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-memory latency recorder for one metric key.
+ *
+ * Recording is wait-free: values go into an HdrHistogram {@link Recorder}.
+ * {@link #harvest(long)} moves the recorded interval into 10-second and 1-minute ring
+ * slots, which back the 1m, 5m and 1h windows, and into a histogram covering the whole run.
+ * All histograms are packed, so memory depends on the spread of the latencies rather than
+ * on the number of calls, and a snapshot costs the same after ten calls or ten million.
+ */
+final class LatencyRecorder {
+
+    static final long SLICE_NANOS = TimeUnit.SECONDS.toNanos(10);
+    static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final int SLICES = 30;
+    private static final int MINUTES = 60;
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS, true);
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final Histogram total = new PackedHistogram(SIGNIFICANT_DIGITS);
+    private final Histogram[] slices = new Histogram[SLICES];
+    private final long[] sliceIds = new long[SLICES];
+    private final Histogram[] minutes = new Histogram[MINUTES];
+    private final long[] minuteIds = new long[MINUTES];
+    private Histogram recycled;
+
+    LatencyRecorder() {
+        Arrays.fill(sliceIds, Long.MIN_VALUE);
+        Arrays.fill(minuteIds, Long.MIN_VALUE);
+    }
+
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        recorder.recordValue(value);
+        totalNanos.add(value);
+    }
+
+    /**
+     * Moves everything recorded since the last harvest into the slots of the given time.
+     *
+     * @param now the current {@link System#nanoTime()}
+     */
+    synchronized void harvest(long now) {
+        Histogram interval = recorder.getIntervalHistogram(recycled);
+        recycled = interval;
+        if (interval.getTotalCount() == 0) {
+            return;
+        }
+        total.add(interval);
+        slot(slices, sliceIds, Math.floorDiv(now, SLICE_NANOS)).add(interval);
+        slot(minutes, minuteIds, Math.floorDiv(now, MINUTE_NANOS)).add(interval);
+    }
+
+    /**
+     * Harvests and summarises the whole run and the 1m, 5m and 1h windows.
+     * Durations are reported in milliseconds.
+     *
+     * @param now the current {@link System#nanoTime()}
+     * @return the statistics, empty if nothing was recorded yet
+     */
+    synchronized Map<String, Object> snapshot(long now) {
+        harvest(now);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (total.getTotalCount() == 0) {
+            return stats;
+        }
+
+        stats.put("callCount", total.getTotalCount());
+        stats.put("min", millis(total.getMinValue()));
+        stats.put("max", millis(total.getMaxValue()));
+        stats.put("average", millis(total.getMean()));
+        stats.put("median", millis(total.getValueAtPercentile(50)));
+        stats.put("p95", millis(total.getValueAtPercentile(95)));
+        stats.put("p99", millis(total.getValueAtPercentile(99)));
+        stats.put("totalTime", millis(totalNanos.sum()));
+
+        long slice = Math.floorDiv(now, SLICE_NANOS);
+        long minute = Math.floorDiv(now, MINUTE_NANOS);
+        Map<String, Object> windows = new LinkedHashMap<>();
+        windows.put("1m", window(sum(slices, sliceIds, slice - 5, slice)));
+        windows.put("5m", window(sum(slices, sliceIds, slice - (SLICES - 1), slice)));
+        windows.put("1h", window(sum(minutes, minuteIds, minute - (MINUTES - 1), minute)));
+        stats.put("windows", windows);
+        return stats;
+    }
+
+    private static Histogram slot(Histogram[] ring, long[] ids, long id) {
+        int index = (int) Math.floorMod(id, (long) ring.length);
+        if (ring[index] == null) {
+            ring[index] = new PackedHistogram(SIGNIFICANT_DIGITS);
+        } else if (ids[index] != id) {
+            ring[index].reset();
+        }
+        ids[index] = id;
+        return ring[index];
+    }
+
+    private static Histogram sum(Histogram[] ring, long[] ids, long from, long to) {
+        Histogram sum = new Histogram(SIGNIFICANT_DIGITS);
+        for (int i = 0; i < ring.length; i++) {
+            if (ring[i] != null && ids[i] >= from && ids[i] <= to) {
+                sum.add(ring[i]);
+            }
+        }
+        return sum;
+    }
+
+    private static Map<String, Object> window(AbstractHistogram histogram) {
+        Map<String, Object> window = new LinkedHashMap<>();
+        long count = histogram.getTotalCount();
+        window.put("count", count);
+        if (count > 0) {
+            window.put("median", millis(histogram.getValueAtPercentile(50)));
+            window.put("p95", millis(histogram.getValueAtPercentile(95)));
+            window.put("p99", millis(histogram.getValueAtPercentile(99)));
+            window.put("max", millis(histogram.getMaxValue()));
+        }
+        return window;
+    }
+
+    private static double millis(double nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
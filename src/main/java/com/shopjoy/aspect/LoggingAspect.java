@@ -8,130 +8,167 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.lang.reflect.Proxy;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
+/**
+ * Traces service, repository and controller calls.
+ * Entry and exit lines are only built when their level is enabled and the call is
+ * sampled by the {@link TraceSampler}; one decision covers both lines of a call.
+ * Exceptions are always logged at ERROR.
+ */
 @Aspect
 @Component
 public class LoggingAspect {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(LoggingAspect.class);
     private static final DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
-    
-    @Before("com.shopjoy.aspect.CommonPointcuts.serviceMethods()")
-    public void logBeforeServiceMethod(JoinPoint joinPoint) {
+
+    private final TraceSampler traceSampler;
+
+    public LoggingAspect(TraceSampler traceSampler) {
+        this.traceSampler = traceSampler;
+    }
+
+    @Around("com.shopjoy.aspect.CommonPointcuts.serviceMethods()")
+    public Object logServiceMethod(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!logger.isInfoEnabled() || !traceSampler.sample(tracedType(joinPoint))) {
+            return joinPoint.proceed();
+        }
+
         String className = AspectUtils.extractClassName(joinPoint);
         String methodName = AspectUtils.extractMethodName(joinPoint);
-        String args = AspectUtils.sanitizeArgs(joinPoint.getArgs());
-        String timestamp = LocalDateTime.now().format(timeFormatter);
-        
-        logger.info("[{}] ENTERING: {}.{} with arguments: {}", 
-            timestamp, className, methodName, args);
+        logger.info("[{}] ENTERING: {}.{} with arguments: {}",
+            LocalDateTime.now().format(timeFormatter), className, methodName, AspectUtils.sanitizeArgs(joinPoint.getArgs()));
+
+        Object result = joinPoint.proceed();
+
+        logger.info("[{}] EXITING: {}.{} returned: {}",
+            LocalDateTime.now().format(timeFormatter), className, methodName, resultType(result));
+        return result;
     }
-    
+
     @Before("com.shopjoy.aspect.CommonPointcuts.repositoryMethods()")
     public void logBeforeRepositoryMethod(JoinPoint joinPoint) {
-        String className = AspectUtils.extractClassName(joinPoint);
-        String methodName = AspectUtils.extractMethodName(joinPoint);
-        String args = AspectUtils.sanitizeArgs(joinPoint.getArgs());
-        
-        logger.debug("DB CALL: {}.{} with arguments: {}", 
-            className, methodName, args);
-    }
-    
-    @Before("com.shopjoy.aspect.CommonPointcuts.controllerMethods()")
-    public void logBeforeControllerMethod(JoinPoint joinPoint) {
-        String className = AspectUtils.extractClassName(joinPoint);
-        String methodName = AspectUtils.extractMethodName(joinPoint);
-        String args = AspectUtils.sanitizeArgs(joinPoint.getArgs());
-        
-        logger.info("API ENDPOINT CALLED: {}.{} with arguments: {}", 
-            className, methodName, args);
-    }
-    
-    @AfterReturning(pointcut = "com.shopjoy.aspect.CommonPointcuts.serviceMethods()", returning = "result")
-    public void logAfterServiceMethod(JoinPoint joinPoint, Object result) {
-        String className = AspectUtils.extractClassName(joinPoint);
-        String methodName = AspectUtils.extractMethodName(joinPoint);
-        String resultStr = result != null ? result.getClass().getSimpleName() : "void";
-        String timestamp = LocalDateTime.now().format(timeFormatter);
-        
-        logger.info("[{}] EXITING: {}.{} returned: {}", 
-            timestamp, className, methodName, resultStr);
+        if (!logger.isDebugEnabled() || !traceSampler.sample(tracedType(joinPoint))) {
+            return;
+        }
+
+        logger.debug("DB CALL: {}.{} with arguments: {}",
+            AspectUtils.extractClassName(joinPoint), AspectUtils.extractMethodName(joinPoint),
+            AspectUtils.sanitizeArgs(joinPoint.getArgs()));
     }
-    
-    @AfterReturning(pointcut = "com.shopjoy.aspect.CommonPointcuts.controllerMethods()", returning = "result")
-    public void logAfterControllerMethod(JoinPoint joinPoint, Object result) {
+
+    @Around("com.shopjoy.aspect.CommonPointcuts.controllerMethods()")
+    public Object logControllerMethod(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!logger.isInfoEnabled() || !traceSampler.sample(tracedType(joinPoint))) {
+            return joinPoint.proceed();
+        }
+
         String className = AspectUtils.extractClassName(joinPoint);
         String methodName = AspectUtils.extractMethodName(joinPoint);
-        String resultStr = result != null ? result.getClass().getSimpleName() : "void";
-        
-        logger.info("API ENDPOINT COMPLETED: {}.{} returned: {}", 
-            className, methodName, resultStr);
+        logger.info("API ENDPOINT CALLED: {}.{} with arguments: {}",
+            className, methodName, AspectUtils.sanitizeArgs(joinPoint.getArgs()));
+
+        Object result = joinPoint.proceed();
+
+        logger.info("API ENDPOINT COMPLETED: {}.{} returned: {}",
+            className, methodName, resultType(result));
+        return result;
     }
-    
+
     @AfterThrowing(pointcut = "com.shopjoy.aspect.CommonPointcuts.serviceMethods()", throwing = "exception")
     public void logServiceException(JoinPoint joinPoint, Exception exception) {
+        if (!logger.isErrorEnabled()) {
+            return;
+        }
         String className = AspectUtils.extractClassName(joinPoint);
         String methodName = AspectUtils.extractMethodName(joinPoint);
         String args = AspectUtils.sanitizeArgs(joinPoint.getArgs());
         String timestamp = LocalDateTime.now().format(timeFormatter);
-        
-        logger.error("[{}] EXCEPTION in {}.{} with arguments: {}", 
+
+        logger.error("[{}] EXCEPTION in {}.{} with arguments: {}",
             timestamp, className, methodName, args);
         logger.error("Exception type: {}", exception.getClass().getSimpleName());
         logger.error("Exception message: {}", exception.getMessage());
         logger.error("Stack trace:", exception);
     }
-    
+
     @AfterThrowing(pointcut = "com.shopjoy.aspect.CommonPointcuts.repositoryMethods()", throwing = "exception")
     public void logRepositoryException(JoinPoint joinPoint, Exception exception) {
+        if (!logger.isErrorEnabled()) {
+            return;
+        }
         String className = AspectUtils.extractClassName(joinPoint);
         String methodName = AspectUtils.extractMethodName(joinPoint);
         String args = AspectUtils.sanitizeArgs(joinPoint.getArgs());
-        
-        logger.error("DB EXCEPTION in {}.{} with arguments: {}", 
+
+        logger.error("DB EXCEPTION in {}.{} with arguments: {}",
             className, methodName, args);
         logger.error("Database exception: {}", exception.getMessage());
         logger.error("Stack trace:", exception);
     }
-    
+
     @AfterThrowing(pointcut = "com.shopjoy.aspect.CommonPointcuts.controllerMethods()", throwing = "exception")
     public void logControllerException(JoinPoint joinPoint, Exception exception) {
+        if (!logger.isErrorEnabled()) {
+            return;
+        }
         String className = AspectUtils.extractClassName(joinPoint);
         String methodName = AspectUtils.extractMethodName(joinPoint);
         String args = AspectUtils.sanitizeArgs(joinPoint.getArgs());
-        
-        logger.error("API ENDPOINT EXCEPTION in {}.{} with arguments: {}", 
+
+        logger.error("API ENDPOINT EXCEPTION in {}.{} with arguments: {}",
             className, methodName, args);
         logger.error("Controller exception: {}", exception.getMessage());
         logger.error("Stack trace:", exception);
     }
-    
+
     @Around("com.shopjoy.aspect.CommonPointcuts.dataModificationMethods()")
     public Object logDataModificationMethods(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!logger.isInfoEnabled() || !traceSampler.sample(tracedType(joinPoint))) {
+            return joinPoint.proceed();
+        }
+
         String methodSignature = AspectUtils.extractMethodSignature(joinPoint);
         String args = AspectUtils.sanitizeArgs(joinPoint.getArgs());
-        long startTime = System.currentTimeMillis();
-        
-        logger.info("DATA MODIFICATION STARTED: {} with arguments: {}", 
+        long startTime = System.nanoTime();
+
+        logger.info("DATA MODIFICATION STARTED: {} with arguments: {}",
             methodSignature, args);
-        
+
         try {
             Object result = joinPoint.proceed();
-            long executionTime = System.currentTimeMillis() - startTime;
-            
-            logger.info("DATA MODIFICATION COMPLETED: {} in {}", 
+            long executionTime = (System.nanoTime() - startTime) / 1_000_000;
+
+            logger.info("DATA MODIFICATION COMPLETED: {} in {}",
                 methodSignature, AspectUtils.formatExecutionTime(executionTime));
-            
+
             return result;
         } catch (Exception e) {
-            long executionTime = System.currentTimeMillis() - startTime;
-            
-            logger.error("DATA MODIFICATION FAILED: {} after {} with exception: {}", 
+            long executionTime = (System.nanoTime() - startTime) / 1_000_000;
+
+            logger.error("DATA MODIFICATION FAILED: {} after {} with exception: {}",
                 methodSignature, AspectUtils.formatExecutionTime(executionTime), e.getMessage());
-            
+
             throw e;
         }
     }
+
+    /**
+     * Returns the class whose package decides the sample rate. Repository proxies are
+     * JDK proxies, so their repository interface is used instead.
+     */
+    static Class<?> tracedType(JoinPoint joinPoint) {
+        Class<?> type = joinPoint.getTarget().getClass();
+        if (Proxy.isProxyClass(type) && type.getInterfaces().length > 0) {
+            return type.getInterfaces()[0];
+        }
+        return type;
+    }
+
+    private static String resultType(Object result) {
+        return result != null ? result.getClass().getSimpleName() : "void";
+    }
 }
@@ -1,149 +1,214 @@
 package com.shopjoy.aspect;
 
 import com.shopjoy.util.AspectUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
 
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Times service, repository, controller and GraphQL resolver calls with {@link System#nanoTime()}.
+ * The recorder and log names of each target method are resolved on its first call and
+ * cached, so calls without a Pageable or Sort argument allocate nothing when their
+ * log level is disabled.
+ * Each method also gets a Micrometer timer, {@value #TIMER_NAME}, tagged with layer, class and method.
+ */
 @Aspect
 @Component
 public class PerformanceAspect {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(PerformanceAspect.class);
     private static final long SLOW_METHOD_THRESHOLD = 1000;
     private static final long SLOW_DB_THRESHOLD = 500;
     private static final long SLOW_API_THRESHOLD = 2000;
-    
-    @Autowired
-    private PerformanceMetricsCollector metricsCollector;
-    
-    @Around("com.shopjoy.aspect.CommonPointcuts.serviceMethods()")
-    public Object monitorServicePerformance(ProceedingJoinPoint joinPoint) throws Throwable {
-        String className = AspectUtils.extractClassName(joinPoint);
-        String methodName = AspectUtils.extractMethodName(joinPoint);
-        String methodKey = className + "." + methodName;
-        long startTime = System.currentTimeMillis();
-        
-        try {
-            Object result = joinPoint.proceed();
-            long executionTime = System.currentTimeMillis() - startTime;
-            
-            metricsCollector.recordMetric("service", methodKey, executionTime);
-            
-            for (Object arg : joinPoint.getArgs()) {
-                if (arg instanceof Pageable p && p.getSort().isSorted()) {
-                    metricsCollector.recordMetric("sorting", methodKey + "[" + p.getSort().toString() + "]", executionTime);
-                } else if (arg instanceof Sort s && s.isSorted()) {
-                    metricsCollector.recordMetric("sorting", methodKey + "[" + s.toString() + "]", executionTime);
-                }
-            }
+    private static final int MAX_SORT_KEYS_PER_METHOD = 32;
+    private static final String OTHER_SORT = "other";
+    static final String TIMER_NAME = "shopjoy.method.duration";
 
-            if (executionTime > SLOW_METHOD_THRESHOLD) {
-                logger.warn("SLOW SERVICE METHOD: {}.{} took {}", 
-                    className, methodName, AspectUtils.formatExecutionTime(executionTime));
-            } else {
-                logger.debug("Service method {}.{} executed in {}", 
-                    className, methodName, AspectUtils.formatExecutionTime(executionTime));
+    /**
+     * Metric category of each pointcut, with its slow-call threshold and log messages.
+     */
+    enum Category {
+        SERVICE("service", SLOW_METHOD_THRESHOLD, "SLOW SERVICE METHOD: {}.{} took {}",
+                "Service method {}.{} executed in {}", false, true),
+        DATABASE("database", SLOW_DB_THRESHOLD, "SLOW DATABASE QUERY: {}.{} took {}",
+                "Database query {}.{} executed in {}", false, false),
+        API("api", SLOW_API_THRESHOLD, "SLOW API ENDPOINT: {}.{} took {}",
+                "API endpoint {}.{} responded in {}", true, false),
+        GRAPHQL("graphql", SLOW_API_THRESHOLD, "SLOW GRAPHQL RESOLVER: {}.{} took {}",
+                "GraphQL resolver {}.{} executed in {}", false, false);
+
+        private final String metricName;
+        private final long slowThresholdNanos;
+        private final String slowMessage;
+        private final String message;
+        private final boolean logAtInfo;
+        private final boolean tracksSorting;
+        private final ClassValue<Map<Method, MethodMetrics>> methods = new ClassValue<>() {
+            @Override
+            protected Map<Method, MethodMetrics> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<>();
             }
-            
-            return result;
-        } catch (Throwable t) {
-            long executionTime = System.currentTimeMillis() - startTime;
-            metricsCollector.recordMetric("service", methodKey, executionTime);
-            throw t;
+        };
+
+        Category(String metricName, long slowThresholdMillis, String slowMessage, String message,
+                 boolean logAtInfo, boolean tracksSorting) {
+            this.metricName = metricName;
+            this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+            this.slowMessage = slowMessage;
+            this.message = message;
+            this.logAtInfo = logAtInfo;
+            this.tracksSorting = tracksSorting;
         }
     }
-    
+
+    /**
+     * Everything the aspect needs per target method, resolved once.
+     *
+     * @param className simple name of the target class
+     * @param methodName the method name
+     * @param recorder the recorder of the method
+     * @param timer the Micrometer timer of the method
+     * @param sortArguments indices of Pageable or Sort parameters, empty if sorting is not tracked
+     * @param sortRecorders recorders per sort order seen, bounded by {@link #MAX_SORT_KEYS_PER_METHOD}
+     */
+    record MethodMetrics(String className, String methodName, LatencyRecorder recorder, Timer timer,
+                         int[] sortArguments, Map<Object, LatencyRecorder> sortRecorders) {
+    }
+
+    private final PerformanceMetricsCollector metricsCollector;
+    private final MeterRegistry meterRegistry;
+
+    public PerformanceAspect(PerformanceMetricsCollector metricsCollector, MeterRegistry meterRegistry) {
+        this.metricsCollector = metricsCollector;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("com.shopjoy.aspect.CommonPointcuts.serviceMethods()")
+    public Object monitorServicePerformance(ProceedingJoinPoint joinPoint) throws Throwable {
+        return monitor(joinPoint, Category.SERVICE);
+    }
+
     @Around("com.shopjoy.aspect.CommonPointcuts.repositoryMethods()")
     public Object monitorDatabasePerformance(ProceedingJoinPoint joinPoint) throws Throwable {
-        String className = AspectUtils.extractClassName(joinPoint);
-        String methodName = AspectUtils.extractMethodName(joinPoint);
-        String methodKey = className + "." + methodName;
-        long startTime = System.currentTimeMillis();
-        
-        try {
-            Object result = joinPoint.proceed();
-            long executionTime = System.currentTimeMillis() - startTime;
-            
-            metricsCollector.recordMetric("database", methodKey, executionTime);
-            
-            if (executionTime > SLOW_DB_THRESHOLD) {
-                logger.warn("SLOW DATABASE QUERY: {}.{} took {}", 
-                    className, methodName, AspectUtils.formatExecutionTime(executionTime));
-            } else {
-                logger.debug("Database query {}.{} executed in {}", 
-                    className, methodName, AspectUtils.formatExecutionTime(executionTime));
-            }
-            
-            return result;
-        } catch (Throwable t) {
-            long executionTime = System.currentTimeMillis() - startTime;
-            metricsCollector.recordMetric("database", methodKey, executionTime);
-            throw t;
-        }
+        return monitor(joinPoint, Category.DATABASE);
     }
-    
+
     @Around("com.shopjoy.aspect.CommonPointcuts.controllerMethods()")
     public Object monitorApiPerformance(ProceedingJoinPoint joinPoint) throws Throwable {
-        String className = AspectUtils.extractClassName(joinPoint);
-        String methodName = AspectUtils.extractMethodName(joinPoint);
-        String methodKey = className + "." + methodName;
-        long startTime = System.currentTimeMillis();
-        
+        return monitor(joinPoint, Category.API);
+    }
+
+    @Around("com.shopjoy.aspect.CommonPointcuts.graphqlResolverMethods()")
+    public Object monitorGraphQLPerformance(ProceedingJoinPoint joinPoint) throws Throwable {
+        return monitor(joinPoint, Category.GRAPHQL);
+    }
+
+    private Object monitor(ProceedingJoinPoint joinPoint, Category category) throws Throwable {
+        MethodMetrics metrics = resolve(joinPoint, category);
+        long startTime = System.nanoTime();
+
         try {
             Object result = joinPoint.proceed();
-            long executionTime = System.currentTimeMillis() - startTime;
-            
-            metricsCollector.recordMetric("api", methodKey, executionTime);
-            
-            if (executionTime > SLOW_API_THRESHOLD) {
-                logger.warn("SLOW API ENDPOINT: {}.{} took {}", 
-                    className, methodName, AspectUtils.formatExecutionTime(executionTime));
-            } else {
-                logger.info("API endpoint {}.{} responded in {}", 
-                    className, methodName, AspectUtils.formatExecutionTime(executionTime));
+            long executionTime = System.nanoTime() - startTime;
+
+            metrics.recorder().record(executionTime);
+            metrics.timer().record(executionTime, TimeUnit.NANOSECONDS);
+            if (metrics.sortArguments().length > 0) {
+                recordSorting(joinPoint, metrics, executionTime);
             }
-            
+            log(category, metrics, executionTime);
+
             return result;
         } catch (Throwable t) {
-            long executionTime = System.currentTimeMillis() - startTime;
-            metricsCollector.recordMetric("api", methodKey, executionTime);
+            long executionTime = System.nanoTime() - startTime;
+            metrics.recorder().record(executionTime);
+            metrics.timer().record(executionTime, TimeUnit.NANOSECONDS);
             throw t;
         }
     }
-    
-    @Around("com.shopjoy.aspect.CommonPointcuts.graphqlResolverMethods()")
-    public Object monitorGraphQLPerformance(ProceedingJoinPoint joinPoint) throws Throwable {
+
+    private MethodMetrics resolve(ProceedingJoinPoint joinPoint, Category category) {
+        Class<?> targetClass = joinPoint.getTarget().getClass();
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Map<Method, MethodMetrics> methods = category.methods.get(targetClass);
+        MethodMetrics metrics = methods.get(method);
+        if (metrics == null) {
+            metrics = methods.computeIfAbsent(method, _ -> createMetrics(joinPoint, category, method));
+        }
+        return metrics;
+    }
+
+    private MethodMetrics createMetrics(ProceedingJoinPoint joinPoint, Category category, Method method) {
         String className = AspectUtils.extractClassName(joinPoint);
-        String methodName = AspectUtils.extractMethodName(joinPoint);
-        String methodKey = className + "." + methodName;
-        long startTime = System.currentTimeMillis();
-        
-        try {
-            Object result = joinPoint.proceed();
-            long executionTime = System.currentTimeMillis() - startTime;
-            
-            metricsCollector.recordMetric("graphql", methodKey, executionTime);
-            
-            if (executionTime > SLOW_API_THRESHOLD) {
-                logger.warn("SLOW GRAPHQL RESOLVER: {}.{} took {}", 
-                    className, methodName, AspectUtils.formatExecutionTime(executionTime));
+        String methodName = method.getName();
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        int[] sortArguments = category.tracksSorting
+                ? IntStream.range(0, parameterTypes.length)
+                    .filter(i -> Pageable.class.isAssignableFrom(parameterTypes[i]) || Sort.class.isAssignableFrom(parameterTypes[i]))
+                    .toArray()
+                : new int[0];
+        LatencyRecorder recorder = metricsCollector.recorder(category.metricName, className + "." + methodName);
+        Timer timer = Timer.builder(TIMER_NAME)
+                .description("Execution time of application methods")
+                .tags("layer", category.metricName, "class", className, "method", methodName)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100_000))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+        return new MethodMetrics(className, methodName, recorder, timer, sortArguments, new ConcurrentHashMap<>());
+    }
+
+    private void recordSorting(ProceedingJoinPoint joinPoint, MethodMetrics metrics, long executionTime) {
+        Object[] args = joinPoint.getArgs();
+        for (int index : metrics.sortArguments()) {
+            Sort sort = switch (args[index]) {
+                case Pageable p -> p.getSort();
+                case Sort s -> s;
+                case null, default -> Sort.unsorted();
+            };
+            if (sort.isSorted()) {
+                sortRecorder(metrics, sort).record(executionTime);
+            }
+        }
+    }
+
+    private LatencyRecorder sortRecorder(MethodMetrics metrics, Sort sort) {
+        Map<Object, LatencyRecorder> recorders = metrics.sortRecorders();
+        LatencyRecorder recorder = recorders.get(sort);
+        if (recorder != null) {
+            return recorder;
+        }
+        Object key = recorders.size() < MAX_SORT_KEYS_PER_METHOD ? sort : OTHER_SORT;
+        return recorders.computeIfAbsent(key, _ -> metricsCollector.recorder("sorting",
+                metrics.className() + "." + metrics.methodName() + "[" + key + "]"));
+    }
+
+    private void log(Category category, MethodMetrics metrics, long executionTime) {
+        if (executionTime > category.slowThresholdNanos) {
+            logger.warn(category.slowMessage, metrics.className(), metrics.methodName(),
+                    AspectUtils.formatExecutionTime(TimeUnit.NANOSECONDS.toMillis(executionTime)));
+        } else if (category.logAtInfo ? logger.isInfoEnabled() : logger.isDebugEnabled()) {
+            String formatted = AspectUtils.formatExecutionTime(TimeUnit.NANOSECONDS.toMillis(executionTime));
+            if (category.logAtInfo) {
+                logger.info(category.message, metrics.className(), metrics.methodName(), formatted);
             } else {
-                logger.debug("GraphQL resolver {}.{} executed in {}", 
-                    className, methodName, AspectUtils.formatExecutionTime(executionTime));
+                logger.debug(category.message, metrics.className(), metrics.methodName(), formatted);
             }
-            
-            return result;
-        } catch (Throwable t) {
-            long executionTime = System.currentTimeMillis() - startTime;
-            metricsCollector.recordMetric("graphql", methodKey, executionTime);
-            throw t;
         }
     }
 }
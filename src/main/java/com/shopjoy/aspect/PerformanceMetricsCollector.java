@@ -1,82 +1,59 @@
 package com.shopjoy.aspect;
 
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Collects execution times per metric key in fixed-memory {@link LatencyRecorder}s.
+ * Recording never blocks; statistics cover the whole run and the last 1m, 5m and 1h.
+ */
 @Component
 public class PerformanceMetricsCollector {
-    
-    private final Map<String, List<Long>> metrics = new ConcurrentHashMap<>();
-    private final Map<String, Long> callCounts = new ConcurrentHashMap<>();
-    
+
+    private final Map<String, LatencyRecorder> metrics = new ConcurrentHashMap<>();
+
     public void recordMetric(String category, String methodKey, long executionTime) {
+        recordNanos(category, methodKey, TimeUnit.MILLISECONDS.toNanos(executionTime));
+    }
+
+    public void recordNanos(String category, String methodKey, long nanos) {
+        recorder(category, methodKey).record(nanos);
+    }
+
+    /**
+     * Returns the recorder of a key, for callers that resolve it once and record to it directly.
+     */
+    LatencyRecorder recorder(String category, String methodKey) {
         String key = category + ":" + methodKey;
-        
-        metrics.computeIfAbsent(key, _ -> Collections.synchronizedList(new ArrayList<>()))
-               .add(executionTime);
-        
-        callCounts.merge(key, 1L, (oldValue, newValue) -> oldValue + newValue);
+        LatencyRecorder recorder = metrics.get(key);
+        if (recorder == null) {
+            recorder = metrics.computeIfAbsent(key, _ -> new LatencyRecorder());
+        }
+        return recorder;
     }
 
     public Map<String, Map<String, Object>> getAllMetrics() {
         Map<String, Map<String, Object>> allMetrics = new LinkedHashMap<>();
-        
-        for (Map.Entry<String, List<Long>> entry : metrics.entrySet()) {
-            String key = entry.getKey();
-            List<Long> times = entry.getValue();
-            Long count = callCounts.get(key);
-            
-            allMetrics.put(key, calculateStatistics(times, count));
+        long now = System.nanoTime();
+
+        for (Map.Entry<String, LatencyRecorder> entry : metrics.entrySet()) {
+            allMetrics.put(entry.getKey(), entry.getValue().snapshot(now));
         }
-        
+
         return allMetrics;
     }
 
-    private Map<String, Object> calculateStatistics(List<Long> times, Long callCount) {
-        Map<String, Object> stats = new LinkedHashMap<>();
-        
-        if (times.isEmpty()) {
-            return stats;
-        }
-        
-        List<Long> sortedTimes = new ArrayList<>(times);
-        Collections.sort(sortedTimes);
-        
-        long min = sortedTimes.getFirst();
-        long max = sortedTimes.getLast();
-        long sum = sortedTimes.stream().mapToLong(Long::longValue).sum();
-        long average = sum / sortedTimes.size();
-        long median = calculateMedian(sortedTimes);
-        long p95 = calculatePercentile(sortedTimes, 95);
-        long p99 = calculatePercentile(sortedTimes, 99);
-        
-        stats.put("callCount", callCount);
-        stats.put("min", min);
-        stats.put("max", max);
-        stats.put("average", average);
-        stats.put("median", median);
-        stats.put("p95", p95);
-        stats.put("p99", p99);
-        stats.put("totalTime", sum);
-        
-        return stats;
-    }
-    
-    private long calculateMedian(List<Long> sortedTimes) {
-        int size = sortedTimes.size();
-        if (size % 2 == 0) {
-            return (sortedTimes.get(size / 2 - 1) + sortedTimes.get(size / 2)) / 2;
-        } else {
-            return sortedTimes.get(size / 2);
-        }
-    }
-    
-    private long calculatePercentile(List<Long> sortedTimes, int percentile) {
-        int index = (int) Math.ceil(percentile / 100.0 * sortedTimes.size()) - 1;
-        index = Math.max(0, Math.min(index, sortedTimes.size() - 1));
-        return sortedTimes.get(index);
+    /**
+     * Moves recorded values into their time slices, so windows stay accurate between reads.
+     */
+    @Scheduled(fixedRate = 10000)
+    public void harvest() {
+        long now = System.nanoTime();
+        metrics.values().forEach(recorder -> recorder.harvest(now));
     }
 
 }
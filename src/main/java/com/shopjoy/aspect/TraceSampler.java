@@ -0,0 +1,94 @@
+package com.shopjoy.aspect;
+
+import com.shopjoy.config.TracingProperties;
+import com.shopjoy.exception.ValidationException;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which calls get tracing lines, from per-package sample rates that can be
+ * changed at runtime. The rate of each class is resolved once per configuration change,
+ * so a decision costs a map lookup and, for rates between 0 and 1, one random number.
+ */
+@Component
+public class TraceSampler {
+
+    private record Rates(double defaultRate, List<Map.Entry<String, Double>> byPrefix,
+                         Map<Class<?>, Double> resolved) {
+    }
+
+    private volatile Rates rates;
+
+    public TraceSampler(TracingProperties tracingProperties) {
+        this.rates = rates(tracingProperties.getDefaultSampleRate(), tracingProperties.getSampleRates());
+    }
+
+    /**
+     * Returns whether a call on the given class should be traced.
+     */
+    public boolean sample(Class<?> type) {
+        Rates current = rates;
+        Double rate = current.resolved().get(type);
+        if (rate == null) {
+            rate = current.resolved().computeIfAbsent(type, _ -> resolve(current, type.getName()));
+        }
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    public synchronized void setSampleRate(String prefix, double rate) {
+        Map<String, Double> sampleRates = new LinkedHashMap<>(getSampleRates());
+        sampleRates.put(prefix, validate(rate));
+        rates = rates(rates.defaultRate(), sampleRates);
+    }
+
+    public synchronized void removeSampleRate(String prefix) {
+        Map<String, Double> sampleRates = new LinkedHashMap<>(getSampleRates());
+        sampleRates.remove(prefix);
+        rates = rates(rates.defaultRate(), sampleRates);
+    }
+
+    public synchronized void setDefaultSampleRate(double rate) {
+        rates = rates(validate(rate), getSampleRates());
+    }
+
+    public double getDefaultSampleRate() {
+        return rates.defaultRate();
+    }
+
+    public Map<String, Double> getSampleRates() {
+        Map<String, Double> sampleRates = new LinkedHashMap<>();
+        rates.byPrefix().forEach(entry -> sampleRates.put(entry.getKey(), entry.getValue()));
+        return sampleRates;
+    }
+
+    private static Rates rates(double defaultRate, Map<String, Double> sampleRates) {
+        sampleRates.values().forEach(TraceSampler::validate);
+        List<Map.Entry<String, Double>> byPrefix = sampleRates.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingInt((Map.Entry<String, Double> entry) -> entry.getKey().length()).reversed())
+                .toList();
+        return new Rates(validate(defaultRate), byPrefix, new ConcurrentHashMap<>());
+    }
+
+    private static double resolve(Rates rates, String className) {
+        for (Map.Entry<String, Double> entry : rates.byPrefix()) {
+            if (className.startsWith(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return rates.defaultRate();
+    }
+
+    private static double validate(double rate) {
+        if (!(rate >= 0.0 && rate <= 1.0)) {
+            throw new ValidationException("sampleRate", "must be between 0.0 and 1.0");
+        }
+        return rate;
+    }
+}
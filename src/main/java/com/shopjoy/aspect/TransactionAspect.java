@@ -10,88 +10,92 @@ import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Traces transactional calls. START and COMMIT lines are DEBUG-level and sampled by the
+ * {@link TraceSampler}; rollbacks and long transactions are always logged.
+ * The sampling decision is made once, when the transaction starts, and reused for its
+ * outcome line, so a sampled START always has its COMMIT and vice versa.
+ * Method signatures are only rendered for lines that are written.
+ */
 @Aspect
 @Component
 public class TransactionAspect {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(TransactionAspect.class);
     private static final DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
     private static final long LONG_TRANSACTION_THRESHOLD = 5000;
-    
-    @Before("@within(org.springframework.transaction.annotation.Transactional)")
-    public void logTransactionalClassStart(JoinPoint joinPoint) {
-        logTransactionStart(joinPoint);
-    }
-    
-    @Before("@annotation(org.springframework.transaction.annotation.Transactional)")
-    public void logTransactionStart(JoinPoint joinPoint) {
-        String timestamp = LocalDateTime.now().format(timeFormatter);
-        String methodSignature = AspectUtils.extractMethodSignature(joinPoint);
-        
-        logger.info("[{}] TRANSACTION START: {}", timestamp, methodSignature);
-    }
-    
-    @AfterReturning("@within(org.springframework.transaction.annotation.Transactional)")
-    public void logTransactionalClassCommit(JoinPoint joinPoint) {
-        logTransactionCommit(joinPoint);
-    }
-    
-    @AfterReturning("@annotation(org.springframework.transaction.annotation.Transactional)")
-    public void logTransactionCommit(JoinPoint joinPoint) {
-        String timestamp = LocalDateTime.now().format(timeFormatter);
-        String methodSignature = AspectUtils.extractMethodSignature(joinPoint);
-        
-        logger.info("[{}] TRANSACTION COMMIT: {}", timestamp, methodSignature);
+    private static final long LONG_TRANSACTION_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(LONG_TRANSACTION_THRESHOLD);
+
+    private final TraceSampler traceSampler;
+
+    public TransactionAspect(TraceSampler traceSampler) {
+        this.traceSampler = traceSampler;
     }
-    
+
     @AfterThrowing(pointcut = "@within(org.springframework.transaction.annotation.Transactional)", throwing = "exception")
     public void logTransactionalClassRollback(JoinPoint joinPoint, Exception exception) {
         logTransactionRollback(joinPoint, exception);
     }
-    
+
     @AfterThrowing(pointcut = "@annotation(org.springframework.transaction.annotation.Transactional)", throwing = "exception")
     public void logTransactionRollback(JoinPoint joinPoint, Exception exception) {
+        if (!logger.isErrorEnabled()) {
+            return;
+        }
         String timestamp = LocalDateTime.now().format(timeFormatter);
         String methodSignature = AspectUtils.extractMethodSignature(joinPoint);
-        
-        logger.error("[{}] TRANSACTION ROLLBACK: {} - Exception: {}", 
+
+        logger.error("[{}] TRANSACTION ROLLBACK: {} - Exception: {}",
             timestamp, methodSignature, exception.getMessage());
     }
-    
+
     @Around("@within(org.springframework.transaction.annotation.Transactional) || @annotation(org.springframework.transaction.annotation.Transactional)")
     public Object monitorTransactionDuration(ProceedingJoinPoint joinPoint) throws Throwable {
-        String methodSignature = AspectUtils.extractMethodSignature(joinPoint);
-        long startTime = System.currentTimeMillis();
-        
+        boolean traced = logger.isDebugEnabled() && traceSampler.sample(LoggingAspect.tracedType(joinPoint));
+        if (traced) {
+            logger.debug("[{}] TRANSACTION START: {}",
+                LocalDateTime.now().format(timeFormatter), AspectUtils.extractMethodSignature(joinPoint));
+        }
+        long startTime = System.nanoTime();
+
         try {
             Object result = joinPoint.proceed();
-            long duration = System.currentTimeMillis() - startTime;
-            
-            if (duration > LONG_TRANSACTION_THRESHOLD) {
-                logger.warn("LONG RUNNING TRANSACTION: {} took {}", 
-                    methodSignature, AspectUtils.formatExecutionTime(duration));
-            } else {
-                logger.debug("Transaction {} completed in {}", 
-                    methodSignature, AspectUtils.formatExecutionTime(duration));
+            long duration = System.nanoTime() - startTime;
+
+            if (traced) {
+                logger.debug("[{}] TRANSACTION COMMIT: {}",
+                    LocalDateTime.now().format(timeFormatter), AspectUtils.extractMethodSignature(joinPoint));
             }
-            
+
+            if (duration > LONG_TRANSACTION_THRESHOLD_NANOS) {
+                logger.warn("LONG RUNNING TRANSACTION: {} took {}",
+                    AspectUtils.extractMethodSignature(joinPoint), AspectUtils.formatExecutionTime(TimeUnit.NANOSECONDS.toMillis(duration)));
+            } else if (traced) {
+                logger.debug("Transaction {} completed in {}",
+                    AspectUtils.extractMethodSignature(joinPoint), AspectUtils.formatExecutionTime(TimeUnit.NANOSECONDS.toMillis(duration)));
+            }
+
             return result;
         } catch (Throwable t) {
-            long duration = System.currentTimeMillis() - startTime;
-            logger.error("Transaction {} failed after {} with exception: {}", 
-                methodSignature, AspectUtils.formatExecutionTime(duration), t.getMessage());
+            long duration = System.nanoTime() - startTime;
+            logger.error("Transaction {} failed after {} with exception: {}",
+                AspectUtils.extractMethodSignature(joinPoint), AspectUtils.formatExecutionTime(TimeUnit.NANOSECONDS.toMillis(duration)), t.getMessage());
             throw t;
         }
     }
-    
+
     @Before("com.shopjoy.aspect.CommonPointcuts.dataModificationMethods() && @annotation(org.springframework.transaction.annotation.Transactional)")
     public void logDataModificationTransaction(JoinPoint joinPoint) {
+        if (!logger.isInfoEnabled() || !traceSampler.sample(LoggingAspect.tracedType(joinPoint))) {
+            return;
+        }
         String timestamp = LocalDateTime.now().format(timeFormatter);
         String methodSignature = AspectUtils.extractMethodSignature(joinPoint);
         String args = AspectUtils.sanitizeArgs(joinPoint.getArgs());
-        
-        logger.info("[{}] TRANSACTIONAL DATA MODIFICATION: {} with arguments: {}", 
+
+        logger.info("[{}] TRANSACTIONAL DATA MODIFICATION: {} with arguments: {}",
             timestamp, methodSignature, args);
     }
 }
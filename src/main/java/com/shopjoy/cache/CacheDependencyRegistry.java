@@ -0,0 +1,91 @@
+package com.shopjoy.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps every dependency-tracking cache by name, across all cache managers,
+ * and evicts the entries that depend on a changed entity.
+ */
+@Component
+public class CacheDependencyRegistry {
+
+    private final Map<String, DependencyTrackingCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a cache, replacing any earlier cache with the same name.
+     *
+     * @param cache the cache
+     */
+    public void register(DependencyTrackingCache cache) {
+        caches.put(cache.getName(), cache);
+    }
+
+    /**
+     * Evicts the entries that reference an entity.
+     *
+     * @param entity the changed entity
+     * @param cacheNames the caches to look in, or empty for every tracked cache
+     * @return the number of evicted entries
+     */
+    public int invalidate(EntityKey entity, Collection<String> cacheNames) {
+        Collection<DependencyTrackingCache> targets = cacheNames.isEmpty()
+                ? caches.values()
+                : cacheNames.stream().map(caches::get).filter(Objects::nonNull).toList();
+
+        int evicted = 0;
+        for (DependencyTrackingCache cache : targets) {
+            evicted += cache.evictDependents(entity);
+        }
+        return evicted;
+    }
+
+    /**
+     * Invalidates several entities of the same type.
+     *
+     * @param entities the changed entities
+     * @param cacheNames the caches to look in, or empty for every tracked cache
+     * @return the number of evicted entries
+     */
+    public int invalidateAll(List<EntityKey> entities, Collection<String> cacheNames) {
+        int evicted = 0;
+        for (EntityKey entity : entities) {
+            evicted += invalidate(entity, cacheNames);
+        }
+        return evicted;
+    }
+
+    /**
+     * Returns the tracking cache with the given name, if any.
+     *
+     * @param name the cache name
+     * @return the cache or null
+     */
+    public DependencyTrackingCache getCache(String name) {
+        return caches.get(name);
+    }
+
+    /**
+     * Returns per-cache counts of dependency invalidations and full clears.
+     *
+     * @return counts keyed by cache name
+     */
+    public Map<String, Map<String, Long>> getInvalidationCounts() {
+        Map<String, Map<String, Long>> counts = new LinkedHashMap<>();
+        caches.values().stream()
+                .sorted((a, b) -> a.getName().compareTo(b.getName()))
+                .forEach(cache -> {
+                    Map<String, Long> cacheCounts = new LinkedHashMap<>();
+                    cacheCounts.put("invalidations", cache.getInvalidationCount());
+                    cacheCounts.put("clears", cache.getClearCount());
+                    counts.put(cache.getName(), cacheCounts);
+                });
+        return counts;
+    }
+}
@@ -0,0 +1,81 @@
+package com.shopjoy.cache;
+
+import com.shopjoy.dto.response.CategoryResponse;
+import com.shopjoy.dto.response.InventoryResponse;
+import com.shopjoy.dto.response.OrderResponse;
+import com.shopjoy.dto.response.ProductResponse;
+import com.shopjoy.dto.response.UserResponse;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Works out which entities a cached value references, looking inside collections and pages.
+ */
+public final class CacheDependencyResolver {
+
+    private CacheDependencyResolver() {
+    }
+
+    /**
+     * Resolves the entity keys referenced by a cached value.
+     *
+     * @param value the cached value
+     * @return the referenced entity keys, empty if the value is not entity-backed
+     */
+    public static Set<EntityKey> resolve(Object value) {
+        if (value == null) {
+            return Collections.emptySet();
+        }
+        Set<EntityKey> keys = new HashSet<>();
+        collect(value, keys);
+        return keys;
+    }
+
+    /**
+     * Resolves the entity keys referenced by a cached value, plus the cache key itself
+     * when it is an {@link EntityKey}, e.g. a per-product flag cached under the product.
+     *
+     * @param key the cache key
+     * @param value the cached value
+     * @return the referenced entity keys, empty if neither is entity-backed
+     */
+    public static Set<EntityKey> resolve(Object key, Object value) {
+        if (!(key instanceof EntityKey entity)) {
+            return resolve(value);
+        }
+        Set<EntityKey> keys = new HashSet<>();
+        keys.add(entity);
+        if (value != null) {
+            collect(value, keys);
+        }
+        return keys;
+    }
+
+    private static void collect(Object value, Set<EntityKey> keys) {
+        switch (value) {
+            case CacheDependent dependent -> keys.addAll(dependent.cacheDependencies());
+            case ProductResponse product -> add(keys, EntityKey.PRODUCT, product.getId());
+            case InventoryResponse inventory -> add(keys, EntityKey.PRODUCT, inventory.getProductId());
+            case OrderResponse order -> add(keys, EntityKey.ORDER, order.getId());
+            case CategoryResponse category -> add(keys, EntityKey.CATEGORY, category.getId());
+            case UserResponse user -> add(keys, EntityKey.USER, user.getId());
+            case Iterable<?> iterable -> {
+                for (Object element : iterable) {
+                    if (element != null) {
+                        collect(element, keys);
+                    }
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private static void add(Set<EntityKey> keys, String type, Object id) {
+        if (id != null) {
+            keys.add(EntityKey.of(type, id));
+        }
+    }
+}
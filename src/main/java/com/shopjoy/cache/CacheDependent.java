@@ -0,0 +1,16 @@
+package com.shopjoy.cache;
+
+import java.util.Collection;
+
+/**
+ * Implemented by cached values that know which entities they depend on.
+ */
+public interface CacheDependent {
+
+    /**
+     * Returns the entities this value was built from.
+     *
+     * @return the entity keys
+     */
+    Collection<EntityKey> cacheDependencies();
+}
@@ -0,0 +1,159 @@
+package com.shopjoy.cache;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.springframework.data.domain.Page;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Caffeine weigher that estimates the retained size of a cached value in bytes, so a
+ * list of hundreds of DTOs weighs hundreds of times more than a single DTO.
+ * <p>
+ * The estimate follows a 64-bit JVM with compressed oops: 16 byte object headers,
+ * 4 byte references, 8 byte alignment. DTO fields are found by reflection once per class.
+ * It walks collections, maps, pages and DTO fields up to a fixed depth; values below
+ * that depth count as one reference. Shared instances are counted every time they are
+ * reached, which overestimates slightly but keeps weighing cheap.
+ */
+public class CacheEntryWeigher implements Weigher<Object, Object> {
+
+    private static final int OBJECT_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int MAX_DEPTH = 6;
+
+    private static final ClassValue<List<Field>> REFERENCE_FIELDS = new ClassValue<>() {
+        @Override
+        protected List<Field> computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()
+                            && field.trySetAccessible()) {
+                        fields.add(field);
+                    }
+                }
+            }
+            return List.copyOf(fields);
+        }
+    };
+
+    private static final ClassValue<Integer> SHALLOW_SIZE = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            int size = OBJECT_HEADER;
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        size += fieldSize(field.getType());
+                    }
+                }
+            }
+            return align(size);
+        }
+    };
+
+    @Override
+    public int weigh(Object key, Object value) {
+        long weight = estimate(key, 0) + estimate(value, 0);
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, weight));
+    }
+
+    /**
+     * Estimates the retained size of a value in bytes.
+     *
+     * @param value the value
+     * @return the estimated size
+     */
+    public static long estimate(Object value) {
+        return estimate(value, 0);
+    }
+
+    private static long estimate(Object value, int depth) {
+        if (value == null) {
+            return 0;
+        }
+        if (depth >= MAX_DEPTH) {
+            return REFERENCE;
+        }
+        return switch (value) {
+            case String string -> align(OBJECT_HEADER + 8) + align(OBJECT_HEADER + string.length());
+            case Number _, Boolean _, Character _, UUID _ -> 24;
+            case Enum<?> _, Class<?> _ -> 0;
+            case Temporal _ -> 48;
+            case EntityIdList list -> align(OBJECT_HEADER + 2L * REFERENCE)
+                    + align(OBJECT_HEADER + (long) REFERENCE * list.ids().size())
+                    + 16L * list.ids().size();
+            case Page<?> page -> OBJECT_HEADER + 32 + estimate(page.getContent(), depth + 1);
+            case Collection<?> collection -> {
+                long size = align(OBJECT_HEADER + 16) + align(OBJECT_HEADER + (long) REFERENCE * collection.size());
+                for (Object element : collection) {
+                    size += estimate(element, depth + 1);
+                }
+                yield size;
+            }
+            case Map<?, ?> map -> {
+                long size = align(OBJECT_HEADER + 32) + align(OBJECT_HEADER + (long) REFERENCE * map.size() * 2);
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    size += 32 + estimate(entry.getKey(), depth + 1) + estimate(entry.getValue(), depth + 1);
+                }
+                yield size;
+            }
+            case Object[] array -> {
+                long size = align(OBJECT_HEADER + (long) REFERENCE * array.length);
+                for (Object element : array) {
+                    size += estimate(element, depth + 1);
+                }
+                yield size;
+            }
+            default -> estimateObject(value, depth);
+        };
+    }
+
+    private static long estimateObject(Object value, int depth) {
+        Class<?> type = value.getClass();
+        if (type.isArray()) {
+            return align(OBJECT_HEADER + (long) fieldSize(type.getComponentType()) * Array.getLength(value));
+        }
+        long size = SHALLOW_SIZE.get(type);
+        for (Field field : REFERENCE_FIELDS.get(type)) {
+            try {
+                size += estimate(field.get(value), depth + 1);
+            } catch (IllegalAccessException e) {
+                size += REFERENCE;
+            }
+        }
+        return size;
+    }
+
+    private static int fieldSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return REFERENCE;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+}
@@ -0,0 +1,115 @@
+package com.shopjoy.cache;
+
+import org.springframework.cache.interceptor.SimpleKey;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Tells the other nodes to drop a local cache entry, or a whole local cache.
+ * <p>
+ * On the wire a message is plain text, see {@link #encode()}. Only keys that are
+ * integers, longs, strings, the empty key of no-argument methods, or {@link EntityKey}s
+ * with a long or string id can be sent; an eviction of any other key is sent as a clear
+ * of its cache.
+ *
+ * @param origin the node that made the change, so it can ignore its own message
+ * @param cacheName the cache name, or null for every cache
+ * @param key the evicted key, or null when the whole cache was cleared
+ */
+public record CacheInvalidationMessage(String origin, String cacheName, Object key) {
+
+    private static final String VERSION = "1";
+    private static final int FIELDS = 6;
+
+    public static CacheInvalidationMessage evict(String origin, String cacheName, Object key) {
+        return new CacheInvalidationMessage(origin, cacheName, key);
+    }
+
+    public static CacheInvalidationMessage clear(String origin, String cacheName) {
+        return new CacheInvalidationMessage(origin, cacheName, null);
+    }
+
+    /**
+     * Message sent by a transport that may have missed messages, e.g. after a reconnect.
+     * It has no origin, so every node applies it.
+     */
+    public static CacheInvalidationMessage clearAll() {
+        return new CacheInvalidationMessage(null, null, null);
+    }
+
+    public boolean isClearAll() {
+        return cacheName == null;
+    }
+
+    public boolean isClear() {
+        return key == null;
+    }
+
+    /**
+     * Encodes the message as six space-separated, URL-encoded fields: format version,
+     * origin, cache name, key type ({@code int}, {@code long}, {@code string} or
+     * {@code empty}), key id and entity type. A null field is empty.
+     *
+     * @return the encoded message
+     */
+    public String encode() {
+        Object id = key instanceof EntityKey entity ? entity.id() : key;
+        String keyType = keyType(id);
+        if (key != null && keyType == null) {
+            return clear(origin, cacheName).encode();
+        }
+        String keyId = id instanceof SimpleKey || id == null ? null : id.toString();
+        String entityType = key instanceof EntityKey entity ? entity.type() : null;
+        return Arrays.stream(new String[] {VERSION, origin, cacheName, keyType, keyId, entityType})
+                .map(field -> field == null ? "" : URLEncoder.encode(field, StandardCharsets.UTF_8))
+                .collect(Collectors.joining(" "));
+    }
+
+    /**
+     * Decodes a message written by {@link #encode()}.
+     *
+     * @param payload the encoded message
+     * @return the message
+     * @throws IllegalArgumentException if the payload is not a valid message
+     */
+    public static CacheInvalidationMessage decode(String payload) {
+        String[] fields = payload.split(" ", -1);
+        if (fields.length != FIELDS || !VERSION.equals(fields[0])) {
+            throw new IllegalArgumentException("Unsupported cache invalidation message format");
+        }
+        String origin = field(fields[1]);
+        String cacheName = field(fields[2]);
+        String keyId = field(fields[4]);
+        String entityType = field(fields[5]);
+        Object key = switch (fields[3]) {
+            case "" -> null;
+            case "int" -> Integer.valueOf(keyId);
+            case "long" -> Long.valueOf(keyId);
+            case "string" -> keyId != null ? keyId : "";
+            case "empty" -> SimpleKey.EMPTY;
+            default -> throw new IllegalArgumentException("Unknown cache key type: " + fields[3]);
+        };
+        if (entityType != null && key != null) {
+            key = EntityKey.of(entityType, key);
+        }
+        return new CacheInvalidationMessage(origin, cacheName, key);
+    }
+
+    private static String keyType(Object id) {
+        return switch (id) {
+            case Integer _ -> "int";
+            case Long _ -> "long";
+            case String _ -> "string";
+            case SimpleKey simpleKey when SimpleKey.EMPTY.equals(simpleKey) -> "empty";
+            case null, default -> null;
+        };
+    }
+
+    private static String field(String encoded) {
+        return encoded.isEmpty() ? null : URLDecoder.decode(encoded, StandardCharsets.UTF_8);
+    }
+}
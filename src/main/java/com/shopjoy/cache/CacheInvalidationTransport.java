@@ -0,0 +1,24 @@
+package com.shopjoy.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries cache invalidation messages between application nodes.
+ * Every subscriber receives every message, including the ones its own node published.
+ */
+public interface CacheInvalidationTransport {
+
+    /**
+     * Sends a message to every node.
+     *
+     * @param message the message
+     */
+    void publish(CacheInvalidationMessage message);
+
+    /**
+     * Registers a listener for incoming messages.
+     *
+     * @param listener the listener
+     */
+    void subscribe(Consumer<CacheInvalidationMessage> listener);
+}
@@ -0,0 +1,298 @@
+package com.shopjoy.cache;
+
+import org.springframework.cache.Cache;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache decorator that indexes every entry by the entities its value references,
+ * so a write can evict exactly the entries built from the entity it changed.
+ * <p>
+ * Values are stored first and indexed afterwards. Every dependent eviction stamps
+ * its entity with a new epoch before it reads the index, so a write that races with
+ * the eviction checks, once its value is indexed, whether one of the value's entities
+ * was evicted since the write started, and evicts the value again if so. A key that is
+ * itself an {@link EntityKey} counts as a dependency of its value. Entries dropped by
+ * the underlying cache on expiry or size eviction are pruned from the index lazily.
+ */
+public class DependencyTrackingCache implements Cache {
+
+    private static final int PRUNE_SLACK = 64;
+    private static final int EPOCH_STRIPES = 1024;
+
+    private final Cache delegate;
+    private final Map<EntityKey, Set<Object>> keysByEntity = new ConcurrentHashMap<>();
+    private final Map<Object, Set<EntityKey>> entitiesByKey = new ConcurrentHashMap<>();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder clears = new LongAdder();
+    private final AtomicLong epoch = new AtomicLong();
+    private final AtomicLongArray evictedAt = new AtomicLongArray(EPOCH_STRIPES);
+
+    public DependencyTrackingCache(Cache delegate) {
+        this.delegate = delegate;
+        if (delegate instanceof TwoLevelCache twoLevelCache) {
+            twoLevelCache.setPromotionListener(this::track);
+        }
+    }
+
+    /**
+     * Evicts every entry whose value references the given entity.
+     *
+     * @param entity the changed entity
+     * @return the number of evicted entries
+     */
+    public int evictDependents(EntityKey entity) {
+        evictedAt.accumulateAndGet(stripe(entity), epoch.incrementAndGet(), Math::max);
+        Set<Object> keys = keysByEntity.remove(entity);
+        if (keys == null) {
+            return 0;
+        }
+        int evicted = 0;
+        for (Object key : keys) {
+            delegate.evict(key);
+            untrack(key);
+            evicted++;
+        }
+        invalidations.add(evicted);
+        return evicted;
+    }
+
+    /**
+     * Returns the number of entries evicted because an entity they reference changed.
+     */
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Returns the number of times the whole cache was cleared.
+     */
+    public long getClearCount() {
+        return clears.sum();
+    }
+
+    /**
+     * Returns the number of distinct entities currently referenced by cached entries.
+     */
+    public int getTrackedEntityCount() {
+        return keysByEntity.size();
+    }
+
+    public Cache getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        long since = epoch.get();
+        ValueWrapper value = delegate.get(key);
+        if (value != null && delegate instanceof TwoLevelCache) {
+            // the value may have just been promoted from L2
+            evictIfStale(key, value.get(), since);
+        }
+        return value;
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        long since = epoch.get();
+        AtomicBoolean loaded = new AtomicBoolean();
+        T value = delegate.get(key, () -> {
+            loaded.set(true);
+            return valueLoader.call();
+        });
+        if (loaded.get()) {
+            track(key, value);
+        }
+        evictIfStale(key, value, since);
+        return value;
+    }
+
+    @Override
+    public CompletableFuture<?> retrieve(Object key) {
+        return delegate.retrieve(key);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+        long since = epoch.get();
+        return delegate.retrieve(key, () -> valueLoader.get().thenApply(value -> {
+            track(key, value);
+            evictIfStale(key, value, since);
+            return value;
+        }));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        store(key, value, () -> delegate.put(key, value));
+    }
+
+    /**
+     * Stores the result of a write. In a cluster the other nodes drop their copy, which
+     * a plain {@link #put} does not do.
+     *
+     * @param key the key
+     * @param value the new value
+     */
+    public void writeThrough(Object key, Object value) {
+        if (delegate instanceof TwoLevelCache twoLevelCache) {
+            store(key, value, () -> twoLevelCache.writeThrough(key, value));
+        } else {
+            put(key, value);
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        long since = epoch.get();
+        ValueWrapper existing = delegate.putIfAbsent(key, value);
+        if (existing == null) {
+            track(key, value);
+            evictIfStale(key, value, since);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+        untrack(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean evicted = delegate.evictIfPresent(key);
+        untrack(key);
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        keysByEntity.clear();
+        entitiesByKey.clear();
+        clears.increment();
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean invalidated = delegate.invalidate();
+        keysByEntity.clear();
+        entitiesByKey.clear();
+        clears.increment();
+        return invalidated;
+    }
+
+    /**
+     * Indexes a value the underlying cache loaded or reloaded by itself. The loader runs
+     * inside the cache's per-key computation, so an eviction of the key waits for the
+     * value to be stored; one that ran earlier is caught by the caller's stale check.
+     *
+     * @param key the key
+     * @param value the loaded value
+     */
+    void trackLoaded(Object key, Object value) {
+        track(key, value);
+    }
+
+    private void store(Object key, Object value, Runnable write) {
+        long since = epoch.get();
+        write.run();
+        track(key, value);
+        evictIfStale(key, value, since);
+    }
+
+    /**
+     * Evicts the entry again if one of the entities its value depends on was evicted
+     * after {@code since}, i.e. while the value was being stored and indexed.
+     */
+    private void evictIfStale(Object key, Object value, long since) {
+        if (epoch.get() == since) {
+            return;
+        }
+        for (EntityKey entity : CacheDependencyResolver.resolve(key, value)) {
+            if (evictedAt.get(stripe(entity)) > since) {
+                evict(key);
+                invalidations.increment();
+                return;
+            }
+        }
+    }
+
+    private static int stripe(EntityKey entity) {
+        return Math.floorMod(entity.hashCode(), EPOCH_STRIPES);
+    }
+
+    private void track(Object key, Object value) {
+        untrack(key);
+        Set<EntityKey> entities = CacheDependencyResolver.resolve(key, value);
+        if (entities.isEmpty()) {
+            return;
+        }
+        pruneIfNeeded();
+        entitiesByKey.put(key, entities);
+        for (EntityKey entity : entities) {
+            keysByEntity.compute(entity, (_, keys) -> {
+                Set<Object> result = keys != null ? keys : ConcurrentHashMap.newKeySet();
+                result.add(key);
+                return result;
+            });
+        }
+    }
+
+    private void untrack(Object key) {
+        Set<EntityKey> entities = entitiesByKey.remove(key);
+        if (entities == null) {
+            return;
+        }
+        for (EntityKey entity : entities) {
+            keysByEntity.computeIfPresent(entity, (_, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    /**
+     * Drops index entries for keys the underlying Caffeine cache no longer holds,
+     * once the index has grown well past the cache itself.
+     */
+    private void pruneIfNeeded() {
+        if (!(delegate.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache)) {
+            return;
+        }
+        Map<?, ?> live = nativeCache.asMap();
+        if (entitiesByKey.size() <= live.size() * 2L + PRUNE_SLACK) {
+            return;
+        }
+        entitiesByKey.keySet().stream()
+                .filter(key -> !live.containsKey(key))
+                .toList()
+                .forEach(this::untrack);
+    }
+}
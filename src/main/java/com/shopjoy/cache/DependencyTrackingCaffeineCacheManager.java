@@ -0,0 +1,100 @@
+package com.shopjoy.cache;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * CaffeineCacheManager whose caches are wrapped in {@link DependencyTrackingCache}
+ * and registered with the {@link CacheDependencyRegistry}.
+ * Caches can be built from a per-name Caffeine builder instead of one shared builder,
+ * and can get a loader so refresh-after-write reloads entries in the background.
+ */
+public class DependencyTrackingCaffeineCacheManager extends CaffeineCacheManager {
+
+    private final CacheDependencyRegistry registry;
+    private final Map<String, CacheLoader<Object, Object>> cacheLoaders = new ConcurrentHashMap<>();
+    private Function<String, Caffeine<Object, Object>> builderFactory;
+
+    public DependencyTrackingCaffeineCacheManager(CacheDependencyRegistry registry, String... cacheNames) {
+        this(registry);
+        setCacheNames(Arrays.asList(cacheNames));
+    }
+
+    /**
+     * Creates the manager without caches, for subclasses that must initialise their
+     * own state before {@link #setCacheNames} builds the caches.
+     *
+     * @param registry the dependency registry
+     */
+    protected DependencyTrackingCaffeineCacheManager(CacheDependencyRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Builds every cache from its own Caffeine builder and rebuilds the existing caches.
+     *
+     * @param builderFactory returns the builder for a cache name
+     */
+    public void setBuilderFactory(Function<String, Caffeine<Object, Object>> builderFactory) {
+        this.builderFactory = builderFactory;
+        setCacheNames(new ArrayList<>(getCacheNames()));
+    }
+
+    /**
+     * Registers the loader of a cache and rebuilds that cache as a loading cache, so a
+     * refresh-after-write setting serves the old value while one background reload runs.
+     * Reloaded values are indexed by dependency before they replace the old ones.
+     *
+     * @param name the cache name
+     * @param loader loads the value of a key
+     */
+    public void registerCacheLoader(String name, CacheLoader<Object, Object> loader) {
+        cacheLoaders.put(name, key -> {
+            Object value = loader.load(key);
+            if (getCache(name) instanceof DependencyTrackingCache trackingCache) {
+                trackingCache.trackLoaded(key, value);
+            }
+            return value;
+        });
+        registerCustomCache(name, createNativeCaffeineCache(name));
+    }
+
+    public boolean hasCacheLoader(String name) {
+        return cacheLoaders.containsKey(name);
+    }
+
+    @Override
+    protected com.github.benmanes.caffeine.cache.Cache<Object, Object> createNativeCaffeineCache(String name) {
+        if (builderFactory == null) {
+            return super.createNativeCaffeineCache(name);
+        }
+        CacheLoader<Object, Object> loader = cacheLoaders.get(name);
+        return loader != null ? builderFactory.apply(name).build(loader) : builderFactory.apply(name).build();
+    }
+
+    @Override
+    protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+        DependencyTrackingCache trackingCache = new DependencyTrackingCache(decorate(name, super.adaptCaffeineCache(name, cache)));
+        registry.register(trackingCache);
+        return trackingCache;
+    }
+
+    /**
+     * Hook to layer more behaviour over the Caffeine cache before dependency tracking.
+     *
+     * @param name the cache name
+     * @param cache the Caffeine-backed cache
+     * @return the cache to track
+     */
+    protected Cache decorate(String name, Cache cache) {
+        return cache;
+    }
+}
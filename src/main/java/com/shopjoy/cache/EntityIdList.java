@@ -0,0 +1,39 @@
+package com.shopjoy.cache;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Cached membership of a list: only the ids of its entities, in order.
+ * The entities themselves live in their own per-id cache, so a change to one entity
+ * evicts that entity's entry instead of every list it appears in. A list is only
+ * evicted when one of its members is removed from it, or when an entity in its scope
+ * changes, e.g. a product is added to the category the list is filtered by.
+ *
+ * @param entityType the entity type of the ids
+ * @param ids the ordered entity ids
+ * @param scope the entities that decide which ids belong to the list
+ */
+public record EntityIdList(String entityType, List<Integer> ids, List<EntityKey> scope)
+        implements CacheDependent, Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 2L;
+
+    public EntityIdList {
+        ids = List.copyOf(ids);
+        scope = List.copyOf(scope);
+    }
+
+    public EntityIdList(String entityType, List<Integer> ids) {
+        this(entityType, ids, List.of());
+    }
+
+    @Override
+    public List<EntityKey> cacheDependencies() {
+        return Stream.concat(ids.stream().map(id -> EntityKey.of(entityType, id)), scope.stream())
+                .toList();
+    }
+}
@@ -0,0 +1,32 @@
+package com.shopjoy.cache;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Identifies one entity that a cached value was built from, e.g. product 42.
+ * Numeric ids are normalised to long so Integer and Long ids of the same entity match.
+ *
+ * @param type the entity type
+ * @param id the entity id
+ */
+public record EntityKey(String type, Object id) implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public static final String PRODUCT = "product";
+    public static final String ORDER = "order";
+    public static final String CATEGORY = "category";
+    public static final String USER = "user";
+
+    public EntityKey {
+        if (id instanceof Number number) {
+            id = number.longValue();
+        }
+    }
+
+    public static EntityKey of(String type, Object id) {
+        return new EntityKey(type, id);
+    }
+}
@@ -0,0 +1,26 @@
+package com.shopjoy.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-JVM transport that hands every message straight to every subscriber.
+ * Used for single-node runs and for testing several cache managers as separate nodes.
+ */
+public class LoopbackCacheInvalidationTransport implements CacheInvalidationTransport {
+
+    private final List<Consumer<CacheInvalidationMessage>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(CacheInvalidationMessage message) {
+        for (Consumer<CacheInvalidationMessage> listener : listeners) {
+            listener.accept(message);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidationMessage> listener) {
+        listeners.add(listener);
+    }
+}
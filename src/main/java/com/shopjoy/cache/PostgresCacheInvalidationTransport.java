@@ -0,0 +1,154 @@
+package com.shopjoy.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Broadcasts cache invalidations with Postgres LISTEN/NOTIFY.
+ * <p>
+ * The NOTIFY payload is the plain-text form of the message from
+ * {@link CacheInvalidationMessage#encode()}; nothing is deserialized into objects when it
+ * is read back. A payload over the 8000 byte NOTIFY limit is sent as a clear of the
+ * whole cache instead.
+ * A daemon thread holds one connection that LISTENs on the channel. When that
+ * connection is lost, messages may have been missed, so after reconnecting the
+ * listeners are told to clear every local cache.
+ * <p>
+ * A NOTIFY sent inside a transaction is only delivered when it commits.
+ */
+@Slf4j
+public class PostgresCacheInvalidationTransport implements CacheInvalidationTransport, AutoCloseable {
+
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final int MAX_PAYLOAD_BYTES = 8000;
+    private static final long RECONNECT_DELAY_MS = 5_000;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final String channel;
+    private final int pollTimeoutMs;
+    private final List<Consumer<CacheInvalidationMessage>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    public PostgresCacheInvalidationTransport(DataSource dataSource, String channel, int pollTimeoutMs) {
+        if (!CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid notification channel name: " + channel);
+        }
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.channel = channel;
+        this.pollTimeoutMs = pollTimeoutMs;
+    }
+
+    @Override
+    public void publish(CacheInvalidationMessage message) {
+        String payload = message.encode();
+        if (payload.length() > MAX_PAYLOAD_BYTES) {
+            payload = CacheInvalidationMessage.clear(message.origin(), message.cacheName()).encode();
+        }
+        String notification = payload;
+        try {
+            jdbcTemplate.execute("SELECT pg_notify(?, ?)", (PreparedStatement ps) -> {
+                ps.setString(1, channel);
+                ps.setString(2, notification);
+                return ps.execute();
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish cache invalidation for cache '{}': {}", message.cacheName(), e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void subscribe(Consumer<CacheInvalidationMessage> listener) {
+        listeners.add(listener);
+        if (!running) {
+            running = true;
+            listenerThread = Thread.ofPlatform()
+                    .name("cache-invalidation-listener")
+                    .daemon(true)
+                    .start(this::listen);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    private void listen() {
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + channel);
+                if (reconnect) {
+                    dispatch(CacheInvalidationMessage.clearAll());
+                }
+                reconnect = true;
+                log.info("Listening for cache invalidations on channel '{}'", channel);
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        CacheInvalidationMessage message = decode(notification.getParameter());
+                        if (message != null) {
+                            dispatch(message);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cache invalidation listener lost its connection, retrying in {} ms: {}",
+                        RECONNECT_DELAY_MS, e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(CacheInvalidationMessage message) {
+        for (Consumer<CacheInvalidationMessage> listener : listeners) {
+            try {
+                listener.accept(message);
+            } catch (RuntimeException e) {
+                log.warn("Cache invalidation listener failed for cache '{}'", message.cacheName(), e);
+            }
+        }
+    }
+
+    private static CacheInvalidationMessage decode(String payload) {
+        try {
+            return CacheInvalidationMessage.decode(payload);
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring malformed cache invalidation payload: {}", e.getMessage());
+            return null;
+        }
+    }
+}
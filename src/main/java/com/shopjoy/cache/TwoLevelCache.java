@@ -0,0 +1,204 @@
+package com.shopjoy.cache;
+
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Local Caffeine cache (L1) in front of an optional shared cache (L2).
+ * <p>
+ * Reads try L1, then L2, then the loader, and fill the tiers they missed. Puts,
+ * evictions and clears go to both tiers. Only evictions, clears and
+ * {@link #writeThrough} are broadcast so the other nodes drop their L1 copy: a plain
+ * put is how Spring stores a value it just loaded, and a freshly loaded value is as
+ * current as anything the other nodes hold.
+ * <p>
+ * Stats and the native cache are the L1 ones, so hit rates describe this node.
+ */
+public class TwoLevelCache implements Cache {
+
+    private final Cache local;
+    private final Cache shared;
+    private final String nodeId;
+    private final CacheInvalidationTransport transport;
+    private volatile BiConsumer<Object, Object> promotionListener = (_, _) -> { };
+
+    /**
+     * @param local the node-local cache
+     * @param shared the shared cache, or null to only broadcast invalidations
+     * @param nodeId the id of this node
+     * @param transport the transport used to broadcast invalidations
+     */
+    public TwoLevelCache(Cache local, Cache shared, String nodeId, CacheInvalidationTransport transport) {
+        this.local = local;
+        this.shared = shared;
+        this.nodeId = nodeId;
+        this.transport = transport;
+    }
+
+    /**
+     * Applies an invalidation received from another node to L1 only.
+     *
+     * @param message the message
+     */
+    public void onRemoteInvalidation(CacheInvalidationMessage message) {
+        if (message.isClear()) {
+            local.clear();
+        } else {
+            local.evict(message.key());
+        }
+    }
+
+    /**
+     * Sets a callback run before a value found in L2 is copied into L1.
+     *
+     * @param promotionListener receives the key and the value
+     */
+    public void setPromotionListener(BiConsumer<Object, Object> promotionListener) {
+        this.promotionListener = promotionListener;
+    }
+
+    public Cache getLocal() {
+        return local;
+    }
+
+    public Cache getShared() {
+        return shared;
+    }
+
+    @Override
+    public String getName() {
+        return local.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper value = local.get(key);
+        if (value != null || shared == null) {
+            return value;
+        }
+        value = shared.get(key);
+        if (value != null) {
+            promotionListener.accept(key, value.get());
+            local.put(key, value.get());
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper value = get(key);
+        if (value == null) {
+            return null;
+        }
+        Object stored = value.get();
+        if (stored != null && type != null && !type.isInstance(stored)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + stored);
+        }
+        return (T) stored;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        if (shared == null) {
+            return local.get(key, valueLoader);
+        }
+        return local.get(key, () -> {
+            ValueWrapper sharedValue = shared.get(key);
+            if (sharedValue != null) {
+                promotionListener.accept(key, sharedValue.get());
+                return (T) sharedValue.get();
+            }
+            T value = valueLoader.call();
+            shared.put(key, value);
+            return value;
+        });
+    }
+
+    @Override
+    public CompletableFuture<?> retrieve(Object key) {
+        return local.retrieve(key);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+        return local.retrieve(key, valueLoader);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        local.put(key, value);
+        if (shared != null) {
+            shared.put(key, value);
+        }
+    }
+
+    /**
+     * Stores a value that replaces the entity it was built from, e.g. the result of an
+     * update, and tells the other nodes to drop their now stale L1 copy.
+     *
+     * @param key the key
+     * @param value the new value
+     */
+    public void writeThrough(Object key, Object value) {
+        put(key, value);
+        transport.publish(CacheInvalidationMessage.evict(nodeId, getName(), key));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = local.putIfAbsent(key, value);
+        if (existing == null && shared != null) {
+            shared.putIfAbsent(key, value);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        local.evict(key);
+        if (shared != null) {
+            shared.evict(key);
+        }
+        transport.publish(CacheInvalidationMessage.evict(nodeId, getName(), key));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean evicted = local.evictIfPresent(key);
+        if (shared != null) {
+            evicted |= shared.evictIfPresent(key);
+        }
+        transport.publish(CacheInvalidationMessage.evict(nodeId, getName(), key));
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        local.clear();
+        if (shared != null) {
+            shared.clear();
+        }
+        transport.publish(CacheInvalidationMessage.clear(nodeId, getName()));
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean invalidated = local.invalidate();
+        if (shared != null) {
+            invalidated |= shared.invalidate();
+        }
+        transport.publish(CacheInvalidationMessage.clear(nodeId, getName()));
+        return invalidated;
+    }
+}
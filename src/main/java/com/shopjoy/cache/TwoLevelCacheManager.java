@@ -0,0 +1,69 @@
+package com.shopjoy.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dependency-tracking Caffeine cache manager whose caches are {@link TwoLevelCache}s:
+ * the local Caffeine cache in front of a cache of the same name from a shared
+ * cache manager, with invalidations broadcast over a {@link CacheInvalidationTransport}.
+ * <p>
+ * The shared manager is optional. Without it every node keeps its own L1 and only
+ * the invalidations are shared, which already keeps the nodes from serving stale entries.
+ */
+public class TwoLevelCacheManager extends DependencyTrackingCaffeineCacheManager {
+
+    private final String nodeId;
+    private final CacheInvalidationTransport transport;
+    private final CacheManager sharedCacheManager;
+    private final Map<String, TwoLevelCache> tiers = new ConcurrentHashMap<>();
+
+    /**
+     * @param registry the dependency registry
+     * @param nodeId the id of this node, used to skip its own broadcasts
+     * @param transport the invalidation transport
+     * @param sharedCacheManager the shared (L2) cache manager, or null for none
+     * @param cacheNames the cache names
+     */
+    public TwoLevelCacheManager(CacheDependencyRegistry registry, String nodeId,
+                                CacheInvalidationTransport transport, CacheManager sharedCacheManager,
+                                String... cacheNames) {
+        super(registry);
+        this.nodeId = Objects.requireNonNull(nodeId, "nodeId");
+        this.transport = Objects.requireNonNull(transport, "transport");
+        this.sharedCacheManager = sharedCacheManager;
+        setCacheNames(Arrays.asList(cacheNames));
+        transport.subscribe(this::onInvalidation);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    protected Cache decorate(String name, Cache cache) {
+        Cache shared = sharedCacheManager != null ? sharedCacheManager.getCache(name) : null;
+        TwoLevelCache twoLevelCache = new TwoLevelCache(cache, shared, nodeId, transport);
+        tiers.put(name, twoLevelCache);
+        return twoLevelCache;
+    }
+
+    private void onInvalidation(CacheInvalidationMessage message) {
+        if (nodeId.equals(message.origin())) {
+            return;
+        }
+        if (message.isClearAll()) {
+            tiers.values().forEach(tier -> tier.getLocal().clear());
+            return;
+        }
+        TwoLevelCache tier = tiers.get(message.cacheName());
+        if (tier != null) {
+            tier.onRemoteInvalidation(message);
+        }
+    }
+}
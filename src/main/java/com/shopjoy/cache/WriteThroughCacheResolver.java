@@ -0,0 +1,101 @@
+package com.shopjoy.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.CacheResolver;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+
+/**
+ * Cache resolver for {@code @CachePut} on write methods. It resolves the named caches
+ * from every cache manager, and their puts are write-throughs that tell the other nodes
+ * to drop their copy. Use it as {@code cacheResolver = "writeThroughCacheResolver"}
+ * instead of a cache manager.
+ */
+@Component
+public class WriteThroughCacheResolver implements CacheResolver {
+
+    private final CacheDependencyRegistry cacheDependencyRegistry;
+
+    public WriteThroughCacheResolver(CacheDependencyRegistry cacheDependencyRegistry) {
+        this.cacheDependencyRegistry = cacheDependencyRegistry;
+    }
+
+    @Override
+    public Collection<? extends Cache> resolveCaches(CacheOperationInvocationContext<?> context) {
+        return context.getOperation().getCacheNames().stream()
+                .map(this::writeThroughCache)
+                .toList();
+    }
+
+    private Cache writeThroughCache(String name) {
+        DependencyTrackingCache cache = cacheDependencyRegistry.getCache(name);
+        if (cache == null) {
+            throw new IllegalArgumentException("Cannot find cache named '" + name + "' for write-through");
+        }
+        return new WriteThroughCache(cache);
+    }
+
+    /**
+     * View of a tracking cache whose puts are write-throughs.
+     */
+    private record WriteThroughCache(DependencyTrackingCache cache) implements Cache {
+
+        @Override
+        public void put(Object key, Object value) {
+            cache.writeThrough(key, value);
+        }
+
+        @Override
+        public String getName() {
+            return cache.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return cache.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            return cache.get(key);
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            return cache.get(key, type);
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            return cache.get(key, valueLoader);
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            return cache.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void evict(Object key) {
+            cache.evict(key);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            return cache.evictIfPresent(key);
+        }
+
+        @Override
+        public void clear() {
+            cache.clear();
+        }
+
+        @Override
+        public boolean invalidate() {
+            return cache.invalidate();
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.shopjoy.config;
+
+import com.shopjoy.util.AdaptiveConcurrencyLimiter;
+import com.shopjoy.util.SlidingWindowRateLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NonNull;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control for the API, applied before a request reaches a controller and
+ * with it a database connection.
+ * <p>
+ * Each configured route (app.rate-limit.api.routes) limits requests per authenticated
+ * user and per IP address in a sliding window, answering 429 with Retry-After once a
+ * limit is reached. A route can also cap its concurrent requests with an
+ * {@link AdaptiveConcurrencyLimiter} that lowers the cap while the route is slower
+ * than its target latency; requests beyond the cap are shed with 503 and Retry-After.
+ * Routes are matched in configuration order with the same path pattern matchers
+ * as SecurityConfig. Runs after the JWT filter, so the principal is known.
+ * <p>
+ * The IP address is the remote address of the request, never a client-supplied header.
+ * Behind a reverse proxy the servlet container sets it from X-Forwarded-For, and only for
+ * requests that come from a trusted proxy (server.forward-headers-strategy=native).
+ */
+@Slf4j
+@Component
+public class AdmissionControlFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private static final String THROTTLED_MESSAGE = "Too many requests";
+    private static final String OVERLOADED_MESSAGE = "Service is overloaded";
+
+    private final RateLimitProperties.Api properties;
+    private final List<AdmissionRoute> routes;
+
+    /**
+     * Limits of one route, resolved once from its configuration.
+     *
+     * @param principalLimiter requests per authenticated user, or null
+     * @param ipLimiter        requests per IP address, or null
+     * @param concurrency      concurrent requests, or null
+     * @param throttled        requests rejected by a rate limit
+     * @param shed             requests rejected by the concurrency limit
+     */
+    record AdmissionRoute(String name, List<RequestMatcher> matchers, SlidingWindowRateLimiter principalLimiter,
+                          SlidingWindowRateLimiter ipLimiter, AdaptiveConcurrencyLimiter concurrency,
+                          LongAdder throttled, LongAdder shed) {
+
+        boolean matches(HttpServletRequest request) {
+            for (RequestMatcher matcher : matchers) {
+                if (matcher.matches(request)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public AdmissionControlFilter(RateLimitProperties rateLimitProperties) {
+        this.properties = rateLimitProperties.getApi();
+        this.routes = properties.getRoutes().stream().map(this::route).toList();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !properties.isEnabled() || routes.isEmpty();
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        AdmissionRoute route = findRoute(request);
+        if (route == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String principal = authenticatedPrincipal();
+        if (principal != null && route.principalLimiter() != null && !route.principalLimiter().tryAcquire(principal)) {
+            throttle(response, route, route.principalLimiter().retryAfterMillis(principal));
+            return;
+        }
+        String ipAddress = request.getRemoteAddr();
+        if (route.ipLimiter() != null && !route.ipLimiter().tryAcquire(ipAddress)) {
+            throttle(response, route, route.ipLimiter().retryAfterMillis(ipAddress));
+            return;
+        }
+
+        AdaptiveConcurrencyLimiter concurrency = route.concurrency();
+        if (concurrency == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!concurrency.tryAcquire()) {
+            route.shed().increment();
+            log.debug("Shedding request to route {}: {} in flight, limit {}",
+                    route.name(), concurrency.getInFlight(), concurrency.getLimit());
+            reject(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, OVERLOADED_MESSAGE,
+                    properties.getOverloadRetryAfter().toMillis());
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            async = request.isAsyncStarted();
+            if (async) {
+                request.getAsyncContext().addListener(new ReleasingListener(concurrency, startTime));
+            }
+        } finally {
+            if (!async) {
+                concurrency.release(System.nanoTime() - startTime);
+            }
+        }
+    }
+
+    /**
+     * Sweeps expired entries of the rate limits.
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.api.eviction-interval:10s}")
+    public void evictExpired() {
+        for (AdmissionRoute route : routes) {
+            if (route.principalLimiter() != null) {
+                route.principalLimiter().evictExpired(route.principalLimiter().getShardCount());
+            }
+            if (route.ipLimiter() != null) {
+                route.ipLimiter().evictExpired(route.ipLimiter().getShardCount());
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        for (AdmissionRoute route : routes) {
+            rejections(registry, route, "throttled", route.throttled());
+            rejections(registry, route, "shed", route.shed());
+            if (route.concurrency() != null) {
+                Gauge.builder("http.admission.concurrency.limit", route.concurrency(), AdaptiveConcurrencyLimiter::getLimit)
+                        .tag("route", route.name())
+                        .description("Current concurrency limit of the route")
+                        .register(registry);
+                Gauge.builder("http.admission.concurrency.in_flight", route.concurrency(), AdaptiveConcurrencyLimiter::getInFlight)
+                        .tag("route", route.name())
+                        .description("Requests of the route being served")
+                        .register(registry);
+            }
+        }
+    }
+
+    private AdmissionRoute findRoute(HttpServletRequest request) {
+        for (AdmissionRoute route : routes) {
+            if (route.matches(request)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private static String authenticatedPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    private void throttle(HttpServletResponse response, AdmissionRoute route, long retryAfterMillis) throws IOException {
+        route.throttled().increment();
+        reject(response, HttpStatus.TOO_MANY_REQUESTS.value(), THROTTLED_MESSAGE, retryAfterMillis);
+    }
+
+    private static void reject(HttpServletResponse response, int status, String message, long retryAfterMillis)
+            throws IOException {
+        long retryAfterSeconds = Math.max(1, (retryAfterMillis + 999) / 1000);
+        response.setStatus(status);
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType("application/json");
+        response.getWriter().write("{\"error\":\"" + message + "\",\"message\":\"Retry after "
+                + retryAfterSeconds + " seconds\"}");
+    }
+
+    private AdmissionRoute route(RateLimitProperties.Route route) {
+        if (route.getName() == null || route.getPatterns().isEmpty()) {
+            throw new IllegalStateException("Rate limit routes need a name and at least one path pattern");
+        }
+        List<RequestMatcher> matchers = route.getPatterns().stream()
+                .map(pattern -> (RequestMatcher) PathPatternRequestMatcher.withDefaults().matcher(route.getMethod(), pattern))
+                .toList();
+        AdaptiveConcurrencyLimiter concurrency = route.getMaxConcurrency() > 0
+                ? new AdaptiveConcurrencyLimiter(Math.min(route.getMinConcurrency(), route.getMaxConcurrency()),
+                        route.getMaxConcurrency(), route.getTargetLatency(), properties.getLatencySampleSize())
+                : null;
+        return new AdmissionRoute(route.getName(), matchers,
+                limiter(route.getPrincipalLimit(), route), limiter(route.getIpLimit(), route),
+                concurrency, new LongAdder(), new LongAdder());
+    }
+
+    private SlidingWindowRateLimiter limiter(int limit, RateLimitProperties.Route route) {
+        if (limit <= 0) {
+            return null;
+        }
+        return new SlidingWindowRateLimiter(limit, route.getWindow(), properties.getMaxTrackedKeys(),
+                properties.getShards(), properties.getSketchWidth(), properties.getSketchDepth(),
+                System::currentTimeMillis);
+    }
+
+    private static void rejections(MeterRegistry registry, AdmissionRoute route, String reason, LongAdder value) {
+        FunctionCounter.builder("http.admission.rejected", value, LongAdder::sum)
+                .tags("route", route.name(), "reason", reason)
+                .description("Requests rejected by admission control")
+                .register(registry);
+    }
+
+    /**
+     * Releases the concurrency permit of an asynchronous request when it completes.
+     */
+    private static final class ReleasingListener implements AsyncListener {
+
+        private final AdaptiveConcurrencyLimiter concurrency;
+        private final long startTime;
+        private boolean released;
+
+        ReleasingListener(AdaptiveConcurrencyLimiter concurrency, long startTime) {
+            this.concurrency = concurrency;
+            this.startTime = startTime;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+
+        private synchronized void release() {
+            if (!released) {
+                released = true;
+                concurrency.release(System.nanoTime() - startTime);
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.shopjoy.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the security audit log pipeline.
+ * These properties can be overridden in application.properties or environment variables.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.audit")
+public class AuditProperties {
+
+    /**
+     * Settings for the in-memory buffer and batch writer of audit events.
+     */
+    private Pipeline pipeline = new Pipeline();
+
+    /**
+     * Settings for the monthly partitions and retention of the audit table.
+     */
+    private Partitions partitions = new Partitions();
+
+    /**
+     * Settings for the per-minute and per-hour event counters.
+     */
+    private Rollups rollups = new Rollups();
+
+    /**
+     * What logEvent does when the buffer cannot take an event right away.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Drop the event and count it. Loses events under load; opt-in only.
+         */
+        DROP,
+
+        /**
+         * Above the sample threshold accept only a fraction of events, and drop once full.
+         * Loses events under load; opt-in only.
+         */
+        SAMPLE,
+
+        /**
+         * Make the caller wait up to the block timeout for room, then write the event on
+         * the caller's thread. Never loses an event.
+         */
+        BLOCK
+    }
+
+    /**
+     * What the retention job does with partitions older than the retention period.
+     */
+    public enum RetentionMode {
+        /**
+         * Detach the partition and keep it as a standalone table for archiving.
+         */
+        DETACH,
+
+        /**
+         * Drop the partition and its rows.
+         */
+        DROP
+    }
+
+    /**
+     * The type Partitions.
+     */
+    @Data
+    public static class Partitions {
+
+        /**
+         * Number of monthly partitions created ahead of the current month.
+         */
+        private int monthsAhead = 3;
+
+        /**
+         * Number of whole months kept before the current one; 0 keeps everything.
+         */
+        private int retentionMonths = 12;
+
+        /**
+         * How partitions past the retention period are removed.
+         */
+        private RetentionMode retentionMode = RetentionMode.DETACH;
+
+        /**
+         * Whether retention deletes expired rows when the table is not partitioned.
+         * Off by default, so audit history is never deleted by a DELETE statement unless asked.
+         */
+        private boolean deleteUnpartitioned = false;
+
+        /**
+         * Time range searched by audit queries that do not give a start time, so they
+         * only read the most recent partitions.
+         */
+        private Duration defaultQueryWindow = Duration.ofDays(90);
+
+        /**
+         * When partitions are created ahead and old ones removed.
+         */
+        private String maintenanceCron = "0 15 3 * * *";
+    }
+
+    /**
+     * The type Rollups.
+     */
+    @Data
+    public static class Rollups {
+
+        /**
+         * How long per-minute buckets are kept; older ranges are answered per hour.
+         */
+        private Duration minuteRetention = Duration.ofDays(7);
+
+        /**
+         * How long per-hour buckets are kept.
+         */
+        private Duration hourRetention = Duration.ofDays(400);
+
+        /**
+         * Maximum number of points a time series may return.
+         */
+        private int maxSeriesPoints = 2000;
+    }
+
+    /**
+     * The type Pipeline.
+     */
+    @Data
+    public static class Pipeline {
+
+        /**
+         * Maximum number of events waiting to be written.
+         */
+        private int bufferCapacity = 8192;
+
+        /**
+         * Maximum number of rows sent in one JDBC batch insert.
+         */
+        private int batchSize = 500;
+
+        /**
+         * How long the writer waits for more events before writing a partial batch, in milliseconds.
+         */
+        private long flushIntervalMs = 200;
+
+        /**
+         * Merge identical events of one batch into a single row that records the repeat count.
+         */
+        private boolean coalesce = true;
+
+        /**
+         * Behaviour when the buffer is full (or, for SAMPLE, nearly full).
+         */
+        private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+        /**
+         * Buffer fill ratio above which the SAMPLE policy starts sampling.
+         */
+        private double sampleThreshold = 0.75;
+
+        /**
+         * Fraction of events accepted by the SAMPLE policy above the threshold.
+         */
+        private double sampleRate = 0.1;
+
+        /**
+         * How long the BLOCK policy waits for room before writing the event itself, in milliseconds.
+         */
+        private long blockTimeoutMs = 50;
+
+        /**
+         * How long shutdown waits for the writer to drain the buffer, in milliseconds.
+         */
+        private long shutdownTimeoutMs = 10_000;
+    }
+}
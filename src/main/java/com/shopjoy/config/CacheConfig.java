@@ -1,14 +1,23 @@
 package com.shopjoy.config;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shopjoy.cache.CacheDependencyRegistry;
+import com.shopjoy.cache.CacheEntryWeigher;
+import com.shopjoy.cache.CacheInvalidationTransport;
+import com.shopjoy.cache.DependencyTrackingCaffeineCacheManager;
+import com.shopjoy.cache.LoopbackCacheInvalidationTransport;
+import com.shopjoy.cache.PostgresCacheInvalidationTransport;
+import com.shopjoy.cache.TwoLevelCacheManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 
-import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
 
 /**
  * Cache Configuration using Caffeine.
@@ -18,64 +27,121 @@ import java.util.concurrent.TimeUnit;
  * - MEDIUM TTL (10 min): Moderately changing data (orders, reviews)
  * - LONG TTL (30 min): Relatively stable data (products, categories, users, addresses)
  * 
+ * Sizing: every cache is bounded by the estimated retained size of its entries, not
+ * their count. TTL, refresh-after-write and max weight can be set per cache name
+ * with app.cache.specs.<name>.*; unset values use the manager's defaults.
+ * 
  * Cache eviction is handled via @CacheEvict annotations on write operations.
+ * Every cache tracks the entity ids its values reference, so writes annotated with
+ * @EvictDependents evict only the entries built from the changed entity.
+ * 
+ * Multi-node: with app.cache.cluster.transport=LOOPBACK or POSTGRES every cache becomes
+ * a two-level cache (local Caffeine in front of the optional "sharedCacheManager" bean)
+ * and evictions, clears and @CachePut writes (cacheResolver = "writeThroughCacheResolver")
+ * broadcast invalidations so other nodes drop their local copies. Loaded values are not
+ * broadcast.
  */
 @Configuration
 @EnableCaching
+@RequiredArgsConstructor
 public class CacheConfig {
 
+    private static final String SHARED_CACHE_MANAGER = "sharedCacheManager";
+    private static final CacheEntryWeigher WEIGHER = new CacheEntryWeigher();
+
+    private final CacheProperties cacheProperties;
+    private final CacheDependencyRegistry cacheDependencyRegistry;
+    private final ObjectProvider<DataSource> dataSource;
+    private final BeanFactory beanFactory;
+
+    /**
+     * Transport for cache invalidation broadcasts. Only used when the cluster transport is not NONE.
+     */
+    @Bean
+    public CacheInvalidationTransport cacheInvalidationTransport() {
+        CacheProperties.Cluster cluster = cacheProperties.getCluster();
+        return switch (cluster.getTransport()) {
+            case POSTGRES -> new PostgresCacheInvalidationTransport(
+                    dataSource.getObject(), cluster.getChannel(), cluster.getPollTimeoutMs());
+            case LOOPBACK, NONE -> new LoopbackCacheInvalidationTransport();
+        };
+    }
+
     /**
      * Primary cache manager for long-lived data (Products, Categories, Users).
-     * TTL: 30 minutes, Max size: 1000 entries.
+     * Defaults: TTL 30 minutes, max weight 64MB (app.cache.long-lived).
      */
     @Bean
     @Primary
     public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager(
+        return newCacheManager(cacheProperties.getLongLived(),
             "products", "product", "activeProducts", "productsByCategory", "productsCount",
             "categories", "category", "topLevelCategories", "subcategories",
-            "users", "userProfile", "userProfileEmail", "userProfileUsername", "usersByIds"
+            "users", "userProfile", "userProfileEmail", "userProfileUsername", "usersByIds", "userStatus"
         );
-        cacheManager.setCaffeine(Caffeine.newBuilder()
-            .expireAfterWrite(30, TimeUnit.MINUTES)
-            .maximumSize(1000)
-            .recordStats());
-        return cacheManager;
     }
 
     /**
      * Cache manager for medium-lived data (Orders, Reviews).
-     * TTL: 10 minutes, Max size: 500 entries.
+     * Defaults: TTL 10 minutes, max weight 32MB (app.cache.medium-lived).
      */
     @Bean
     public CacheManager mediumCacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager(
+        return newCacheManager(cacheProperties.getMediumLived(),
             "orders", "order", "ordersByUser", "ordersByStatus", "pendingOrders",
             "reviews", "review", "reviewsByProduct", "reviewsByUser", "productRating",
             "addresses", "address", "addressesByUser", "defaultAddress"
         );
-        cacheManager.setCaffeine(Caffeine.newBuilder()
-            .expireAfterWrite(10, TimeUnit.MINUTES)
-            .maximumSize(500)
-            .recordStats());
-        return cacheManager;
     }
 
     /**
      * Cache manager for short-lived data (Inventory, Cart).
-     * TTL: 2 minutes, Max size: 500 entries.
+     * Defaults: TTL 2 minutes, max weight 16MB (app.cache.short-lived).
      * Short TTL because stock levels change frequently.
      */
     @Bean
     public CacheManager shortCacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager( 
-            "inventory", "inventoryByProduct", "lowStock", "outOfStock",
+        return newCacheManager(cacheProperties.getShortLived(),
+            "inventory", "inventoryByProduct",
             "cart", "cartItems", "cartTotal", "cartCount"
         );
-        cacheManager.setCaffeine(Caffeine.newBuilder()
-            .expireAfterWrite(2, TimeUnit.MINUTES)
-            .maximumSize(500)
-            .recordStats());
+    }
+
+    private DependencyTrackingCaffeineCacheManager newCacheManager(CacheProperties.Spec defaults, String... cacheNames) {
+        DependencyTrackingCaffeineCacheManager cacheManager = newClusterAwareCacheManager(cacheNames);
+        cacheManager.setBuilderFactory(name ->
+                caffeine(cacheProperties.resolve(name, defaults), cacheManager.hasCacheLoader(name)));
         return cacheManager;
     }
+
+    private DependencyTrackingCaffeineCacheManager newClusterAwareCacheManager(String... cacheNames) {
+        CacheProperties.Cluster cluster = cacheProperties.getCluster();
+        if (cluster.getTransport() == CacheProperties.Transport.NONE) {
+            return new DependencyTrackingCaffeineCacheManager(cacheDependencyRegistry, cacheNames);
+        }
+        CacheManager shared = beanFactory.containsBean(SHARED_CACHE_MANAGER)
+                ? beanFactory.getBean(SHARED_CACHE_MANAGER, CacheManager.class)
+                : null;
+        return new TwoLevelCacheManager(cacheDependencyRegistry, cluster.getNodeId(),
+                cacheInvalidationTransport(), shared, cacheNames);
+    }
+
+    /**
+     * Builds the Caffeine builder for one cache: entries are weighed by their estimated
+     * retained size, so large lists count for more than single entities. Refresh-after-write
+     * needs a cache loader, so it only applies once a service registers one for the cache.
+     */
+    private Caffeine<Object, Object> caffeine(CacheProperties.Spec spec, boolean hasLoader) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            .maximumWeight(spec.getMaximumWeight().toBytes())
+            .weigher(WEIGHER)
+            .recordStats();
+        if (spec.getTtl() != null) {
+            builder.expireAfterWrite(spec.getTtl());
+        }
+        if (spec.getRefreshAfterWrite() != null && hasLoader) {
+            builder.refreshAfterWrite(spec.getRefreshAfterWrite());
+        }
+        return builder;
+    }
 }
@@ -0,0 +1,179 @@
+package com.shopjoy.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Configuration properties for the application caches.
+ * These properties can be overridden in application.properties or environment variables.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.cache")
+public class CacheProperties {
+
+    /**
+     * Settings for sharing cache invalidations between application nodes.
+     */
+    private Cluster cluster = new Cluster();
+
+    /**
+     * Defaults for the caches of the primary cache manager (products, categories, users).
+     */
+    private Spec longLived = new Spec(Duration.ofMinutes(30), null, DataSize.ofMegabytes(64));
+
+    /**
+     * Defaults for the caches of the medium cache manager (orders, reviews, addresses).
+     */
+    private Spec mediumLived = new Spec(Duration.ofMinutes(10), null, DataSize.ofMegabytes(32));
+
+    /**
+     * Defaults for the caches of the short cache manager (inventory, cart).
+     */
+    private Spec shortLived = new Spec(Duration.ofMinutes(2), null, DataSize.ofMegabytes(16));
+
+    /**
+     * Per-cache overrides keyed by cache name, e.g. app.cache.specs.productsByCategory.maximum-weight=8MB.
+     * Unset values fall back to the defaults of the cache's manager.
+     */
+    private Map<String, Spec> specs = new LinkedHashMap<>();
+
+    /**
+     * Settings for preloading caches on startup.
+     */
+    private WarmUp warmUp = new WarmUp();
+
+    /**
+     * Resolves the settings of one cache: its own spec over the manager defaults.
+     *
+     * @param cacheName the cache name
+     * @param defaults the defaults of the cache's manager
+     * @return the effective spec
+     */
+    public Spec resolve(String cacheName, Spec defaults) {
+        Spec spec = specs.get(cacheName);
+        if (spec == null) {
+            return defaults;
+        }
+        return new Spec(
+                spec.getTtl() != null ? spec.getTtl() : defaults.getTtl(),
+                spec.getRefreshAfterWrite() != null ? spec.getRefreshAfterWrite() : defaults.getRefreshAfterWrite(),
+                spec.getMaximumWeight() != null ? spec.getMaximumWeight() : defaults.getMaximumWeight());
+    }
+
+    /**
+     * Available invalidation transports.
+     */
+    public enum Transport {
+        /**
+         * Single node: plain local caches, nothing is broadcast.
+         */
+        NONE,
+
+        /**
+         * Two-level caches broadcasting within this JVM only.
+         */
+        LOOPBACK,
+
+        /**
+         * Two-level caches broadcasting with Postgres LISTEN/NOTIFY.
+         */
+        POSTGRES
+    }
+
+    /**
+     * The type Spec.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Spec {
+
+        /**
+         * Time after a write before an entry expires.
+         */
+        private Duration ttl;
+
+        /**
+         * Time after a write before an entry is reloaded in the background on its next read.
+         * Only applies to caches with a registered loader; others ignore it.
+         */
+        private Duration refreshAfterWrite;
+
+        /**
+         * Maximum estimated retained size of all entries of the cache.
+         */
+        private DataSize maximumWeight;
+    }
+
+    /**
+     * The type WarmUp.
+     */
+    @Data
+    public static class WarmUp {
+
+        /**
+         * Whether caches are preloaded before the application reports ready.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Caches to preload: activeProducts, categories, product, inventoryByProduct.
+         */
+        private Set<String> caches = new LinkedHashSet<>(List.of("activeProducts", "categories", "product", "inventoryByProduct"));
+
+        /**
+         * Number of products, lowest ids first, preloaded into the product cache.
+         */
+        private int topProducts = 200;
+
+        /**
+         * Number of threads loading caches in parallel.
+         */
+        private int threads = 4;
+
+        /**
+         * How long startup waits for the warm-up before giving up on the rest.
+         */
+        private Duration timeout = Duration.ofSeconds(60);
+    }
+
+    /**
+     * The type Cluster.
+     */
+    @Data
+    public static class Cluster {
+
+        /**
+         * Transport used to broadcast invalidations to the other nodes.
+         */
+        private Transport transport = Transport.NONE;
+
+        /**
+         * Id of this node. Defaults to a random id per start.
+         */
+        private String nodeId = UUID.randomUUID().toString();
+
+        /**
+         * Postgres notification channel (POSTGRES transport only).
+         */
+        private String channel = "shopjoy_cache_invalidation";
+
+        /**
+         * How long the listener waits for notifications per poll, in milliseconds.
+         */
+        private int pollTimeoutMs = 500;
+    }
+}
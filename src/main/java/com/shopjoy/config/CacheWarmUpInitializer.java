@@ -0,0 +1,203 @@
+package com.shopjoy.config;
+
+import com.shopjoy.cache.CacheDependencyRegistry;
+import com.shopjoy.cache.DependencyTrackingCache;
+import com.shopjoy.dto.response.InventoryResponse;
+import com.shopjoy.dto.response.ProductResponse;
+import com.shopjoy.repository.ProductRepository;
+import com.shopjoy.service.CategoryService;
+import com.shopjoy.service.InventoryService;
+import com.shopjoy.service.ProductService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NonNull;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * CommandLineRunner that preloads the hot caches on startup.
+ *
+ * This component:
+ * - Runs after the admin user initializer and before the application reports ready,
+ *   so the readiness probe only flips once the caches are warm
+ * - Loads each configured cache on a bounded thread pool
+ * - Gives up on unfinished caches after the configured timeout instead of blocking startup
+ * - Logs and keeps the time taken and entries loaded per cache
+ * - Stores entries the way reads do (loads and plain puts), which are never broadcast,
+ *   so a node starting up does not evict the warm caches of the other nodes
+ *
+ * Configuration:
+ * - Enable/disable with: app.cache.warm-up.enabled=true/false
+ * - Choose caches, thread count, top product count and timeout with app.cache.warm-up.*
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@Order(2)
+public class CacheWarmUpInitializer implements CommandLineRunner {
+
+    private static final String INVENTORY_BY_PRODUCT = "inventoryByProduct";
+
+    private final CacheProperties cacheProperties;
+    private final ProductService productService;
+    private final CategoryService categoryService;
+    private final InventoryService inventoryService;
+    private final ProductRepository productRepository;
+    private final CacheDependencyRegistry cacheDependencyRegistry;
+
+    private volatile Map<String, Object> lastReport = Map.of("status", "NOT_RUN");
+
+    /**
+     * Result of warming one cache.
+     *
+     * @param cache the cache name
+     * @param entries the number of entries loaded
+     * @param millis the time taken
+     * @param status COMPLETED, FAILED or TIMED_OUT
+     */
+    public record Step(String cache, int entries, long millis, String status) {
+    }
+
+    @Override
+    public void run(String @NonNull ... args) {
+        CacheProperties.WarmUp warmUp = cacheProperties.getWarmUp();
+        if (!warmUp.isEnabled()) {
+            log.info("Cache warm-up is disabled (app.cache.warm-up.enabled=false)");
+            lastReport = Map.of("status", "DISABLED");
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        Map<String, Supplier<Integer>> loaders = loaders(warmUp);
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, warmUp.getThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "cache-warm-up-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Map<String, Future<Step>> futures = new LinkedHashMap<>();
+        try {
+            loaders.forEach((cache, loader) -> futures.put(cache, executor.submit(() -> load(cache, loader))));
+            List<Step> steps = collect(futures, startedAt + warmUp.getTimeout().toNanos());
+            report(steps, startedAt);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the outcome of the last warm-up run.
+     */
+    public Map<String, Object> getLastReport() {
+        return lastReport;
+    }
+
+    private Map<String, Supplier<Integer>> loaders(CacheProperties.WarmUp warmUp) {
+        Map<String, Supplier<Integer>> loaders = new LinkedHashMap<>();
+        for (String cache : warmUp.getCaches()) {
+            switch (cache) {
+                case "activeProducts" -> loaders.put(cache, () -> productService.getActiveProducts().size());
+                case "categories" -> loaders.put(cache, () -> categoryService.getAllCategories().size());
+                case "product" -> loaders.put(cache, () -> warmTopProducts(warmUp.getTopProducts()));
+                case INVENTORY_BY_PRODUCT -> loaders.put(cache, this::warmInventoryByProduct);
+                default -> log.warn("Cache warm-up does not know how to load cache '{}', skipping it", cache);
+            }
+        }
+        return loaders;
+    }
+
+    private int warmTopProducts(int count) {
+        if (count <= 0) {
+            return 0;
+        }
+        List<Integer> productIds = productRepository.findIds(PageRequest.of(0, count));
+        List<ProductResponse> products = productService.getProductsByIds(productIds);
+        return products.size();
+    }
+
+    /**
+     * Loads the inventory of every active product with one query. Entries are only added
+     * when absent, so warming one node never evicts or overwrites entries elsewhere.
+     */
+    private int warmInventoryByProduct() {
+        DependencyTrackingCache cache = cacheDependencyRegistry.getCache(INVENTORY_BY_PRODUCT);
+        if (cache == null) {
+            return 0;
+        }
+        int loaded = 0;
+        List<InventoryResponse> inventories = inventoryService.getInventoryByProducts(productRepository.findActiveIds());
+        for (InventoryResponse inventory : inventories) {
+            if (cache.putIfAbsent(inventory.getProductId(), inventory) == null) {
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    private Step load(String cache, Supplier<Integer> loader) {
+        long startedAt = System.nanoTime();
+        try {
+            int entries = loader.get();
+            return new Step(cache, entries, elapsedMillis(startedAt), "COMPLETED");
+        } catch (Exception e) {
+            log.warn("Cache warm-up failed for cache '{}': {}", cache, e.getMessage());
+            return new Step(cache, 0, elapsedMillis(startedAt), "FAILED");
+        }
+    }
+
+    private List<Step> collect(Map<String, Future<Step>> futures, long deadline) {
+        List<Step> steps = new ArrayList<>();
+        for (Map.Entry<String, Future<Step>> entry : futures.entrySet()) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                steps.add(entry.getValue().get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException | CancellationException e) {
+                entry.getValue().cancel(true);
+                steps.add(new Step(entry.getKey(), 0, 0, "TIMED_OUT"));
+            } catch (ExecutionException e) {
+                steps.add(new Step(entry.getKey(), 0, 0, "FAILED"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                steps.add(new Step(entry.getKey(), 0, 0, "TIMED_OUT"));
+            }
+        }
+        return steps;
+    }
+
+    private void report(List<Step> steps, long startedAt) {
+        long totalMillis = elapsedMillis(startedAt);
+        int totalEntries = steps.stream().mapToInt(Step::entries).sum();
+        for (Step step : steps) {
+            log.info("Cache warm-up: {} -> {} entries in {} ms ({})", step.cache(), step.entries(), step.millis(), step.status());
+        }
+        log.info("Cache warm-up finished: {} entries across {} caches in {} ms", totalEntries, steps.size(), totalMillis);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("status", steps.stream().allMatch(step -> "COMPLETED".equals(step.status())) ? "COMPLETED" : "PARTIAL");
+        report.put("totalMillis", totalMillis);
+        report.put("totalEntries", totalEntries);
+        report.put("caches", List.copyOf(steps));
+        lastReport = report;
+    }
+
+    private static long elapsedMillis(long startedAt) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+    }
+}
@@ -0,0 +1,98 @@
+package com.shopjoy.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for stock reservation.
+ * These properties can be overridden in application.properties or environment variables.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.inventory")
+public class InventoryProperties {
+
+    /**
+     * Engine used by reserveStock/releaseStock.
+     * Can be overridden with app.inventory.reservation-mode property.
+     */
+    private ReservationMode reservationMode = ReservationMode.DATABASE;
+
+    /**
+     * Settings for the in-memory stock ledger (only used in LEDGER mode).
+     */
+    private Ledger ledger = new Ledger();
+
+    /**
+     * Settings for soft holds on stock for pending orders.
+     */
+    private Holds holds = new Holds();
+
+    /**
+     * Available stock reservation engines.
+     */
+    public enum ReservationMode {
+        /**
+         * Lock the inventory row, check and decrement it in Java, then save it.
+         */
+        DATABASE,
+
+        /**
+         * Check and decrement in a single guarded UPDATE on the inventory row.
+         */
+        CONDITIONAL_UPDATE,
+
+        /**
+         * Reserve against in-memory atomic counters and write deltas through in batches.
+         */
+        LEDGER
+    }
+
+    /**
+     * The type Ledger.
+     */
+    @Data
+    public static class Ledger {
+
+        /**
+         * Delay between two write-through flushes of pending deltas, in milliseconds.
+         */
+        private long flushIntervalMs = 500;
+
+        /**
+         * Maximum number of UPDATE statements sent in one JDBC batch.
+         */
+        private int flushBatchSize = 500;
+    }
+
+    /**
+     * The type Holds.
+     */
+    @Data
+    public static class Holds {
+
+        /**
+         * When enabled, createOrder only holds stock and payment commits it.
+         * Holds are not used in LEDGER mode, which keeps committing at order creation.
+         */
+        private boolean enabled = false;
+
+        /**
+         * How long an unpaid order keeps its stock before the sweeper releases it.
+         */
+        private Duration ttl = Duration.ofMinutes(15);
+
+        /**
+         * Delay between two runs of the hold sweeper, in milliseconds.
+         */
+        private long sweepIntervalMs = 60_000;
+
+        /**
+         * Maximum number of expired holds released per sweeper transaction.
+         */
+        private int sweepBatchSize = 500;
+    }
+}
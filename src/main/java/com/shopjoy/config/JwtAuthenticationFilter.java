@@ -1,11 +1,15 @@
 package com.shopjoy.config;
 
 import com.shopjoy.entity.SecurityEventType;
+import com.shopjoy.security.CustomUserDetails;
+import com.shopjoy.security.UserStatus;
 import com.shopjoy.service.CustomUserDetailsService;
 import com.shopjoy.service.SecurityAuditService;
 import com.shopjoy.service.TokenBlacklistService;
 import com.shopjoy.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -13,7 +17,9 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jspecify.annotations.NonNull;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -21,10 +27,16 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * JWT authentication filter that validates JWT tokens on each request.
  * Extends OncePerRequestFilter to ensure the filter is executed once per request.
+ * <p>
+ * In CLAIMS mode (jwt.authentication-mode) the principal is built from the verified
+ * userId and role claims. Only a briefly cached user status is checked, so deleted
+ * users and changed roles are still rejected without a users query per request.
+ * DATABASE mode loads the full user on every request.
  */
 @Slf4j
 @Component
@@ -38,6 +50,25 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private static final String AUTHORIZATION_HEADER = "Authorization";
     private static final String BEARER_PREFIX = "Bearer ";
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    /**
+     * Where the principal of an authenticated request comes from.
+     */
+    public enum AuthenticationMode {
+        /**
+         * Build the principal from the token claims, checked against the cached user status.
+         */
+        CLAIMS,
+
+        /**
+         * Load the user from the database on every request.
+         */
+        DATABASE
+    }
+
+    @Value("${jwt.authentication-mode:CLAIMS}")
+    private AuthenticationMode authenticationMode = AuthenticationMode.CLAIMS;
 
     @Override
     protected void doFilterInternal(
@@ -56,12 +87,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
-        if (isTokenBlacklisted(jwtToken, ipAddress, userAgent)) {
+        Claims claims = verifyToken(jwtToken, ipAddress, userAgent);
+        if (claims == null || isTokenBlacklisted(jwtToken, claims, ipAddress, userAgent)) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        authenticateUserFromToken(jwtToken, request, ipAddress, userAgent);
+        authenticateUserFromToken(claims, request, ipAddress, userAgent);
         
         filterChain.doFilter(request, response);
     }
@@ -82,16 +114,35 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         return authHeader.substring(BEARER_PREFIX.length());
     }
 
+    /**
+     * Verifies the token once for the whole request. Its claims come from the
+     * verified-claims cache when the token has been seen before.
+     *
+     * @param token the JWT token
+     * @param ipAddress the client IP address
+     * @param userAgent the client user agent
+     * @return the verified claims, or null if the token is invalid or expired
+     */
+    private Claims verifyToken(String token, String ipAddress, String userAgent) {
+        try {
+            return jwtUtil.verify(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            logAuthenticationError(e, ipAddress, userAgent);
+            return null;
+        }
+    }
+
     /**
      * Checks if token is blacklisted and logs the attempt.
      *
      * @param token the JWT token
+     * @param claims the verified claims of the token
      * @param ipAddress the client IP address
      * @param userAgent the client user agent
      * @return true if blacklisted, false otherwise
      */
-    private boolean isTokenBlacklisted(String token, String ipAddress, String userAgent) {
-        if (tokenBlacklistService.isBlacklisted(token)) {
+    private boolean isTokenBlacklisted(String token, Claims claims, String ipAddress, String userAgent) {
+        if (tokenBlacklistService.isBlacklisted(token, claims)) {
             log.debug("Token is blacklisted (user logged out)");
             securityAuditService.logEvent(
                 null,
@@ -107,29 +158,29 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     }
 
     /**
-     * Validates token and authenticates user if valid.
+     * Authenticates the user of a verified token.
      * Handles all token validation errors internally.
      *
-     * @param token the JWT token
+     * @param claims the verified claims of the token
      * @param request the HTTP request
      * @param ipAddress the client IP address
      * @param userAgent the client user agent
      */
     private void authenticateUserFromToken(
-            String token,
+            Claims claims,
             HttpServletRequest request,
             String ipAddress,
             String userAgent
     ) {
         try {
-            String username = jwtUtil.extractUsername(token);
+            String username = claims.getSubject();
             
             if (username == null || SecurityContextHolder.getContext().getAuthentication() != null) {
                 return;
             }
 
             // Check token expiry before DB call
-            if (jwtUtil.isTokenExpired(token)) {
+            if (jwtUtil.isExpired(claims)) {
                 log.warn("JWT token expired for request: {}", request.getRequestURI());
                 securityAuditService.logEvent(
                     username,
@@ -142,10 +193,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 return;
             }
 
-            // Only load user from DB if token is valid
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            UserDetails userDetails;
+            if (authenticationMode == AuthenticationMode.CLAIMS && hasPrincipalClaims(claims)) {
+                userDetails = userDetailsFromClaims(username, claims);
+                if (userDetails == null) {
+                    logTokenValidationFailure(username, ipAddress, userAgent);
+                    return;
+                }
+            } else {
+                // Only load user from DB if token is valid
+                userDetails = userDetailsService.loadUserByUsername(username);
+            }
 
-            if (isUsernameMatching(token, userDetails)) {
+            if (isUsernameMatching(username, userDetails)) {
                 setAuthentication(userDetails, request);
                 log.debug("JWT authentication successful for user: {}", username);
             } else {
@@ -153,35 +213,80 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             }
 
         } catch (Exception e) {
-            SecurityEventType eventType = e instanceof ExpiredJwtException 
-                    ? SecurityEventType.TOKEN_EXPIRED 
-                    : SecurityEventType.TOKEN_INVALID;
-            
-            String username = e instanceof ExpiredJwtException 
-                    ? ((ExpiredJwtException) e).getClaims().getSubject() 
-                    : null;
-            
-            log.warn("JWT authentication failed: {}", e.getMessage());
-            securityAuditService.logEvent(
-                username,
-                eventType,
-                ipAddress,
-                userAgent,
-                "JWT authentication error: " + e.getMessage(),
-                false
-            );
+            logAuthenticationError(e, ipAddress, userAgent);
         }
     }
 
+    /**
+     * Logs a failed token verification or authentication.
+     *
+     * @param e the failure
+     * @param ipAddress the client IP address
+     * @param userAgent the client user agent
+     */
+    private void logAuthenticationError(Exception e, String ipAddress, String userAgent) {
+        SecurityEventType eventType = e instanceof ExpiredJwtException 
+                ? SecurityEventType.TOKEN_EXPIRED 
+                : SecurityEventType.TOKEN_INVALID;
+        
+        String username = e instanceof ExpiredJwtException 
+                ? ((ExpiredJwtException) e).getClaims().getSubject() 
+                : null;
+        
+        log.warn("JWT authentication failed: {}", e.getMessage());
+        securityAuditService.logEvent(
+            username,
+            eventType,
+            ipAddress,
+            userAgent,
+            "JWT authentication error: " + e.getMessage(),
+            false
+        );
+    }
+
+    /**
+     * Checks whether a token carries the claims needed to build its principal.
+     * Tokens without them fall back to a database lookup.
+     *
+     * @param claims the verified claims
+     * @return true if userId and role are present
+     */
+    private boolean hasPrincipalClaims(Claims claims) {
+        String role = claims.get("role", String.class);
+        return claims.get("userId") != null && role != null && !role.isEmpty();
+    }
+
+    /**
+     * Builds the principal from verified claims if the user still exists with the same id and role.
+     *
+     * @param username the username from the verified token
+     * @param claims the verified claims
+     * @return the user details, or null if the account was deleted or its role changed
+     */
+    private UserDetails userDetailsFromClaims(String username, Claims claims) {
+        Integer userId = claims.get("userId", Integer.class);
+        String role = claims.get("role", String.class);
+
+        UserStatus status = userDetailsService.loadUserStatus(username);
+        if (!status.exists() || !userId.equals(status.userId()) || !role.equals(status.userType().name())) {
+            return null;
+        }
+        return new CustomUserDetails(
+                userId,
+                username,
+                "",
+                List.of(new SimpleGrantedAuthority(ROLE_PREFIX + role))
+        );
+    }
+
     /**
      * Validates that the username in token matches the user details.
      *
-     * @param token the JWT token
+     * @param username the username from the verified token
      * @param userDetails the user details
      * @return true if username matches, false otherwise
      */
-    private boolean isUsernameMatching(String token, UserDetails userDetails) {
-        String username = jwtUtil.extractUsername(token);
+    private boolean isUsernameMatching(String username, UserDetails userDetails) {
         return username.equals(userDetails.getUsername());
     }
 
@@ -0,0 +1,25 @@
+package com.shopjoy.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration properties for the account Prometheus uses to scrape /actuator/prometheus.
+ * These properties can be overridden in application.properties or environment variables.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.metrics.scrape")
+public class MetricsScrapeProperties {
+
+    /**
+     * HTTP Basic username of the scrape account.
+     */
+    private String username = "prometheus";
+
+    /**
+     * HTTP Basic password of the scrape account. While it is empty every scrape is rejected.
+     */
+    private String password = "";
+}
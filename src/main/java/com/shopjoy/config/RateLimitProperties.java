@@ -0,0 +1,180 @@
+package com.shopjoy.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration properties for rate limiting.
+ * These properties can be overridden in application.properties or environment variables.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private Login login = new Login();
+
+    private Api api = new Api();
+
+    /**
+     * The type Login.
+     */
+    @Data
+    public static class Login {
+
+        /**
+         * Failed attempts per username or IP address allowed within the window.
+         */
+        private int maxAttempts = 5;
+
+        /**
+         * Length of the sliding window failed attempts are counted in.
+         */
+        private Duration window = Duration.ofMinutes(15);
+
+        /**
+         * Usernames and IP addresses each tracked exactly. Beyond this, attempts are
+         * counted approximately in a fixed-size count-min sketch.
+         */
+        private int maxTrackedKeys = 50_000;
+
+        /**
+         * Number of independently locked shards of each table.
+         */
+        private int shards = 64;
+
+        /**
+         * Counters per row of the overflow sketch. Overestimates grow with the total
+         * number of overflowing attempts per window divided by the width.
+         */
+        private int sketchWidth = 65_536;
+
+        /**
+         * Rows of the overflow sketch.
+         */
+        private int sketchDepth = 4;
+
+        /**
+         * How often a few shards are swept for expired entries.
+         */
+        private Duration evictionInterval = Duration.ofSeconds(10);
+
+        /**
+         * Shards swept per eviction run.
+         */
+        private int shardsPerEviction = 8;
+    }
+
+    /**
+     * The type Api.
+     */
+    @Data
+    public static class Api {
+
+        /**
+         * Whether requests are admitted through the admission control filter.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Principals and IP addresses tracked exactly per route limit. Beyond this,
+         * requests are counted approximately in a fixed-size count-min sketch.
+         */
+        private int maxTrackedKeys = 20_000;
+
+        /**
+         * Number of independently locked shards of each table.
+         */
+        private int shards = 64;
+
+        /**
+         * Counters per row of the overflow sketch.
+         */
+        private int sketchWidth = 16_384;
+
+        /**
+         * Rows of the overflow sketch.
+         */
+        private int sketchDepth = 4;
+
+        /**
+         * Completed requests averaged per adjustment of a concurrency limit.
+         */
+        private int latencySampleSize = 100;
+
+        /**
+         * Retry-After sent with 503 responses when a route sheds load.
+         */
+        private Duration overloadRetryAfter = Duration.ofSeconds(1);
+
+        /**
+         * How often expired rate limit entries are swept.
+         */
+        private Duration evictionInterval = Duration.ofSeconds(10);
+
+        /**
+         * Limited routes. A request is limited by the first route that matches it;
+         * requests that match no route are not limited.
+         */
+        private List<Route> routes = new ArrayList<>();
+    }
+
+    /**
+     * The type Route.
+     */
+    @Data
+    public static class Route {
+
+        /**
+         * Name of the route in logs and metrics.
+         */
+        private String name;
+
+        /**
+         * Path patterns of the route, written as in the SecurityConfig request matchers.
+         */
+        private List<String> patterns = new ArrayList<>();
+
+        /**
+         * HTTP method of the route, or any method if not set.
+         */
+        private HttpMethod method;
+
+        /**
+         * Requests per window allowed per authenticated user, 0 for no limit.
+         */
+        private int principalLimit;
+
+        /**
+         * Requests per window allowed per IP address, 0 for no limit.
+         */
+        private int ipLimit;
+
+        /**
+         * Length of the sliding window the request limits are counted in.
+         */
+        private Duration window = Duration.ofSeconds(1);
+
+        /**
+         * Highest number of requests served concurrently, 0 for no limit.
+         * The limit is lowered while the route is slower than the target latency.
+         */
+        private int maxConcurrency;
+
+        /**
+         * Lowest concurrency limit the route is lowered to.
+         */
+        private int minConcurrency = 1;
+
+        /**
+         * Average latency above which the concurrency limit is lowered.
+         */
+        private Duration targetLatency = Duration.ofMillis(500);
+    }
+}
@@ -0,0 +1,85 @@
+package com.shopjoy.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the in-memory product search index.
+ * These properties can be overridden in application.properties or environment variables.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.search")
+public class SearchProperties {
+
+    /**
+     * Whether product searches use the index. When disabled, or while the index is
+     * still being built, searches run as LIKE queries against the database.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Most results returned by the unpaged name search.
+     */
+    private int maxResults = 500;
+
+    /**
+     * Shortest last query word that is also matched as a prefix.
+     */
+    private int minPrefixLength = 2;
+
+    /**
+     * Most index terms a query word expands to by prefix or typo.
+     */
+    private int maxExpansions = 50;
+
+    /**
+     * Shortest query word matched with one typo.
+     */
+    private int oneTypoMinLength = 4;
+
+    /**
+     * Shortest query word matched with two typos.
+     */
+    private int twoTyposMinLength = 8;
+
+    /**
+     * Rows fetched per round trip while the index is built from the database.
+     */
+    private int buildFetchSize = 5_000;
+
+    /**
+     * How often the indexes are rebuilt from the database, which refreshes the units
+     * sold that suggestions are ranked by. Product writes are applied as they happen.
+     */
+    private Duration rebuildInterval = Duration.ofHours(1);
+
+    private Suggest suggest = new Suggest();
+
+    /**
+     * The type Suggest.
+     */
+    @Data
+    public static class Suggest {
+
+        /**
+         * Most suggestions returned per lookup, and the default.
+         */
+        private int maxResults = 10;
+
+        /**
+         * Keys a prefix trie node holds before it is split into one child per character.
+         * Larger buckets use less memory and scan more keys for long prefixes.
+         */
+        private int bucketSize = 32;
+
+        /**
+         * Words of a product name, from the first, that typed text can start at:
+         * "x1" finds "Lenovo ThinkPad X1" when this is 3 or more.
+         */
+        private int maxWords = 6;
+    }
+}
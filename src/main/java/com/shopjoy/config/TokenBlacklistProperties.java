@@ -0,0 +1,44 @@
+package com.shopjoy.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the revoked token blacklist.
+ * These properties can be overridden in application.properties or environment variables.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.token-blacklist")
+public class TokenBlacklistProperties {
+
+    /**
+     * Number of revoked tokens the Bloom filter is sized for. More entries still work,
+     * with a higher false positive rate.
+     */
+    private int expectedEntries = 100_000;
+
+    /**
+     * Target false positive rate of the Bloom filter at the expected number of entries.
+     */
+    private double falsePositiveRate = 0.01;
+
+    /**
+     * How often revocations made by other nodes are read from the database.
+     */
+    private Duration syncInterval = Duration.ofSeconds(5);
+
+    /**
+     * How far back each sync looks beyond the previous one, to tolerate clock skew
+     * between nodes and slow commits.
+     */
+    private Duration syncOverlap = Duration.ofMinutes(1);
+
+    /**
+     * How often expired revocations are removed.
+     */
+    private Duration cleanupInterval = Duration.ofMinutes(1);
+}
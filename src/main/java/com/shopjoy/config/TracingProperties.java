@@ -0,0 +1,31 @@
+package com.shopjoy.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for the tracing lines of the logging and transaction aspects.
+ * These properties can be overridden in application.properties or environment variables,
+ * and the sample rates can be changed at runtime through the performance API.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.tracing")
+public class TracingProperties {
+
+    /**
+     * Fraction of calls, from 0.0 to 1.0, whose entry/exit lines are logged when no
+     * package rate matches. Errors and slow-call warnings are always logged.
+     */
+    private double defaultSampleRate = 1.0;
+
+    /**
+     * Sample rates by package or class name prefix; the longest matching prefix wins,
+     * e.g. app.tracing.sample-rates.com.shopjoy.repository=0.01.
+     */
+    private Map<String, Double> sampleRates = new LinkedHashMap<>();
+}
@@ -1,7 +1,10 @@
 package com.shopjoy.controller;
 
+import com.shopjoy.dto.filter.OrderFilter;
+import com.shopjoy.dto.filter.TotalCount;
 import com.shopjoy.dto.request.CreateOrderRequest;
 import com.shopjoy.dto.response.ApiResponse;
+import com.shopjoy.dto.response.CursorPage;
 import com.shopjoy.dto.response.OrderResponse;
 import com.shopjoy.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -10,18 +13,25 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+
 /**
  * The type Order controller.
  * Note: Most order operations (queries, status updates) use GraphQL.
- * This controller only handles order creation and payment processing.
+ * This controller handles order creation, payment processing and cursor-paginated listing.
  */
-@Tag(name = "Order Management", description = "APIs for order creation and payment processing")
+@Tag(name = "Order Management", description = "APIs for order creation, payment processing and listing")
+@Validated
 @RestController
 @AllArgsConstructor
 @RequestMapping("/api/v1/orders")
@@ -70,4 +80,42 @@ public class OrderController {
                 OrderResponse response = orderService.processPayment(id, transactionId);
                 return ResponseEntity.ok(ApiResponse.success(response, "Payment processed successfully"));
         }
+
+        /**
+         * Gets orders by cursor.
+         *
+         * @param after         the cursor of the previous page
+         * @param size          the size
+         * @param sortBy        the sort by
+         * @param sortDirection the sort direction
+         * @param userId        the user id, admins only
+         * @param status        the status
+         * @param startDate     the start date
+         * @param endDate       the end date
+         * @param totalCount    how to count all matching orders
+         * @return the orders page
+         */
+        @Operation(summary = "Get orders with cursor pagination", description = "Retrieves the page of orders after the given cursor, ordered by the sort field and then id. Customers only see their own orders. No count query runs unless totalCount is ESTIMATED or EXACT")
+        @io.swagger.v3.oas.annotations.responses.ApiResponses(value = {
+                        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Orders retrieved with cursor pagination", content = @Content(mediaType = "application/json")),
+                        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid cursor, sort field or page size", content = @Content(mediaType = "application/json"))
+        })
+        @PreAuthorize("hasAnyRole('CUSTOMER', 'ADMIN')")
+        @GetMapping("/cursor")
+        public ResponseEntity<ApiResponse<CursorPage<OrderResponse>>> getOrdersByCursor(
+                        @Parameter(description = "Cursor returned as nextCursor with the previous page; omit for the first page") @RequestParam(required = false) String after,
+                        @Parameter(description = "Page size", example = "20") @RequestParam(defaultValue = "20") @Min(value = 1, message = "Page size must be at least 1") @Max(value = 100, message = "Page size cannot exceed 100") int size,
+                        @Parameter(description = "Field to sort by: id, orderDate or totalAmount", example = "orderDate") @RequestParam(defaultValue = "orderDate") String sortBy,
+                        @Parameter(description = "Sort direction (ASC or DESC)", example = "DESC") @RequestParam(defaultValue = "DESC") String sortDirection,
+                        @Parameter(description = "User ID filter (admins only)", example = "1") @RequestParam(required = false) Integer userId,
+                        @Parameter(description = "Order status filter", example = "PENDING") @RequestParam(required = false) String status,
+                        @Parameter(description = "Orders placed at or after", example = "2024-01-01T00:00:00") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+                        @Parameter(description = "Orders placed at or before", example = "2024-12-31T23:59:59") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+                        @Parameter(description = "Total count: NONE, ESTIMATED or EXACT", example = "NONE") @RequestParam(defaultValue = "NONE") TotalCount totalCount) {
+                OrderFilter filter = status == null && startDate == null && endDate == null ? null
+                                : OrderFilter.builder().status(status).startDate(startDate).endDate(endDate).build();
+                CursorPage<OrderResponse> response = orderService.getOrdersByCursor(userId, filter, after, size, sortBy,
+                                sortDirection, totalCount);
+                return ResponseEntity.ok(ApiResponse.success(response, "Orders retrieved with cursor pagination"));
+        }
 }
@@ -1,6 +1,8 @@
 package com.shopjoy.controller;
 
 import com.shopjoy.aspect.PerformanceMetricsCollector;
+import com.shopjoy.aspect.TraceSampler;
+import com.shopjoy.config.CacheWarmUpInitializer;
 import com.shopjoy.dto.response.ApiResponse;
 import com.shopjoy.util.CacheMetricsCollector;
 import io.swagger.v3.oas.annotations.Operation;
@@ -8,10 +10,14 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,6 +29,8 @@ public class PerformanceController {
 
     private final PerformanceMetricsCollector metricsCollector;
     private final CacheMetricsCollector cacheMetricsCollector;
+    private final CacheWarmUpInitializer cacheWarmUpInitializer;
+    private final TraceSampler traceSampler;
 
     @Operation(summary = "Get all performance metrics")
     @PreAuthorize("hasRole('ADMIN')")
@@ -44,7 +52,57 @@ public class PerformanceController {
     public ResponseEntity<ApiResponse<Map<String, Object>>> getCacheDetails() {
         return ResponseEntity.ok(ApiResponse.success(cacheMetricsCollector.getAllCacheStats(), "Detailed cache stats retrieved successfully"));
     }
+
+    @Operation(summary = "Get per-cache invalidation counts")
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/cache/invalidations")
+    public ResponseEntity<ApiResponse<Map<String, Map<String, Long>>>> getCacheInvalidations() {
+        return ResponseEntity.ok(ApiResponse.success(cacheMetricsCollector.getInvalidationCounts(), "Cache invalidation counts retrieved successfully"));
+    }
+
+    @Operation(summary = "Get the timing and entry counts of the startup cache warm-up")
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/cache/warm-up")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getCacheWarmUp() {
+        return ResponseEntity.ok(ApiResponse.success(cacheWarmUpInitializer.getLastReport(), "Cache warm-up report retrieved successfully"));
+    }
     
+    @Operation(summary = "Get the tracing sample rates of the logging and transaction aspects")
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/tracing/sample-rates")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getTracingSampleRates() {
+        return ResponseEntity.ok(ApiResponse.success(tracingSampleRates(), "Tracing sample rates retrieved successfully"));
+    }
+
+    @Operation(summary = "Set the tracing sample rate of a package or class prefix, or the default rate when no prefix is given")
+    @PreAuthorize("hasRole('ADMIN')")
+    @PutMapping("/tracing/sample-rates")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> setTracingSampleRate(
+            @RequestParam(required = false) String prefix,
+            @RequestParam double rate) {
+        if (prefix == null || prefix.isBlank()) {
+            traceSampler.setDefaultSampleRate(rate);
+        } else {
+            traceSampler.setSampleRate(prefix, rate);
+        }
+        return ResponseEntity.ok(ApiResponse.success(tracingSampleRates(), "Tracing sample rate updated successfully"));
+    }
+
+    @Operation(summary = "Remove the tracing sample rate of a package or class prefix")
+    @PreAuthorize("hasRole('ADMIN')")
+    @DeleteMapping("/tracing/sample-rates")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> removeTracingSampleRate(@RequestParam String prefix) {
+        traceSampler.removeSampleRate(prefix);
+        return ResponseEntity.ok(ApiResponse.success(tracingSampleRates(), "Tracing sample rate removed successfully"));
+    }
+
+    private Map<String, Object> tracingSampleRates() {
+        Map<String, Object> rates = new LinkedHashMap<>();
+        rates.put("defaultSampleRate", traceSampler.getDefaultSampleRate());
+        rates.put("sampleRates", traceSampler.getSampleRates());
+        return rates;
+    }
+
     @Operation(summary = "Get optimization health")
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/health")
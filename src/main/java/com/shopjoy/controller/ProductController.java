@@ -1,10 +1,13 @@
 package com.shopjoy.controller;
 
 import com.shopjoy.dto.filter.ProductFilter;
+import com.shopjoy.dto.filter.TotalCount;
 import com.shopjoy.dto.request.CreateProductRequest;
 import com.shopjoy.dto.request.UpdateProductRequest;
 import com.shopjoy.dto.response.ApiResponse;
+import com.shopjoy.dto.response.CursorPage;
 import com.shopjoy.dto.response.ProductResponse;
+import com.shopjoy.dto.response.SuggestionResponse;
 import com.shopjoy.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -143,7 +146,7 @@ public class ProductController {
          * @param name the name
          * @return the response entity
          */
-        @Operation(summary = "Search products by name", description = "Searches for products whose name contains the specified keyword (case-insensitive)")
+        @Operation(summary = "Search products by name", description = "Full-text search over product names, brands, categories and descriptions, best matches first. The last word also matches as a prefix and words tolerate typos. Returns at most app.search.max-results products")
         @io.swagger.v3.oas.annotations.responses.ApiResponses(value = {
                         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Products search completed successfully", content = @Content(mediaType = "application/json"))
         })
@@ -350,7 +353,7 @@ public class ProductController {
          * @param size the size
          * @return the response entity
          */
-        @Operation(summary = "Search products with pagination", description = "Searches for products by name keyword with pagination support")
+        @Operation(summary = "Search products with pagination", description = "Full-text search over product names, brands, categories and descriptions, best matches first, with pagination support")
         @io.swagger.v3.oas.annotations.responses.ApiResponses(value = {
                         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Product search completed with pagination", content = @Content(mediaType = "application/json")),
                         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid search parameters", content = @Content(mediaType = "application/json"))
@@ -366,6 +369,27 @@ public class ProductController {
                 return ResponseEntity.ok(ApiResponse.success(response, "Product search completed with pagination"));
         }
 
+        /**
+         * Suggests products, brands and categories for text typed into the search box.
+         *
+         * @param q     the typed text
+         * @param limit the maximum number of suggestions
+         * @return the response entity
+         */
+        @Operation(summary = "Autocomplete suggestions", description = "Suggests product names, brands and category names containing a word sequence that starts with the typed text, most popular (units sold) first. Served from memory; returns an empty list while the suggestions are being built at startup")
+        @io.swagger.v3.oas.annotations.responses.ApiResponses(value = {
+                        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Suggestions retrieved successfully", content = @Content(mediaType = "application/json")),
+                        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Empty text or invalid limit", content = @Content(mediaType = "application/json"))
+        })
+        @PreAuthorize("permitAll()")
+        @GetMapping("/suggest")
+        public ResponseEntity<ApiResponse<List<SuggestionResponse>>> getSuggestions(
+                        @Parameter(description = "Text typed so far", required = true, example = "dell xp") @RequestParam String q,
+                        @Parameter(description = "Maximum number of suggestions, at most app.search.suggest.max-results", example = "10") @RequestParam(required = false) Integer limit) {
+                List<SuggestionResponse> response = productService.getSuggestions(q, limit);
+                return ResponseEntity.ok(ApiResponse.success(response, "Suggestions retrieved successfully"));
+        }
+
         /**
          * Gets products with filters.
          *
@@ -401,7 +425,7 @@ public class ProductController {
                         @Parameter(description = "Filter by active status", example = "true") @RequestParam(required = false) Boolean isActive,
                         @Parameter(description = "Page number (0-indexed)", example = "0") @RequestParam(defaultValue = "0") int page,
                         @Parameter(description = "Page size", example = "10") @RequestParam(defaultValue = "10") int size,
-                        @Parameter(description = "Field to sort by", example = "id") @RequestParam(defaultValue = "id") String sortBy,
+                        @Parameter(description = "Field to sort by; relevance ranks search term matches best first and sorts by id without a search term", example = "relevance") @RequestParam(defaultValue = "relevance") String sortBy,
                         @Parameter(description = "Sort direction (ASC or DESC)", example = "ASC") @RequestParam(defaultValue = "ASC") String sortDirection) {
 
                 ProductFilter filter = new ProductFilter();
@@ -414,14 +438,60 @@ public class ProductController {
                 filter.setMaxStock(maxStock);
                 filter.setActive(isActive);
 
-                Sort sort = Sort.by(Sort.Direction.fromString(sortDirection), sortBy);
-                Pageable pageable = PageRequest.of(page, size, sort);
+                Pageable pageable = "relevance".equals(sortBy)
+                                ? PageRequest.of(page, size)
+                                : PageRequest.of(page, size, Sort.by(Sort.Direction.fromString(sortDirection), sortBy));
                 
                 Page<ProductResponse> response = productService.getProductsWithFilters(filter, pageable, sortBy,
                                 sortDirection);
                 return ResponseEntity.ok(ApiResponse.success(response, "Filtered products retrieved successfully"));
         }
 
+        /**
+         * Gets products by cursor.
+         *
+         * @param after         the cursor of the previous page
+         * @param size          the size
+         * @param sortBy        the sort by
+         * @param sortDirection the sort direction
+         * @param categoryId    the category id
+         * @param minPrice      the min price
+         * @param maxPrice      the max price
+         * @param brand         the brand
+         * @param isActive      the is active
+         * @param totalCount    how to count all matching products
+         * @return the products page
+         */
+        @Operation(summary = "Get products with cursor pagination", description = "Retrieves the page of products after the given cursor, ordered by the sort field and then id. Every page costs the same index range scan however deep it is, and no count query runs unless totalCount is ESTIMATED or EXACT. Pass nextCursor of a response as 'after' to read the next page")
+        @io.swagger.v3.oas.annotations.responses.ApiResponses(value = {
+                        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Products retrieved with cursor pagination", content = @Content(mediaType = "application/json")),
+                        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid cursor, sort field or page size", content = @Content(mediaType = "application/json"))
+        })
+        @PreAuthorize("permitAll()")
+        @GetMapping("/cursor")
+        public ResponseEntity<ApiResponse<CursorPage<ProductResponse>>> getProductsByCursor(
+                        @Parameter(description = "Cursor returned as nextCursor with the previous page; omit for the first page") @RequestParam(required = false) String after,
+                        @Parameter(description = "Page size", example = "20") @RequestParam(defaultValue = "20") @Min(value = 1, message = "Page size must be at least 1") @Max(value = 100, message = "Page size cannot exceed 100") int size,
+                        @Parameter(description = "Field to sort by: id, productName, price or createdAt", example = "id") @RequestParam(defaultValue = "id") String sortBy,
+                        @Parameter(description = "Sort direction (ASC or DESC)", example = "ASC") @RequestParam(defaultValue = "ASC") String sortDirection,
+                        @Parameter(description = "Category ID filter", example = "1") @RequestParam(required = false) Integer categoryId,
+                        @Parameter(description = "Minimum price filter", example = "100.00") @RequestParam(required = false) Double minPrice,
+                        @Parameter(description = "Maximum price filter", example = "1000.00") @RequestParam(required = false) Double maxPrice,
+                        @Parameter(description = "Brand filter", example = "Dell") @RequestParam(required = false) String brand,
+                        @Parameter(description = "Filter by active status", example = "true") @RequestParam(required = false) Boolean isActive,
+                        @Parameter(description = "Total count: NONE, ESTIMATED or EXACT", example = "NONE") @RequestParam(defaultValue = "NONE") TotalCount totalCount) {
+                ProductFilter filter = ProductFilter.builder()
+                                .categoryId(categoryId)
+                                .minPrice(minPrice)
+                                .maxPrice(maxPrice)
+                                .brand(brand)
+                                .active(isActive)
+                                .build();
+                CursorPage<ProductResponse> response = productService.getProductsByCursor(filter, after, size, sortBy,
+                                sortDirection, totalCount);
+                return ResponseEntity.ok(ApiResponse.success(response, "Products retrieved with cursor pagination"));
+        }
+
         @Operation(summary = "Get recently added products", description = "Retrieves a list of newest products added to the catalog")
         @PreAuthorize("permitAll()")
         @GetMapping("/new-arrivals")
@@ -1,7 +1,9 @@
 package com.shopjoy.controller;
 
 import com.shopjoy.dto.response.ApiResponse;
+import com.shopjoy.dto.response.AuditEventCountResponse;
 import com.shopjoy.dto.response.SecurityAuditLogResponse;
+import com.shopjoy.entity.AuditRollupGranularity;
 import com.shopjoy.entity.SecurityAuditLog;
 import com.shopjoy.entity.SecurityEventType;
 import com.shopjoy.service.SecurityAuditService;
@@ -19,6 +21,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Controller for managing and viewing security audit logs.
@@ -40,20 +43,26 @@ public class SecurityAuditLogController {
      * @param size the page size
      * @param sortBy the field to sort by
      * @param sortDir the sort direction (asc or desc)
+     * @param startTime optional start timestamp
+     * @param endTime optional end timestamp
      * @return paginated list of audit logs
      */
-    @Operation(summary = "Get all audit logs", description = "Retrieve all security audit logs with pagination and sorting")
+    @Operation(summary = "Get all audit logs", description = "Retrieve security audit logs with pagination and sorting, by default from the configured query window")
     @GetMapping
     public ResponseEntity<ApiResponse<Page<SecurityAuditLogResponse>>> getAllLogs(
             @Parameter(description = "Page number (0-indexed)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size,
             @Parameter(description = "Sort field") @RequestParam(defaultValue = "timestamp") String sortBy,
-            @Parameter(description = "Sort direction (asc/desc)") @RequestParam(defaultValue = "desc") String sortDir
+            @Parameter(description = "Sort direction (asc/desc)") @RequestParam(defaultValue = "desc") String sortDir,
+            @Parameter(description = "Start date-time (ISO format), defaults to the start of the default query window")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @Parameter(description = "End date-time (ISO format), defaults to now")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime
     ) {
         Sort.Direction direction = sortDir.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
         Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
         
-        Page<SecurityAuditLog> logs = securityAuditService.getAllLogs(pageable);
+        Page<SecurityAuditLog> logs = securityAuditService.searchLogs(null, null, startTime, endTime, pageable);
         Page<SecurityAuditLogResponse> responsePage = logs.map(this::mapToResponse);
         
         return ResponseEntity.ok(ApiResponse.success(responsePage, "Audit logs retrieved successfully"));
@@ -63,6 +72,8 @@ public class SecurityAuditLogController {
      * Get audit logs by username.
      *
      * @param username the username to filter by
+     * @param startTime optional start timestamp
+     * @param endTime optional end timestamp
      * @param page the page number
      * @param size the page size
      * @return paginated list of audit logs for the user
@@ -71,11 +82,15 @@ public class SecurityAuditLogController {
     @GetMapping("/user/{username}")
     public ResponseEntity<ApiResponse<Page<SecurityAuditLogResponse>>> getLogsByUsername(
             @Parameter(description = "Username to filter by") @PathVariable String username,
+            @Parameter(description = "Start date-time (ISO format), defaults to the start of the default query window")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @Parameter(description = "End date-time (ISO format), defaults to now")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size
     ) {
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "timestamp"));
-        Page<SecurityAuditLog> logs = securityAuditService.getLogsByUsername(username, pageable);
+        Page<SecurityAuditLog> logs = securityAuditService.searchLogs(username, null, startTime, endTime, pageable);
         Page<SecurityAuditLogResponse> responsePage = logs.map(this::mapToResponse);
         
         return ResponseEntity.ok(ApiResponse.success(responsePage, "User audit logs retrieved successfully"));
@@ -85,6 +100,8 @@ public class SecurityAuditLogController {
      * Get audit logs by event type.
      *
      * @param eventType the event type to filter by
+     * @param startTime optional start timestamp
+     * @param endTime optional end timestamp
      * @param page the page number
      * @param size the page size
      * @return paginated list of audit logs for the event type
@@ -93,11 +110,15 @@ public class SecurityAuditLogController {
     @GetMapping("/event-type/{eventType}")
     public ResponseEntity<ApiResponse<Page<SecurityAuditLogResponse>>> getLogsByEventType(
             @Parameter(description = "Event type to filter by") @PathVariable SecurityEventType eventType,
+            @Parameter(description = "Start date-time (ISO format), defaults to the start of the default query window")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @Parameter(description = "End date-time (ISO format), defaults to now")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size
     ) {
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "timestamp"));
-        Page<SecurityAuditLog> logs = securityAuditService.getLogsByEventType(eventType, pageable);
+        Page<SecurityAuditLog> logs = securityAuditService.searchLogs(null, eventType, startTime, endTime, pageable);
         Page<SecurityAuditLogResponse> responsePage = logs.map(this::mapToResponse);
         
         return ResponseEntity.ok(ApiResponse.success(responsePage, "Event type audit logs retrieved successfully"));
@@ -134,6 +155,8 @@ public class SecurityAuditLogController {
      *
      * @param username the username to filter by
      * @param eventType the event type to filter by
+     * @param startTime optional start timestamp
+     * @param endTime optional end timestamp
      * @param page the page number
      * @param size the page size
      * @return paginated list of audit logs
@@ -144,11 +167,15 @@ public class SecurityAuditLogController {
     public ResponseEntity<ApiResponse<Page<SecurityAuditLogResponse>>> getLogsByUsernameAndEventType(
             @Parameter(description = "Username to filter by") @RequestParam String username,
             @Parameter(description = "Event type to filter by") @RequestParam SecurityEventType eventType,
+            @Parameter(description = "Start date-time (ISO format), defaults to the start of the default query window")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @Parameter(description = "End date-time (ISO format), defaults to now")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size
     ) {
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "timestamp"));
-        Page<SecurityAuditLog> logs = securityAuditService.getLogsByUsernameAndEventType(username, eventType, pageable);
+        Page<SecurityAuditLog> logs = securityAuditService.searchLogs(username, eventType, startTime, endTime, pageable);
         Page<SecurityAuditLogResponse> responsePage = logs.map(this::mapToResponse);
         
         return ResponseEntity.ok(ApiResponse.success(responsePage, "Filtered audit logs retrieved successfully"));
@@ -178,27 +205,60 @@ public class SecurityAuditLogController {
     }
 
     /**
-     * Count events by type within a time range.
+     * Count events by type within a time range, optionally for one user or IP address.
      *
      * @param eventType the event type
      * @param startTime start timestamp
      * @param endTime end timestamp
+     * @param username optional username
+     * @param ipAddress optional IP address
      * @return count of events
      */
     @Operation(summary = "Count events by type", 
-               description = "Count security events of a specific type within a time range")
+               description = "Count security events of a specific type within a time range, to the minute, from the event rollups")
     @GetMapping("/count")
     public ResponseEntity<ApiResponse<Long>> countEventsByType(
             @Parameter(description = "Event type to count") @RequestParam SecurityEventType eventType,
             @Parameter(description = "Start date-time (ISO format)") 
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
             @Parameter(description = "End date-time (ISO format)") 
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @Parameter(description = "Only count events of this username") @RequestParam(required = false) String username,
+            @Parameter(description = "Only count events from this IP address") @RequestParam(required = false) String ipAddress
     ) {
-        Long count = securityAuditService.countEventsByType(eventType, startTime, endTime);
+        long count = securityAuditService.countEvents(eventType, username, ipAddress, startTime, endTime);
         return ResponseEntity.ok(ApiResponse.success(count, "Event count retrieved successfully"));
     }
 
+    /**
+     * Get per-minute or per-hour event counts within a time range.
+     *
+     * @param eventType the event type
+     * @param granularity the bucket size
+     * @param startTime start timestamp
+     * @param endTime end timestamp
+     * @param username optional username
+     * @param ipAddress optional IP address
+     * @return one count per bucket
+     */
+    @Operation(summary = "Get event time series",
+               description = "Per-minute or per-hour counts of a security event type, from the event rollups")
+    @GetMapping("/timeseries")
+    public ResponseEntity<ApiResponse<List<AuditEventCountResponse>>> getEventTimeSeries(
+            @Parameter(description = "Event type to count") @RequestParam SecurityEventType eventType,
+            @Parameter(description = "Bucket size (MINUTE/HOUR)") @RequestParam(defaultValue = "HOUR") AuditRollupGranularity granularity,
+            @Parameter(description = "Start date-time (ISO format)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @Parameter(description = "End date-time (ISO format)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @Parameter(description = "Only count events of this username") @RequestParam(required = false) String username,
+            @Parameter(description = "Only count events from this IP address") @RequestParam(required = false) String ipAddress
+    ) {
+        List<AuditEventCountResponse> series = securityAuditService.getEventTimeSeries(
+                eventType, username, ipAddress, granularity, startTime, endTime);
+        return ResponseEntity.ok(ApiResponse.success(series, "Event time series retrieved successfully"));
+    }
+
     /**
      * Map SecurityAuditLog entity to response DTO.
      */
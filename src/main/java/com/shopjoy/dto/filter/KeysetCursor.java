@@ -0,0 +1,70 @@
+package com.shopjoy.dto.filter;
+
+import com.shopjoy.exception.ValidationException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by a sort key and then the id: the sort key and id of
+ * the last item returned. Clients receive it as an opaque URL-safe string and pass it
+ * back unchanged to read the next page.
+ *
+ * @param sortBy    the sort key the cursor was issued for
+ * @param direction the sort direction the cursor was issued for
+ * @param id        the id of the last item
+ * @param value     the sort key of the last item, as text
+ */
+public record KeysetCursor(String sortBy, Sort.Direction direction, int id, String value) {
+
+    private static final char SEPARATOR = '\u001F';
+
+    /**
+     * Creates the cursor after an item.
+     */
+    public static KeysetCursor after(String sortBy, Sort.Direction direction, int id, Object value) {
+        return new KeysetCursor(sortBy, direction, id, value != null ? value.toString() : "");
+    }
+
+    /**
+     * Parses a requested sort direction.
+     *
+     * @throws ValidationException if it is neither ASC nor DESC
+     */
+    public static Sort.Direction direction(String sortDirection) {
+        return Sort.Direction.fromOptionalString(sortDirection)
+                .orElseThrow(() -> new ValidationException("sortDirection", "must be ASC or DESC"));
+    }
+
+    public String encode() {
+        String raw = sortBy + SEPARATOR + direction.name() + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor and checks that it was issued for the requested order.
+     *
+     * @throws ValidationException if the cursor is malformed or belongs to another order
+     */
+    public static KeysetCursor decode(String cursor, String sortBy, Sort.Direction direction) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(String.valueOf(SEPARATOR), 4);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("cursor", "is malformed");
+        }
+        if (parts.length != 4) {
+            throw new ValidationException("cursor", "is malformed");
+        }
+        if (!parts[0].equals(sortBy) || !parts[1].equals(direction.name())) {
+            throw new ValidationException("cursor", "was issued for a different sort order");
+        }
+        try {
+            return new KeysetCursor(parts[0], direction, Integer.parseInt(parts[2]), parts[3]);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("cursor", "is malformed");
+        }
+    }
+}
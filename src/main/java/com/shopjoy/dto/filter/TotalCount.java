@@ -0,0 +1,23 @@
+package com.shopjoy.dto.filter;
+
+/**
+ * How the total number of items is reported with a cursor page.
+ */
+public enum TotalCount {
+
+    /**
+     * No total. The page is read without any count query.
+     */
+    NONE,
+
+    /**
+     * The row count from the database statistics when the listing is unfiltered,
+     * otherwise an exact count.
+     */
+    ESTIMATED,
+
+    /**
+     * An exact count query.
+     */
+    EXACT
+}
@@ -0,0 +1,18 @@
+package com.shopjoy.dto.response;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for one bucket of a security event time series.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditEventCountResponse {
+    private LocalDateTime bucketStart;
+    private long count;
+}
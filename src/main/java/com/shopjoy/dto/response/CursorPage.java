@@ -0,0 +1,35 @@
+package com.shopjoy.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Schema(description = "One page of a listing read with keyset (cursor) pagination")
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    @Schema(description = "Items of the page")
+    private List<T> content;
+
+    @Schema(description = "Requested page size", example = "20")
+    private int size;
+
+    @Schema(description = "Opaque cursor to pass as 'after' for the next page, null on the last page", example = "cHJpY2UfQVNDHzQyHzE5OS45OQ")
+    private String nextCursor;
+
+    @Schema(description = "Whether more items follow", example = "true")
+    private boolean hasNext;
+
+    @Schema(description = "Total number of items, null unless requested", example = "1000000")
+    private Long totalElements;
+
+    @Schema(description = "Whether totalElements comes from database statistics rather than a count", example = "false")
+    private boolean totalEstimated;
+}
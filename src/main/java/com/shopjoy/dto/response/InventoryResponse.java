@@ -20,6 +20,7 @@ public class InventoryResponse {
     private Integer productId;
     private String productName;
     private int stockQuantity;
+    private int reservedQuantity;
     private int reorderLevel;
     private LocalDateTime lastRestocked;
 
@@ -0,0 +1,24 @@
+package com.shopjoy.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Schema(description = "An autocomplete suggestion for the search box")
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionResponse {
+
+    @Schema(description = "What the suggestion names: PRODUCT, BRAND or CATEGORY", example = "PRODUCT")
+    private String type;
+
+    @Schema(description = "Product or category ID, null for brands", example = "42")
+    private Integer id;
+
+    @Schema(description = "Suggested text, lower case and without punctuation", example = "dell xps 13 laptop")
+    private String text;
+}
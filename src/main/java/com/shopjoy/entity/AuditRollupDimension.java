@@ -0,0 +1,7 @@
+package com.shopjoy.entity;
+
+public enum AuditRollupDimension {
+    ALL,
+    USERNAME,
+    IP_ADDRESS
+}
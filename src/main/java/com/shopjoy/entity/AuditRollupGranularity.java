@@ -0,0 +1,26 @@
+package com.shopjoy.entity;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum AuditRollupGranularity {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS);
+
+    private final ChronoUnit unit;
+
+    AuditRollupGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+
+    /**
+     * Returns the start of the bucket containing the given time.
+     */
+    public LocalDateTime bucketStart(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+}
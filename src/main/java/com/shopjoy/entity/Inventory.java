@@ -3,6 +3,7 @@ package com.shopjoy.entity;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -10,6 +11,9 @@ import java.time.LocalDateTime;
 
 /**
  * The type Inventory.
+ * <p>
+ * Updates only write the changed columns, so saving an admin stock change never
+ * writes back a reserved_quantity that the hold batches changed in the meantime.
  */
 @Getter
 @Setter
@@ -19,6 +23,7 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "inventory")
 @BatchSize(size = 20)
+@DynamicUpdate
 public class Inventory implements Serializable {
 
     @Serial
@@ -36,6 +41,9 @@ public class Inventory implements Serializable {
     @Column(name = "quantity_in_stock")
     private int quantityInStock;
 
+    @Column(name = "reserved_quantity", nullable = false)
+    private int reservedQuantity;
+
     @Column(name = "reorder_level")
     private int reorderLevel;
 
@@ -48,6 +56,15 @@ public class Inventory implements Serializable {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * Stock that can still be sold: on hand minus what is held for pending orders.
+     *
+     * @return the available quantity
+     */
+    public int getAvailableQuantity() {
+        return quantityInStock - reservedQuantity;
+    }
+
     @PrePersist
     protected void onCreate() {
         updatedAt = LocalDateTime.now();
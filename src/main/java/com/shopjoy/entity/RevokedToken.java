@@ -0,0 +1,38 @@
+package com.shopjoy.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing a revoked JWT, identified by a 128-bit hash of its jti.
+ * Rows are shared by all nodes and removed once the token would have expired anyway.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "revoked_tokens", indexes = {
+        @Index(name = "idx_revoked_tokens_expires_at", columnList = "expires_at"),
+        @Index(name = "idx_revoked_tokens_revoked_at", columnList = "revoked_at")
+})
+public class RevokedToken implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "token_hash", length = 32)
+    private String tokenHash;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "revoked_at", nullable = false)
+    private LocalDateTime revokedAt;
+}
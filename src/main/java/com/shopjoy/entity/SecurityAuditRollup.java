@@ -0,0 +1,61 @@
+package com.shopjoy.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing the number of security events of one type in a minute or hour
+ * bucket, either in total (dimension ALL) or for one username or IP address.
+ * Rows are maintained incrementally as audit events are written, so counts and time
+ * series never scan security_audit_logs.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "security_audit_rollups", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_audit_rollup_bucket",
+                columnNames = {"dimension", "dimension_value", "event_type", "granularity", "bucket_start"})
+}, indexes = {
+        @Index(name = "idx_audit_rollup_granularity_bucket", columnList = "granularity, bucket_start")
+})
+public class SecurityAuditRollup implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "rollup_id")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", nullable = false, length = 10)
+    private AuditRollupGranularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 50)
+    private SecurityEventType eventType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "dimension", nullable = false, length = 20)
+    private AuditRollupDimension dimension;
+
+    /**
+     * The username or IP address; empty for dimension ALL.
+     */
+    @Column(name = "dimension_value", nullable = false, length = 100)
+    private String dimensionValue;
+
+    @Column(name = "event_count", nullable = false)
+    private long eventCount;
+}
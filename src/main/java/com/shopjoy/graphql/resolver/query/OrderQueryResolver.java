@@ -1,6 +1,8 @@
 package com.shopjoy.graphql.resolver.query;
 
 import com.shopjoy.dto.filter.OrderFilter;
+import com.shopjoy.dto.filter.TotalCount;
+import com.shopjoy.dto.response.CursorPage;
 import com.shopjoy.dto.response.OrderResponse;
 import com.shopjoy.graphql.input.OrderFilterInput;
 import com.shopjoy.graphql.type.OrderConnection;
@@ -41,7 +43,10 @@ public class OrderQueryResolver {
             @Argument Integer page,
             @Argument Integer size,
             @Argument String sortBy,
-            @Argument String sortDirection
+            @Argument String sortDirection,
+            @Argument Integer first,
+            @Argument String after,
+            @Argument TotalCount totalCount
     ) {
         int pageNum = page != null ? page : 0;
         int pageSize = size != null ? size : 20;
@@ -50,8 +55,6 @@ public class OrderQueryResolver {
         Sort.Direction direction = sortDirection != null && sortDirection.equalsIgnoreCase("ASC") 
                 ? Sort.Direction.ASC : Sort.Direction.DESC;
         
-        Pageable pageable = PageRequest.of(pageNum, pageSize, Sort.by(direction, sortField));
-
         OrderFilter orderFilter = null;
         if (filter != null) {
             orderFilter = OrderFilter.builder()
@@ -66,6 +69,13 @@ public class OrderQueryResolver {
         }
 
         Integer uid = userId != null ? userId.intValue() : null;
+        if (first != null || after != null) {
+            CursorPage<OrderResponse> cursorPage = orderService.getOrdersByCursor(uid, orderFilter, after,
+                    first != null ? first : pageSize, sortField, direction.name(), totalCount);
+            return new OrderConnection(cursorPage.getContent(), PageInfo.of(cursorPage));
+        }
+
+        Pageable pageable = PageRequest.of(pageNum, pageSize, Sort.by(direction, sortField));
         Page<OrderResponse> orderPage = orderService.getOrders(uid, orderFilter, pageable);
         
         PageInfo pageInfo = new PageInfo(
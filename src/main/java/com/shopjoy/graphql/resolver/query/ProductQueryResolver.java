@@ -1,5 +1,7 @@
 package com.shopjoy.graphql.resolver.query;
 
+import com.shopjoy.dto.filter.TotalCount;
+import com.shopjoy.dto.response.CursorPage;
 import com.shopjoy.dto.response.ProductResponse;
 import com.shopjoy.graphql.type.PageInfo;
 import com.shopjoy.graphql.type.ProductConnection;
@@ -26,7 +28,21 @@ public class ProductQueryResolver {
             @Argument Integer page,
             @Argument Integer size,
             @Argument String sortBy,
-            @Argument String sortDirection) {
+            @Argument String sortDirection,
+            @Argument Integer first,
+            @Argument String after,
+            @Argument TotalCount totalCount) {
+        if (first != null || after != null) {
+            CursorPage<ProductResponse> cursorPage = productService.getProductsByCursor(
+                    null,
+                    after,
+                    first != null ? first : 20,
+                    sortBy != null ? sortBy : "id",
+                    sortDirection != null ? sortDirection : "ASC",
+                    totalCount);
+            return new ProductConnection(cursorPage.getContent(), PageInfo.of(cursorPage));
+        }
+
         int pageNum = page != null ? page : 0;
         int pageSize = size != null ? size : 20;
         String sort = sortBy != null ? sortBy : "id";
@@ -1,8 +1,26 @@
 package com.shopjoy.graphql.type;
 
+import com.shopjoy.dto.response.CursorPage;
+
+/**
+ * Page metadata of a connection. Offset pages set page and totalPages; cursor pages
+ * leave them null and set endCursor instead, with totalElements only if requested.
+ */
 public record PageInfo(
-        int page,
+        Integer page,
         int size,
-        long totalElements,
-        int totalPages
-) {}
+        Long totalElements,
+        Integer totalPages,
+        boolean hasNextPage,
+        String endCursor
+) {
+
+    public PageInfo(int page, int size, long totalElements, int totalPages) {
+        this(page, size, totalElements, totalPages, page + 1 < totalPages, null);
+    }
+
+    public static PageInfo of(CursorPage<?> cursorPage) {
+        return new PageInfo(null, cursorPage.getSize(), cursorPage.getTotalElements(), null,
+                cursorPage.isHasNext(), cursorPage.getNextCursor());
+    }
+}
@@ -1,19 +1,75 @@
 package com.shopjoy.repository;
 
 import com.shopjoy.entity.Inventory;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface InventoryRepository extends JpaRepository<Inventory, Integer> {
+public interface InventoryRepository extends JpaRepository<Inventory, Integer>, InventoryRepositoryCustom {
     Optional<Inventory> findByProductId(int productId);
+
+    /**
+     * Loads the inventory row with a row-level write lock (SELECT ... FOR UPDATE),
+     * so a read-modify-write stays correct under READ COMMITTED.
+     *
+     * @param productId the product ID
+     * @return the locked inventory row
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Inventory i WHERE i.product.id = :productId")
+    Optional<Inventory> findByProductIdForUpdate(@Param("productId") int productId);
+
+    @Query("SELECT i.quantityInStock - i.reservedQuantity FROM Inventory i WHERE i.product.id = :productId")
+    Optional<Integer> findAvailableQuantityByProductId(@Param("productId") int productId);
+
+    /**
+     * Decrements stock only if enough is available, in a single guarded UPDATE.
+     * The database evaluates the check and the write atomically on the row.
+     * Stock held for pending orders is not available.
+     *
+     * @param productId the product ID
+     * @param quantity the quantity to reserve
+     * @return 1 if the stock was decremented, 0 if the row is missing or stock is insufficient
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE inventory SET quantity_in_stock = quantity_in_stock - :quantity, updated_at = CURRENT_TIMESTAMP " +
+                   "WHERE product_id = :productId AND quantity_in_stock - reserved_quantity >= :quantity", nativeQuery = true)
+    int decrementStockIfAvailable(@Param("productId") int productId, @Param("quantity") int quantity);
+
+    /**
+     * Returns stock to a product in a single UPDATE.
+     *
+     * @param productId the product ID
+     * @param quantity the quantity to release
+     * @return 1 if the stock was incremented, 0 if the row is missing
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE inventory SET quantity_in_stock = quantity_in_stock + :quantity, updated_at = CURRENT_TIMESTAMP " +
+                   "WHERE product_id = :productId", nativeQuery = true)
+    int incrementStock(@Param("productId") int productId, @Param("quantity") int quantity);
     
     @Query("SELECT i FROM Inventory i WHERE i.quantityInStock <= i.reorderLevel")
     List<Inventory> findLowStock();
+
+    @Query("SELECT i FROM Inventory i WHERE i.quantityInStock = 0")
+    List<Inventory> findOutOfStock();
     
-    List<Inventory> findByProductIdIn(List<Integer> productIds);
+    /**
+     * Loads the inventory rows of several products together with their products in one query.
+     *
+     * @param productIds the product IDs
+     * @return the inventory rows with products pre-loaded
+     */
+    @EntityGraph(attributePaths = "product")
+    List<Inventory> findByProductIdIn(Collection<Integer> productIds);
 }
@@ -0,0 +1,58 @@
+package com.shopjoy.repository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch stock operations on the inventory table that Spring Data cannot derive.
+ */
+public interface InventoryRepositoryCustom {
+
+    /**
+     * Applies the guarded conditional decrement for every line of an order in one JDBC batch.
+     * Stock held for pending orders is not available.
+     * Rows are updated in ascending product ID order so concurrent orders lock them consistently.
+     * <p>
+     * Products listed in the result were not decremented. The caller must roll back
+     * the surrounding transaction to undo the lines that did succeed.
+     *
+     * @param quantitiesByProductId the quantity to reserve per product ID
+     * @return the product IDs whose stock was insufficient or missing
+     */
+    List<Integer> decrementStockIfAvailable(Map<Integer, Integer> quantitiesByProductId);
+
+    /**
+     * Returns stock to several products in one JDBC batch, in ascending product ID order.
+     *
+     * @param quantitiesByProductId the quantity to release per product ID
+     * @return the product IDs that have no inventory row
+     */
+    List<Integer> incrementStock(Map<Integer, Integer> quantitiesByProductId);
+
+    /**
+     * Moves stock from available to reserved for every line of an order in one guarded JDBC batch.
+     * quantity_in_stock is left untouched until the hold is committed.
+     *
+     * @param quantitiesByProductId the quantity to hold per product ID
+     * @return the product IDs whose available stock was insufficient or missing
+     */
+    List<Integer> holdStockIfAvailable(Map<Integer, Integer> quantitiesByProductId);
+
+    /**
+     * Returns held stock to available in one JDBC batch, without touching quantity_in_stock.
+     * A row whose reserved_quantity is lower than the quantity released is left untouched.
+     *
+     * @param quantitiesByProductId the held quantity to release per product ID
+     * @return the product IDs that have no inventory row or too little reserved stock
+     */
+    List<Integer> releaseHeldStock(Map<Integer, Integer> quantitiesByProductId);
+
+    /**
+     * Converts holds into committed decrements in one JDBC batch: both quantity_in_stock
+     * and reserved_quantity drop by the held quantity. Neither may go negative.
+     *
+     * @param quantitiesByProductId the held quantity to commit per product ID
+     * @return the product IDs that could not be decremented
+     */
+    List<Integer> commitHeldStock(Map<Integer, Integer> quantitiesByProductId);
+}
@@ -0,0 +1,98 @@
+package com.shopjoy.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+
+/**
+ * JDBC implementation of {@link InventoryRepositoryCustom}.
+ * Picked up by Spring Data as a fragment of {@link InventoryRepository}.
+ */
+@RequiredArgsConstructor
+public class InventoryRepositoryImpl implements InventoryRepositoryCustom {
+
+    private static final String DECREMENT_IF_AVAILABLE_SQL =
+            "UPDATE inventory SET quantity_in_stock = quantity_in_stock - ?, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE product_id = ? AND quantity_in_stock - reserved_quantity >= ?";
+
+    private static final String INCREMENT_SQL =
+            "UPDATE inventory SET quantity_in_stock = quantity_in_stock + ?, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE product_id = ?";
+
+    private static final String HOLD_IF_AVAILABLE_SQL =
+            "UPDATE inventory SET reserved_quantity = reserved_quantity + ?, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE product_id = ? AND quantity_in_stock - reserved_quantity >= ?";
+
+    private static final String RELEASE_HOLD_SQL =
+            "UPDATE inventory SET reserved_quantity = reserved_quantity - ?, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE product_id = ? AND reserved_quantity >= ?";
+
+    private static final String COMMIT_HOLD_SQL =
+            "UPDATE inventory SET quantity_in_stock = quantity_in_stock - ?, " +
+            "reserved_quantity = reserved_quantity - ?, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE product_id = ? AND quantity_in_stock >= ? AND reserved_quantity >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Integer> decrementStockIfAvailable(Map<Integer, Integer> quantitiesByProductId) {
+        return executeInProductOrder(DECREMENT_IF_AVAILABLE_SQL, quantitiesByProductId,
+                (productId, quantity) -> new Object[]{quantity, productId, quantity});
+    }
+
+    @Override
+    public List<Integer> incrementStock(Map<Integer, Integer> quantitiesByProductId) {
+        return executeInProductOrder(INCREMENT_SQL, quantitiesByProductId,
+                (productId, quantity) -> new Object[]{quantity, productId});
+    }
+
+    @Override
+    public List<Integer> holdStockIfAvailable(Map<Integer, Integer> quantitiesByProductId) {
+        return executeInProductOrder(HOLD_IF_AVAILABLE_SQL, quantitiesByProductId,
+                (productId, quantity) -> new Object[]{quantity, productId, quantity});
+    }
+
+    @Override
+    public List<Integer> releaseHeldStock(Map<Integer, Integer> quantitiesByProductId) {
+        return executeInProductOrder(RELEASE_HOLD_SQL, quantitiesByProductId,
+                (productId, quantity) -> new Object[]{quantity, productId, quantity});
+    }
+
+    @Override
+    public List<Integer> commitHeldStock(Map<Integer, Integer> quantitiesByProductId) {
+        return executeInProductOrder(COMMIT_HOLD_SQL, quantitiesByProductId,
+                (productId, quantity) -> new Object[]{quantity, quantity, productId, quantity, quantity});
+    }
+
+    /**
+     * Runs one statement per product as a single JDBC batch, sorted by product ID,
+     * and returns the product IDs whose statement did not update a row.
+     */
+    private List<Integer> executeInProductOrder(String sql, Map<Integer, Integer> quantitiesByProductId,
+                                                BiFunction<Integer, Integer, Object[]> argsFactory) {
+        if (quantitiesByProductId == null || quantitiesByProductId.isEmpty()) {
+            return List.of();
+        }
+
+        List<Integer> productIds = new ArrayList<>(new TreeMap<>(quantitiesByProductId).keySet());
+        List<Object[]> batchArgs = new ArrayList<>(productIds.size());
+        for (Integer productId : productIds) {
+            batchArgs.add(argsFactory.apply(productId, quantitiesByProductId.get(productId)));
+        }
+
+        int[] updateCounts = jdbcTemplate.batchUpdate(sql, batchArgs);
+
+        List<Integer> notUpdated = new ArrayList<>();
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == 0) {
+                notUpdated.add(productIds.get(i));
+            }
+        }
+        return notUpdated;
+    }
+}
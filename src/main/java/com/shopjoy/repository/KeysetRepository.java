@@ -0,0 +1,211 @@
+package com.shopjoy.repository;
+
+import com.shopjoy.dto.filter.KeysetCursor;
+import com.shopjoy.dto.filter.TotalCount;
+import com.shopjoy.exception.ValidationException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Table;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keyset (seek) pagination over any entity with an Integer "id".
+ * <p>
+ * A page is read as {@code WHERE (key, id) > (lastKey, lastId) ORDER BY key, id LIMIT size + 1}
+ * instead of {@code OFFSET n}, so reading page 5,000 costs the same index range scan as
+ * page 1 when a composite index on (key, id) exists (docs/keyset_pagination_indexes.sql).
+ * Only ids and sort keys are selected; callers load the entities of a page by id,
+ * usually from cache. The extra row tells whether a next page exists, so no count query
+ * runs unless a total is requested.
+ */
+@Repository
+@RequiredArgsConstructor
+public class KeysetRepository {
+
+    private static final String ID = "id";
+
+    private static final String ESTIMATE_SQL =
+            "SELECT reltuples::bigint FROM pg_class WHERE relname = ? AND relkind IN ('r', 'p')";
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean postgres;
+
+    /**
+     * Reads the ids of one page.
+     *
+     * @param type       the entity
+     * @param filter     the filter, or null for the unfiltered listing
+     * @param sortBy     the attribute to sort by; must be a non-null, comparable attribute
+     * @param direction  the sort direction
+     * @param cursor     the cursor returned with the previous page, or null for the first page
+     * @param size       the page size
+     * @param totalCount whether and how to count all rows
+     * @throws ValidationException if the cursor is malformed or was issued for another order
+     */
+    public <T> KeysetSlice findSlice(Class<T> type, Specification<T> filter, String sortBy, Sort.Direction direction,
+                                     String cursor, int size, TotalCount totalCount) {
+        KeysetCursor after = cursor != null && !cursor.isBlank()
+                ? KeysetCursor.decode(cursor, sortBy, direction)
+                : null;
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(type);
+        Path<Integer> id = root.get(ID);
+        Path<Comparable<Object>> key = root.get(sortBy);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter != null) {
+            Predicate predicate = filter.toPredicate(root, query, cb);
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+        if (after != null) {
+            predicates.add(ID.equals(sortBy)
+                    ? beyond(cb, id, after.id(), direction)
+                    : seek(cb, key, id, after, direction));
+        }
+
+        query.multiselect(id, key).where(predicates.toArray(new Predicate[0]));
+        query.orderBy(ID.equals(sortBy)
+                ? List.of(order(cb, id, direction))
+                : List.of(order(cb, key, direction), order(cb, id, direction)));
+
+        List<Tuple> rows = entityManager.createQuery(query).setMaxResults(size + 1).getResultList();
+        boolean hasNext = rows.size() > size;
+        List<Tuple> page = hasNext ? rows.subList(0, size) : rows;
+
+        List<Integer> ids = page.stream().map(row -> row.get(0, Integer.class)).toList();
+        String nextCursor = null;
+        if (hasNext) {
+            Tuple last = page.getLast();
+            nextCursor = KeysetCursor.after(sortBy, direction, last.get(0, Integer.class), last.get(1)).encode();
+        }
+
+        return switch (totalCount) {
+            case NONE -> new KeysetSlice(ids, nextCursor, null, false);
+            case EXACT -> new KeysetSlice(ids, nextCursor, count(type, filter), false);
+            case ESTIMATED -> {
+                Long estimate = filter == null ? estimateRowCount(type) : null;
+                yield estimate != null
+                        ? new KeysetSlice(ids, nextCursor, estimate, true)
+                        : new KeysetSlice(ids, nextCursor, count(type, filter), false);
+            }
+        };
+    }
+
+    /**
+     * Counts the rows matching the filter.
+     */
+    public <T> long count(Class<T> type, Specification<T> filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<T> root = query.from(type);
+        query.select(cb.count(root));
+        if (filter != null) {
+            Predicate predicate = filter.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    /**
+     * Returns the row count of the entity's table from the planner statistics, which
+     * ANALYZE and autovacuum keep current, without scanning the table. Returns null when
+     * the database is not PostgreSQL or the table has not been analyzed yet.
+     */
+    public Long estimateRowCount(Class<?> type) {
+        Table table = type.getAnnotation(Table.class);
+        if (table == null || !isPostgres()) {
+            return null;
+        }
+        List<Long> estimates = jdbcTemplate.queryForList(ESTIMATE_SQL, Long.class, table.name());
+        return estimates.isEmpty() || estimates.getFirst() == null || estimates.getFirst() < 0
+                ? null
+                : estimates.getFirst();
+    }
+
+    /**
+     * Rows after (key, id) = (lastKey, lastId). The redundant {@code key >= lastKey}
+     * bound lets the database start an index range scan at the cursor.
+     */
+    private static Predicate seek(CriteriaBuilder cb, Path<Comparable<Object>> key, Path<Integer> id,
+                                  KeysetCursor after, Sort.Direction direction) {
+        Comparable<Object> value = parse(key, after.value());
+        Predicate bound = direction.isAscending()
+                ? cb.greaterThanOrEqualTo(key, value)
+                : cb.lessThanOrEqualTo(key, value);
+        Predicate keyBeyond = beyond(cb, key, value, direction);
+        Predicate tieBeyond = cb.and(cb.equal(key, value), beyond(cb, id, after.id(), direction));
+        return cb.and(bound, cb.or(keyBeyond, tieBeyond));
+    }
+
+    private static <Y extends Comparable<? super Y>> Predicate beyond(CriteriaBuilder cb, Expression<? extends Y> path,
+                                                                      Y value, Sort.Direction direction) {
+        return direction.isAscending() ? cb.greaterThan(path, value) : cb.lessThan(path, value);
+    }
+
+    private static Order order(CriteriaBuilder cb, Expression<?> expression, Sort.Direction direction) {
+        return direction.isAscending() ? cb.asc(expression) : cb.desc(expression);
+    }
+
+    /**
+     * Converts the sort key of a cursor back to the attribute's type.
+     */
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> parse(Path<Comparable<Object>> key, String value) {
+        Class<?> javaType = key.getJavaType();
+        try {
+            Object parsed;
+            if (javaType == String.class) {
+                parsed = value;
+            } else if (javaType == BigDecimal.class) {
+                parsed = new BigDecimal(value);
+            } else if (javaType == LocalDateTime.class) {
+                parsed = LocalDateTime.parse(value);
+            } else if (javaType == Integer.class || javaType == int.class) {
+                parsed = Integer.valueOf(value);
+            } else if (javaType == Long.class || javaType == long.class) {
+                parsed = Long.valueOf(value);
+            } else {
+                throw new IllegalStateException("Unsupported keyset sort key type: " + javaType);
+            }
+            return (Comparable<Object>) parsed;
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new ValidationException("cursor", "is malformed");
+        }
+    }
+
+    private boolean isPostgres() {
+        Boolean current = postgres;
+        if (current == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            current = "PostgreSQL".equalsIgnoreCase(product);
+            postgres = current;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,14 @@
+package com.shopjoy.repository;
+
+import java.util.List;
+
+/**
+ * Ids of one page of a keyset-paginated listing, in listing order.
+ *
+ * @param ids            the ids of the page
+ * @param nextCursor     the encoded cursor of the next page, or null on the last page
+ * @param totalElements  the total number of rows, or null if not requested
+ * @param totalEstimated whether the total comes from database statistics
+ */
+public record KeysetSlice(List<Integer> ids, String nextCursor, Long totalElements, boolean totalEstimated) {
+}
@@ -11,6 +11,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -35,6 +36,33 @@ public interface ProductRepository extends JpaRepository<Product, Integer>, JpaS
     @EntityGraph(value = "Product.withInventoryAndCategory", type = EntityGraph.EntityGraphType.LOAD)
     @Query("SELECT p FROM Product p")
     Page<Product> findAllWithInventory(Pageable pageable);
+
+    /**
+     * Find several products by id with inventory and category loaded in one query.
+     *
+     * @param productIds the product IDs
+     * @return the products found, in no particular order
+     */
+    @EntityGraph(value = "Product.withInventoryAndCategory", type = EntityGraph.EntityGraphType.LOAD)
+    List<Product> findByIdIn(Collection<Integer> productIds);
+
+    /**
+     * Find product ids in ascending order, without loading the products.
+     *
+     * @param pageable pagination information
+     * @return the product IDs
+     */
+    @Query("SELECT p.id FROM Product p ORDER BY p.id")
+    List<Integer> findIds(Pageable pageable);
+
+    /**
+     * Find the ids of all active products.
+     *
+     * @return the active product IDs
+     */
+    @Query("SELECT p.id FROM Product p WHERE p.active = true")
+    List<Integer> findActiveIds();
+
     List<Product> findByCategoryId(Integer categoryId);
 
     List<Product> findByCategoryIdIn(List<Integer> categoryIds);
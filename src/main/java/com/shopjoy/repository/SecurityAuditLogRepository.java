@@ -28,6 +28,16 @@ public interface SecurityAuditLogRepository extends JpaRepository<SecurityAuditL
 
     Page<SecurityAuditLog> findByUsernameAndEventType(String username, SecurityEventType eventType, Pageable pageable);
 
+    Page<SecurityAuditLog> findByUsernameAndTimestampBetween(String username, LocalDateTime startTime,
+                                                             LocalDateTime endTime, Pageable pageable);
+
+    Page<SecurityAuditLog> findByEventTypeAndTimestampBetween(SecurityEventType eventType, LocalDateTime startTime,
+                                                              LocalDateTime endTime, Pageable pageable);
+
+    Page<SecurityAuditLog> findByUsernameAndEventTypeAndTimestampBetween(String username, SecurityEventType eventType,
+                                                                         LocalDateTime startTime, LocalDateTime endTime,
+                                                                         Pageable pageable);
+
 
     @Query("SELECT s FROM SecurityAuditLog s WHERE s.username = :username AND s.eventType = :eventType AND s.timestamp >= :since ORDER BY s.timestamp DESC")
     List<SecurityAuditLog> findRecentFailedAttempts(@Param("username") String username,
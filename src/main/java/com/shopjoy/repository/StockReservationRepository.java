@@ -0,0 +1,67 @@
+package com.shopjoy.repository;
+
+import com.shopjoy.entity.ReservationStatus;
+import com.shopjoy.entity.StockReservation;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for StockReservation entity.
+ */
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    /**
+     * Loads every reservation of an order with a row-level write lock, so payment,
+     * cancellation and the hold sweeper never act on the same hold twice.
+     *
+     * @param orderId the order ID
+     * @return the locked reservations of the order
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r WHERE r.orderId = :orderId")
+    List<StockReservation> findByOrderIdForUpdate(@Param("orderId") Integer orderId);
+
+    /**
+     * Locks the next page of holds that expired before the given time.
+     * Rows already locked by a payment or cancellation are skipped (SKIP LOCKED),
+     * so the sweeper never waits on checkout traffic.
+     *
+     * @param status the status to match (HELD)
+     * @param now the expiry cut-off
+     * @param pageable the batch size
+     * @return the locked expired holds, oldest first
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT r FROM StockReservation r WHERE r.status = :status AND r.expiresAt < :now ORDER BY r.expiresAt")
+    List<StockReservation> findExpiredForUpdate(@Param("status") ReservationStatus status,
+                                                @Param("now") LocalDateTime now,
+                                                Pageable pageable);
+
+    /**
+     * Moves a set of reservations to a new status in a single UPDATE.
+     *
+     * @param ids the reservation IDs
+     * @param status the new status
+     * @param now the update timestamp
+     * @return the number of updated reservations
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE StockReservation r SET r.status = :status, r.updatedAt = :now WHERE r.id IN :ids")
+    int updateStatus(@Param("ids") Collection<Long> ids,
+                     @Param("status") ReservationStatus status,
+                     @Param("now") LocalDateTime now);
+}
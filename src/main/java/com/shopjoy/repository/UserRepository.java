@@ -2,7 +2,10 @@ package com.shopjoy.repository;
 
 import com.shopjoy.entity.User;
 import com.shopjoy.entity.UserType;
+import com.shopjoy.security.UserStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -16,4 +19,7 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     boolean existsByEmail(String email);
     boolean existsByUsername(String username);
     List<User> findByUserType(UserType userType);
+
+    @Query("SELECT new com.shopjoy.security.UserStatus(u.id, u.userType) FROM User u WHERE u.username = :username")
+    Optional<UserStatus> findStatusByUsername(@Param("username") String username);
 }
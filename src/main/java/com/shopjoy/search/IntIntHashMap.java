@@ -0,0 +1,131 @@
+package com.shopjoy.search;
+
+import java.util.Arrays;
+
+/**
+ * Map of int keys to non-negative int values, in two arrays with linear probing.
+ * <p>
+ * Memory is proportional to the number of entries, whatever the keys: the table is
+ * at most two thirds full and doubles when it fills, and removals shift the following
+ * entries back instead of leaving tombstones. Not thread-safe.
+ */
+final class IntIntHashMap {
+
+    static final int MISSING = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * @param expectedSize the entries to hold without resizing
+     */
+    IntIntHashMap(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(4, expectedSize * 3 / 2)) << 1);
+    }
+
+    /**
+     * @return the value of the key, or {@link #MISSING}
+     */
+    int get(int key) {
+        for (int i = index(key); values[i] != MISSING; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * @param value a non-negative value
+     */
+    void put(int key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must not be negative");
+        }
+        int i = index(key);
+        for (; values[i] != MISSING; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 3 > keys.length * 2) {
+            resize();
+        }
+    }
+
+    /**
+     * @return the removed value, or {@link #MISSING}
+     */
+    int remove(int key) {
+        int i = index(key);
+        for (; values[i] != MISSING; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                int removed = values[i];
+                shiftBack(i);
+                size--;
+                return removed;
+            }
+        }
+        return MISSING;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the estimated heap retained by the map.
+     */
+    long estimatedBytes() {
+        return 16 + 2 * (16 + 4L * keys.length);
+    }
+
+    /**
+     * Fills the freed slot with the next entry of the run that probed past it, until the run ends.
+     */
+    private void shiftBack(int free) {
+        for (int i = (free + 1) & mask; values[i] != MISSING; i = (i + 1) & mask) {
+            int home = index(keys[i]);
+            // the entry can move back unless its home lies after the free slot, cyclically up to i
+            if (((i - home) & mask) >= ((i - free) & mask)) {
+                keys[free] = keys[i];
+                values[free] = values[i];
+                free = i;
+            }
+        }
+        values[free] = MISSING;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != MISSING) {
+                int j = index(oldKeys[i]);
+                while (values[j] != MISSING) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        mask = capacity - 1;
+    }
+
+    private int index(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
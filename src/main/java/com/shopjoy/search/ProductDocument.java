@@ -0,0 +1,21 @@
+package com.shopjoy.search;
+
+/**
+ * The searchable fields of one product, as indexed by {@link ProductSearchIndex} and
+ * {@link ProductSuggestions}.
+ *
+ * @param productId       the product id
+ * @param name            the product name
+ * @param description     the description, or null
+ * @param brand           the brand, or null
+ * @param categoryId      the category id, or null
+ * @param categoryName    the category name, or null
+ * @param price           the price
+ * @param active          whether the product is active
+ * @param createdAtMillis the creation time in epoch milliseconds
+ * @param unitsSold       the units ordered so far, its popularity for suggestions
+ */
+public record ProductDocument(int productId, String name, String description, String brand, Integer categoryId,
+                              String categoryName, double price, boolean active, long createdAtMillis,
+                              long unitsSold) {
+}
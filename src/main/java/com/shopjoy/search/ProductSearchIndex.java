@@ -0,0 +1,608 @@
+package com.shopjoy.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over products, ranked with BM25.
+ * <p>
+ * Each term maps to a postings list of internal document numbers with the weighted
+ * frequency of the term in the document: name 3, brand 2, category 1.5, description 1.
+ * Document numbers only grow, so postings stay sorted and query terms are intersected
+ * with a linear merge. Updating a product indexes it under a new number and marks the
+ * old one deleted; once a quarter of the numbers are deleted the index is compacted.
+ * <p>
+ * The term dictionary is sorted, so the last query term is also expanded to the terms
+ * it prefixes, and a term without exact match is expanded to the terms within one edit
+ * (two from {@code twoTyposMinLength} letters) that share its first letter. Expansions
+ * score lower than exact matches and are capped at {@code maxExpansions} per term,
+ * the most frequent first.
+ * <p>
+ * Searches share a read lock; writes take the write lock.
+ */
+public final class ProductSearchIndex {
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float BRAND_WEIGHT = 2f;
+    private static final float CATEGORY_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final float PREFIX_BOOST = 0.7f;
+    private static final float[] TYPO_BOOST = {1f, 0.5f, 0.3f};
+    private static final double COMPACTION_RATIO = 0.25;
+    private static final int MIN_COMPACTION_DOCS = 1_024;
+    private static final int NO_CATEGORY = Integer.MIN_VALUE;
+    private static final ProductSearchResult NO_HITS = new ProductSearchResult(List.of(), 0);
+
+    private final int minPrefixLength;
+    private final int maxExpansions;
+    private final int oneTypoMinLength;
+    private final int twoTyposMinLength;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Integer, Integer> docByProductId = new HashMap<>();
+    private final Map<String, String> brandPool = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final BitSet active = new BitSet();
+
+    private int[] productIds = new int[0];
+    private float[] lengths = new float[0];
+    private int[] categoryIds = new int[0];
+    private double[] prices = new double[0];
+    private long[] createdAt = new long[0];
+    private String[] names = new String[0];
+    private String[] brands = new String[0];
+    private int docCount;
+    private int liveCount;
+    private double totalLength;
+
+    /**
+     * Postings of one term, sorted by document number.
+     */
+    private static final class Postings {
+
+        private int[] docs = new int[2];
+        private float[] frequencies = new float[2];
+        private int size;
+
+        void add(int doc, float frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size] = frequency;
+            size++;
+        }
+    }
+
+    /**
+     * Documents matching a query term, or all terms so far, with their scores.
+     */
+    private record Matches(int[] docs, float[] scores, int size) {
+
+        Matches intersect(Matches other) {
+            int[] resultDocs = new int[Math.min(size, other.size)];
+            float[] resultScores = new float[resultDocs.length];
+            int count = 0;
+            for (int i = 0, j = 0; i < size && j < other.size; ) {
+                if (docs[i] < other.docs[j]) {
+                    i++;
+                } else if (docs[i] > other.docs[j]) {
+                    j++;
+                } else {
+                    resultDocs[count] = docs[i];
+                    resultScores[count++] = scores[i++] + other.scores[j++];
+                }
+            }
+            return new Matches(resultDocs, resultScores, count);
+        }
+
+        /**
+         * Unites two match lists, keeping the better score of a document found in both.
+         */
+        Matches union(Matches other) {
+            int[] resultDocs = new int[size + other.size];
+            float[] resultScores = new float[resultDocs.length];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size || j < other.size) {
+                if (j == other.size || (i < size && docs[i] < other.docs[j])) {
+                    resultDocs[count] = docs[i];
+                    resultScores[count++] = scores[i++];
+                } else if (i == size || docs[i] > other.docs[j]) {
+                    resultDocs[count] = other.docs[j];
+                    resultScores[count++] = other.scores[j++];
+                } else {
+                    resultDocs[count] = docs[i];
+                    resultScores[count++] = Math.max(scores[i++], other.scores[j++]);
+                }
+            }
+            return new Matches(resultDocs, resultScores, count);
+        }
+    }
+
+    /**
+     * Sizes of the index.
+     *
+     * @param documents      the indexed products
+     * @param terms          the distinct terms
+     * @param postings       the postings entries, deleted documents included
+     * @param estimatedBytes the estimated heap retained by the index
+     */
+    public record Stats(int documents, int terms, long postings, long estimatedBytes) {
+    }
+
+    /**
+     * @param minPrefixLength   the shortest last query term expanded as a prefix
+     * @param maxExpansions     the most terms a query term expands to
+     * @param oneTypoMinLength  the shortest query term matched with one typo
+     * @param twoTyposMinLength the shortest query term matched with two typos
+     */
+    public ProductSearchIndex(int minPrefixLength, int maxExpansions, int oneTypoMinLength, int twoTyposMinLength) {
+        if (minPrefixLength < 1 || maxExpansions < 1 || oneTypoMinLength < 1 || twoTyposMinLength < oneTypoMinLength) {
+            throw new IllegalArgumentException("Lengths and expansions must be positive, with one typo allowed before two");
+        }
+        this.minPrefixLength = minPrefixLength;
+        this.maxExpansions = maxExpansions;
+        this.oneTypoMinLength = oneTypoMinLength;
+        this.twoTyposMinLength = twoTyposMinLength;
+    }
+
+    /**
+     * Indexes a product, replacing its previous version.
+     */
+    public void add(ProductDocument document) {
+        Map<String, Float> frequencies = new LinkedHashMap<>();
+        accumulate(frequencies, document.name(), NAME_WEIGHT);
+        accumulate(frequencies, document.brand(), BRAND_WEIGHT);
+        accumulate(frequencies, document.categoryName(), CATEGORY_WEIGHT);
+        accumulate(frequencies, document.description(), DESCRIPTION_WEIGHT);
+        float length = 0;
+        for (float frequency : frequencies.values()) {
+            length += frequency;
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(document.productId());
+            int doc = docCount++;
+            ensureCapacity(docCount);
+            for (Map.Entry<String, Float> entry : frequencies.entrySet()) {
+                terms.computeIfAbsent(entry.getKey(), _ -> new Postings()).add(doc, entry.getValue());
+            }
+            productIds[doc] = document.productId();
+            lengths[doc] = length;
+            categoryIds[doc] = document.categoryId() != null ? document.categoryId() : NO_CATEGORY;
+            prices[doc] = document.price();
+            createdAt[doc] = document.createdAtMillis();
+            names[doc] = document.name();
+            brands[doc] = document.brand() != null
+                    ? brandPool.computeIfAbsent(TextAnalyzer.fold(document.brand()), brand -> brand)
+                    : null;
+            live.set(doc);
+            active.set(doc, document.active());
+            docByProductId.put(document.productId(), doc);
+            liveCount++;
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a product from the index.
+     *
+     * @return whether the product was indexed
+     */
+    public boolean remove(int productId) {
+        lock.writeLock().lock();
+        try {
+            return removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(int productId) {
+        lock.readLock().lock();
+        try {
+            return docByProductId.containsKey(productId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of distinct terms, without the pass over the postings that {@link #stats()} makes.
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the products matching every term of the query text and the filters.
+     */
+    public ProductSearchResult search(ProductSearchQuery query) {
+        List<String> tokens = TextAnalyzer.analyze(query.text());
+        if (tokens.isEmpty() || query.limit() <= 0) {
+            return NO_HITS;
+        }
+        String prefix = lastWord(query.text(), tokens.getLast());
+
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0) {
+                return NO_HITS;
+            }
+            float averageLength = (float) (totalLength / liveCount);
+            Matches matches = null;
+            for (int i = 0; i < tokens.size(); i++) {
+                Matches termMatches = match(tokens.get(i), i == tokens.size() - 1 ? prefix : null, averageLength);
+                matches = matches == null ? termMatches : matches.intersect(termMatches);
+                if (matches.size() == 0) {
+                    return NO_HITS;
+                }
+            }
+            return collect(matches, query);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            long postings = 0;
+            long bytes = 0;
+            for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+                Postings termPostings = entry.getValue();
+                postings += termPostings.size;
+                // tree entry, key string, postings object and its two arrays
+                bytes += 40 + stringBytes(entry.getKey()) + 24 + 2 * (16 + 4L * termPostings.docs.length);
+            }
+            // per document number: id, length, category, price, creation time and two references
+            bytes += (long) productIds.length * (4 + 4 + 4 + 8 + 8 + 4 + 4);
+            for (int doc = 0; doc < docCount; doc++) {
+                if (live.get(doc)) {
+                    bytes += stringBytes(names[doc]);
+                }
+            }
+            for (String brand : brandPool.keySet()) {
+                bytes += 32 + stringBytes(brand);
+            }
+            // id map node with boxed key and value
+            bytes += docByProductId.size() * 64L;
+            bytes += (live.size() + active.size()) / 8;
+            return new Stats(liveCount, terms.size(), postings, bytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean removeLocked(int productId) {
+        Integer doc = docByProductId.remove(productId);
+        if (doc == null) {
+            return false;
+        }
+        live.clear(doc);
+        names[doc] = null;
+        liveCount--;
+        totalLength -= lengths[doc];
+        int deleted = docCount - liveCount;
+        if (deleted >= MIN_COMPACTION_DOCS && deleted > docCount * COMPACTION_RATIO) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Renumbers the live documents densely and drops deleted ones from every postings list.
+     */
+    private void compact() {
+        int[] renumbered = new int[docCount];
+        BitSet compactedActive = new BitSet(liveCount);
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (!live.get(doc)) {
+                renumbered[doc] = -1;
+                continue;
+            }
+            renumbered[doc] = next;
+            productIds[next] = productIds[doc];
+            lengths[next] = lengths[doc];
+            categoryIds[next] = categoryIds[doc];
+            prices[next] = prices[doc];
+            createdAt[next] = createdAt[doc];
+            names[next] = names[doc];
+            brands[next] = brands[doc];
+            compactedActive.set(next, active.get(doc));
+            next++;
+        }
+        Arrays.fill(names, next, docCount, null);
+        Arrays.fill(brands, next, docCount, null);
+
+        for (Iterator<Postings> iterator = terms.values().iterator(); iterator.hasNext(); ) {
+            Postings termPostings = iterator.next();
+            int size = 0;
+            for (int i = 0; i < termPostings.size; i++) {
+                int doc = renumbered[termPostings.docs[i]];
+                if (doc >= 0) {
+                    termPostings.docs[size] = doc;
+                    termPostings.frequencies[size++] = termPostings.frequencies[i];
+                }
+            }
+            termPostings.size = size;
+            if (size == 0) {
+                iterator.remove();
+            }
+        }
+
+        live.clear();
+        live.set(0, next);
+        active.clear();
+        active.or(compactedActive);
+        docByProductId.clear();
+        for (int doc = 0; doc < next; doc++) {
+            docByProductId.put(productIds[doc], doc);
+        }
+        docCount = next;
+    }
+
+    /**
+     * Scores the documents of one query term and its expansions.
+     *
+     * @param prefix the text to expand as a prefix, or null if the term is not the last one
+     */
+    private Matches match(String term, String prefix, float averageLength) {
+        List<Postings> expansions = new ArrayList<>();
+        List<Float> boosts = new ArrayList<>();
+        Postings exact = terms.get(term);
+        if (exact != null) {
+            expansions.add(exact);
+            boosts.add(1f);
+        }
+        if (prefix != null && prefix.length() >= minPrefixLength) {
+            for (Postings expansion : mostFrequent(terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false), term)) {
+                expansions.add(expansion);
+                boosts.add(PREFIX_BOOST);
+            }
+        }
+        if (expansions.isEmpty()) {
+            addTypoExpansions(term, expansions, boosts);
+        }
+
+        Matches matches = new Matches(new int[0], new float[0], 0);
+        for (int i = 0; i < expansions.size(); i++) {
+            Matches scored = score(expansions.get(i), boosts.get(i), averageLength);
+            matches = i == 0 ? scored : matches.union(scored);
+        }
+        return matches;
+    }
+
+    private List<Postings> mostFrequent(Map<String, Postings> candidates, String excluded) {
+        PriorityQueue<Postings> top = new PriorityQueue<>(Comparator.comparingInt((Postings postings) -> postings.size));
+        for (Map.Entry<String, Postings> candidate : candidates.entrySet()) {
+            if (candidate.getKey().equals(excluded)) {
+                continue;
+            }
+            top.add(candidate.getValue());
+            if (top.size() > maxExpansions) {
+                top.poll();
+            }
+        }
+        return new ArrayList<>(top);
+    }
+
+    /**
+     * Expands a term to the terms within the allowed edit distance that start with the
+     * same letter, closest and then most frequent first.
+     */
+    private void addTypoExpansions(String term, List<Postings> expansions, List<Float> boosts) {
+        int maxEdits = term.length() >= twoTyposMinLength ? 2 : term.length() >= oneTypoMinLength ? 1 : 0;
+        if (maxEdits == 0) {
+            return;
+        }
+        record Candidate(Postings postings, int edits) {
+        }
+        Comparator<Candidate> closestLast = Comparator.comparingInt(Candidate::edits).reversed();
+        PriorityQueue<Candidate> top = new PriorityQueue<>(
+                closestLast.thenComparingInt((Candidate candidate) -> candidate.postings().size));
+        char first = term.charAt(0);
+        Map<String, Postings> sameFirstLetter = terms.subMap(String.valueOf(first), true, String.valueOf((char) (first + 1)), false);
+        for (Map.Entry<String, Postings> candidate : sameFirstLetter.entrySet()) {
+            String key = candidate.getKey();
+            if (Math.abs(key.length() - term.length()) > maxEdits) {
+                continue;
+            }
+            int edits = editDistance(term, key, maxEdits);
+            if (edits <= maxEdits) {
+                top.add(new Candidate(candidate.getValue(), edits));
+                if (top.size() > maxExpansions) {
+                    top.poll();
+                }
+            }
+        }
+        for (Candidate candidate : top) {
+            expansions.add(candidate.postings());
+            boosts.add(TYPO_BOOST[candidate.edits()]);
+        }
+    }
+
+    private Matches score(Postings postings, float boost, float averageLength) {
+        int df = Math.min(postings.size, liveCount);
+        float idf = (float) Math.log(1 + (liveCount - df + 0.5) / (df + 0.5));
+        float[] scores = new float[postings.size];
+        for (int i = 0; i < postings.size; i++) {
+            float tf = postings.frequencies[i];
+            float norm = K1 * (1 - B + B * lengths[postings.docs[i]] / averageLength);
+            scores[i] = boost * idf * tf * (K1 + 1) / (tf + norm);
+        }
+        return new Matches(postings.docs, scores, postings.size);
+    }
+
+    /**
+     * Applies the filters, counts the hits and keeps the requested page in a bounded heap.
+     */
+    private ProductSearchResult collect(Matches matches, ProductSearchQuery query) {
+        Comparator<Integer> order = order(query, matches);
+        int wanted = (int) Math.min(Integer.MAX_VALUE - 8, (long) Math.max(0, query.offset()) + query.limit());
+        PriorityQueue<Integer> page = new PriorityQueue<>(Math.min(wanted, 1_024) + 1, order.reversed());
+        String brand = query.brand() != null ? TextAnalyzer.fold(query.brand()) : null;
+        long total = 0;
+        for (int i = 0; i < matches.size(); i++) {
+            if (!accepts(matches.docs()[i], query, brand)) {
+                continue;
+            }
+            total++;
+            if (page.size() < wanted) {
+                page.add(i);
+            } else if (order.compare(i, page.peek()) < 0) {
+                page.poll();
+                page.add(i);
+            }
+        }
+
+        Integer[] ordered = new Integer[page.size()];
+        for (int i = ordered.length - 1; i >= 0; i--) {
+            ordered[i] = page.poll();
+        }
+        List<Integer> ids = new ArrayList<>(Math.max(0, ordered.length - query.offset()));
+        for (int i = Math.max(0, query.offset()); i < ordered.length; i++) {
+            ids.add(productIds[matches.docs()[ordered[i]]]);
+        }
+        return new ProductSearchResult(ids, total);
+    }
+
+    private boolean accepts(int doc, ProductSearchQuery query, String brand) {
+        return live.get(doc)
+                && (query.categoryId() == null || categoryIds[doc] == query.categoryId())
+                && (query.minPrice() == null || prices[doc] >= query.minPrice())
+                && (query.maxPrice() == null || prices[doc] <= query.maxPrice())
+                && (brand == null || brand.equals(brands[doc]))
+                && (query.active() == null || active.get(doc) == query.active());
+    }
+
+    /**
+     * Orders positions in the match list: best result first, ties by product id.
+     */
+    private Comparator<Integer> order(ProductSearchQuery query, Matches matches) {
+        int[] docs = matches.docs();
+        Comparator<Integer> primary = switch (query.sort()) {
+            case RELEVANCE -> (a, b) -> Float.compare(matches.scores()[b], matches.scores()[a]);
+            case ID -> direction(query, (a, b) -> Integer.compare(productIds[docs[a]], productIds[docs[b]]));
+            case NAME -> direction(query, (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(names[docs[a]], names[docs[b]]));
+            case PRICE -> direction(query, (a, b) -> Double.compare(prices[docs[a]], prices[docs[b]]));
+            case CREATED_AT -> direction(query, (a, b) -> Long.compare(createdAt[docs[a]], createdAt[docs[b]]));
+        };
+        return primary.thenComparing((a, b) -> Integer.compare(productIds[docs[a]], productIds[docs[b]]));
+    }
+
+    private static Comparator<Integer> direction(ProductSearchQuery query, Comparator<Integer> ascending) {
+        return query.ascending() ? ascending : ascending.reversed();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= productIds.length) {
+            return;
+        }
+        int grown = Math.max(capacity, Math.max(1_024, productIds.length + (productIds.length >> 1)));
+        productIds = Arrays.copyOf(productIds, grown);
+        lengths = Arrays.copyOf(lengths, grown);
+        categoryIds = Arrays.copyOf(categoryIds, grown);
+        prices = Arrays.copyOf(prices, grown);
+        createdAt = Arrays.copyOf(createdAt, grown);
+        names = Arrays.copyOf(names, grown);
+        brands = Arrays.copyOf(brands, grown);
+    }
+
+    private static void accumulate(Map<String, Float> frequencies, String text, float weight) {
+        for (String term : TextAnalyzer.analyze(text)) {
+            frequencies.merge(term, weight, Float::sum);
+        }
+    }
+
+    /**
+     * Returns the last word of the query as typed, which is expanded as a prefix:
+     * "glas" must reach "glass", although it analyzes to "gla". Falls back to the
+     * analyzed term when the last word was a stop word.
+     */
+    private static String lastWord(String text, String lastTerm) {
+        String folded = TextAnalyzer.fold(text);
+        int end = folded.length();
+        while (end > 0 && !Character.isLetterOrDigit(folded.charAt(end - 1))) {
+            end--;
+        }
+        int start = end;
+        while (start > 0 && Character.isLetterOrDigit(folded.charAt(start - 1))) {
+            start--;
+        }
+        String word = folded.substring(start, end);
+        return TextAnalyzer.stem(word).equals(lastTerm) ? word : lastTerm;
+    }
+
+    /**
+     * Optimal string alignment distance (edits, including adjacent swaps), or
+     * {@code maxEdits + 1} as soon as it must exceed {@code maxEdits}.
+     */
+    static int editDistance(String a, String b, int maxEdits) {
+        int[] previousPrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previousPrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] recycled = previousPrevious;
+            previousPrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], maxEdits + 1);
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 40 + value.length();
+    }
+}
@@ -0,0 +1,37 @@
+package com.shopjoy.search;
+
+/**
+ * A full-text product search with optional filters.
+ * <p>
+ * Every query term must match a product, in its name, brand, category or description.
+ * The last term also matches as a prefix ("lapt" finds "laptop"), and terms that match
+ * nothing exactly match with one typo (two for long terms).
+ *
+ * @param text       the search text
+ * @param categoryId only products of this category, or null
+ * @param minPrice   only products at or above this price, or null
+ * @param maxPrice   only products at or below this price, or null
+ * @param brand      only products of this brand (case-insensitive), or null
+ * @param active     only products with this active flag, or null
+ * @param sort       the order of the results
+ * @param ascending  whether field sorts are ascending; relevance is always best first
+ * @param offset     the number of results to skip
+ * @param limit      the maximum number of results
+ */
+public record ProductSearchQuery(String text, Integer categoryId, Double minPrice, Double maxPrice, String brand,
+                                 Boolean active, Sort sort, boolean ascending, int offset, int limit) {
+
+    /**
+     * Orders of search results. Ties are broken by product id.
+     */
+    public enum Sort {
+        RELEVANCE, ID, NAME, PRICE, CREATED_AT
+    }
+
+    /**
+     * Creates an unfiltered query ranked by relevance.
+     */
+    public static ProductSearchQuery of(String text, int offset, int limit) {
+        return new ProductSearchQuery(text, null, null, null, null, null, Sort.RELEVANCE, false, offset, limit);
+    }
+}
@@ -0,0 +1,12 @@
+package com.shopjoy.search;
+
+import java.util.List;
+
+/**
+ * One page of search results.
+ *
+ * @param productIds the ids of the page, in result order
+ * @param totalHits  the number of products matching the query and filters
+ */
+public record ProductSearchResult(List<Integer> productIds, long totalHits) {
+}
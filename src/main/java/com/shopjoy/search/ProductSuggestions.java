@@ -0,0 +1,268 @@
+package com.shopjoy.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Autocomplete suggestions for the storefront search box: product names, brands and
+ * category names in one {@link SuggestionIndex}.
+ * <p>
+ * A product's popularity is the number of units it sold. A brand's or category's is the
+ * units sold by its active products plus their number, so a brand outranks any single
+ * product of it. Inactive products are neither suggested nor counted. Brands and
+ * categories are suggested while they have at least one active product.
+ * Thread-safe: lookups share a read lock, updates take the write lock.
+ */
+public final class ProductSuggestions {
+
+    private final SuggestionIndex index;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Group> brands = new HashMap<>();
+    private final Map<Integer, Group> categories = new HashMap<>();
+    private boolean bulkLoading;
+
+    // slot by product id, for the products that are suggested
+    private final IntIntHashMap slotByProductId = new IntIntHashMap(1024);
+    // by slot: the product id (0 for brands and categories) and the product's groups
+    private int[] productIds = new int[1024];
+    private Group[] brandOf = new Group[1024];
+    private Group[] categoryOf = new Group[1024];
+    private Group[] groupOf = new Group[1024];
+
+    /**
+     * A brand or category with the totals of its active products.
+     */
+    private static final class Group {
+        private final Suggestion.Type type;
+        private final Integer id;
+        private String name;
+        private int slot = -1;
+        private int products;
+        private long unitsSold;
+
+        private Group(Suggestion.Type type, Integer id, String name) {
+            this.type = type;
+            this.id = id;
+            this.name = name;
+        }
+
+        private long popularity() {
+            return unitsSold + products;
+        }
+    }
+
+    /**
+     * @param maxSuggestions the most suggestions a lookup returns
+     * @param bucketSize     the keys a trie node holds before it is split
+     * @param maxWords       the words of a name, from the first, that a lookup can start at
+     */
+    public ProductSuggestions(int maxSuggestions, int bucketSize, int maxWords) {
+        this.index = new SuggestionIndex(maxSuggestions, bucketSize, maxWords);
+    }
+
+    /**
+     * Defers ranking and brand and category totals while the initial products are added.
+     */
+    public void startBulkLoad() {
+        lock.writeLock().lock();
+        try {
+            bulkLoading = true;
+            index.startBulkLoad();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void finishBulkLoad() {
+        lock.writeLock().lock();
+        try {
+            bulkLoading = false;
+            syncGroups(brands);
+            syncGroups(categories);
+            index.finishBulkLoad();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a product, replacing its previous version. Inactive products are only removed.
+     */
+    public void add(ProductDocument document) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(document.productId());
+            if (!document.active() || document.name() == null) {
+                return;
+            }
+            String brandName = TextAnalyzer.normalize(document.brand());
+            Group brand = brandName.isEmpty() ? null
+                    : brands.computeIfAbsent(brandName, name -> new Group(Suggestion.Type.BRAND, null, name));
+            Group category = document.categoryId() == null || document.categoryName() == null ? null
+                    : categories.computeIfAbsent(document.categoryId(),
+                            id -> new Group(Suggestion.Type.CATEGORY, id, document.categoryName()));
+            if (category != null) {
+                category.name = document.categoryName();
+            }
+
+            int slot = index.add(document.name(), document.unitsSold());
+            ensureSlotCapacity(slot);
+            productIds[slot] = document.productId();
+            brandOf[slot] = brand;
+            categoryOf[slot] = category;
+            slotByProductId.put(document.productId(), slot);
+            join(brand, document.unitsSold(), 1);
+            join(category, document.unitsSold(), 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a product.
+     *
+     * @return whether the product was suggested
+     */
+    public boolean remove(int productId) {
+        lock.writeLock().lock();
+        try {
+            return removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the most popular products, brands and categories with a word sequence
+     * starting with the typed text.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            int[] slots = index.suggest(prefix, limit);
+            List<Suggestion> suggestions = new ArrayList<>(slots.length);
+            for (int slot : slots) {
+                suggestions.add(suggestion(slot));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the trie statistics, with the product and group tables added to the estimate.
+     */
+    public SuggestionIndex.Stats stats() {
+        lock.readLock().lock();
+        try {
+            SuggestionIndex.Stats stats = index.stats();
+            long bytes = slotByProductId.estimatedBytes() + 16 + 4L * productIds.length
+                    + 3 * (16 + 4L * brandOf.length)
+                    // group object plus map node, boxed key and brand name string
+                    + (brands.size() + categories.size()) * 120L;
+            return new SuggestionIndex.Stats(stats.texts(), stats.keys(), stats.nodes(), stats.estimatedBytes() + bytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean removeLocked(int productId) {
+        int slot = slotByProductId.remove(productId);
+        if (slot == IntIntHashMap.MISSING) {
+            return false;
+        }
+        long unitsSold = index.popularity(slot);
+        Group brand = brandOf[slot];
+        Group category = categoryOf[slot];
+        productIds[slot] = 0;
+        brandOf[slot] = null;
+        categoryOf[slot] = null;
+        index.remove(slot);
+        join(brand, unitsSold, -1);
+        join(category, unitsSold, -1);
+        return true;
+    }
+
+    /**
+     * Adds a product to the totals of a group, or takes it out with a negative sign.
+     */
+    private void join(Group group, long unitsSold, int sign) {
+        if (group == null) {
+            return;
+        }
+        group.products += sign;
+        group.unitsSold += sign * unitsSold;
+        if (!bulkLoading) {
+            sync(group);
+            if (group.products == 0) {
+                if (group.type == Suggestion.Type.BRAND) {
+                    brands.remove(group.name);
+                } else {
+                    categories.remove(group.id);
+                }
+            }
+        }
+    }
+
+    private void syncGroups(Map<?, Group> groups) {
+        for (Iterator<Group> iterator = groups.values().iterator(); iterator.hasNext(); ) {
+            Group group = iterator.next();
+            sync(group);
+            if (group.products == 0) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Brings the suggestion of a group in line with its name and totals.
+     */
+    private void sync(Group group) {
+        if (group.products <= 0) {
+            if (group.slot >= 0) {
+                groupOf[group.slot] = null;
+                index.remove(group.slot);
+                group.slot = -1;
+            }
+        } else if (group.slot < 0) {
+            group.slot = index.add(group.name, group.popularity());
+            ensureSlotCapacity(group.slot);
+            groupOf[group.slot] = group;
+        } else {
+            index.update(group.slot, group.name, group.popularity());
+        }
+    }
+
+    private Suggestion suggestion(int slot) {
+        if (productIds[slot] != 0) {
+            return new Suggestion(Suggestion.Type.PRODUCT, productIds[slot], index.text(slot), index.popularity(slot));
+        }
+        Group group = groupOf[slot];
+        return new Suggestion(group.type, group.id, index.text(slot), index.popularity(slot));
+    }
+
+    private void ensureSlotCapacity(int slot) {
+        if (slot >= productIds.length) {
+            int capacity = Math.max(slot + 1, productIds.length * 2);
+            productIds = Arrays.copyOf(productIds, capacity);
+            brandOf = Arrays.copyOf(brandOf, capacity);
+            categoryOf = Arrays.copyOf(categoryOf, capacity);
+            groupOf = Arrays.copyOf(groupOf, capacity);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.shopjoy.search;
+
+/**
+ * One autocomplete suggestion.
+ *
+ * @param type       what the text names
+ * @param id         the product or category id, null for brands
+ * @param text       the normalized text, lower case and without punctuation
+ * @param popularity the units sold by the product, or by the brand or category
+ */
+public record Suggestion(Type type, Integer id, String text, long popularity) {
+
+    /**
+     * What a suggestion names.
+     */
+    public enum Type {
+        PRODUCT, BRAND, CATEGORY
+    }
+}
@@ -0,0 +1,484 @@
+package com.shopjoy.search;
+
+import java.util.Arrays;
+
+/**
+ * Prefix index of short texts ranked by popularity, for search-as-you-type.
+ * <p>
+ * Texts are normalized with {@link TextAnalyzer#normalize} and keyed from the start of
+ * each of their first words, so "thinkpad" and "x1" both find "lenovo thinkpad x1".
+ * Keys live in a burst trie: a node keeps its keys in a flat bucket of (slot, key start)
+ * pairs, 8 bytes each, until the bucket overflows and is split into one child per next
+ * character. The key characters are never copied; they are read from the text itself.
+ * Every node caches the best texts of its subtree, so a lookup walks the prefix and
+ * copies that list. Only a prefix that ends inside a bucket scans the bucket.
+ * <p>
+ * Texts are addressed by slots, which are reused after removal. Not thread-safe.
+ */
+public final class SuggestionIndex {
+
+    private static final int MAX_DEPTH = 48;
+    private static final char[] NO_LABELS = {};
+    private static final Node[] NO_CHILDREN = {};
+    private static final long[] NO_KEYS = {};
+    private static final int[] NO_SLOTS = {};
+
+    private final int topSize;
+    private final int bucketSize;
+    private final int maxWords;
+    private final Node root = new Node();
+
+    private String[] texts = new String[64];
+    private long[] popularity = new long[64];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int slotCount;
+    private int size;
+    private int keyCount;
+    private boolean bulkLoading;
+
+    private static final class Node {
+        private char[] labels = NO_LABELS;
+        private Node[] children = NO_CHILDREN;
+        private long[] keys = NO_KEYS;
+        private int keyCount;
+        private int[] top = NO_SLOTS;
+    }
+
+    /**
+     * Sizes and estimated heap footprint of the index.
+     */
+    public record Stats(int texts, int keys, int nodes, long estimatedBytes) {
+    }
+
+    /**
+     * @param topSize    the most suggestions a lookup returns, cached per node
+     * @param bucketSize the keys a node holds before it is split
+     * @param maxWords   the words of a text, from the first, that a lookup can start at
+     */
+    public SuggestionIndex(int topSize, int bucketSize, int maxWords) {
+        if (topSize < 1 || bucketSize < 1 || maxWords < 1) {
+            throw new IllegalArgumentException("Top size, bucket size and words must be positive");
+        }
+        this.topSize = topSize;
+        this.bucketSize = bucketSize;
+        this.maxWords = maxWords;
+    }
+
+    /**
+     * Stops maintaining the cached rankings while many texts are added, until
+     * {@link #finishBulkLoad()} ranks the whole trie once.
+     */
+    public void startBulkLoad() {
+        bulkLoading = true;
+    }
+
+    public void finishBulkLoad() {
+        bulkLoading = false;
+        rankSubtree(root);
+    }
+
+    /**
+     * Adds a text.
+     *
+     * @return the slot of the text
+     */
+    public int add(String text, long textPopularity) {
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : slotCount++;
+        if (slot >= texts.length) {
+            texts = Arrays.copyOf(texts, texts.length * 2);
+            popularity = Arrays.copyOf(popularity, popularity.length * 2);
+        }
+        texts[slot] = TextAnalyzer.normalize(text);
+        popularity[slot] = textPopularity;
+        size++;
+        insertKeys(slot);
+        return slot;
+    }
+
+    /**
+     * Replaces the text or popularity of a slot.
+     */
+    public void update(int slot, String text, long textPopularity) {
+        String normalized = TextAnalyzer.normalize(text);
+        if (normalized.equals(texts[slot]) && textPopularity == popularity[slot]) {
+            return;
+        }
+        removeKeys(slot);
+        texts[slot] = normalized;
+        popularity[slot] = textPopularity;
+        insertKeys(slot);
+    }
+
+    public void remove(int slot) {
+        removeKeys(slot);
+        texts[slot] = null;
+        popularity[slot] = 0;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        size--;
+    }
+
+    /**
+     * Returns the normalized text of a slot.
+     */
+    public String text(int slot) {
+        return texts[slot];
+    }
+
+    public long popularity(int slot) {
+        return popularity[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the most popular texts with a word sequence starting with the prefix.
+     * Ties go to the shorter text.
+     *
+     * @param prefix the typed text, normalized like the indexed texts
+     * @param limit  the most slots returned, capped at the top size
+     * @return the slots, best first
+     */
+    public int[] suggest(String prefix, int limit) {
+        String query = TextAnalyzer.normalize(prefix);
+        if (query.isEmpty() || limit <= 0) {
+            return NO_SLOTS;
+        }
+        Node node = root;
+        int depth = 0;
+        while (depth < query.length() && node.children.length > 0) {
+            int index = Arrays.binarySearch(node.labels, query.charAt(depth));
+            if (index < 0) {
+                return NO_SLOTS;
+            }
+            node = node.children[index];
+            depth++;
+        }
+        if (depth == query.length()) {
+            return Arrays.copyOf(node.top, Math.min(limit, node.top.length));
+        }
+
+        int[] ranked = new int[topSize];
+        int count = 0;
+        for (int i = 0; i < node.keyCount; i++) {
+            long key = node.keys[i];
+            if (texts[slot(key)].startsWith(query, start(key))) {
+                count = insertRanked(ranked, count, slot(key));
+            }
+        }
+        return Arrays.copyOf(ranked, Math.min(limit, count));
+    }
+
+    public Stats stats() {
+        long[] totals = new long[2];
+        accumulate(root, totals);
+        long bytes = totals[1];
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (texts[slot] != null) {
+                // String object and its Latin-1 byte array
+                bytes += 24 + align(16 + texts[slot].length());
+            }
+        }
+        bytes += align(16 + 4L * texts.length) + align(16 + 8L * popularity.length) + align(16 + 4L * freeSlots.length);
+        return new Stats(size, keyCount, (int) totals[0], bytes);
+    }
+
+    private void accumulate(Node node, long[] totals) {
+        totals[0]++;
+        // node with four references and a count
+        long bytes = 40;
+        if (node.children.length > 0) {
+            bytes += align(16 + 2L * node.labels.length) + align(16 + 4L * node.children.length);
+        }
+        if (node.keys.length > 0) {
+            bytes += align(16 + 8L * node.keys.length);
+        }
+        if (node.top.length > 0) {
+            bytes += align(16 + 4L * node.top.length);
+        }
+        totals[1] += bytes;
+        for (Node child : node.children) {
+            accumulate(child, totals);
+        }
+    }
+
+    private void insertKeys(int slot) {
+        String text = texts[slot];
+        int words = 0;
+        int start = 0;
+        while (start < text.length() && words++ < maxWords) {
+            insert(slot, start);
+            int space = text.indexOf(' ', start);
+            if (space < 0) {
+                break;
+            }
+            start = space + 1;
+        }
+    }
+
+    private void removeKeys(int slot) {
+        String text = texts[slot];
+        int words = 0;
+        int start = 0;
+        while (start < text.length() && words++ < maxWords) {
+            remove(slot, start);
+            int space = text.indexOf(' ', start);
+            if (space < 0) {
+                break;
+            }
+            start = space + 1;
+        }
+    }
+
+    /**
+     * Adds one key, offering the slot to the ranking of every node on the way down.
+     */
+    private void insert(int slot, int start) {
+        String text = texts[slot];
+        int length = text.length() - start;
+        Node node = root;
+        int depth = 0;
+        while (true) {
+            if (!bulkLoading) {
+                offer(node, slot);
+            }
+            if (node.children.length == 0 || depth == length) {
+                append(node, key(slot, start));
+                keyCount++;
+                if (node.children.length == 0 && node.keyCount > bucketSize && depth < MAX_DEPTH) {
+                    burst(node, depth);
+                }
+                return;
+            }
+            node = child(node, text.charAt(start + depth));
+            depth++;
+        }
+    }
+
+    /**
+     * Removes one key, reranking the nodes whose ranking held the slot and dropping
+     * buckets left empty.
+     */
+    private void remove(int slot, int start) {
+        String text = texts[slot];
+        int length = text.length() - start;
+        Node[] path = new Node[MAX_DEPTH + 1];
+        Node node = root;
+        int depth = 0;
+        while (node.children.length > 0 && depth < length) {
+            int index = Arrays.binarySearch(node.labels, text.charAt(start + depth));
+            if (index < 0) {
+                return;
+            }
+            path[depth++] = node;
+            node = node.children[index];
+        }
+
+        long key = key(slot, start);
+        for (int i = 0; i < node.keyCount; i++) {
+            if (node.keys[i] == key) {
+                node.keys[i] = node.keys[--node.keyCount];
+                keyCount--;
+                break;
+            }
+        }
+
+        while (depth > 0 && node.keyCount == 0 && node.children.length == 0) {
+            Node parent = path[--depth];
+            removeChild(parent, text.charAt(start + depth));
+            node = parent;
+        }
+        if (bulkLoading) {
+            return;
+        }
+        for (Node ranked = node; ; ranked = path[--depth]) {
+            if (contains(ranked.top, slot)) {
+                rank(ranked);
+            }
+            if (depth == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Splits a bucket into one child per next character. Keys that end here stay.
+     */
+    private void burst(Node node, int depth) {
+        long[] keys = node.keys;
+        int count = node.keyCount;
+        boolean continues = false;
+        for (int i = 0; i < count && !continues; i++) {
+            continues = start(keys[i]) + depth < texts[slot(keys[i])].length();
+        }
+        if (!continues) {
+            return;
+        }
+        node.keys = NO_KEYS;
+        node.keyCount = 0;
+        for (int i = 0; i < count; i++) {
+            long key = keys[i];
+            String text = texts[slot(key)];
+            int position = start(key) + depth;
+            append(position == text.length() ? node : child(node, text.charAt(position)), key);
+        }
+        for (Node child : node.children) {
+            if (child.keyCount > bucketSize && depth + 1 < MAX_DEPTH) {
+                burst(child, depth + 1);
+            }
+            if (!bulkLoading) {
+                rank(child);
+            }
+        }
+    }
+
+    private Node child(Node node, char label) {
+        int index = Arrays.binarySearch(node.labels, label);
+        if (index >= 0) {
+            return node.children[index];
+        }
+        int position = -index - 1;
+        int length = node.labels.length;
+        char[] labels = new char[length + 1];
+        Node[] children = new Node[length + 1];
+        System.arraycopy(node.labels, 0, labels, 0, position);
+        System.arraycopy(node.children, 0, children, 0, position);
+        System.arraycopy(node.labels, position, labels, position + 1, length - position);
+        System.arraycopy(node.children, position, children, position + 1, length - position);
+        Node child = new Node();
+        labels[position] = label;
+        children[position] = child;
+        node.labels = labels;
+        node.children = children;
+        return child;
+    }
+
+    private static void removeChild(Node node, char label) {
+        int position = Arrays.binarySearch(node.labels, label);
+        int length = node.labels.length;
+        if (length == 1) {
+            node.labels = NO_LABELS;
+            node.children = NO_CHILDREN;
+            return;
+        }
+        char[] labels = new char[length - 1];
+        Node[] children = new Node[length - 1];
+        System.arraycopy(node.labels, 0, labels, 0, position);
+        System.arraycopy(node.children, 0, children, 0, position);
+        System.arraycopy(node.labels, position + 1, labels, position, length - position - 1);
+        System.arraycopy(node.children, position + 1, children, position, length - position - 1);
+        node.labels = labels;
+        node.children = children;
+    }
+
+    private static void append(Node node, long key) {
+        if (node.keyCount == node.keys.length) {
+            node.keys = Arrays.copyOf(node.keys, Math.max(4, node.keys.length * 2));
+        }
+        node.keys[node.keyCount++] = key;
+    }
+
+    /**
+     * Adds a slot to a node's ranking if it is among the best.
+     */
+    private void offer(Node node, int slot) {
+        int[] top = node.top;
+        if (contains(top, slot) || (top.length == topSize && !better(slot, top[top.length - 1]))) {
+            return;
+        }
+        int[] ranked = Arrays.copyOf(top, topSize);
+        node.top = Arrays.copyOf(ranked, insertRanked(ranked, top.length, slot));
+    }
+
+    /**
+     * Recomputes a node's ranking from its own keys and its children's rankings.
+     */
+    private void rank(Node node) {
+        int[] ranked = new int[topSize];
+        int count = 0;
+        for (int i = 0; i < node.keyCount; i++) {
+            count = insertRanked(ranked, count, slot(node.keys[i]));
+        }
+        for (Node child : node.children) {
+            for (int slot : child.top) {
+                count = insertRanked(ranked, count, slot);
+            }
+        }
+        node.top = count == 0 ? NO_SLOTS : Arrays.copyOf(ranked, count);
+    }
+
+    private void rankSubtree(Node node) {
+        for (Node child : node.children) {
+            rankSubtree(child);
+        }
+        rank(node);
+    }
+
+    /**
+     * Inserts a slot into a ranking of {@code count} slots, keeping it sorted, free of
+     * duplicates and at most the top size long.
+     *
+     * @return the new count
+     */
+    private int insertRanked(int[] ranked, int count, int slot) {
+        if (count == topSize && !better(slot, ranked[count - 1])) {
+            return count;
+        }
+        for (int i = 0; i < count; i++) {
+            if (ranked[i] == slot) {
+                return count;
+            }
+        }
+        int position = count == topSize ? count - 1 : count;
+        while (position > 0 && better(slot, ranked[position - 1])) {
+            ranked[position] = ranked[position - 1];
+            position--;
+        }
+        ranked[position] = slot;
+        return Math.min(count + 1, topSize);
+    }
+
+    /**
+     * Orders slots by popularity, then shorter text, then text.
+     */
+    private boolean better(int a, int b) {
+        if (popularity[a] != popularity[b]) {
+            return popularity[a] > popularity[b];
+        }
+        if (texts[a].length() != texts[b].length()) {
+            return texts[a].length() < texts[b].length();
+        }
+        int compared = texts[a].compareTo(texts[b]);
+        return compared != 0 ? compared < 0 : a < b;
+    }
+
+    private static boolean contains(int[] slots, int slot) {
+        for (int candidate : slots) {
+            if (candidate == slot) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long key(int slot, int start) {
+        return (long) slot << 32 | start;
+    }
+
+    private static int slot(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int start(long key) {
+        return (int) key;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
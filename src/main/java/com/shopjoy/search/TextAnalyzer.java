@@ -0,0 +1,112 @@
+package com.shopjoy.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Turns product text and search queries into index terms.
+ * <p>
+ * Text is folded to lower case without accents and split on anything that is not a
+ * letter or digit. Common English stop words are dropped and plural endings are
+ * stripped ("laptops" and "batteries" index as "laptop" and "battery"), so documents
+ * and queries meet on the same terms.
+ */
+public final class TextAnalyzer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is",
+            "it", "of", "on", "or", "the", "to", "with");
+
+    private TextAnalyzer() {
+    }
+
+    /**
+     * Returns the terms of a text in order, with repetitions.
+     *
+     * @param text the text, may be null
+     * @return the terms
+     */
+    public static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+        String folded = fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String token = folded.substring(start, i);
+                if (!STOP_WORDS.contains(token)) {
+                    terms.add(stem(token));
+                }
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Lower-cases a text and removes accents, e.g. "Café" becomes "cafe".
+     */
+    public static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                folded.append(Character.toLowerCase(c));
+            }
+        }
+        return folded.toString();
+    }
+
+    /**
+     * Folds a text and separates its words with single spaces, dropping punctuation,
+     * e.g. "Dell XPS-13 (2024)" becomes "dell xps 13 2024". Words are not stemmed.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = fold(text);
+        StringBuilder normalized = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(c);
+            } else if (!normalized.isEmpty() && normalized.charAt(normalized.length() - 1) != ' ') {
+                normalized.append(' ');
+            }
+        }
+        int length = normalized.length();
+        if (length > 0 && normalized.charAt(length - 1) == ' ') {
+            normalized.setLength(length - 1);
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Strips English plural endings from words of four letters or more.
+     */
+    static String stem(String token) {
+        int length = token.length();
+        if (length < 4 || !Character.isLetter(token.charAt(length - 1))) {
+            return token;
+        }
+        if (token.endsWith("ies") && length > 4) {
+            return token.substring(0, length - 3) + "y";
+        }
+        if (token.endsWith("sses") || token.endsWith("xes") || token.endsWith("ches") || token.endsWith("shes")) {
+            return token.substring(0, length - 2);
+        }
+        if (token.endsWith("s") && !token.endsWith("ss") && !token.endsWith("us") && !token.endsWith("is")) {
+            return token.substring(0, length - 1);
+        }
+        return token;
+    }
+}
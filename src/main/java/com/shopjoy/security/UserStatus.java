@@ -0,0 +1,32 @@
+package com.shopjoy.security;
+
+import com.shopjoy.entity.UserType;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * The parts of a user account that JWT authentication checks on each request: the
+ * account still exists under the same id and still has the role the token was issued for.
+ * {@link #ABSENT} stands for a username with no account, so misses can be cached too.
+ *
+ * @param userId   the user id
+ * @param userType the current role of the user
+ */
+public record UserStatus(Integer userId, UserType userType) implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The status of a username that has no account.
+     */
+    public static final UserStatus ABSENT = new UserStatus(null, null);
+
+    /**
+     * Returns whether the account exists.
+     */
+    public boolean exists() {
+        return userId != null;
+    }
+}
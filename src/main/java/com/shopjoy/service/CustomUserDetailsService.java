@@ -3,8 +3,10 @@ package com.shopjoy.service;
 import com.shopjoy.entity.User;
 import com.shopjoy.repository.UserRepository;
 import com.shopjoy.security.CustomUserDetails;
+import com.shopjoy.security.UserStatus;
 import lombok.RequiredArgsConstructor;
 import org.jspecify.annotations.NonNull;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -52,6 +54,22 @@ public class CustomUserDetailsService implements UserDetailsService {
         );
     }
 
+    /**
+     * Loads the id and role of a user, cached briefly in "userStatus" so stateless JWT
+     * authentication does not query the users table on every request. Usernames without
+     * an account are cached as {@link UserStatus#ABSENT} for the same time, so the tokens
+     * of a deleted user do not query the table either.
+     * Evicted when a user is registered, updated or deleted.
+     *
+     * @param username the username
+     * @return the status, or {@link UserStatus#ABSENT} if no such user exists
+     */
+    @Transactional(readOnly = true)
+    @Cacheable(value = "userStatus", key = "#username")
+    public UserStatus loadUserStatus(String username) {
+        return userRepository.findStatusByUsername(username).orElse(UserStatus.ABSENT);
+    }
+
     /**
      * Converts UserType enum to Spring Security authorities.
      * Maps CUSTOMER -> ROLE_CUSTOMER, ADMIN -> ROLE_ADMIN
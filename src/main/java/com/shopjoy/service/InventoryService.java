@@ -1,11 +1,13 @@
 package com.shopjoy.service;
 
 import com.shopjoy.dto.response.InventoryResponse;
+import com.shopjoy.entity.Inventory;
 import com.shopjoy.exception.DuplicateResourceException;
 import com.shopjoy.exception.ResourceNotFoundException;
 import com.shopjoy.exception.ValidationException;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service interface for Inventory management operations.
@@ -107,6 +109,55 @@ public interface InventoryService {
      */
     void releaseStock(Integer productId, int quantity);
     
+    /**
+     * Reserves stock for every line of an order in one call.
+     * The inventory rows and their products are loaded once, validated in memory and
+     * decremented in ascending product ID order to avoid deadlocks between concurrent
+     * orders; either every product is reserved or none is.
+     *
+     * @param quantitiesByProductId the quantity to reserve per product ID
+     * @return the reserved inventory rows with their products, keyed by product ID
+     * @throws ResourceNotFoundException if inventory not found for a product
+     * @throws InsufficientStockException if not enough stock available for a product
+     */
+    Map<Integer, Inventory> reserveAll(Map<Integer, Integer> quantitiesByProductId);
+
+    /**
+     * Releases stock for every line of an order in one call.
+     *
+     * @param quantitiesByProductId the quantity to release per product ID
+     * @throws ResourceNotFoundException if inventory not found for a product
+     */
+    void releaseAll(Map<Integer, Integer> quantitiesByProductId);
+
+    /**
+     * Places a soft hold on stock for every line of an order in one call.
+     * Held stock is counted as reserved and is no longer available, but stays
+     * in quantity_in_stock until the hold is committed.
+     *
+     * @param quantitiesByProductId the quantity to hold per product ID
+     * @return the held inventory rows with their products, keyed by product ID
+     * @throws ResourceNotFoundException if inventory not found for a product
+     * @throws InsufficientStockException if not enough stock available for a product
+     */
+    Map<Integer, Inventory> holdAll(Map<Integer, Integer> quantitiesByProductId);
+
+    /**
+     * Returns held stock to available stock (hold cancelled or expired).
+     *
+     * @param quantitiesByProductId the held quantity to release per product ID
+     * @throws ResourceNotFoundException if inventory not found for a product
+     */
+    void releaseHolds(Map<Integer, Integer> quantitiesByProductId);
+
+    /**
+     * Converts holds into committed stock decrements (order paid).
+     *
+     * @param quantitiesByProductId the held quantity to commit per product ID
+     * @throws InsufficientStockException if the stock on hand no longer covers a hold
+     */
+    void commitHolds(Map<Integer, Integer> quantitiesByProductId);
+    
     /**
      * Retrieves all products with low stock (at or below reorder level).
      * 
@@ -1,8 +1,10 @@
 package com.shopjoy.service;
 
 import com.shopjoy.dto.filter.OrderFilter;
+import com.shopjoy.dto.filter.TotalCount;
 import com.shopjoy.dto.request.CreateOrderRequest;
 import com.shopjoy.dto.request.UpdateOrderRequest;
+import com.shopjoy.dto.response.CursorPage;
 import com.shopjoy.dto.response.OrderResponse;
 import com.shopjoy.entity.OrderStatus;
 import com.shopjoy.exception.InsufficientStockException;
@@ -124,6 +126,23 @@ public interface OrderService {
      */
     Page<OrderResponse> getOrders(Integer userId, OrderFilter filter, Pageable pageable);
 
+    /**
+     * Retrieves one page of orders with keyset pagination: the page after the cursor in
+     * (sortBy, id) order. Deep pages cost the same as the first. Non-admins only see
+     * their own orders, whatever userId is given.
+     *
+     * @param userId        optional user ID to filter by
+     * @param filter        the filter criteria, or null
+     * @param cursor        the cursor returned with the previous page, or null for the first page
+     * @param size          the page size
+     * @param sortBy        id, orderDate or totalAmount
+     * @param sortDirection ASC or DESC
+     * @param totalCount    whether and how to count all matching orders
+     * @return the page
+     */
+    CursorPage<OrderResponse> getOrdersByCursor(Integer userId, OrderFilter filter, String cursor, int size,
+            String sortBy, String sortDirection, TotalCount totalCount);
+
     /**
      * Retrieves all orders with pagination.
      * 
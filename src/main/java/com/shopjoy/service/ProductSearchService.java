@@ -0,0 +1,84 @@
+package com.shopjoy.service;
+
+import com.shopjoy.search.ProductSearchIndex;
+import com.shopjoy.search.ProductSearchQuery;
+import com.shopjoy.search.ProductSearchResult;
+import com.shopjoy.search.Suggestion;
+import com.shopjoy.search.SuggestionIndex;
+
+import java.util.List;
+
+/**
+ * Full-text product search and search-as-you-type suggestions backed by in-memory indexes.
+ * The index is built from the database on startup and kept in sync with product writes,
+ * on this node after commit and on the other nodes through the cache invalidation broadcasts.
+ */
+public interface ProductSearchService {
+
+    /**
+     * Whether searches can use the indexes: they are enabled and have been built.
+     *
+     * @return true if {@link #search} and {@link #suggest} can be called
+     */
+    boolean isAvailable();
+
+    /**
+     * Runs a search against the index.
+     *
+     * @param query the query
+     * @return the matching product ids and the total number of hits
+     */
+    ProductSearchResult search(ProductSearchQuery query);
+
+    /**
+     * Suggests the most popular products, brands and categories for typed text.
+     *
+     * @param prefix the typed text
+     * @param limit  the most suggestions returned
+     * @return the suggestions, best first
+     */
+    List<Suggestion> suggest(String prefix, int limit);
+
+    /**
+     * Reindexes a product from the database once the current transaction commits,
+     * or at once outside a transaction.
+     *
+     * @param productId the ID of the created or updated product
+     */
+    void indexAfterCommit(Integer productId);
+
+    /**
+     * Removes a product from the index once the current transaction commits.
+     *
+     * @param productId the product ID
+     */
+    void removeAfterCommit(Integer productId);
+
+    /**
+     * Reindexes the products of a category once the current transaction commits,
+     * e.g. after the category was renamed.
+     *
+     * @param categoryId the category ID
+     */
+    void reindexCategoryAfterCommit(Integer categoryId);
+
+    /**
+     * Builds a new index from the database and swaps it in. Searches keep using the
+     * previous index, if any, until the new one is complete.
+     */
+    void rebuild();
+
+    /**
+     * Returns the sizes and estimated memory footprint of the index.
+     *
+     * @return the statistics, all zero if the index has not been built
+     */
+    ProductSearchIndex.Stats getStats();
+
+    /**
+     * Returns the sizes and estimated memory footprint of the suggestions.
+     *
+     * @return the statistics, all zero if the suggestions have not been built
+     */
+    SuggestionIndex.Stats getSuggestionStats();
+}
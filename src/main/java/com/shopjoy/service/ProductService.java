@@ -1,9 +1,12 @@
 package com.shopjoy.service;
 
 import com.shopjoy.dto.filter.ProductFilter;
+import com.shopjoy.dto.filter.TotalCount;
 import com.shopjoy.dto.request.CreateProductRequest;
 import com.shopjoy.dto.request.UpdateProductRequest;
+import com.shopjoy.dto.response.CursorPage;
 import com.shopjoy.dto.response.ProductResponse;
+import com.shopjoy.dto.response.SuggestionResponse;
 import com.shopjoy.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -79,6 +82,16 @@ public interface ProductService {
      */
     List<ProductResponse> searchProductsByName(String keyword);
 
+    /**
+     * Suggests products, brands and categories for text typed into the search box,
+     * most popular first. Returns nothing while the suggestions are not built yet.
+     *
+     * @param prefix the typed text
+     * @param limit  the most suggestions, or null for the configured maximum
+     * @return the suggestions
+     */
+    List<SuggestionResponse> getSuggestions(String prefix, Integer limit);
+
     /**
      * Gets products by price range.
      *
@@ -175,6 +188,21 @@ public interface ProductService {
     Page<ProductResponse> getProductsWithFilters(ProductFilter filter, Pageable pageable, String sortBy,
             String sortDirection);
 
+    /**
+     * Gets one page of products with keyset pagination: the page after the cursor in
+     * (sortBy, id) order. Unlike offset pagination, deep pages cost the same as the first.
+     *
+     * @param filter        the filter, or null
+     * @param cursor        the cursor returned with the previous page, or null for the first page
+     * @param size          the page size
+     * @param sortBy        id, productName, price or createdAt
+     * @param sortDirection ASC or DESC
+     * @param totalCount    whether and how to count all matching products
+     * @return the page
+     */
+    CursorPage<ProductResponse> getProductsByCursor(ProductFilter filter, String cursor, int size, String sortBy,
+            String sortDirection, TotalCount totalCount);
+
     Product searchById(Integer id);
 
     List<ProductResponse> getRecentlyAddedProducts(int limit);
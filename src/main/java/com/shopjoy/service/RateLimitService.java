@@ -48,7 +48,7 @@ public interface RateLimitService {
     int getTrackingSize();
     
     /**
-     * Removes all expired entries from the tracking map.
+     * Removes expired entries from the tracking map, a part of it per call.
      * This method is called automatically on a schedule.
      */
     void removeExpiredEntries();
@@ -1,5 +1,7 @@
 package com.shopjoy.service;
 
+import com.shopjoy.dto.response.AuditEventCountResponse;
+import com.shopjoy.entity.AuditRollupGranularity;
 import com.shopjoy.entity.SecurityAuditLog;
 import com.shopjoy.entity.SecurityEventType;
 import jakarta.servlet.http.HttpServletRequest;
@@ -82,6 +84,7 @@ public interface SecurityAuditService {
 
     /**
      * Get all audit logs with pagination.
+     * Only the configured default query window is searched.
      *
      * @param pageable pagination information
      * @return page of audit logs
@@ -90,6 +93,7 @@ public interface SecurityAuditService {
 
     /**
      * Get audit logs by username.
+     * Only the configured default query window is searched.
      *
      * @param username the username
      * @param pageable pagination information
@@ -99,6 +103,7 @@ public interface SecurityAuditService {
 
     /**
      * Get audit logs by event type.
+     * Only the configured default query window is searched.
      *
      * @param eventType the event type
      * @param pageable  pagination information
@@ -118,6 +123,7 @@ public interface SecurityAuditService {
 
     /**
      * Get audit logs by username and event type.
+     * Only the configured default query window is searched.
      *
      * @param username  the username
      * @param eventType the event type
@@ -126,8 +132,23 @@ public interface SecurityAuditService {
      */
     Page<SecurityAuditLog> getLogsByUsernameAndEventType(String username, SecurityEventType eventType, Pageable pageable);
 
+    /**
+     * Search audit logs within a time range, optionally filtered by username and event type.
+     * The time bounds let the database read only the monthly partitions they cover.
+     *
+     * @param username  the username, or null for all users
+     * @param eventType the event type, or null for all types
+     * @param startTime start timestamp, or null for the configured default query window
+     * @param endTime   end timestamp, or null for now
+     * @param pageable  pagination information
+     * @return page of audit logs
+     */
+    Page<SecurityAuditLog> searchLogs(String username, SecurityEventType eventType, LocalDateTime startTime,
+                                      LocalDateTime endTime, Pageable pageable);
+
     /**
      * Get recent failed login attempts for a username.
+     * Users without failures in the rollups are answered without reading the audit table.
      *
      * @param username the username
      * @param minutes  number of minutes to look back
@@ -136,7 +157,8 @@ public interface SecurityAuditService {
     List<SecurityAuditLog> getRecentFailedLogins(String username, int minutes);
 
     /**
-     * Count security events by type within a time range.
+     * Count security events by type within a time range, to the minute.
+     * Answered from the event rollups.
      *
      * @param eventType the event type
      * @param startTime start timestamp
@@ -144,4 +166,34 @@ public interface SecurityAuditService {
      * @return count of events
      */
     Long countEventsByType(SecurityEventType eventType, LocalDateTime startTime, LocalDateTime endTime);
+
+    /**
+     * Count security events by type within a time range, optionally for one username or IP address.
+     * Answered from the event rollups.
+     *
+     * @param eventType the event type
+     * @param username  the username, or null
+     * @param ipAddress the IP address, or null; cannot be combined with username
+     * @param startTime start timestamp
+     * @param endTime   end timestamp
+     * @return count of events
+     */
+    long countEvents(SecurityEventType eventType, String username, String ipAddress,
+                     LocalDateTime startTime, LocalDateTime endTime);
+
+    /**
+     * Get per-minute or per-hour counts of a security event type, optionally for one
+     * username or IP address. Answered from the event rollups.
+     *
+     * @param eventType   the event type
+     * @param username    the username, or null
+     * @param ipAddress   the IP address, or null; cannot be combined with username
+     * @param granularity the bucket size
+     * @param startTime   start timestamp
+     * @param endTime     end timestamp
+     * @return one count per bucket, including empty buckets
+     */
+    List<AuditEventCountResponse> getEventTimeSeries(SecurityEventType eventType, String username, String ipAddress,
+                                                     AuditRollupGranularity granularity,
+                                                     LocalDateTime startTime, LocalDateTime endTime);
 }
@@ -0,0 +1,54 @@
+package com.shopjoy.service;
+
+import com.shopjoy.entity.Inventory;
+import com.shopjoy.exception.InsufficientStockException;
+import com.shopjoy.exception.ResourceNotFoundException;
+
+import java.util.Map;
+
+/**
+ * Service interface for soft holds on stock (reservations with a TTL).
+ * An order holds its stock while it is unpaid; payment commits the hold,
+ * cancellation releases it and a scheduled sweeper expires abandoned holds.
+ */
+public interface StockReservationService {
+
+    /**
+     * Reserves stock for an order. With holds enabled the stock is held until the
+     * configured TTL; otherwise it is decremented immediately as before.
+     *
+     * @param orderId the order ID
+     * @param quantitiesByProductId the quantity to reserve per product ID
+     * @return the reserved inventory rows with their products, keyed by product ID
+     * @throws ResourceNotFoundException if inventory not found for a product
+     * @throws InsufficientStockException if not enough stock available for a product
+     */
+    Map<Integer, Inventory> reserveForOrder(Integer orderId, Map<Integer, Integer> quantitiesByProductId);
+
+    /**
+     * Converts the holds of an order into committed stock decrements.
+     * Holds that already expired are re-reserved if the stock is still available.
+     * Does nothing for orders whose stock was committed at creation.
+     *
+     * @param orderId the order ID
+     * @throws InsufficientStockException if an expired hold can no longer be covered
+     */
+    void commitForOrder(Integer orderId);
+
+    /**
+     * Returns the stock of an order: active holds go back to available stock and
+     * committed stock goes back on hand. Expired holds were already returned.
+     *
+     * @param orderId the order ID
+     * @param quantitiesByProductId the order quantities, used for orders without holds
+     */
+    void releaseForOrder(Integer orderId, Map<Integer, Integer> quantitiesByProductId);
+
+    /**
+     * Expires every hold past its TTL, in batches.
+     * Should be called periodically via scheduled task.
+     *
+     * @return the number of expired holds
+     */
+    int expireHolds();
+}
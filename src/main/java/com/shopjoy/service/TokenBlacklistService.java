@@ -1,5 +1,7 @@
 package com.shopjoy.service;
 
+import io.jsonwebtoken.Claims;
+
 /**
  * Service interface for managing blacklisted JWT tokens (logged out tokens).
  * Provides methods for token revocation and blacklist management.
@@ -7,7 +9,7 @@ package com.shopjoy.service;
 public interface TokenBlacklistService {
 
     /**
-     * Adds a token to the blacklist.
+     * Adds a token to the blacklist, on every node.
      * The token will remain blacklisted until its expiration time.
      *
      * @param token the JWT token to blacklist
@@ -16,12 +18,22 @@ public interface TokenBlacklistService {
 
     /**
      * Checks if a token is blacklisted.
+     * Tokens that fail verification are reported as not blacklisted, since they cannot authenticate anyway.
      *
      * @param token the JWT token to check
      * @return true if token is blacklisted, false otherwise
      */
     boolean isBlacklisted(String token);
 
+    /**
+     * Checks if a token whose claims the caller has already verified is blacklisted.
+     *
+     * @param token  the JWT token
+     * @param claims the verified claims of the token
+     * @return true if token is blacklisted, false otherwise
+     */
+    boolean isBlacklisted(String token, Claims claims);
+
     /**
      * Removes expired tokens from the blacklist.
      * Should be called periodically via scheduled task to prevent memory leaks.
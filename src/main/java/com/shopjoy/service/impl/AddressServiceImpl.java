@@ -81,7 +81,7 @@ public class AddressServiceImpl implements AddressService {
     @Override
     @Transactional()
     @Caching(
-        put = { @CachePut(value = "addresses", key = "#addressId", cacheManager = "mediumCacheManager") },
+        put = { @CachePut(value = "addresses", key = "#addressId", cacheResolver = "writeThroughCacheResolver") },
         evict = {
             @CacheEvict(value = "addresses", allEntries = true, cacheManager = "mediumCacheManager"),
             @CacheEvict(value = "defaultAddress", allEntries = true, cacheManager = "mediumCacheManager")
@@ -128,7 +128,7 @@ public class AddressServiceImpl implements AddressService {
     @Override
     @Transactional()
     @Caching(
-        put = { @CachePut(value = "addresses", key = "#addressId", cacheManager = "mediumCacheManager") },
+        put = { @CachePut(value = "addresses", key = "#addressId", cacheResolver = "writeThroughCacheResolver") },
         evict = {
             @CacheEvict(value = "addresses", allEntries = true, cacheManager = "mediumCacheManager"),
             @CacheEvict(value = "defaultAddress", allEntries = true, cacheManager = "mediumCacheManager")
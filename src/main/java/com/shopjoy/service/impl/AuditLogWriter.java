@@ -0,0 +1,303 @@
+package com.shopjoy.service.impl;
+
+import com.shopjoy.config.AuditProperties;
+import com.shopjoy.entity.SecurityAuditLog;
+import com.shopjoy.entity.SecurityEventType;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NonNull;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for security audit events.
+ * <p>
+ * Callers only enqueue into a bounded buffer; a dedicated writer thread drains it and
+ * writes the events with JDBC batch inserts. Identical events of one batch are merged
+ * into a single row recording how often they repeated, so a token-replay storm costs a
+ * handful of rows instead of one transaction per request; the row keeps the time of the
+ * first event and names the time of the last. When the buffer fills up the default
+ * overflow policy waits briefly for room and then writes the event on the caller's
+ * thread, so no event is lost; dropping or sampling are opt-in. The buffer is drained
+ * on shutdown. Written events are also counted into the {@link AuditRollupStore}.
+ * <p>
+ * Client-supplied fields are cut to their column lengths. A batch the database still
+ * rejects is retried row by row, so one bad row does not take the others with it.
+ */
+@Slf4j
+@Component
+public class AuditLogWriter implements MeterBinder {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO security_audit_logs (username, event_type, ip_address, user_agent, timestamp, details, success) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    // column lengths of security_audit_logs
+    private static final int USERNAME_LENGTH = 100;
+    private static final int IP_ADDRESS_LENGTH = 100;
+    private static final int USER_AGENT_LENGTH = 500;
+    private static final DateTimeFormatter REPEAT_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditRollupStore rollupStore;
+    private final AuditProperties.Pipeline pipeline;
+    private final BlockingQueue<SecurityAuditLog> buffer;
+    private final int sampleThreshold;
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder writtenDirectly = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    private record CoalescingKey(String username, SecurityEventType eventType, String ipAddress,
+                                 String userAgent, String details, Boolean success) {
+
+        static CoalescingKey of(SecurityAuditLog event) {
+            return new CoalescingKey(event.getUsername(), event.getEventType(), event.getIpAddress(),
+                    event.getUserAgent(), event.getDetails(), event.getSuccess());
+        }
+    }
+
+    public AuditLogWriter(JdbcTemplate jdbcTemplate, AuditProperties auditProperties, AuditRollupStore rollupStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rollupStore = rollupStore;
+        this.pipeline = auditProperties.getPipeline();
+        int capacity = Math.max(1, pipeline.getBufferCapacity());
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.sampleThreshold = (int) (capacity * pipeline.getSampleThreshold());
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = Thread.ofPlatform().name("audit-log-writer").daemon().start(this::run);
+    }
+
+    /**
+     * Queues an event for writing, applying the overflow policy if the buffer is full.
+     * Under the BLOCK policy an event that still finds no room is written right away.
+     *
+     * @param event the event; its timestamp should already be set
+     * @return whether the event was queued or written
+     */
+    public boolean submit(SecurityAuditLog event) {
+        if (event.getTimestamp() == null) {
+            event.setTimestamp(LocalDateTime.now());
+        }
+
+        AuditProperties.OverflowPolicy policy = pipeline.getOverflowPolicy();
+        if (policy == AuditProperties.OverflowPolicy.SAMPLE && buffer.size() >= sampleThreshold
+                && ThreadLocalRandom.current().nextDouble() >= pipeline.getSampleRate()) {
+            sampledOut.increment();
+            return false;
+        }
+
+        boolean queued = policy == AuditProperties.OverflowPolicy.BLOCK ? offerBlocking(event) : buffer.offer(event);
+        if (queued) {
+            accepted.increment();
+        } else if (policy == AuditProperties.OverflowPolicy.BLOCK) {
+            accepted.increment();
+            writtenDirectly.increment();
+            write(List.of(event));
+            return true;
+        } else {
+            dropped.increment();
+            if (dropped.sum() % 1000 == 1) {
+                log.warn("Audit buffer full ({} events), dropped {} events so far", buffer.size(), dropped.sum());
+            }
+        }
+        return queued;
+    }
+
+    /**
+     * Writes everything currently buffered on the calling thread.
+     */
+    public void flush() {
+        List<SecurityAuditLog> batch = new ArrayList<>();
+        while (buffer.drainTo(batch, batchSize()) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    public int getQueueDepth() {
+        return buffer.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(pipeline.getShutdownTimeoutMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writer.interrupt();
+        }
+        flush();
+        log.info("Audit log writer stopped: {} written ({} by callers), {} coalesced, {} dropped, {} sampled out, {} failed",
+                written.sum(), writtenDirectly.sum(), coalesced.sum(), dropped.sum(), sampledOut.sum(), failed.sum());
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("audit.buffer.depth", buffer, BlockingQueue::size)
+                .description("Audit events waiting to be written")
+                .register(registry);
+        Gauge.builder("audit.buffer.capacity", buffer, queue -> queue.size() + queue.remainingCapacity())
+                .description("Maximum number of audit events the buffer holds")
+                .register(registry);
+        counter(registry, "accepted", accepted);
+        counter(registry, "dropped", dropped);
+        counter(registry, "sampled_out", sampledOut);
+        counter(registry, "written", written);
+        counter(registry, "written_directly", writtenDirectly);
+        counter(registry, "coalesced", coalesced);
+        counter(registry, "failed", failed);
+    }
+
+    private void run() {
+        List<SecurityAuditLog> batch = new ArrayList<>(batchSize());
+        while (running) {
+            try {
+                SecurityAuditLog first = buffer.poll(pipeline.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, batchSize() - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Audit log writer failed: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<SecurityAuditLog> batch) {
+        List<Object[]> rows = pipeline.isCoalesce() ? coalescedRows(batch) : batch.stream().map(event -> row(event, 1)).toList();
+        writeLock.lock();
+        try {
+            try {
+                jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+                written.add(rows.size());
+                log.debug("Wrote {} audit rows for {} events", rows.size(), batch.size());
+            } catch (DataAccessException e) {
+                log.warn("Audit batch of {} rows failed, writing them one by one: {}", rows.size(), e.getMessage());
+                writeOneByOne(rows);
+            }
+            rollupStore.record(batch);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void writeOneByOne(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, row);
+                written.increment();
+            } catch (DataAccessException e) {
+                failed.increment();
+                log.error("Audit row for {} event from {} failed, event lost: {}", row[1], row[2], e.getMessage());
+            }
+        }
+    }
+
+    private List<Object[]> coalescedRows(List<SecurityAuditLog> batch) {
+        Map<CoalescingKey, SecurityAuditLog> firsts = new LinkedHashMap<>();
+        Map<CoalescingKey, LocalDateTime> lasts = new LinkedHashMap<>();
+        Map<CoalescingKey, Integer> counts = new LinkedHashMap<>();
+        for (SecurityAuditLog event : batch) {
+            CoalescingKey key = CoalescingKey.of(event);
+            firsts.putIfAbsent(key, event);
+            lasts.merge(key, event.getTimestamp(), (last, next) -> next.isAfter(last) ? next : last);
+            counts.merge(key, 1, Integer::sum);
+        }
+        coalesced.add(batch.size() - firsts.size());
+
+        List<Object[]> rows = new ArrayList<>(firsts.size());
+        firsts.forEach((key, event) -> rows.add(row(event, counts.get(key), lasts.get(key))));
+        return rows;
+    }
+
+    private static Object[] row(SecurityAuditLog event, int repeats) {
+        return row(event, repeats, event.getTimestamp());
+    }
+
+    /**
+     * Builds the insert parameters. A coalesced row is stamped with the first event and its
+     * details name the repeat count and the time of the last event.
+     */
+    private static Object[] row(SecurityAuditLog event, int repeats, LocalDateTime last) {
+        String details = event.getDetails();
+        if (repeats > 1) {
+            details = (details != null ? details + " " : "") + "[repeated " + repeats + " times, first at "
+                    + event.getTimestamp().format(REPEAT_TIME_FORMAT) + ", last at " + last.format(REPEAT_TIME_FORMAT) + "]";
+        }
+        return new Object[]{
+                truncate(event.getUsername(), USERNAME_LENGTH),
+                event.getEventType().name(),
+                truncate(event.getIpAddress(), IP_ADDRESS_LENGTH),
+                truncate(event.getUserAgent(), USER_AGENT_LENGTH),
+                Timestamp.valueOf(event.getTimestamp()),
+                details,
+                event.getSuccess()
+        };
+    }
+
+    private static String truncate(String value, int length) {
+        return value != null && value.length() > length ? value.substring(0, length) : value;
+    }
+
+    private boolean offerBlocking(SecurityAuditLog event) {
+        try {
+            return buffer.offer(event, pipeline.getBlockTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private int batchSize() {
+        return Math.max(1, pipeline.getBatchSize());
+    }
+
+    private void counter(MeterRegistry registry, String result, LongAdder value) {
+        FunctionCounter.builder("audit.events", value, LongAdder::sum)
+                .tag("result", result)
+                .description("Audit events by outcome")
+                .register(registry);
+    }
+}
@@ -0,0 +1,181 @@
+package com.shopjoy.service.impl;
+
+import com.shopjoy.config.AuditProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maintains the monthly range partitions of security_audit_logs.
+ * <p>
+ * On PostgreSQL, once docs/security_audit_logs_partitioning_migration.sql has been applied,
+ * partitions for the coming months are created ahead of time and partitions past the
+ * retention period are detached or dropped as a whole. Queries bounded by timestamp are
+ * pruned by the planner to the partitions their range touches.
+ * On other databases, or while the table is not yet partitioned, retention only logs a
+ * warning: audit history is deleted row by row only when
+ * {@code app.audit.partitions.delete-unpartitioned} is switched on.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AuditPartitionManager {
+
+    static final String TABLE = "security_audit_logs";
+    private static final Pattern PARTITION_NAME = Pattern.compile(TABLE + "_p(\\d{6})");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final String IS_PARTITIONED_SQL =
+            "SELECT COUNT(*) FROM pg_partitioned_table p JOIN pg_class c ON c.oid = p.partrelid "
+                    + "WHERE c.relname = ? AND pg_table_is_visible(c.oid)";
+    private static final String LIST_PARTITIONS_SQL =
+            "SELECT c.relname FROM pg_inherits i "
+                    + "JOIN pg_class c ON c.oid = i.inhrelid "
+                    + "JOIN pg_class p ON p.oid = i.inhparent "
+                    + "WHERE p.relname = ? AND pg_table_is_visible(p.oid) ORDER BY c.relname";
+    private static final String DELETE_EXPIRED_SQL = "DELETE FROM " + TABLE + " WHERE timestamp < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditProperties auditProperties;
+
+    private final ReentrantLock maintenanceLock = new ReentrantLock();
+
+    /**
+     * Creates upcoming partitions and applies retention. Runs once the application is
+     * ready and then on the configured cron schedule.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.audit.partitions.maintenance-cron:0 15 3 * * *}")
+    public void maintain() {
+        if (!maintenanceLock.tryLock()) {
+            return;
+        }
+        try {
+            YearMonth current = YearMonth.now();
+            if (isPartitioned()) {
+                createPartitions(current);
+                removeExpiredPartitions(current);
+            } else {
+                deleteExpiredRows(current);
+            }
+        } catch (DataAccessException e) {
+            log.error("Audit partition maintenance failed: {}", e.getMessage());
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether security_audit_logs is a partitioned PostgreSQL table.
+     */
+    public boolean isPartitioned() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equalsIgnoreCase(product)) {
+            return false;
+        }
+        Integer count = jdbcTemplate.queryForObject(IS_PARTITIONED_SQL, Integer.class, TABLE);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Returns the months that currently have a partition, oldest first.
+     */
+    public List<YearMonth> getPartitionMonths() {
+        if (!isPartitioned()) {
+            return List.of();
+        }
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class, TABLE)) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (matcher.matches()) {
+                months.add(YearMonth.parse(matcher.group(1), SUFFIX));
+            }
+        }
+        return months;
+    }
+
+    /**
+     * Returns the first day that is still retained, or null if retention is disabled.
+     */
+    static LocalDate retentionCutoff(YearMonth current, int retentionMonths) {
+        if (retentionMonths <= 0) {
+            return null;
+        }
+        return current.minusMonths(retentionMonths).atDay(1);
+    }
+
+    static String partitionName(YearMonth month) {
+        return TABLE + "_p" + month.format(SUFFIX);
+    }
+
+    private void createPartitions(YearMonth current) {
+        int monthsAhead = Math.max(0, auditProperties.getPartitions().getMonthsAhead());
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            String sql = "CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF " + TABLE
+                    + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+            try {
+                jdbcTemplate.execute(sql);
+            } catch (DataAccessException e) {
+                log.error("Could not create audit partition {}: {}", partitionName(month), e.getMessage());
+            }
+        }
+    }
+
+    private void removeExpiredPartitions(YearMonth current) {
+        AuditProperties.Partitions partitions = auditProperties.getPartitions();
+        LocalDate cutoff = retentionCutoff(current, partitions.getRetentionMonths());
+        if (cutoff == null) {
+            return;
+        }
+
+        for (YearMonth month : getPartitionMonths()) {
+            if (month.plusMonths(1).atDay(1).isAfter(cutoff)) {
+                continue;
+            }
+            String name = partitionName(month);
+            if (partitions.getRetentionMode() == AuditProperties.RetentionMode.DROP) {
+                jdbcTemplate.execute("DROP TABLE " + name);
+                log.info("Dropped audit partition {}", name);
+            } else {
+                jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + name);
+                log.info("Detached audit partition {}; it remains available as a standalone table", name);
+            }
+        }
+    }
+
+    private void deleteExpiredRows(YearMonth current) {
+        AuditProperties.Partitions partitions = auditProperties.getPartitions();
+        LocalDate cutoff = retentionCutoff(current, partitions.getRetentionMonths());
+        if (cutoff == null) {
+            return;
+        }
+        if (!partitions.isDeleteUnpartitioned()) {
+            log.warn("{} is not partitioned; audit rows older than {} are kept. Apply "
+                    + "docs/security_audit_logs_partitioning_migration.sql, or set "
+                    + "app.audit.partitions.delete-unpartitioned=true to delete them", TABLE, cutoff);
+            return;
+        }
+        int deleted = jdbcTemplate.update(DELETE_EXPIRED_SQL, Timestamp.valueOf(cutoff.atStartOfDay()));
+        if (deleted > 0) {
+            log.info("Deleted {} audit rows older than {} (table is not partitioned)", deleted, cutoff);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.shopjoy.service.impl;
+
+import com.shopjoy.config.AuditProperties;
+import com.shopjoy.entity.AuditRollupDimension;
+import com.shopjoy.entity.AuditRollupGranularity;
+import com.shopjoy.entity.SecurityAuditLog;
+import com.shopjoy.entity.SecurityEventType;
+import com.shopjoy.exception.ValidationException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-minute and per-hour counts of security events by event type, in total and per
+ * username and IP address, stored in security_audit_rollups.
+ * <p>
+ * The {@link AuditLogWriter} hands every written batch to {@link #record(List)}, which
+ * aggregates it in memory and merges the counts into the rollup rows. Counts are taken
+ * before coalescing, so repeated events are counted individually. A count over a range
+ * reads full hours from hour buckets and the partial hours at its edges from minute
+ * buckets, so its cost depends on the length of the range, not on the number of events.
+ * Counts are exact to the minute; edges older than the minute retention are rounded to
+ * the hour.
+ * <p>
+ * Every node writes rollups, so two nodes can add the first count of the same bucket at
+ * once. On PostgreSQL the counts are added with INSERT ... ON CONFLICT, which does not fail
+ * when both insert; MERGE raises a unique violation there and is only used on H2.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AuditRollupStore {
+
+    private static final String MERGE_SQL =
+            "MERGE INTO security_audit_rollups r USING (VALUES (CAST(? AS VARCHAR(10)), CAST(? AS TIMESTAMP), "
+                    + "CAST(? AS VARCHAR(50)), CAST(? AS VARCHAR(20)), CAST(? AS VARCHAR(100)), CAST(? AS BIGINT))) "
+                    + "AS v(granularity, bucket_start, event_type, dimension, dimension_value, event_count) "
+                    + "ON r.dimension = v.dimension AND r.dimension_value = v.dimension_value "
+                    + "AND r.event_type = v.event_type AND r.granularity = v.granularity AND r.bucket_start = v.bucket_start "
+                    + "WHEN MATCHED THEN UPDATE SET event_count = r.event_count + v.event_count "
+                    + "WHEN NOT MATCHED THEN INSERT (granularity, bucket_start, event_type, dimension, dimension_value, event_count) "
+                    + "VALUES (v.granularity, v.bucket_start, v.event_type, v.dimension, v.dimension_value, v.event_count)";
+    private static final String UPSERT_SQL =
+            "INSERT INTO security_audit_rollups (granularity, bucket_start, event_type, dimension, dimension_value, event_count) "
+                    + "VALUES (?, ?, ?, ?, ?, ?) "
+                    + "ON CONFLICT (dimension, dimension_value, event_type, granularity, bucket_start) "
+                    + "DO UPDATE SET event_count = security_audit_rollups.event_count + EXCLUDED.event_count";
+    private static final String SUM_SQL =
+            "SELECT COALESCE(SUM(event_count), 0) FROM security_audit_rollups "
+                    + "WHERE dimension = ? AND dimension_value = ? AND event_type = ? AND granularity = ? "
+                    + "AND bucket_start >= ? AND bucket_start < ?";
+    private static final String SERIES_SQL =
+            "SELECT bucket_start, event_count FROM security_audit_rollups "
+                    + "WHERE dimension = ? AND dimension_value = ? AND event_type = ? AND granularity = ? "
+                    + "AND bucket_start >= ? AND bucket_start < ?";
+    private static final String PURGE_SQL =
+            "DELETE FROM security_audit_rollups WHERE granularity = ? AND bucket_start < ?";
+
+    // column length of dimension_value
+    private static final int DIMENSION_VALUE_LENGTH = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditProperties auditProperties;
+    private volatile Boolean postgres;
+
+    private record BucketKey(AuditRollupGranularity granularity, LocalDateTime bucketStart,
+                             SecurityEventType eventType, AuditRollupDimension dimension, String dimensionValue) {
+    }
+
+    /**
+     * A point of a time series.
+     *
+     * @param bucketStart start of the bucket
+     * @param count       number of events in the bucket
+     */
+    public record Point(LocalDateTime bucketStart, long count) {
+    }
+
+    /**
+     * Adds a batch of events to the rollups, atomically per bucket, so concurrent writers
+     * on other nodes add to the same rows.
+     *
+     * @param events the events that were written
+     */
+    public void record(List<SecurityAuditLog> events) {
+        Map<BucketKey, Long> counts = new HashMap<>();
+        for (SecurityAuditLog event : events) {
+            for (AuditRollupGranularity granularity : AuditRollupGranularity.values()) {
+                LocalDateTime bucket = granularity.bucketStart(event.getTimestamp());
+                add(counts, granularity, bucket, event.getEventType(), AuditRollupDimension.ALL, "");
+                add(counts, granularity, bucket, event.getEventType(), AuditRollupDimension.USERNAME, event.getUsername());
+                add(counts, granularity, bucket, event.getEventType(), AuditRollupDimension.IP_ADDRESS, event.getIpAddress());
+            }
+        }
+
+        List<Object[]> rows = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> rows.add(new Object[]{
+                key.granularity().name(),
+                Timestamp.valueOf(key.bucketStart()),
+                key.eventType().name(),
+                key.dimension().name(),
+                key.dimensionValue(),
+                count
+        }));
+        try {
+            jdbcTemplate.batchUpdate(isPostgres() ? UPSERT_SQL : MERGE_SQL, rows);
+        } catch (DataAccessException e) {
+            log.error("Could not update {} audit rollups: {}", rows.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Counts events of a type in [startTime, endTime).
+     *
+     * @param eventType      the event type
+     * @param dimension      ALL, or the dimension value filters on
+     * @param dimensionValue the username or IP address; ignored for ALL
+     * @param startTime      start of the range
+     * @param endTime        end of the range, exclusive
+     * @return the number of events
+     */
+    public long count(SecurityEventType eventType, AuditRollupDimension dimension, String dimensionValue,
+                      LocalDateTime startTime, LocalDateTime endTime) {
+        LocalDateTime start = AuditRollupGranularity.MINUTE.bucketStart(startTime);
+        LocalDateTime end = AuditRollupGranularity.MINUTE.bucketStart(endTime);
+        if (!start.isBefore(end)) {
+            return 0;
+        }
+        String value = dimensionValue(dimension, dimensionValue);
+
+        boolean startHasMinutes = hasMinutes(start);
+        LocalDateTime hoursStart = startHasMinutes ? ceilHour(start) : AuditRollupGranularity.HOUR.bucketStart(start);
+        LocalDateTime hoursEnd = hasMinutes(end) ? AuditRollupGranularity.HOUR.bucketStart(end) : ceilHour(end);
+        if (!hoursStart.isBefore(hoursEnd)) {
+            return startHasMinutes
+                    ? sum(AuditRollupGranularity.MINUTE, eventType, dimension, value, start, end)
+                    : sum(AuditRollupGranularity.HOUR, eventType, dimension, value, hoursStart, ceilHour(end));
+        }
+        return sum(AuditRollupGranularity.MINUTE, eventType, dimension, value, start, hoursStart)
+                + sum(AuditRollupGranularity.HOUR, eventType, dimension, value, hoursStart, hoursEnd)
+                + sum(AuditRollupGranularity.MINUTE, eventType, dimension, value, hoursEnd, end);
+    }
+
+    /**
+     * Returns whether events of a type may have been recorded since the given time, with a
+     * single read of the minute buckets. Always true when the time is older than the minute
+     * retention, as the rollups can then no longer rule events out.
+     *
+     * @param eventType      the event type
+     * @param dimension      ALL, or the dimension value filters on
+     * @param dimensionValue the username or IP address; ignored for ALL
+     * @param since          start of the range, which runs up to now
+     * @return false only if no such event was recorded
+     */
+    public boolean mayHaveEventsSince(SecurityEventType eventType, AuditRollupDimension dimension, String dimensionValue,
+                                      LocalDateTime since) {
+        LocalDateTime start = AuditRollupGranularity.MINUTE.bucketStart(since);
+        if (!hasMinutes(start)) {
+            return true;
+        }
+        LocalDateTime end = AuditRollupGranularity.MINUTE.bucketStart(LocalDateTime.now()).plusMinutes(1);
+        return sum(AuditRollupGranularity.MINUTE, eventType, dimension, dimensionValue(dimension, dimensionValue),
+                start, end) > 0;
+    }
+
+    /**
+     * Returns the event counts of every bucket in [startTime, endTime), including empty ones.
+     *
+     * @throws ValidationException if the series would have more than the configured number of points
+     */
+    public List<Point> timeSeries(SecurityEventType eventType, AuditRollupDimension dimension, String dimensionValue,
+                                  AuditRollupGranularity granularity, LocalDateTime startTime, LocalDateTime endTime) {
+        LocalDateTime start = granularity.bucketStart(startTime);
+        LocalDateTime end = endTime.isAfter(granularity.bucketStart(endTime))
+                ? granularity.bucketStart(endTime).plus(1, granularity.getUnit())
+                : endTime;
+        long points = granularity.getUnit().between(start, end);
+        int maxPoints = auditProperties.getRollups().getMaxSeriesPoints();
+        if (points > maxPoints) {
+            throw new ValidationException("granularity",
+                    "range has " + points + " " + granularity + " buckets, at most " + maxPoints + " are allowed");
+        }
+
+        Map<LocalDateTime, Long> counts = new LinkedHashMap<>();
+        for (LocalDateTime bucket = start; bucket.isBefore(end); bucket = bucket.plus(1, granularity.getUnit())) {
+            counts.put(bucket, 0L);
+        }
+        RowCallbackHandler collect = rs ->
+                counts.put(rs.getTimestamp("bucket_start").toLocalDateTime(), rs.getLong("event_count"));
+        jdbcTemplate.query(SERIES_SQL, collect, dimension.name(), dimensionValue(dimension, dimensionValue),
+                eventType.name(), granularity.name(), Timestamp.valueOf(start), Timestamp.valueOf(end));
+
+        List<Point> series = new ArrayList<>(counts.size());
+        counts.forEach((bucket, count) -> series.add(new Point(bucket, count)));
+        return series;
+    }
+
+    /**
+     * Deletes buckets older than their retention.
+     */
+    @Scheduled(fixedRate = 3600000)
+    public void purge() {
+        AuditProperties.Rollups rollups = auditProperties.getRollups();
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            int minutes = jdbcTemplate.update(PURGE_SQL, AuditRollupGranularity.MINUTE.name(),
+                    Timestamp.valueOf(now.minus(rollups.getMinuteRetention())));
+            int hours = jdbcTemplate.update(PURGE_SQL, AuditRollupGranularity.HOUR.name(),
+                    Timestamp.valueOf(now.minus(rollups.getHourRetention())));
+            log.debug("Purged {} minute and {} hour audit rollups", minutes, hours);
+        } catch (DataAccessException e) {
+            log.error("Audit rollup purge failed: {}", e.getMessage());
+        }
+    }
+
+    private long sum(AuditRollupGranularity granularity, SecurityEventType eventType, AuditRollupDimension dimension,
+                     String value, LocalDateTime start, LocalDateTime end) {
+        if (!start.isBefore(end)) {
+            return 0;
+        }
+        Long sum = jdbcTemplate.queryForObject(SUM_SQL, Long.class, dimension.name(), value, eventType.name(),
+                granularity.name(), Timestamp.valueOf(start), Timestamp.valueOf(end));
+        return sum != null ? sum : 0;
+    }
+
+    private boolean hasMinutes(LocalDateTime time) {
+        return !time.isBefore(LocalDateTime.now().minus(auditProperties.getRollups().getMinuteRetention()));
+    }
+
+    private static LocalDateTime ceilHour(LocalDateTime time) {
+        LocalDateTime hour = AuditRollupGranularity.HOUR.bucketStart(time);
+        return hour.equals(time) ? hour : hour.plusHours(1);
+    }
+
+    private static String dimensionValue(AuditRollupDimension dimension, String value) {
+        if (dimension == AuditRollupDimension.ALL) {
+            return "";
+        }
+        if (value == null || value.isBlank()) {
+            throw new ValidationException("dimensionValue", "is required when filtering by " + dimension);
+        }
+        return truncate(value);
+    }
+
+    private static void add(Map<BucketKey, Long> counts, AuditRollupGranularity granularity, LocalDateTime bucket,
+                            SecurityEventType eventType, AuditRollupDimension dimension, String value) {
+        if (value == null) {
+            return;
+        }
+        counts.merge(new BucketKey(granularity, bucket, eventType, dimension, truncate(value)), 1L, Long::sum);
+    }
+
+    /**
+     * Cuts a username or IP address to the column, on writes and reads alike, so an
+     * oversized value cannot fail the batch.
+     */
+    private static String truncate(String value) {
+        return value.length() > DIMENSION_VALUE_LENGTH ? value.substring(0, DIMENSION_VALUE_LENGTH) : value;
+    }
+
+    private boolean isPostgres() {
+        Boolean current = postgres;
+        if (current == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            current = "PostgreSQL".equalsIgnoreCase(product);
+            postgres = current;
+        }
+        return current;
+    }
+}
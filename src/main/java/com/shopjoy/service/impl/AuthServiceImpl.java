@@ -20,6 +20,7 @@ import com.shopjoy.util.AuthValidationUtil;
 import com.shopjoy.util.JwtUtil;
 import com.shopjoy.util.SecurityUtil;
 import lombok.AllArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -51,6 +52,7 @@ public class AuthServiceImpl implements AuthService {
 
     @Override
     @Transactional
+    @CacheEvict(value = "userStatus", key = "#request.username", cacheManager = "cacheManager")
     @Auditable(action = "USER_REGISTRATION", description = "Registering new user")
     public UserResponse registerUser(CreateUserRequest request, UserType userType) {
         AuthValidationUtil.validateCreateUserRequest(request);
@@ -10,6 +10,7 @@ import com.shopjoy.exception.ResourceNotFoundException;
 import com.shopjoy.exception.ValidationException;
 import com.shopjoy.repository.CategoryRepository;
 import com.shopjoy.service.CategoryService;
+import com.shopjoy.service.ProductSearchService;
 import com.shopjoy.service.ProductService;
 
 import lombok.AllArgsConstructor;
@@ -34,6 +35,7 @@ public class CategoryServiceImpl implements CategoryService {
     
     private final CategoryRepository categoryRepository;
     private final ProductService productService;
+    private final ProductSearchService productSearchService;
     private final CategoryMapperStruct categoryMapper;
     
     @Override
@@ -88,7 +90,7 @@ public class CategoryServiceImpl implements CategoryService {
     @Override
     @Transactional()
     @Caching(
-        put = { @CachePut(value = "category", key = "#categoryId", cacheManager = "cacheManager") },
+        put = { @CachePut(value = "category", key = "#categoryId", cacheResolver = "writeThroughCacheResolver") },
         evict = { @CacheEvict(value = "categories", allEntries = true, cacheManager = "cacheManager") }
     )
     public CategoryResponse updateCategory(Integer categoryId, UpdateCategoryRequest request) {
@@ -99,6 +101,7 @@ public class CategoryServiceImpl implements CategoryService {
         validateCategoryData(category);
         
         Category updatedCategory = categoryRepository.save(category);
+        productSearchService.reindexCategoryAfterCommit(categoryId);
         
         return categoryMapper.toCategoryResponse(updatedCategory);
     }
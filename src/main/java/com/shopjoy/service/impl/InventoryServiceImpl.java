@@ -1,10 +1,14 @@
 package com.shopjoy.service.impl;
 
+import com.shopjoy.aspect.EvictDependents;
+import com.shopjoy.cache.EntityKey;
+import com.shopjoy.config.InventoryProperties;
 import com.shopjoy.dto.mapper.InventoryMapperStruct;
 import com.shopjoy.dto.response.InventoryResponse;
 import com.shopjoy.entity.Inventory;
 import com.shopjoy.exception.DuplicateResourceException;
 import com.shopjoy.exception.InsufficientStockException;
+import com.shopjoy.exception.InvalidOperationException;
 import com.shopjoy.exception.ResourceNotFoundException;
 import com.shopjoy.exception.ValidationException;
 import com.shopjoy.repository.InventoryRepository;
@@ -22,7 +26,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -33,18 +40,24 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class InventoryServiceImpl implements InventoryService {
 
+    /**
+     * Key of the in-stock flag in the "inventory" cache. It is the product's entity key,
+     * so writes evict it per product, directly or through {@link EvictDependents}.
+     */
+    private static final String IN_STOCK_KEY = "T(com.shopjoy.cache.EntityKey).of('product', #productId)";
+
     private final InventoryRepository inventoryRepository;
     private final ProductRepository productRepository;
     private final InventoryMapperStruct inventoryMapper;
+    private final StockLedger stockLedger;
+    private final InventoryProperties inventoryProperties;
 
     @Override
     @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
     @Caching(evict = {
-        @CacheEvict(value = "inventory", allEntries = true, cacheManager = "shortCacheManager"),
+        @CacheEvict(value = "inventory", key = IN_STOCK_KEY, cacheManager = "shortCacheManager"),
         @CacheEvict(value = "inventoryByProduct", key = "#productId", cacheManager = "shortCacheManager"),
-        @CacheEvict(value = "lowStock", allEntries = true, cacheManager = "shortCacheManager"),
-        @CacheEvict(value = "outOfStock", allEntries = true, cacheManager = "shortCacheManager"),
-        @CacheEvict(value = "products", allEntries = true, cacheManager = "cacheManager")
+        @CacheEvict(value = "product", key = "#productId", cacheManager = "cacheManager")
     })
     public InventoryResponse createInventory(Integer productId, int initialStock, int reorderLevel) {
         Inventory inventory = new Inventory();
@@ -72,34 +85,45 @@ public class InventoryServiceImpl implements InventoryService {
     public InventoryResponse getInventoryByProduct(Integer productId) {
         Inventory inventory = inventoryRepository.findByProductId(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Inventory", "productId", productId));
+        if (stockLedger.isEnabled()) {
+            return ledgerResponse(inventory);
+        }
         return inventoryMapper.toInventoryResponse(inventory);
     }
 
     @Override
-    @Cacheable(value = "inventory", key = "'inStock-' + #productId", cacheManager = "shortCacheManager")
+    @Cacheable(value = "inventory", key = IN_STOCK_KEY, cacheManager = "shortCacheManager")
     public boolean isProductInStock(Integer productId) {
+        if (stockLedger.isEnabled()) {
+            return inventoryRepository.findByProductId(productId).isPresent()
+                    && stockLedger.getAvailable(productId) > 0;
+        }
         return inventoryRepository.findByProductId(productId)
-                .map(inventory -> inventory.getQuantityInStock() > 0)
+                .map(inventory -> inventory.getAvailableQuantity() > 0)
                 .orElse(false);
     }
 
+    /**
+     * Not cached: it guards adding to a cart, so it reads the row itself, by primary key.
+     */
     @Override
-    @Cacheable(value = "inventory", key = "'available-' + #productId + '-' + #quantity", cacheManager = "shortCacheManager")
     public boolean hasAvailableStock(Integer productId, int quantity) {
+        if (stockLedger.isEnabled()) {
+            return inventoryRepository.findByProductId(productId).isPresent()
+                    && stockLedger.getAvailable(productId) >= quantity;
+        }
         return inventoryRepository.findByProductId(productId)
-                .map(inventory -> inventory.getQuantityInStock() >= quantity)
+                .map(inventory -> inventory.getAvailableQuantity() >= quantity)
                 .orElse(false);
     }
 
     @Override
     @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
     @Caching(
-        put = { @CachePut(value = "inventoryByProduct", key = "#productId", cacheManager = "shortCacheManager") },
+        put = { @CachePut(value = "inventoryByProduct", key = "#productId", cacheResolver = "writeThroughCacheResolver") },
         evict = {
-            @CacheEvict(value = "inventory", allEntries = true, cacheManager = "shortCacheManager"),
-            @CacheEvict(value = "lowStock", allEntries = true, cacheManager = "shortCacheManager"),
-            @CacheEvict(value = "outOfStock", allEntries = true, cacheManager = "shortCacheManager"),
-            @CacheEvict(value = "products", allEntries = true, cacheManager = "cacheManager")
+            @CacheEvict(value = "inventory", key = IN_STOCK_KEY, cacheManager = "shortCacheManager"),
+            @CacheEvict(value = "product", key = "#productId", cacheManager = "cacheManager")
         }
     )
     public InventoryResponse updateStock(Integer productId, int newQuantity) {
@@ -107,25 +131,30 @@ public class InventoryServiceImpl implements InventoryService {
             throw new ValidationException("quantityInStock", "cannot be negative");
         }
 
-        Inventory inventory = inventoryRepository.findByProductId(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Inventory", "productId", productId));
+        Inventory inventory = lockInventory(productId);
+
+        if (newQuantity < inventory.getReservedQuantity()) {
+            throw new ValidationException("quantityInStock",
+                    "cannot be lower than the " + inventory.getReservedQuantity() + " unit(s) held for pending orders");
+        }
 
         inventory.setQuantityInStock(newQuantity);
         inventory.setUpdatedAt(LocalDateTime.now());
         
         Inventory savedInventory = inventoryRepository.save(inventory);
+        if (stockLedger.isEnabled()) {
+            stockLedger.resync(productId);
+        }
         return inventoryMapper.toInventoryResponse(savedInventory);
     }
 
     @Override
     @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
     @Caching(
-        put = { @CachePut(value = "inventoryByProduct", key = "#productId", cacheManager = "shortCacheManager") },
+        put = { @CachePut(value = "inventoryByProduct", key = "#productId", cacheResolver = "writeThroughCacheResolver") },
         evict = {
-            @CacheEvict(value = "inventory", allEntries = true, cacheManager = "shortCacheManager"),
-            @CacheEvict(value = "lowStock", allEntries = true, cacheManager = "shortCacheManager"),
-            @CacheEvict(value = "outOfStock", allEntries = true, cacheManager = "shortCacheManager"),
-            @CacheEvict(value = "products", allEntries = true, cacheManager = "cacheManager")
+            @CacheEvict(value = "inventory", key = IN_STOCK_KEY, cacheManager = "shortCacheManager"),
+            @CacheEvict(value = "product", key = "#productId", cacheManager = "cacheManager")
         }
     )
     public InventoryResponse addStock(Integer productId, int quantity) {
@@ -133,9 +162,14 @@ public class InventoryServiceImpl implements InventoryService {
             throw new ValidationException("quantity", "must be positive");
         }
 
-        Inventory inventory = inventoryRepository.findByProductId(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Inventory", "productId", productId));
+        if (stockLedger.isEnabled()) {
+            Inventory inventory = inventoryRepository.findByProductId(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Inventory", "productId", productId));
+            stockLedger.release(productId, quantity);
+            return ledgerResponse(inventory);
+        }
 
+        Inventory inventory = lockInventory(productId);
         inventory.setQuantityInStock(inventory.getQuantityInStock() + quantity);
         inventory.setLastRestocked(LocalDateTime.now());
         inventory.setUpdatedAt(LocalDateTime.now());
@@ -147,12 +181,10 @@ public class InventoryServiceImpl implements InventoryService {
     @Override
     @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
     @Caching(
-        put = { @CachePut(value = "inventoryByProduct", key = "#productId", cacheManager = "shortCacheManager") },
+        put = { @CachePut(value = "inventoryByProduct", key = "#productId", cacheResolver = "writeThroughCacheResolver") },
         evict = {
-            @CacheEvict(value = "inventory", allEntries = true, cacheManager = "shortCacheManager"),
-            @CacheEvict(value = "lowStock", allEntries = true, cacheManager = "shortCacheManager"),
-            @CacheEvict(value = "outOfStock", allEntries = true, cacheManager = "shortCacheManager"),
-            @CacheEvict(value = "products", allEntries = true, cacheManager = "cacheManager")
+            @CacheEvict(value = "inventory", key = IN_STOCK_KEY, cacheManager = "shortCacheManager"),
+            @CacheEvict(value = "product", key = "#productId", cacheManager = "cacheManager")
         }
     )
     public InventoryResponse removeStock(Integer productId, int quantity) {
@@ -160,14 +192,19 @@ public class InventoryServiceImpl implements InventoryService {
             throw new ValidationException("quantity", "must be positive");
         }
 
-        Inventory inventory = inventoryRepository.findByProductId(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Inventory", "productId", productId));
+        if (stockLedger.isEnabled()) {
+            Inventory inventory = inventoryRepository.findByProductId(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Inventory", "productId", productId));
+            stockLedger.reserve(productId, quantity);
+            return ledgerResponse(inventory);
+        }
 
-        if (inventory.getQuantityInStock() < quantity) {
+        Inventory inventory = lockInventory(productId);
+        if (inventory.getAvailableQuantity() < quantity) {
             throw new InsufficientStockException(
                     productId,
                     quantity,
-                    inventory.getQuantityInStock());
+                    inventory.getAvailableQuantity());
         }
 
         inventory.setQuantityInStock(inventory.getQuantityInStock() - quantity);
@@ -183,29 +220,46 @@ public class InventoryServiceImpl implements InventoryService {
      * This method is designed to be called within an existing order transaction.
      * It uses REQUIRED propagation to join the caller's transaction context.
      * If the order creation fails later, this stock decrement will be rolled back.
+     * <p>
+     * In DATABASE mode the row is locked with SELECT ... FOR UPDATE before the check,
+     * so the caller does not need SERIALIZABLE isolation to avoid overselling.
+     * In CONDITIONAL_UPDATE mode the check and decrement are one guarded UPDATE.
+     * In LEDGER mode the decrement is a CAS on the in-memory stock ledger, which
+     * registers its own rollback compensation and writes the delta through later.
      */
     @Override
     @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
     @Caching(evict = {
-        @CacheEvict(value = "inventory", allEntries = true, cacheManager = "shortCacheManager"),
+        @CacheEvict(value = "inventory", key = IN_STOCK_KEY, cacheManager = "shortCacheManager"),
         @CacheEvict(value = "inventoryByProduct", key = "#productId", cacheManager = "shortCacheManager"),
-        @CacheEvict(value = "lowStock", allEntries = true, cacheManager = "shortCacheManager"),
-        @CacheEvict(value = "outOfStock", allEntries = true, cacheManager = "shortCacheManager"),
-        @CacheEvict(value = "products", allEntries = true, cacheManager = "cacheManager")
+        @CacheEvict(value = "product", key = "#productId", cacheManager = "cacheManager")
     })
     public void reserveStock(Integer productId, int quantity) {
         if (quantity <= 0) {
             throw new ValidationException("quantity", "must be positive");
         }
 
-        Inventory inventory = inventoryRepository.findByProductId(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Inventory", "productId", productId));
+        if (stockLedger.isEnabled()) {
+            stockLedger.reserve(productId, quantity);
+            return;
+        }
+
+        if (inventoryProperties.getReservationMode() == InventoryProperties.ReservationMode.CONDITIONAL_UPDATE) {
+            if (inventoryRepository.decrementStockIfAvailable(productId, quantity) == 0) {
+                int available = inventoryRepository.findAvailableQuantityByProductId(productId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Inventory", "productId", productId));
+                throw new InsufficientStockException(productId, quantity, available);
+            }
+            return;
+        }
 
-        if (inventory.getQuantityInStock() < quantity) {
+        Inventory inventory = lockInventory(productId);
+
+        if (inventory.getAvailableQuantity() < quantity) {
             throw new InsufficientStockException(
                     productId,
                     quantity,
-                    inventory.getQuantityInStock());
+                    inventory.getAvailableQuantity());
         }
 
         inventory.setQuantityInStock(inventory.getQuantityInStock() - quantity);
@@ -216,38 +270,170 @@ public class InventoryServiceImpl implements InventoryService {
     @Override
     @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
     @Caching(evict = {
-        @CacheEvict(value = "inventory", allEntries = true, cacheManager = "shortCacheManager"),
+        @CacheEvict(value = "inventory", key = IN_STOCK_KEY, cacheManager = "shortCacheManager"),
         @CacheEvict(value = "inventoryByProduct", key = "#productId", cacheManager = "shortCacheManager"),
-        @CacheEvict(value = "lowStock", allEntries = true, cacheManager = "shortCacheManager"),
-        @CacheEvict(value = "outOfStock", allEntries = true, cacheManager = "shortCacheManager"),
-        @CacheEvict(value = "products", allEntries = true, cacheManager = "cacheManager")
+        @CacheEvict(value = "product", key = "#productId", cacheManager = "cacheManager")
     })
     public void releaseStock(Integer productId, int quantity) {
         if (quantity <= 0) {
             throw new ValidationException("quantity", "must be positive");
         }
 
-        Inventory inventory = inventoryRepository.findByProductId(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Inventory", "productId", productId));
+        if (stockLedger.isEnabled()) {
+            stockLedger.release(productId, quantity);
+            return;
+        }
+
+        if (inventoryProperties.getReservationMode() == InventoryProperties.ReservationMode.CONDITIONAL_UPDATE) {
+            if (inventoryRepository.incrementStock(productId, quantity) == 0) {
+                throw new ResourceNotFoundException("Inventory", "productId", productId);
+            }
+            return;
+        }
+
+        Inventory inventory = lockInventory(productId);
                 
         inventory.setQuantityInStock(inventory.getQuantityInStock() + quantity);
         inventory.setUpdatedAt(LocalDateTime.now());
         inventoryRepository.save(inventory);
     }
 
+    /**
+     * BATCH RESERVATION LOGIC
+     * <p>
+     * Reserves a whole order in a single pass: the inventory rows and their products are
+     * loaded with one query, every line is validated in memory, and the stock is decremented
+     * with one guarded JDBC batch in ascending product ID order. The guarded UPDATE takes the
+     * row locks, so the batch never oversells even if a row changed after it was loaded.
+     * Cached entries of the reserved products are evicted once per call, after commit.
+     * Any failure rolls back the whole reservation.
+     */
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
+    @EvictDependents(entity = EntityKey.PRODUCT, ids = "#quantitiesByProductId.keySet()", caches = {"product", "inventoryByProduct", "inventory"})
+    public Map<Integer, Inventory> reserveAll(Map<Integer, Integer> quantitiesByProductId) {
+        Map<Integer, Integer> quantities = validateQuantities(quantitiesByProductId);
+        if (quantities.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Integer, Inventory> inventoryByProductId = loadAndCheckAvailable(quantities);
+
+        if (stockLedger.isEnabled()) {
+            quantities.forEach(stockLedger::reserve);
+            return inventoryByProductId;
+        }
+
+        List<Integer> rejected = inventoryRepository.decrementStockIfAvailable(quantities);
+        if (!rejected.isEmpty()) {
+            Integer productId = rejected.getFirst();
+            int available = inventoryRepository.findAvailableQuantityByProductId(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Inventory", "productId", productId));
+            throw new InsufficientStockException(productId, quantities.get(productId), available);
+        }
+        return inventoryByProductId;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
+    @EvictDependents(entity = EntityKey.PRODUCT, ids = "#quantitiesByProductId.keySet()", caches = {"product", "inventoryByProduct", "inventory"})
+    public void releaseAll(Map<Integer, Integer> quantitiesByProductId) {
+        Map<Integer, Integer> quantities = validateQuantities(quantitiesByProductId);
+        if (quantities.isEmpty()) {
+            return;
+        }
+
+        if (stockLedger.isEnabled()) {
+            quantities.forEach(stockLedger::release);
+            return;
+        }
+
+        List<Integer> missing = inventoryRepository.incrementStock(quantities);
+        if (!missing.isEmpty()) {
+            throw new ResourceNotFoundException("Inventory", "productId", missing.getFirst());
+        }
+    }
+
+    /**
+     * SOFT HOLD LOGIC
+     * <p>
+     * Same single pass as reserveAll, but the guarded batch moves stock into
+     * reserved_quantity instead of decrementing quantity_in_stock. The hold becomes
+     * a real decrement in commitHolds, or goes back to available in releaseHolds.
+     */
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
+    @EvictDependents(entity = EntityKey.PRODUCT, ids = "#quantitiesByProductId.keySet()", caches = {"product", "inventoryByProduct", "inventory"})
+    public Map<Integer, Inventory> holdAll(Map<Integer, Integer> quantitiesByProductId) {
+        Map<Integer, Integer> quantities = validateQuantities(quantitiesByProductId);
+        if (quantities.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Integer, Inventory> inventoryByProductId = loadAndCheckAvailable(quantities);
+
+        List<Integer> rejected = inventoryRepository.holdStockIfAvailable(quantities);
+        if (!rejected.isEmpty()) {
+            Integer productId = rejected.getFirst();
+            int available = inventoryRepository.findAvailableQuantityByProductId(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Inventory", "productId", productId));
+            throw new InsufficientStockException(productId, quantities.get(productId), available);
+        }
+        return inventoryByProductId;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
+    @EvictDependents(entity = EntityKey.PRODUCT, ids = "#quantitiesByProductId.keySet()", caches = {"product", "inventoryByProduct", "inventory"})
+    public void releaseHolds(Map<Integer, Integer> quantitiesByProductId) {
+        Map<Integer, Integer> quantities = validateQuantities(quantitiesByProductId);
+        if (quantities.isEmpty()) {
+            return;
+        }
+
+        List<Integer> rejected = inventoryRepository.releaseHeldStock(quantities);
+        if (!rejected.isEmpty()) {
+            throw heldStockMismatch("releaseHolds", rejected.getFirst(), quantities.get(rejected.getFirst()));
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
+    @EvictDependents(entity = EntityKey.PRODUCT, ids = "#quantitiesByProductId.keySet()", caches = {"product", "inventoryByProduct", "inventory"})
+    public void commitHolds(Map<Integer, Integer> quantitiesByProductId) {
+        Map<Integer, Integer> quantities = validateQuantities(quantitiesByProductId);
+        if (quantities.isEmpty()) {
+            return;
+        }
+
+        List<Integer> rejected = inventoryRepository.commitHeldStock(quantities);
+        if (!rejected.isEmpty()) {
+            Integer productId = rejected.getFirst();
+            Inventory inventory = inventoryRepository.findByProductId(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Inventory", "productId", productId));
+            if (inventory.getReservedQuantity() < quantities.get(productId)) {
+                throw heldStockMismatch("commitHolds", productId, quantities.get(productId));
+            }
+            throw new InsufficientStockException(productId, quantities.get(productId), inventory.getQuantityInStock());
+        }
+    }
+
+    /**
+     * Not cached: any stock write can change which products are listed.
+     */
     @Override
-    @Cacheable(value = "lowStock", cacheManager = "shortCacheManager")
     public List<InventoryResponse> getLowStockProducts() {
         return inventoryRepository.findLowStock().stream()
                 .map(inventoryMapper::toInventoryResponse)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Not cached: any stock write can change which products are listed.
+     */
     @Override
-    @Cacheable(value = "outOfStock", cacheManager = "shortCacheManager")
     public List<InventoryResponse> getOutOfStockProducts() {
-        return inventoryRepository.findAll().stream()
-                .filter(inventory -> inventory.getQuantityInStock() == 0)
+        return inventoryRepository.findOutOfStock().stream()
                 .map(inventoryMapper::toInventoryResponse)
                 .collect(Collectors.toList());
     }
@@ -255,11 +441,10 @@ public class InventoryServiceImpl implements InventoryService {
     @Override
     @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
     @Caching(
-        put = { @CachePut(value = "inventoryByProduct", key = "#productId", cacheManager = "shortCacheManager") },
+        put = { @CachePut(value = "inventoryByProduct", key = "#productId", cacheResolver = "writeThroughCacheResolver") },
         evict = {
-            @CacheEvict(value = "inventory", allEntries = true, cacheManager = "shortCacheManager"),
-            @CacheEvict(value = "lowStock", allEntries = true, cacheManager = "shortCacheManager"),
-            @CacheEvict(value = "products", allEntries = true, cacheManager = "cacheManager")
+            @CacheEvict(value = "inventory", key = IN_STOCK_KEY, cacheManager = "shortCacheManager"),
+            @CacheEvict(value = "product", key = "#productId", cacheManager = "cacheManager")
         }
     )
     public InventoryResponse updateReorderLevel(Integer productId, int reorderLevel) {
@@ -267,8 +452,7 @@ public class InventoryServiceImpl implements InventoryService {
             throw new ValidationException("reorderLevel", "cannot be negative");
         }
 
-        Inventory inventory = inventoryRepository.findByProductId(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Inventory", "productId", productId));
+        Inventory inventory = lockInventory(productId);
         inventory.setReorderLevel(reorderLevel);
         inventory.setUpdatedAt(LocalDateTime.now());
 
@@ -283,10 +467,85 @@ public class InventoryServiceImpl implements InventoryService {
             return List.of();
         }
         return inventoryRepository.findByProductIdIn(productIds).stream()
-                .map(inventoryMapper::toInventoryResponse)
+                .map(inventory -> stockLedger.isEnabled() ? ledgerResponse(inventory) : inventoryMapper.toInventoryResponse(inventory))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Loads the inventory row with SELECT ... FOR UPDATE, so an admin read-modify-write
+     * waits for the hold, commit and sweeper batches that touch the same row.
+     */
+    private Inventory lockInventory(Integer productId) {
+        return inventoryRepository.findByProductIdForUpdate(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Inventory", "productId", productId));
+    }
+
+    /**
+     * Reports a hold that reserved_quantity no longer covers, or a missing inventory row.
+     * Holds are only ever moved by the guarded batches, so this means the counter drifted.
+     */
+    private RuntimeException heldStockMismatch(String operation, Integer productId, int quantity) {
+        int reserved = inventoryRepository.findByProductId(productId)
+                .map(Inventory::getReservedQuantity)
+                .orElseThrow(() -> new ResourceNotFoundException("Inventory", "productId", productId));
+        return new InvalidOperationException(operation, String.format(
+                "product %d has %d unit(s) reserved, fewer than the %d unit(s) held", productId, reserved, quantity));
+    }
+
+    /**
+     * Builds a response for a ledger-backed write without touching the managed entity,
+     * so the pending delta is not overwritten by an absolute UPDATE on commit.
+     */
+    private InventoryResponse ledgerResponse(Inventory inventory) {
+        InventoryResponse response = inventoryMapper.toInventoryResponse(inventory);
+        response.setStockQuantity(stockLedger.getAvailable(inventory.getProduct().getId()));
+        return response;
+    }
+
+    /**
+     * Loads the inventory rows of an order with their products in one query and checks
+     * every line against the available stock (ledger-aware).
+     */
+    private Map<Integer, Inventory> loadAndCheckAvailable(Map<Integer, Integer> quantities) {
+        Map<Integer, Inventory> inventoryByProductId = inventoryRepository.findByProductIdIn(quantities.keySet()).stream()
+                .collect(Collectors.toMap(inventory -> inventory.getProduct().getId(), Function.identity()));
+
+        List<Integer> missing = quantities.keySet().stream()
+                .filter(productId -> !inventoryByProductId.containsKey(productId))
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new ResourceNotFoundException("Inventory", "productIds", missing);
+        }
+
+        quantities.forEach((productId, quantity) -> {
+            int available = stockLedger.isEnabled()
+                    ? stockLedger.getAvailable(productId)
+                    : inventoryByProductId.get(productId).getAvailableQuantity();
+            if (available < quantity) {
+                throw new InsufficientStockException(productId, quantity, available);
+            }
+        });
+        return inventoryByProductId;
+    }
+
+    /**
+     * Validates per-product quantities and returns them sorted by product ID.
+     */
+    private Map<Integer, Integer> validateQuantities(Map<Integer, Integer> quantitiesByProductId) {
+        if (quantitiesByProductId == null) {
+            return Map.of();
+        }
+        quantitiesByProductId.forEach((productId, quantity) -> {
+            if (productId == null) {
+                throw new ValidationException("productId", "must not be null");
+            }
+            if (quantity == null || quantity <= 0) {
+                throw new ValidationException("quantity", "must be positive");
+            }
+        });
+        return new TreeMap<>(quantitiesByProductId);
+    }
+
     private void validateInventoryData(Inventory inventory) {
         if (inventory == null) {
             throw new ValidationException("Inventory data cannot be null");
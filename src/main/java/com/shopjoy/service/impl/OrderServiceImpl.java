@@ -1,30 +1,36 @@
 package com.shopjoy.service.impl;
 
+import com.shopjoy.aspect.EvictDependents;
+import com.shopjoy.cache.EntityKey;
+import com.shopjoy.dto.filter.KeysetCursor;
 import com.shopjoy.dto.filter.OrderFilter;
+import com.shopjoy.dto.filter.TotalCount;
 import com.shopjoy.dto.mapper.OrderMapperStruct;
 import com.shopjoy.dto.request.CreateOrderItemRequest;
 import com.shopjoy.dto.request.CreateOrderRequest;
 import com.shopjoy.dto.request.UpdateOrderItemRequest;
 import com.shopjoy.dto.request.UpdateOrderRequest;
+import com.shopjoy.dto.response.CursorPage;
 import com.shopjoy.dto.response.OrderResponse;
-import com.shopjoy.dto.response.ProductResponse;
+import com.shopjoy.entity.Inventory;
 import com.shopjoy.entity.Order;
 import com.shopjoy.entity.OrderItem;
 import com.shopjoy.entity.OrderStatus;
 import com.shopjoy.entity.PaymentStatus;
+import com.shopjoy.entity.Product;
 import com.shopjoy.exception.InvalidOrderStateException;
 import com.shopjoy.exception.ResourceNotFoundException;
 import com.shopjoy.exception.ValidationException;
+import com.shopjoy.repository.KeysetRepository;
+import com.shopjoy.repository.KeysetSlice;
 import com.shopjoy.repository.OrderItemRepository;
 import com.shopjoy.repository.OrderRepository;
 import com.shopjoy.repository.UserRepository;
-import com.shopjoy.repository.ProductRepository;
 import com.shopjoy.specification.OrderSpecification;
 import com.shopjoy.entity.SecurityEventType;
-import com.shopjoy.service.InventoryService;
 import com.shopjoy.service.OrderService;
-import com.shopjoy.service.ProductService;
 import com.shopjoy.service.SecurityAuditService;
+import com.shopjoy.service.StockReservationService;
 import com.shopjoy.service.UserService;
 import com.shopjoy.util.SecurityUtil;
 import lombok.AllArgsConstructor;
@@ -46,6 +52,9 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -56,36 +65,43 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class OrderServiceImpl implements OrderService {
 
+    private static final Set<String> KEYSET_SORT_FIELDS = Set.of("id", "orderDate", "totalAmount");
+
+    /** Key of the no-argument order lists, getAllOrders and getPendingOrders. */
+    private static final String ALL_ORDERS_KEY = "T(org.springframework.cache.interceptor.SimpleKey).EMPTY";
+
     private final OrderRepository orderRepository;
+    private final KeysetRepository keysetRepository;
     private final OrderItemRepository orderItemRepository;
     private final UserRepository userRepository;
-    private final ProductRepository productRepository;
-    private final InventoryService inventoryService;
-    private final ProductService productService;
+    private final StockReservationService stockReservationService;
     private final UserService userService;
     private final OrderMapperStruct orderMapper;
     private final SecurityAuditService securityAuditService;
 
+    /**
+     * Runs under READ COMMITTED: stock is checked and held or decremented atomically by
+     * the reservation engine (guarded UPDATE batch or ledger CAS), so SERIALIZABLE
+     * is not needed to prevent overselling.
+     */
     @Override
-    @Transactional(isolation = Isolation.SERIALIZABLE, propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
+    @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
     @Caching(evict = {
-        @CacheEvict(value = "orders", allEntries = true, cacheManager = "mediumCacheManager"),
+        @CacheEvict(value = {"orders", "pendingOrders"}, key = ALL_ORDERS_KEY, cacheManager = "mediumCacheManager"),
         @CacheEvict(value = "ordersByUser", key = "#request.userId", cacheManager = "mediumCacheManager"),
-        @CacheEvict(value = "ordersByStatus", allEntries = true, cacheManager = "mediumCacheManager"),
-        @CacheEvict(value = "pendingOrders", allEntries = true, cacheManager = "mediumCacheManager")
+        @CacheEvict(value = "ordersByStatus", key = "'PENDING'", cacheManager = "mediumCacheManager")
     })
     public OrderResponse createOrder(CreateOrderRequest request) {
         validateCreateOrderRequest(request);
+
+        Order createdOrder = buildAndSaveOrder(request);
+
+        Map<Integer, Inventory> inventoryByProductId = reserveInventory(createdOrder.getId(), request.getOrderItems());
         
-        Map<Integer, ProductResponse> productsById = fetchProducts(request.getOrderItems());
-        
-        BigDecimal totalAmount = validateStockAndCalculateTotal(request.getOrderItems(), productsById);
-        
-        reserveInventory(request.getOrderItems());
-        
-        Order createdOrder = buildAndSaveOrder(request, totalAmount);
+        BigDecimal totalAmount = validateProductsAndCalculateTotal(request.getOrderItems(), inventoryByProductId);
+        createdOrder.setTotalAmount(totalAmount);
         
-        createAndSaveOrderItems(createdOrder, request.getOrderItems(), productsById);
+        createAndSaveOrderItems(createdOrder, request.getOrderItems(), inventoryByProductId);
 
         String username = userService.getUserById(request.getUserId()).getUsername();
         securityAuditService.logEvent(
@@ -105,8 +121,10 @@ public class OrderServiceImpl implements OrderService {
         return orderMapper.toOrderResponse(refreshedOrder);
     }
 
+    /**
+     * Not cached: every new order shifts the pages and totals of most filters.
+     */
     @Override
-    @Cacheable(value = "orders", cacheManager = "mediumCacheManager")
     public Page<OrderResponse> getOrders(Integer userId, OrderFilter filter, Pageable pageable) {
         Specification<Order> spec = OrderSpecification.withFilters(userId, filter);
         Page<Order> orderPage = orderRepository.findAll(spec, pageable);
@@ -215,7 +233,42 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
-    @Cacheable(value = "orders", cacheManager = "mediumCacheManager")
+    public CursorPage<OrderResponse> getOrdersByCursor(Integer userId, OrderFilter filter, String cursor, int size,
+            String sortBy, String sortDirection, TotalCount totalCount) {
+        if (!KEYSET_SORT_FIELDS.contains(sortBy)) {
+            throw new ValidationException("sortBy", "must be one of " + KEYSET_SORT_FIELDS);
+        }
+        if (size < 1 || size > 100) {
+            throw new ValidationException("size", "must be between 1 and 100");
+        }
+        if (!SecurityUtil.isAdmin()) {
+            userId = SecurityUtil.getCurrentUserId();
+            if (userId == null) {
+                throw new AccessDeniedException("You do not have permission to access these orders");
+            }
+        }
+
+        Specification<Order> spec = userId == null && filter == null ? null : OrderSpecification.withFilters(userId, filter);
+        KeysetSlice slice = keysetRepository.findSlice(Order.class, spec, sortBy,
+                KeysetCursor.direction(sortDirection), cursor, size,
+                totalCount != null ? totalCount : TotalCount.NONE);
+
+        Map<Integer, Order> orders = orderRepository.findAllById(slice.ids()).stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+        List<OrderResponse> content = slice.ids().stream()
+                .map(orders::get)
+                .filter(Objects::nonNull)
+                .map(orderMapper::toOrderResponse)
+                .toList();
+
+        return new CursorPage<>(content, size, slice.nextCursor(), slice.nextCursor() != null,
+                slice.totalElements(), slice.totalEstimated());
+    }
+
+    /**
+     * Not cached: every new order shifts the pages.
+     */
+    @Override
     public Page<OrderResponse> getAllOrdersPaginated(Pageable pageable) {
         Page<Order> orderPage = orderRepository.findAll(pageable);
         
@@ -236,14 +289,10 @@ public class OrderServiceImpl implements OrderService {
     @Override
     @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
     @Caching(
-        put = { @CachePut(value = "order", key = "#orderId", cacheManager = "mediumCacheManager") },
-        evict = {
-            @CacheEvict(value = "orders", allEntries = true, cacheManager = "mediumCacheManager"),
-            @CacheEvict(value = "ordersByUser", allEntries = true, cacheManager = "mediumCacheManager"),
-            @CacheEvict(value = "ordersByStatus", allEntries = true, cacheManager = "mediumCacheManager"),
-            @CacheEvict(value = "pendingOrders", allEntries = true, cacheManager = "mediumCacheManager")
-        }
+        put = { @CachePut(value = "order", key = "#orderId", cacheResolver = "writeThroughCacheResolver") },
+        evict = { @CacheEvict(value = "ordersByStatus", key = "#newStatus.name()", cacheManager = "mediumCacheManager") }
     )
+    @EvictDependents(entity = EntityKey.ORDER, ids = "#orderId", caches = {"orders", "ordersByUser", "ordersByStatus", "pendingOrders"})
     public OrderResponse updateOrderStatus(Integer orderId, OrderStatus newStatus) {
         if (!SecurityUtil.isAdmin()) {
             throw new AccessDeniedException("Only admins can update order status");
@@ -327,15 +376,10 @@ public class OrderServiceImpl implements OrderService {
     @Override
     @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
     @Caching(
-        put = { @CachePut(value = "order", key = "#orderId", cacheManager = "mediumCacheManager") },
-        evict = {
-            @CacheEvict(value = "orders", allEntries = true, cacheManager = "mediumCacheManager"),
-            @CacheEvict(value = "ordersByUser", allEntries = true, cacheManager = "mediumCacheManager"),
-            @CacheEvict(value = "ordersByStatus", allEntries = true, cacheManager = "mediumCacheManager"),
-            @CacheEvict(value = "pendingOrders", allEntries = true, cacheManager = "mediumCacheManager"),
-            @CacheEvict(value = "inventory", allEntries = true, cacheManager = "shortCacheManager")
-        }
+        put = { @CachePut(value = "order", key = "#orderId", cacheResolver = "writeThroughCacheResolver") },
+        evict = { @CacheEvict(value = "ordersByStatus", key = "'CANCELLED'", cacheManager = "mediumCacheManager") }
     )
+    @EvictDependents(entity = EntityKey.ORDER, ids = "#orderId", caches = {"orders", "ordersByUser", "ordersByStatus", "pendingOrders"})
     public OrderResponse cancelOrder(Integer orderId) {
         Integer orderOwnerId = orderRepository.findUserIdByOrderId(orderId);
         if (orderOwnerId == null) {
@@ -358,9 +402,8 @@ public class OrderServiceImpl implements OrderService {
 
         List<OrderItem> orderItems = orderItemRepository.findByOrderId(orderId);
 
-        orderItems.forEach(item -> 
-            inventoryService.releaseStock(item.getProduct().getId(), item.getQuantity())
-        );
+        stockReservationService.releaseForOrder(orderId, sumQuantitiesByProduct(orderItems,
+                item -> item.getProduct().getId(), OrderItem::getQuantity));
 
         order.setStatus(OrderStatus.CANCELLED);
         order.setUpdatedAt(LocalDateTime.now());
@@ -393,17 +436,9 @@ public class OrderServiceImpl implements OrderService {
                 .collect(Collectors.toList());
     }
 
-    @Transactional(isolation = Isolation.SERIALIZABLE)
-    @Caching(evict = {
-                @CacheEvict(value = "orders", allEntries = true, cacheManager = "mediumCacheManager"),
-                @CacheEvict(value = "ordersByUser", allEntries = true, cacheManager = "mediumCacheManager"),
-                @CacheEvict(value = "ordersByStatus", allEntries = true, cacheManager = "mediumCacheManager"),
-                @CacheEvict(value = "pendingOrders", allEntries = true, cacheManager = "mediumCacheManager")
-            },
-            put = {
-                @CachePut(value = "order", key = "#orderId", cacheManager = "mediumCacheManager")
-            }
-    )
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    @CachePut(value = "order", key = "#orderId", cacheResolver = "writeThroughCacheResolver")
+    @EvictDependents(entity = EntityKey.ORDER, ids = "#orderId", caches = {"orders", "ordersByUser", "ordersByStatus", "pendingOrders"})
     public OrderResponse updateOrder(Integer orderId, UpdateOrderRequest request) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order", "id", orderId));
@@ -425,14 +460,8 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     @Transactional()
-    @Caching(evict = {
-        @CacheEvict(value = "order", key = "#orderId", cacheManager = "mediumCacheManager"),
-        @CacheEvict(value = "orders", allEntries = true, cacheManager = "mediumCacheManager"),
-        @CacheEvict(value = "ordersByUser", allEntries = true, cacheManager = "mediumCacheManager"),
-        @CacheEvict(value = "ordersByStatus", allEntries = true, cacheManager = "mediumCacheManager"),
-        @CacheEvict(value = "pendingOrders", allEntries = true, cacheManager = "mediumCacheManager"),
-        @CacheEvict(value = "inventory", allEntries = true, cacheManager = "shortCacheManager")
-    })
+    @CacheEvict(value = "order", key = "#orderId", cacheManager = "mediumCacheManager")
+    @EvictDependents(entity = EntityKey.ORDER, ids = "#orderId", caches = {"orders", "ordersByUser", "ordersByStatus", "pendingOrders"})
     public void deleteOrder(Integer orderId) {
         Integer orderOwnerId = orderRepository.findUserIdByOrderId(orderId);
         if (orderOwnerId == null) {
@@ -451,9 +480,8 @@ public class OrderServiceImpl implements OrderService {
         }
 
         List<OrderItem> orderItems = orderItemRepository.findByOrderId(orderId);
-        orderItems.forEach(item -> 
-            inventoryService.releaseStock(item.getProduct().getId(), item.getQuantity())
-        );
+        stockReservationService.releaseForOrder(orderId, sumQuantitiesByProduct(orderItems,
+                item -> item.getProduct().getId(), OrderItem::getQuantity));
 
         orderRepository.deleteById(orderId);
     }
@@ -506,8 +534,9 @@ public class OrderServiceImpl implements OrderService {
      * <p>
      * This method simulates a payment confirmation workflow.
      * 1. Updates payment status Atomically.
-     * 2. Transitions order status to PROCESSING.
-     * 3. Uses REQUIRED propagation to ensure both updates happen in one transaction.
+     * 2. Converts the order's stock hold into a committed decrement.
+     * 3. Transitions order status to PROCESSING.
+     * 4. Uses REQUIRED propagation to ensure all updates happen in one transaction.
      * <p>
      * If transitioning the order status fails (e.g., business rule violation), 
      * the payment status update will also be rolled back.
@@ -526,6 +555,8 @@ public class OrderServiceImpl implements OrderService {
             throw new InvalidOrderStateException(orderId, "CANCELLED", "process payment");
         }
 
+        stockReservationService.commitForOrder(orderId);
+
         order.setPaymentStatus(PaymentStatus.PAID);
         order.setUpdatedAt(LocalDateTime.now());
         
@@ -544,6 +575,8 @@ public class OrderServiceImpl implements OrderService {
             throw new ValidationException("Simulation: Order " + orderId + " is already paid.");
         }
 
+        stockReservationService.commitForOrder(orderId);
+
         order.setPaymentStatus(PaymentStatus.PAID);
         order.setUpdatedAt(LocalDateTime.now());
         orderRepository.save(order);
@@ -566,54 +599,48 @@ public class OrderServiceImpl implements OrderService {
         }
     }
 
-    private Map<Integer, ProductResponse> fetchProducts(List<CreateOrderItemRequest> items) {
-        List<Integer> productIds = items.stream()
-                .map(CreateOrderItemRequest::getProductId)
-                .distinct()
-                .collect(Collectors.toList());
-
-        List<ProductResponse> products = productService.getProductsByIds(productIds);
-
-        Map<Integer, ProductResponse> productMap = products.stream()
-                .collect(Collectors.toMap(ProductResponse::getId, java.util.function.Function.identity()));
+    /**
+     * SINGLE-PASS ORDER PIPELINE
+     * <p>
+     * Stock is reserved for the whole order with one inventory load and one batched
+     * hold (or decrement, when holds are disabled). The hold is keyed by the order, so
+     * the order row is inserted first and its total filled in once prices are known.
+     * The returned rows carry their products, so validation and pricing run over the
+     * same preloaded map without another product or stock lookup per line.
+     * A validation failure afterwards rolls the reservation back with the transaction.
+     */
+    private Map<Integer, Inventory> reserveInventory(Integer orderId, List<CreateOrderItemRequest> items) {
+        return stockReservationService.reserveForOrder(orderId, sumQuantitiesByProduct(items,
+                CreateOrderItemRequest::getProductId, CreateOrderItemRequest::getQuantity));
+    }
 
-        if (productMap.size() != productIds.size()) {
-            List<Integer> foundIds = new java.util.ArrayList<>(productMap.keySet());
-            List<Integer> missingIds = productIds.stream()
-                    .filter(id -> !foundIds.contains(id))
-                    .collect(Collectors.toList());
-            throw new ResourceNotFoundException("Products", "ids", missingIds);
+    private BigDecimal validateProductsAndCalculateTotal(List<CreateOrderItemRequest> items, Map<Integer, Inventory> inventoryByProductId) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (CreateOrderItemRequest itemReq : items) {
+            Product product = inventoryByProductId.get(itemReq.getProductId()).getProduct();
+            if (!product.isActive()) {
+                throw new ValidationException("Product " + product.getProductName() + " is not active");
+            }
+            total = total.add(product.getPrice().multiply(BigDecimal.valueOf(itemReq.getQuantity())));
         }
-
-        return productMap;
+        return total;
     }
 
-    private BigDecimal validateStockAndCalculateTotal(List<CreateOrderItemRequest> items, Map<Integer, ProductResponse> productsById) {
+    /**
+     * Collapses order lines into one quantity per product, so repeated lines for the
+     * same product are reserved or released together.
+     */
+    private static <T> Map<Integer, Integer> sumQuantitiesByProduct(List<T> items,
+                                                                    Function<T, Integer> productIdOf,
+                                                                    Function<T, Integer> quantityOf) {
         return items.stream()
-                .map(itemReq -> {
-                    ProductResponse product = productsById.get(itemReq.getProductId());
-                    if (!product.isActive()) {
-                        throw new ValidationException("Product " + product.getProductName() + " is not active");
-                    }
-                    if (!inventoryService.hasAvailableStock(itemReq.getProductId(), itemReq.getQuantity())) {
-                        throw new ValidationException("Insufficient stock for product: " + product.getProductName());
-                    }
-                    return BigDecimal.valueOf(product.getPrice())
-                            .multiply(BigDecimal.valueOf(itemReq.getQuantity()));
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    private void reserveInventory(List<CreateOrderItemRequest> items) {
-        items.forEach(itemReq -> 
-            inventoryService.reserveStock(itemReq.getProductId(), itemReq.getQuantity())
-        );
+                .collect(Collectors.toMap(productIdOf, quantityOf, Integer::sum));
     }
 
-    private Order buildAndSaveOrder(CreateOrderRequest request, BigDecimal totalAmount) {
+    private Order buildAndSaveOrder(CreateOrderRequest request) {
         Order order = orderMapper.toOrder(request);
         order.setUser(userRepository.getReferenceById(request.getUserId()));
-        order.setTotalAmount(totalAmount);
+        order.setTotalAmount(BigDecimal.ZERO);
         order.setOrderDate(LocalDateTime.now());
         order.setStatus(OrderStatus.PENDING);
         order.setPaymentStatus(PaymentStatus.UNPAID);
@@ -628,16 +655,16 @@ public class OrderServiceImpl implements OrderService {
         return orderRepository.save(order);
     }
 
-    private void createAndSaveOrderItems(Order order, List<CreateOrderItemRequest> items, Map<Integer, ProductResponse> productsById) {
+    private void createAndSaveOrderItems(Order order, List<CreateOrderItemRequest> items, Map<Integer, Inventory> inventoryByProductId) {
         List<OrderItem> orderItems = items.stream()
                 .map(itemReq -> {
-                    ProductResponse product = productsById.get(itemReq.getProductId());
-                    BigDecimal unitPrice = BigDecimal.valueOf(product.getPrice());
+                    Product product = inventoryByProductId.get(itemReq.getProductId()).getProduct();
+                    BigDecimal unitPrice = product.getPrice();
                     BigDecimal subtotal = unitPrice.multiply(BigDecimal.valueOf(itemReq.getQuantity()));
 
                     return OrderItem.builder()
                             .order(order)
-                            .product(productRepository.getReferenceById(itemReq.getProductId()))
+                            .product(product)
                             .quantity(itemReq.getQuantity())
                             .unitPrice(unitPrice)
                             .subtotal(subtotal)
@@ -672,22 +699,20 @@ public class OrderServiceImpl implements OrderService {
     private void updateOrderItems(Order order, List<UpdateOrderItemRequest> newItems) {
         List<OrderItem> existingItems = orderItemRepository.findByOrderId(order.getId());
         
-        existingItems.forEach(item -> 
-            inventoryService.releaseStock(item.getProduct().getId(), item.getQuantity())
-        );
+        stockReservationService.releaseForOrder(order.getId(), sumQuantitiesByProduct(existingItems,
+                item -> item.getProduct().getId(), OrderItem::getQuantity));
 
         existingItems.forEach(item -> orderItemRepository.deleteById(item.getId()));
 
+        Map<Integer, Inventory> inventoryByProductId = stockReservationService.reserveForOrder(order.getId(),
+                sumQuantitiesByProduct(newItems, UpdateOrderItemRequest::getProductId, UpdateOrderItemRequest::getQuantity));
+
         BigDecimal newTotal = newItems.stream()
             .map(itemReq -> {
-                ProductResponse product = productService.getProductById(itemReq.getProductId());
+                Product product = inventoryByProductId.get(itemReq.getProductId()).getProduct();
                 if (!product.isActive()) {
                     throw new ValidationException("Product " + product.getProductName() + " is not active");
                 }
-                if (!inventoryService.hasAvailableStock(itemReq.getProductId(), itemReq.getQuantity())) {
-                    throw new ValidationException("Insufficient stock for product: " + product.getProductName());
-                }
-                inventoryService.reserveStock(itemReq.getProductId(), itemReq.getQuantity());
                 return BigDecimal.valueOf(itemReq.getPrice())
                         .multiply(BigDecimal.valueOf(itemReq.getQuantity()));
             })
@@ -696,7 +721,7 @@ public class OrderServiceImpl implements OrderService {
         List<OrderItem> newOrderItems = newItems.stream()
                 .map(itemReq -> OrderItem.builder()
                         .order(order)
-                        .product(productRepository.getReferenceById(itemReq.getProductId()))
+                        .product(inventoryByProductId.get(itemReq.getProductId()).getProduct())
                         .quantity(itemReq.getQuantity())
                         .unitPrice(BigDecimal.valueOf(itemReq.getPrice()))
                         .subtotal(BigDecimal.valueOf(itemReq.getPrice()).multiply(BigDecimal.valueOf(itemReq.getQuantity())))
@@ -0,0 +1,439 @@
+package com.shopjoy.service.impl;
+
+import com.shopjoy.cache.CacheInvalidationMessage;
+import com.shopjoy.cache.CacheInvalidationTransport;
+import com.shopjoy.cache.EntityKey;
+import com.shopjoy.config.CacheProperties;
+import com.shopjoy.config.SearchProperties;
+import com.shopjoy.search.ProductDocument;
+import com.shopjoy.search.ProductSearchIndex;
+import com.shopjoy.search.ProductSearchQuery;
+import com.shopjoy.search.ProductSearchResult;
+import com.shopjoy.search.ProductSuggestions;
+import com.shopjoy.search.Suggestion;
+import com.shopjoy.search.SuggestionIndex;
+import com.shopjoy.service.ProductSearchService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NonNull;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Product search over a {@link ProductSearchIndex} and autocomplete over
+ * {@link ProductSuggestions}, both held in memory on every node.
+ * <p>
+ * The indexes are built from the database in the background once the application is ready;
+ * until then {@link #isAvailable()} is false and callers fall back to database queries.
+ * Product writes reindex the product from the database after commit and broadcast its id
+ * over the cache invalidation transport, so the other nodes reindex it too. A transport
+ * clear-all, sent when messages may have been missed, rebuilds the whole index, and so
+ * does the periodic rebuild that refreshes the units sold behind suggestion ranking.
+ * Updates that arrive during a rebuild are replayed on the new indexes before they are swapped in.
+ * A product is read and applied under a lock striped by its id, so of two reindexes of the
+ * same product, the one that read last is applied last.
+ */
+@Slf4j
+@Service
+public class ProductSearchServiceImpl implements ProductSearchService, MeterBinder {
+
+    /**
+     * Cache name of the search index broadcasts. No cache has this name, so the cache
+     * managers ignore these messages.
+     */
+    static final String SEARCH_CHANNEL = "productSearch";
+
+    private static final int REINDEX_STRIPES = 64;
+
+    private static final String SELECT_ALL_SQL = """
+            SELECT p.product_id, p.product_name, p.description, p.brand, p.category_id, c.category_name,
+                   p.price, p.is_active, p.created_at, COALESCE(s.units_sold, 0) AS units_sold
+            FROM products p LEFT JOIN categories c ON c.category_id = p.category_id
+            LEFT JOIN (SELECT product_id, SUM(quantity) AS units_sold FROM order_items GROUP BY product_id) s
+                   ON s.product_id = p.product_id""";
+    private static final String SELECT_SOME_SQL = """
+            SELECT p.product_id, p.product_name, p.description, p.brand, p.category_id, c.category_name,
+                   p.price, p.is_active, p.created_at,
+                   (SELECT COALESCE(SUM(oi.quantity), 0) FROM order_items oi WHERE oi.product_id = p.product_id) AS units_sold
+            FROM products p LEFT JOIN categories c ON c.category_id = p.category_id""";
+    private static final String SELECT_ONE_SQL = SELECT_SOME_SQL + " WHERE p.product_id = ?";
+    private static final String SELECT_CATEGORY_SQL = SELECT_SOME_SQL + " WHERE p.category_id = ?";
+
+    private final SearchProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate buildJdbcTemplate;
+    private final TransactionTemplate readOnly;
+    private final CacheInvalidationTransport transport;
+    private final String nodeId;
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final ReentrantLock[] reindexLocks = new ReentrantLock[REINDEX_STRIPES];
+    private final Object updateLock = new Object();
+    private volatile Indexes indexes;
+    private volatile BuiltStats builtStats = new BuiltStats(
+            new ProductSearchIndex.Stats(0, 0, 0, 0), new SuggestionIndex.Stats(0, 0, 0, 0));
+    private List<Consumer<Indexes>> pendingUpdates;
+
+    /**
+     * The search index and the suggestions, always built and swapped together.
+     */
+    private record Indexes(ProductSearchIndex search, ProductSuggestions suggestions) {
+
+        void add(ProductDocument document) {
+            search.add(document);
+            suggestions.add(document);
+        }
+
+        void remove(int productId) {
+            search.remove(productId);
+            suggestions.remove(productId);
+        }
+    }
+
+    /**
+     * Statistics of the indexes as built, for the memory gauges: computing them walks
+     * every term and suggestion node, so it is done once per rebuild, not on every scrape.
+     */
+    private record BuiltStats(ProductSearchIndex.Stats search, SuggestionIndex.Stats suggestions) {
+    }
+
+    public ProductSearchServiceImpl(SearchProperties properties, JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    CacheInvalidationTransport cacheInvalidationTransport,
+                                    CacheProperties cacheProperties) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.buildJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.buildJdbcTemplate.setFetchSize(properties.getBuildFetchSize());
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.transport = cacheInvalidationTransport;
+        this.nodeId = cacheProperties.getCluster().getNodeId();
+        for (int i = 0; i < reindexLocks.length; i++) {
+            reindexLocks[i] = new ReentrantLock();
+        }
+        if (properties.isEnabled()) {
+            transport.subscribe(this::onMessage);
+        }
+    }
+
+    /**
+     * Builds the index in the background once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (properties.isEnabled()) {
+            rebuildInBackground();
+        }
+    }
+
+    /**
+     * Rebuilds the indexes in the background, refreshing the units sold. Updates keep
+     * being applied while the rebuild runs.
+     */
+    @Scheduled(initialDelayString = "${app.search.rebuild-interval:1h}", fixedDelayString = "${app.search.rebuild-interval:1h}")
+    public void scheduledRebuild() {
+        if (isAvailable()) {
+            rebuildInBackground();
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return properties.isEnabled() && indexes != null;
+    }
+
+    @Override
+    public ProductSearchResult search(ProductSearchQuery query) {
+        return current().search().search(query);
+    }
+
+    @Override
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return current().suggestions().suggest(prefix, limit);
+    }
+
+    @Override
+    public void indexAfterCommit(Integer productId) {
+        afterCommit(() -> {
+            reindexProduct(productId);
+            broadcast(EntityKey.of(EntityKey.PRODUCT, productId));
+        });
+    }
+
+    @Override
+    public void removeAfterCommit(Integer productId) {
+        afterCommit(() -> {
+            ReentrantLock lock = reindexLock(productId);
+            lock.lock();
+            try {
+                apply(current -> current.remove(productId));
+            } finally {
+                lock.unlock();
+            }
+            broadcast(EntityKey.of(EntityKey.PRODUCT, productId));
+        });
+    }
+
+    @Override
+    public void reindexCategoryAfterCommit(Integer categoryId) {
+        afterCommit(() -> {
+            reindexCategory(categoryId);
+            broadcast(EntityKey.of(EntityKey.CATEGORY, categoryId));
+        });
+    }
+
+    /**
+     * Reads every product with one streaming query in a read-only transaction, so the
+     * fetch size is honoured, into a new index. Rebuilds run one at a time.
+     */
+    @Override
+    public void rebuild() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        rebuildLock.lock();
+        try {
+            synchronized (updateLock) {
+                pendingUpdates = new ArrayList<>();
+            }
+            long startTime = System.nanoTime();
+            Indexes fresh = newIndexes();
+            fresh.suggestions().startBulkLoad();
+            readOnly.executeWithoutResult(_ -> buildJdbcTemplate.query(SELECT_ALL_SQL, rs -> {
+                fresh.add(document(rs));
+            }));
+            fresh.suggestions().finishBulkLoad();
+            int replayed;
+            synchronized (updateLock) {
+                replayed = pendingUpdates.size();
+                pendingUpdates.forEach(update -> update.accept(fresh));
+                pendingUpdates = null;
+                indexes = fresh;
+            }
+            ProductSearchIndex.Stats stats = fresh.search().stats();
+            SuggestionIndex.Stats suggestionStats = fresh.suggestions().stats();
+            builtStats = new BuiltStats(stats, suggestionStats);
+            log.info("Product search index built in {} ms: {} products, {} terms, ~{} KB; {} suggestions, ~{} KB "
+                            + "({} updates replayed)",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), stats.documents(),
+                    stats.terms(), stats.estimatedBytes() / 1024, suggestionStats.texts(),
+                    suggestionStats.estimatedBytes() / 1024, replayed);
+        } catch (DataAccessException e) {
+            synchronized (updateLock) {
+                pendingUpdates = null;
+            }
+            log.error("Failed to build the product search index: {}", e.getMessage());
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    @Override
+    public ProductSearchIndex.Stats getStats() {
+        Indexes current = indexes;
+        return current != null ? current.search().stats() : new ProductSearchIndex.Stats(0, 0, 0, 0);
+    }
+
+    @Override
+    public SuggestionIndex.Stats getSuggestionStats() {
+        Indexes current = indexes;
+        return current != null ? current.suggestions().stats() : new SuggestionIndex.Stats(0, 0, 0, 0);
+    }
+
+    /**
+     * Registers the index gauges. The counts are read live; the memory estimates are those of
+     * the last rebuild, since estimating them walks the whole index.
+     */
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("search.index.documents", this, service -> service.count(index -> index.search().size()))
+                .description("Products in the search index")
+                .register(registry);
+        Gauge.builder("search.index.terms", this, service -> service.count(index -> index.search().termCount()))
+                .description("Distinct terms in the search index")
+                .register(registry);
+        Gauge.builder("search.index.memory", this, service -> service.builtStats.search().estimatedBytes())
+                .baseUnit("bytes")
+                .description("Estimated heap used by the search index, as of the last rebuild")
+                .register(registry);
+        Gauge.builder("search.suggestions.size", this, service -> service.count(index -> index.suggestions().size()))
+                .description("Products, brands and categories that can be suggested")
+                .register(registry);
+        Gauge.builder("search.suggestions.memory", this, service -> service.builtStats.suggestions().estimatedBytes())
+                .baseUnit("bytes")
+                .description("Estimated heap used by the suggestions, as of the last rebuild")
+                .register(registry);
+    }
+
+    private int count(ToIntFunction<Indexes> counter) {
+        Indexes current = indexes;
+        return current != null ? counter.applyAsInt(current) : 0;
+    }
+
+    private void onMessage(CacheInvalidationMessage message) {
+        if (nodeId.equals(message.origin())) {
+            return;
+        }
+        if (message.isClearAll()) {
+            rebuildInBackground();
+            return;
+        }
+        if (!SEARCH_CHANNEL.equals(message.cacheName()) || !(message.key() instanceof EntityKey key)) {
+            return;
+        }
+        try {
+            int id = ((Number) key.id()).intValue();
+            if (EntityKey.PRODUCT.equals(key.type())) {
+                reindexProduct(id);
+            } else if (EntityKey.CATEGORY.equals(key.type())) {
+                reindexCategory(id);
+            }
+        } catch (DataAccessException e) {
+            log.error("Failed to reindex {} {} for search: {}", key.type(), key.id(), e.getMessage());
+        }
+    }
+
+    private void rebuildInBackground() {
+        Thread.ofPlatform().name("product-search-index").daemon().start(this::rebuild);
+    }
+
+    /**
+     * Reloads a product, removing it if it no longer exists. The read and the update
+     * happen under the product's lock, so an older read is never applied over a newer one.
+     */
+    private void reindexProduct(int productId) {
+        ReentrantLock lock = reindexLock(productId);
+        lock.lock();
+        try {
+            List<ProductDocument> documents = jdbcTemplate.query(SELECT_ONE_SQL, (rs, _) -> document(rs), productId);
+            if (documents.isEmpty()) {
+                apply(current -> current.remove(productId));
+            } else {
+                ProductDocument document = documents.getFirst();
+                apply(current -> current.add(document));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reloads the products of a category under every product lock. Category changes are
+     * rare, and its products can have any id.
+     */
+    private void reindexCategory(int categoryId) {
+        for (ReentrantLock lock : reindexLocks) {
+            lock.lock();
+        }
+        try {
+            List<ProductDocument> documents = jdbcTemplate.query(SELECT_CATEGORY_SQL, (rs, _) -> document(rs), categoryId);
+            apply(current -> documents.forEach(current::add));
+        } finally {
+            for (int i = reindexLocks.length - 1; i >= 0; i--) {
+                reindexLocks[i].unlock();
+            }
+        }
+    }
+
+    private ReentrantLock reindexLock(int productId) {
+        return reindexLocks[Math.floorMod(productId, REINDEX_STRIPES)];
+    }
+
+    /**
+     * Applies an update to the current indexes, and queues it for the indexes being built, if any.
+     */
+    private void apply(Consumer<Indexes> update) {
+        synchronized (updateLock) {
+            Indexes current = indexes;
+            if (current != null) {
+                update.accept(current);
+            }
+            if (pendingUpdates != null) {
+                pendingUpdates.add(update);
+            }
+        }
+    }
+
+    private void broadcast(EntityKey key) {
+        transport.publish(CacheInvalidationMessage.evict(nodeId, SEARCH_CHANNEL, key));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Runnable guarded = () -> {
+            try {
+                action.run();
+            } catch (DataAccessException e) {
+                log.error("Failed to update the product search index: {}", e.getMessage());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    guarded.run();
+                }
+            });
+        } else {
+            guarded.run();
+        }
+    }
+
+    private Indexes current() {
+        Indexes current = indexes;
+        if (current == null) {
+            throw new IllegalStateException("The product search index has not been built yet");
+        }
+        return current;
+    }
+
+    private Indexes newIndexes() {
+        SearchProperties.Suggest suggest = properties.getSuggest();
+        return new Indexes(
+                new ProductSearchIndex(properties.getMinPrefixLength(), properties.getMaxExpansions(),
+                        properties.getOneTypoMinLength(), properties.getTwoTyposMinLength()),
+                new ProductSuggestions(suggest.getMaxResults(), suggest.getBucketSize(), suggest.getMaxWords()));
+    }
+
+    private static ProductDocument document(ResultSet rs) throws SQLException {
+        BigDecimal price = rs.getBigDecimal("price");
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        Integer categoryId = rs.getObject("category_id") != null ? rs.getInt("category_id") : null;
+        return new ProductDocument(
+                rs.getInt("product_id"),
+                rs.getString("product_name"),
+                rs.getString("description"),
+                rs.getString("brand"),
+                categoryId,
+                rs.getString("category_name"),
+                price != null ? price.doubleValue() : 0,
+                rs.getBoolean("is_active"),
+                createdAt != null ? createdAt.toLocalDateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0,
+                rs.getLong("units_sold"));
+    }
+}
@@ -1,35 +1,62 @@
 package com.shopjoy.service.impl;
 
 import com.shopjoy.aspect.Auditable;
+import com.shopjoy.aspect.EvictDependents;
+import com.shopjoy.cache.DependencyTrackingCaffeineCacheManager;
+import com.shopjoy.cache.EntityIdList;
+import com.shopjoy.cache.EntityKey;
+import com.shopjoy.config.SearchProperties;
+import com.shopjoy.dto.filter.KeysetCursor;
 import com.shopjoy.dto.filter.ProductFilter;
+import com.shopjoy.dto.filter.TotalCount;
 import com.shopjoy.dto.mapper.ProductMapperStruct;
 import com.shopjoy.dto.request.CreateProductRequest;
 import com.shopjoy.dto.request.UpdateProductRequest;
+import com.shopjoy.dto.response.CursorPage;
 import com.shopjoy.dto.response.ProductResponse;
+import com.shopjoy.dto.response.SuggestionResponse;
 import com.shopjoy.entity.Product;
 import com.shopjoy.exception.ResourceNotFoundException;
 import com.shopjoy.exception.ValidationException;
 import com.shopjoy.repository.CategoryRepository;
 import com.shopjoy.repository.InventoryRepository;
+import com.shopjoy.repository.KeysetRepository;
+import com.shopjoy.repository.KeysetSlice;
 import com.shopjoy.repository.ProductRepository;
+import com.shopjoy.search.ProductSearchQuery;
+import com.shopjoy.search.ProductSearchResult;
+import com.shopjoy.service.ProductSearchService;
 import com.shopjoy.service.ProductService;
+import com.shopjoy.specification.ProductSpecification;
+import jakarta.annotation.PostConstruct;
 import lombok.AllArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
+import org.springframework.cache.interceptor.SimpleKey;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -40,14 +67,48 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class ProductServiceImpl implements ProductService {
 
+    private static final Set<String> KEYSET_SORT_FIELDS = Set.of("id", "productName", "price", "createdAt");
+    private static final String RELEVANCE = "relevance";
+
+    /** Key of the whole-catalog lists, "products" and "activeProducts". */
+    private static final String CATALOG_KEY = "T(org.springframework.cache.interceptor.SimpleKey).EMPTY";
+
     private final ProductRepository productRepository;
     private final InventoryRepository inventoryRepository;
     private final CategoryRepository categoryRepository;
+    private final KeysetRepository keysetRepository;
+    private final ProductSearchService productSearchService;
+    private final SearchProperties searchProperties;
     private final ProductMapperStruct productMapper;
+    private final CacheManager cacheManager;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Registers loaders for the product list caches. With refresh-after-write set on
+     * these caches, a stale list keeps being served while one background reload runs,
+     * instead of every request hitting the database when the entry expires.
+     * Reloads run in their own read-only transaction.
+     */
+    @PostConstruct
+    void registerListLoaders() {
+        if (!(cacheManager instanceof DependencyTrackingCaffeineCacheManager manager)) {
+            return;
+        }
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        manager.registerCacheLoader("products",
+                _ -> readOnly.execute(_ -> productIdList(productRepository.findAllWithInventory())));
+        manager.registerCacheLoader("activeProducts",
+                _ -> readOnly.execute(_ -> productIdList(findActiveProducts())));
+        manager.registerCacheLoader("productsByCategory",
+                key -> readOnly.execute(_ -> categoryIdList(key)));
+    }
 
     @Override
     @Transactional
-    @CacheEvict(value = {"products", "activeProducts", "productsByCategory"}, allEntries = true, cacheManager = "cacheManager")
+    @CacheEvict(value = {"products", "activeProducts"}, key = CATALOG_KEY, cacheManager = "cacheManager")
+    @EvictDependents(entity = EntityKey.CATEGORY, ids = "#request.categoryId", caches = "productsByCategory")
     public ProductResponse createProduct(CreateProductRequest request) {
         Product product = productMapper.toProduct(request);
         if (request.getCategoryId() != null) {
@@ -68,6 +129,7 @@ public class ProductServiceImpl implements ProductService {
         inventory.setLastRestocked(LocalDateTime.now());
         inventory.setUpdatedAt(LocalDateTime.now());
         inventoryRepository.save(inventory);
+        productSearchService.indexAfterCommit(createdProduct.getId());
 
         return productMapper.toProductResponse(createdProduct);
     }
@@ -91,60 +153,75 @@ public class ProductServiceImpl implements ProductService {
                 .filter(Objects::nonNull)
                 .toList();
         
-        return distinctIds.stream()
-                .map(this::getProductById)
-                .collect(Collectors.toList());
+        return resolveProducts(distinctIds, true);
     }
 
     @Override
-    @Cacheable(value = "products")
     public List<ProductResponse> getAllProducts() {
-        return productRepository.findAllWithInventory().stream()
-                .map(productMapper::toProductResponse)
-                .collect(Collectors.toList());
+        return cachedProductList("products", SimpleKey.EMPTY, () -> productIdList(productRepository.findAllWithInventory()));
     }
 
     @Override
-    @Cacheable(value = "activeProducts")
     public List<ProductResponse> getActiveProducts() {
-        return productRepository.findAllWithInventory().stream()
-                .filter(Product::isActive)
-                .map(productMapper::toProductResponse)
-                .collect(Collectors.toList());
+        return cachedProductList("activeProducts", SimpleKey.EMPTY, () -> productIdList(findActiveProducts()));
     }
 
     @Override
-    @Cacheable(value = "productsByCategory", key = "#categoryId")
     public List<ProductResponse> getProductsByCategory(Integer categoryId) {
         if (categoryId == null) {
             throw new ValidationException("Category ID cannot be null");
         }
-        return productRepository.findByCategoryId(categoryId).stream()
-                .map(productMapper::toProductResponse)
-                .collect(Collectors.toList());
+        return cachedProductList("productsByCategory", categoryId, () -> categoryIdList(categoryId));
     }
 
     @Override
-    @Cacheable(value = "productsByCategory")
     public List<ProductResponse> getProductsByCategories(List<Integer> categoryIds) {
         if (categoryIds == null || categoryIds.isEmpty()) {
             return Collections.emptyList();
         }
-        return productRepository.findByCategoryIdIn(categoryIds).stream()
-                .map(productMapper::toProductResponse)
-                .collect(Collectors.toList());
+        List<Integer> key = List.copyOf(categoryIds);
+        return cachedProductList("productsByCategory", key, () -> categoryIdList(key));
     }
 
+    /**
+     * Searches the full-text index, best matches first and at most app.search.max-results
+     * of them. Falls back to a LIKE query while the index is not available.
+     */
     @Override
     public List<ProductResponse> searchProductsByName(String keyword) {
         if (keyword == null || keyword.trim().isEmpty()) {
             throw new ValidationException("Search keyword cannot be empty");
         }
+        if (productSearchService.isAvailable()) {
+            ProductSearchResult result = productSearchService.search(
+                    ProductSearchQuery.of(keyword, 0, searchProperties.getMaxResults()));
+            return resolveProducts(result.productIds(), false);
+        }
         return productRepository.findByProductName(keyword).stream()
                 .map(productMapper::toProductResponse)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Served from memory without touching the database, so it can run on every keystroke.
+     */
+    @Override
+    public List<SuggestionResponse> getSuggestions(String prefix, Integer limit) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new ValidationException("q", "must not be empty");
+        }
+        int maxResults = searchProperties.getSuggest().getMaxResults();
+        if (limit != null && (limit < 1 || limit > maxResults)) {
+            throw new ValidationException("limit", "must be between 1 and " + maxResults);
+        }
+        if (!productSearchService.isAvailable()) {
+            return Collections.emptyList();
+        }
+        return productSearchService.suggest(prefix, limit != null ? limit : maxResults).stream()
+                .map(suggestion -> new SuggestionResponse(suggestion.type().name(), suggestion.id(), suggestion.text()))
+                .toList();
+    }
+
     @Override
     public List<ProductResponse> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
         if (minPrice.compareTo(BigDecimal.ZERO) < 0) {
@@ -161,9 +238,11 @@ public class ProductServiceImpl implements ProductService {
     @Override
     @Transactional
     @Caching(
-        put = { @CachePut(value = "product", key = "#productId", cacheManager = "cacheManager") },
-        evict = { @CacheEvict(value = {"products", "activeProducts", "productsByCategory"}, allEntries = true, cacheManager = "cacheManager") }
+        put = { @CachePut(value = "product", key = "#productId", cacheResolver = "writeThroughCacheResolver") },
+        evict = { @CacheEvict(value = "activeProducts", key = CATALOG_KEY, condition = "#request.isActive != null", cacheManager = "cacheManager") }
     )
+    @EvictDependents(entity = EntityKey.PRODUCT, ids = "#request.categoryId != null ? #productId : null", caches = "productsByCategory")
+    @EvictDependents(entity = EntityKey.CATEGORY, ids = "#request.categoryId", caches = "productsByCategory")
     public ProductResponse updateProduct(Integer productId, UpdateProductRequest request) {
         Product existingProduct = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "id", productId));
@@ -177,6 +256,7 @@ public class ProductServiceImpl implements ProductService {
         validateProductData(existingProduct);
 
         Product updatedProduct = productRepository.save(existingProduct);
+        productSearchService.indexAfterCommit(productId);
 
         return productMapper.toProductResponse(updatedProduct);
     }
@@ -184,10 +264,7 @@ public class ProductServiceImpl implements ProductService {
     @Override
     @Transactional
     @Auditable(action = "UPDATE_PRICE", description = "Updating product price")
-    @Caching(
-        put = { @CachePut(value = "product", key = "#productId", cacheManager = "cacheManager") },
-        evict = { @CacheEvict(value = {"products", "activeProducts", "productsByCategory"}, allEntries = true, cacheManager = "cacheManager") }
-    )
+    @CachePut(value = "product", key = "#productId", cacheResolver = "writeThroughCacheResolver")
     public ProductResponse updateProductPrice(Integer productId, double newPrice) {
         if (newPrice < 0) {
             throw new ValidationException("price", "must not be negative");
@@ -199,6 +276,7 @@ public class ProductServiceImpl implements ProductService {
         product.setUpdatedAt(LocalDateTime.now());
 
         Product updatedProduct = productRepository.save(product);
+        productSearchService.indexAfterCommit(productId);
 
         return productMapper.toProductResponse(updatedProduct);
     }
@@ -206,45 +284,44 @@ public class ProductServiceImpl implements ProductService {
     @Override
     @Transactional
     @Caching(
-        put = { @CachePut(value = "product", key = "#productId", cacheManager = "cacheManager") },
-        evict = { @CacheEvict(value = {"products", "activeProducts", "productsByCategory"}, allEntries = true, cacheManager = "cacheManager") }
+        put = { @CachePut(value = "product", key = "#productId", cacheResolver = "writeThroughCacheResolver") },
+        evict = { @CacheEvict(value = "activeProducts", key = CATALOG_KEY, cacheManager = "cacheManager") }
     )
     public ProductResponse activateProduct(Integer productId) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "id", productId));
         product.setActive(true);
         product.setUpdatedAt(LocalDateTime.now());
+        productSearchService.indexAfterCommit(productId);
 
         return productMapper.toProductResponse(productRepository.save(product));
     }
 
     @Override
     @Transactional
-    @Caching(
-        put = { @CachePut(value = "product", key = "#productId", cacheManager = "cacheManager") },
-        evict = { @CacheEvict(value = {"products", "activeProducts", "productsByCategory"}, allEntries = true, cacheManager = "cacheManager") }
-    )
+    @CachePut(value = "product", key = "#productId", cacheResolver = "writeThroughCacheResolver")
+    @EvictDependents(entity = EntityKey.PRODUCT, ids = "#productId", caches = "activeProducts")
     public ProductResponse deactivateProduct(Integer productId) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "id", productId));
         product.setActive(false);
         product.setUpdatedAt(LocalDateTime.now());
+        productSearchService.indexAfterCommit(productId);
 
         return productMapper.toProductResponse(productRepository.save(product));
     }
 
     @Override
     @Transactional
-    @Caching(evict = {
-        @CacheEvict(value = "product", key = "#productId", cacheManager = "cacheManager"),
-        @CacheEvict(value = {"products", "activeProducts", "productsByCategory"}, allEntries = true, cacheManager = "cacheManager")
-    })
+    @CacheEvict(value = "product", key = "#productId", cacheManager = "cacheManager")
+    @EvictDependents(entity = EntityKey.PRODUCT, ids = "#productId", caches = {"products", "activeProducts", "productsByCategory"})
     public void deleteProduct(Integer productId) {
         if (!productRepository.existsById(productId)) {
             throw new ResourceNotFoundException("Product", "id", productId);
         }
 
         productRepository.deleteById(productId);
+        productSearchService.removeAfterCommit(productId);
     }
 
     @Override
@@ -276,6 +353,9 @@ public class ProductServiceImpl implements ProductService {
         if (keyword == null || keyword.trim().isEmpty()) {
             throw new ValidationException("Search keyword cannot be empty");
         }
+        if (productSearchService.isAvailable()) {
+            return searchPage(ProductSearchQuery.of(keyword, (int) pageable.getOffset(), pageable.getPageSize()), pageable);
+        }
 
         Page<Product> productPage = productRepository.findByProductCategory(keyword, keyword, pageable);
 
@@ -298,6 +378,14 @@ public class ProductServiceImpl implements ProductService {
             throw new ValidationException("minPrice", "must be less than or equal to maxPrice");
         }
 
+        boolean hasSearchTerm = filter.getSearchTerm() != null && !filter.getSearchTerm().isBlank();
+        if (hasSearchTerm && productSearchService.isAvailable()) {
+            return searchPage(searchQuery(filter, pageable, sortBy, sortDirection), pageable);
+        }
+        if (pageable.getSort().isUnsorted()) {
+            pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("id"));
+        }
+
         Page<Product> productPage = productRepository.findWithFilters(
                 filter.getSearchTerm(),
                 filter.getCategoryId(),
@@ -314,6 +402,60 @@ public class ProductServiceImpl implements ProductService {
         return new PageImpl<>(responseList, pageable, productPage.getTotalElements());
     }
 
+    /**
+     * Reads the ids of the page with a keyset query and resolves the products through
+     * the per-id "product" cache, so a warm page costs one index range scan.
+     */
+    @Override
+    public CursorPage<ProductResponse> getProductsByCursor(ProductFilter filter, String cursor, int size,
+            String sortBy, String sortDirection, TotalCount totalCount) {
+        if (!KEYSET_SORT_FIELDS.contains(sortBy)) {
+            throw new ValidationException("sortBy", "must be one of " + KEYSET_SORT_FIELDS);
+        }
+        if (size < 1 || size > 100) {
+            throw new ValidationException("size", "must be between 1 and 100");
+        }
+        if (filter != null && filter.getMinPrice() != null && filter.getMaxPrice() != null &&
+                filter.getMinPrice() > filter.getMaxPrice()) {
+            throw new ValidationException("minPrice", "must be less than or equal to maxPrice");
+        }
+
+        KeysetSlice slice = keysetRepository.findSlice(Product.class, ProductSpecification.withFilters(filter),
+                sortBy, KeysetCursor.direction(sortDirection), cursor, size,
+                totalCount != null ? totalCount : TotalCount.NONE);
+
+        return new CursorPage<>(resolveProducts(slice.ids(), false), size, slice.nextCursor(),
+                slice.nextCursor() != null, slice.totalElements(), slice.totalEstimated());
+    }
+
+    /**
+     * Runs a search for one page and resolves the products through the per-id "product" cache.
+     */
+    private Page<ProductResponse> searchPage(ProductSearchQuery query, Pageable pageable) {
+        ProductSearchResult result = productSearchService.search(query);
+        return new PageImpl<>(resolveProducts(result.productIds(), false), pageable, result.totalHits());
+    }
+
+    /**
+     * Maps a filtered listing with a search term onto an index query. Relevance ranking
+     * is used unless another supported sort field is asked for.
+     */
+    private static ProductSearchQuery searchQuery(ProductFilter filter, Pageable pageable, String sortBy,
+            String sortDirection) {
+        ProductSearchQuery.Sort sort = switch (sortBy == null ? RELEVANCE : sortBy) {
+            case "id" -> ProductSearchQuery.Sort.ID;
+            case "productName" -> ProductSearchQuery.Sort.NAME;
+            case "price" -> ProductSearchQuery.Sort.PRICE;
+            case "createdAt" -> ProductSearchQuery.Sort.CREATED_AT;
+            case RELEVANCE -> ProductSearchQuery.Sort.RELEVANCE;
+            default -> throw new ValidationException("sortBy", "must be relevance or one of " + KEYSET_SORT_FIELDS);
+        };
+        return new ProductSearchQuery(filter.getSearchTerm(), filter.getCategoryId(), filter.getMinPrice(),
+                filter.getMaxPrice(), filter.getBrand(), filter.getActive(), sort,
+                KeysetCursor.direction(sortDirection) == Sort.Direction.ASC,
+                (int) pageable.getOffset(), pageable.getPageSize());
+    }
+
     @Override
     public Product searchById(Integer id) {
         return productRepository.findById(id).orElse(null);
@@ -326,6 +468,107 @@ public class ProductServiceImpl implements ProductService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * NORMALIZED LIST CACHING
+     * <p>
+     * List caches (products, activeProducts, productsByCategory) only hold the ordered
+     * product ids. The responses themselves come from the per-id "product" cache, so a
+     * stock or price change evicts one product entry and every list stays warm.
+     * A list is evicted only when its membership changes: a product is created,
+     * (de)activated, moved to another category or deleted.
+     * Concurrent misses on the same key share one load.
+     */
+    private List<ProductResponse> cachedProductList(String cacheName, Object key, Supplier<EntityIdList> loader) {
+        Cache listCache = Objects.requireNonNull(cacheManager.getCache(cacheName), cacheName);
+        EntityIdList ids = listCache.get(key, loader::get);
+        return resolveProducts(ids.ids(), false);
+    }
+
+    /**
+     * Puts the products in the "product" cache and returns their ids in order.
+     */
+    private EntityIdList productIdList(List<Product> products) {
+        return productIdList(products, List.of());
+    }
+
+    private EntityIdList productIdList(List<Product> products, List<EntityKey> scope) {
+        Cache productCache = productCache();
+        products.forEach(product -> productCache.putIfAbsent(product.getId(), productMapper.toProductResponse(product)));
+        return new EntityIdList(EntityKey.PRODUCT, products.stream().map(Product::getId).toList(), scope);
+    }
+
+    /**
+     * Builds a productsByCategory entry, scoped to its categories so that a product
+     * created in or moved into one of them evicts it.
+     */
+    private EntityIdList categoryIdList(Object key) {
+        List<EntityKey> scope = (key instanceof List<?> categoryIds ? categoryIds : List.of(key)).stream()
+                .map(categoryId -> EntityKey.of(EntityKey.CATEGORY, categoryId))
+                .toList();
+        return productIdList(findByCategoryKey(key), scope);
+    }
+
+    private List<Product> findActiveProducts() {
+        return productRepository.findAllWithInventory().stream()
+                .filter(Product::isActive)
+                .toList();
+    }
+
+    /**
+     * Loads a productsByCategory entry: the key is one category id or a list of them.
+     */
+    private List<Product> findByCategoryKey(Object key) {
+        if (key instanceof Integer categoryId) {
+            return productRepository.findByCategoryId(categoryId);
+        }
+        List<Integer> categoryIds = ((List<?>) key).stream()
+                .map(Integer.class::cast)
+                .toList();
+        return productRepository.findByCategoryIdIn(categoryIds);
+    }
+
+    /**
+     * Looks every id up in the "product" cache and loads all misses with one query.
+     * Ids that no longer exist are skipped, or rejected when {@code required} is set.
+     */
+    private List<ProductResponse> resolveProducts(List<Integer> productIds, boolean required) {
+        Cache productCache = productCache();
+        List<ProductResponse> resolved = new ArrayList<>(productIds.size());
+        List<Integer> missing = new ArrayList<>();
+        for (Integer productId : productIds) {
+            ProductResponse cached = productCache.get(productId, ProductResponse.class);
+            resolved.add(cached);
+            if (cached == null) {
+                missing.add(productId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Map<Integer, ProductResponse> loaded = productRepository.findByIdIn(missing).stream()
+                    .map(productMapper::toProductResponse)
+                    .collect(Collectors.toMap(ProductResponse::getId, Function.identity()));
+            loaded.forEach(productCache::put);
+
+            for (int i = 0; i < resolved.size(); i++) {
+                if (resolved.get(i) == null) {
+                    Integer productId = productIds.get(i);
+                    ProductResponse product = loaded.get(productId);
+                    if (product == null && required) {
+                        throw new ResourceNotFoundException("Product", "id", productId);
+                    }
+                    resolved.set(i, product);
+                }
+            }
+        }
+
+        resolved.removeIf(Objects::isNull);
+        return resolved;
+    }
+
+    private Cache productCache() {
+        return Objects.requireNonNull(cacheManager.getCache("product"), "product");
+    }
+
     private void validateProductData(Product product) {
         if (product == null) {
             throw new ValidationException("Product data cannot be null");
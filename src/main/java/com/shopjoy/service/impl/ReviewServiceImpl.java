@@ -96,7 +96,7 @@ public class ReviewServiceImpl implements ReviewService {
     @Override
     @Transactional()
     @Caching(
-        put = { @CachePut(value = "review", key = "#reviewId", cacheManager = "mediumCacheManager") },
+        put = { @CachePut(value = "review", key = "#reviewId", cacheResolver = "writeThroughCacheResolver") },
         evict = {
             @CacheEvict(value = "reviews", allEntries = true, cacheManager = "mediumCacheManager"),
             @CacheEvict(value = "reviewsByProduct", allEntries = true, cacheManager = "mediumCacheManager"),
@@ -165,7 +165,7 @@ public class ReviewServiceImpl implements ReviewService {
 
     @Override
     @Transactional()
-    @CachePut(value = "review", key = "#reviewId", cacheManager = "mediumCacheManager")
+    @CachePut(value = "review", key = "#reviewId", cacheResolver = "writeThroughCacheResolver")
     public ReviewResponse markReviewAsHelpful(Integer reviewId) {
         Review review = reviewRepository.findById(reviewId)
                 .orElseThrow(() -> new ResourceNotFoundException("Review", "id", reviewId));
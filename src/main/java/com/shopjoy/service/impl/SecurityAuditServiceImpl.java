@@ -1,14 +1,18 @@
 package com.shopjoy.service.impl;
 
+import com.shopjoy.config.AuditProperties;
+import com.shopjoy.dto.response.AuditEventCountResponse;
+import com.shopjoy.entity.AuditRollupDimension;
+import com.shopjoy.entity.AuditRollupGranularity;
 import com.shopjoy.entity.SecurityAuditLog;
 import com.shopjoy.entity.SecurityEventType;
+import com.shopjoy.exception.ValidationException;
 import com.shopjoy.repository.SecurityAuditLogRepository;
 import com.shopjoy.service.SecurityAuditService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,6 +21,10 @@ import java.util.List;
 
 /**
  * Implementation of SecurityAuditService for managing security audit logs.
+ * Events are handed to the {@link AuditLogWriter}, which writes them in batches.
+ * Listing queries are always bounded by time, by default to the configured query window,
+ * so a partitioned table only scans the partitions of that range. Counts and time series
+ * are answered from the {@link AuditRollupStore}.
  */
 @Slf4j
 @Service
@@ -24,65 +32,48 @@ import java.util.List;
 public class SecurityAuditServiceImpl implements SecurityAuditService {
 
     private final SecurityAuditLogRepository auditLogRepository;
+    private final AuditLogWriter auditLogWriter;
+    private final AuditProperties auditProperties;
+    private final AuditRollupStore auditRollupStore;
 
-    @Async
-    @Transactional
     @Override
     public void logEvent(String username, SecurityEventType eventType, String ipAddress, String userAgent, String details, Boolean success) {
-        try {
-            SecurityAuditLog auditLog = SecurityAuditLog.builder()
-                    .username(username)
-                    .eventType(eventType)
-                    .ipAddress(ipAddress)
-                    .userAgent(userAgent)
-                    .details(details)
-                    .success(success)
-                    .build();
-
-            auditLogRepository.save(auditLog);
-            log.debug("Logged security event: {} for user: {}", eventType, username);
-        } catch (Exception e) {
-            log.error("Failed to log security event: {} for user: {}", eventType, username, e);
+        SecurityAuditLog auditLog = SecurityAuditLog.builder()
+                .username(username)
+                .eventType(eventType)
+                .ipAddress(ipAddress)
+                .userAgent(userAgent)
+                .details(details)
+                .success(success)
+                .timestamp(LocalDateTime.now())
+                .build();
+
+        if (auditLogWriter.submit(auditLog)) {
+            log.debug("Queued security event: {} for user: {}", eventType, username);
         }
     }
 
-    @Async
-    @Transactional
     @Override
     public void logEvent(String username, SecurityEventType eventType, String details, Boolean success) {
-        try {
-            SecurityAuditLog auditLog = SecurityAuditLog.builder()
-                    .username(username)
-                    .eventType(eventType)
-                    .details(details)
-                    .success(success)
-                    .build();
-
-            auditLogRepository.save(auditLog);
-            log.debug("Logged security event: {} for user: {}", eventType, username);
-        } catch (Exception e) {
-            log.error("Failed to log security event: {} for user: {}", eventType, username, e);
-        }
+        logEvent(username, eventType, null, null, details, success);
     }
 
-
-
     @Transactional(readOnly = true)
     @Override
     public Page<SecurityAuditLog> getAllLogs(Pageable pageable) {
-        return auditLogRepository.findAll(pageable);
+        return searchLogs(null, null, null, null, pageable);
     }
 
     @Transactional(readOnly = true)
     @Override
     public Page<SecurityAuditLog> getLogsByUsername(String username, Pageable pageable) {
-        return auditLogRepository.findByUsername(username, pageable);
+        return searchLogs(username, null, null, null, pageable);
     }
 
     @Transactional(readOnly = true)
     @Override
     public Page<SecurityAuditLog> getLogsByEventType(SecurityEventType eventType, Pageable pageable) {
-        return auditLogRepository.findByEventType(eventType, pageable);
+        return searchLogs(null, eventType, null, null, pageable);
     }
 
     @Transactional(readOnly = true)
@@ -94,19 +85,74 @@ public class SecurityAuditServiceImpl implements SecurityAuditService {
     @Transactional(readOnly = true)
     @Override
     public Page<SecurityAuditLog> getLogsByUsernameAndEventType(String username, SecurityEventType eventType, Pageable pageable) {
-        return auditLogRepository.findByUsernameAndEventType(username, eventType, pageable);
+        return searchLogs(username, eventType, null, null, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public Page<SecurityAuditLog> searchLogs(String username, SecurityEventType eventType, LocalDateTime startTime,
+                                             LocalDateTime endTime, Pageable pageable) {
+        LocalDateTime end = endTime != null ? endTime : LocalDateTime.now();
+        LocalDateTime start = startTime != null
+                ? startTime
+                : end.minus(auditProperties.getPartitions().getDefaultQueryWindow());
+
+        if (username != null && eventType != null) {
+            return auditLogRepository.findByUsernameAndEventTypeAndTimestampBetween(username, eventType, start, end, pageable);
+        }
+        if (username != null) {
+            return auditLogRepository.findByUsernameAndTimestampBetween(username, start, end, pageable);
+        }
+        if (eventType != null) {
+            return auditLogRepository.findByEventTypeAndTimestampBetween(eventType, start, end, pageable);
+        }
+        return auditLogRepository.findByTimestampBetween(start, end, pageable);
     }
 
     @Transactional(readOnly = true)
     @Override
     public List<SecurityAuditLog> getRecentFailedLogins(String username, int minutes) {
         LocalDateTime since = LocalDateTime.now().minusMinutes(minutes);
+        if (!auditRollupStore.mayHaveEventsSince(SecurityEventType.LOGIN_FAILURE, AuditRollupDimension.USERNAME,
+                username, since)) {
+            return List.of();
+        }
         return auditLogRepository.findRecentFailedAttempts(username, SecurityEventType.LOGIN_FAILURE, since);
     }
 
-    @Transactional(readOnly = true)
     @Override
     public Long countEventsByType(SecurityEventType eventType, LocalDateTime startTime, LocalDateTime endTime) {
-        return auditLogRepository.countByEventTypeAndTimestampBetween(eventType, startTime, endTime);
+        return countEvents(eventType, null, null, startTime, endTime);
+    }
+
+    @Override
+    public long countEvents(SecurityEventType eventType, String username, String ipAddress,
+                            LocalDateTime startTime, LocalDateTime endTime) {
+        AuditRollupDimension dimension = dimension(username, ipAddress);
+        return auditRollupStore.count(eventType, dimension, username != null ? username : ipAddress, startTime, endTime);
+    }
+
+    @Override
+    public List<AuditEventCountResponse> getEventTimeSeries(SecurityEventType eventType, String username, String ipAddress,
+                                                            AuditRollupGranularity granularity,
+                                                            LocalDateTime startTime, LocalDateTime endTime) {
+        AuditRollupDimension dimension = dimension(username, ipAddress);
+        return auditRollupStore.timeSeries(eventType, dimension, username != null ? username : ipAddress,
+                        granularity, startTime, endTime).stream()
+                .map(point -> AuditEventCountResponse.builder()
+                        .bucketStart(point.bucketStart())
+                        .count(point.count())
+                        .build())
+                .toList();
+    }
+
+    private static AuditRollupDimension dimension(String username, String ipAddress) {
+        if (username != null && ipAddress != null) {
+            throw new ValidationException("Filter by either username or IP address, not both");
+        }
+        if (username != null) {
+            return AuditRollupDimension.USERNAME;
+        }
+        return ipAddress != null ? AuditRollupDimension.IP_ADDRESS : AuditRollupDimension.ALL;
     }
 }
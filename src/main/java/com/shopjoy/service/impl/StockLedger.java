@@ -0,0 +1,264 @@
+package com.shopjoy.service.impl;
+
+import com.shopjoy.config.InventoryProperties;
+import com.shopjoy.exception.InsufficientStockException;
+import com.shopjoy.exception.ResourceNotFoundException;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory stock ledger used when app.inventory.reservation-mode=LEDGER.
+ * <p>
+ * Each product has an atomic available counter that is reserved with a CAS loop,
+ * so hot SKUs never wait on a row lock. Every change is also added to a striped
+ * pending delta which is written through to the inventory table in batched
+ * relative UPDATEs. The ledger is reconciled against the database on startup
+ * and lazily for products it has not seen yet.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StockLedger {
+
+    private static final String LOAD_ALL_SQL =
+            "SELECT product_id, quantity_in_stock - reserved_quantity AS available FROM inventory";
+    private static final String LOAD_ONE_SQL =
+            "SELECT quantity_in_stock - reserved_quantity FROM inventory WHERE product_id = ?";
+    private static final String FLUSH_SQL =
+            "UPDATE inventory SET quantity_in_stock = quantity_in_stock + ?, updated_at = ? WHERE product_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InventoryProperties inventoryProperties;
+
+    private final Map<Integer, Slot> slots = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private static final class Slot {
+        private final AtomicInteger available;
+        private final LongAdder pendingDelta = new LongAdder();
+
+        private Slot(int available) {
+            this.available = new AtomicInteger(available);
+        }
+    }
+
+    public boolean isEnabled() {
+        return inventoryProperties.getReservationMode() == InventoryProperties.ReservationMode.LEDGER;
+    }
+
+    /**
+     * Loads every inventory row into the ledger. Runs once the application is ready.
+     * Holds the flush lock throughout, so no delta is written between reading a row
+     * and adding the pending deltas to it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        flushLock.lock();
+        try {
+            flushPending();
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(LOAD_ALL_SQL);
+            for (Map<String, Object> row : rows) {
+                int productId = ((Number) row.get("product_id")).intValue();
+                int quantity = ((Number) row.get("available")).intValue();
+                slots.compute(productId, (_, slot) -> {
+                    if (slot == null) {
+                        return new Slot(quantity);
+                    }
+                    slot.available.set(quantity + (int) slot.pendingDelta.sum());
+                    return slot;
+                });
+            }
+            log.info("Stock ledger reconciled with {} inventory rows", rows.size());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Atomically reserves stock for a product.
+     * If called inside a transaction, the reservation is compensated on rollback.
+     *
+     * @param productId the product ID
+     * @param quantity the quantity to reserve
+     * @return the quantity still available after the reservation
+     * @throws InsufficientStockException if not enough stock is available
+     */
+    public int reserve(int productId, int quantity) {
+        Slot slot = slotFor(productId);
+        int current;
+        do {
+            current = slot.available.get();
+            if (current < quantity) {
+                throw new InsufficientStockException(productId, quantity, current);
+            }
+        } while (!slot.available.compareAndSet(current, current - quantity));
+
+        slot.pendingDelta.add(-quantity);
+        compensateOnRollback(productId, quantity);
+        return current - quantity;
+    }
+
+    /**
+     * Returns stock to a product.
+     * If called inside a transaction, the release is compensated on rollback.
+     *
+     * @param productId the product ID
+     * @param quantity the quantity to release
+     */
+    public void release(int productId, int quantity) {
+        adjust(productId, quantity);
+        compensateOnRollback(productId, -quantity);
+    }
+
+    /**
+     * Re-aligns a product with its inventory row after an admin stock write commits.
+     * The row is read under the flush lock, so deltas flushed since the write are
+     * counted once, and the deltas that are still pending are added on top.
+     *
+     * @param productId the product ID
+     */
+    public void resync(int productId) {
+        Runnable apply = () -> {
+            flushLock.lock();
+            try {
+                Slot slot = slots.get(productId);
+                if (slot != null) {
+                    Integer quantity = jdbcTemplate.queryForObject(LOAD_ONE_SQL, Integer.class, productId);
+                    slot.available.set((quantity != null ? quantity : 0) + (int) slot.pendingDelta.sum());
+                }
+            } finally {
+                flushLock.unlock();
+            }
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    /**
+     * Returns the quantity currently available for a product, loading it if needed.
+     *
+     * @param productId the product ID
+     * @return the available quantity
+     */
+    public int getAvailable(int productId) {
+        return slotFor(productId).available.get();
+    }
+
+    /**
+     * Writes all pending deltas through to the inventory table in JDBC batches.
+     * Deltas of a failed batch are put back and retried on the next flush.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.ledger.flush-interval-ms:500}")
+    public void flush() {
+        if (!isEnabled() || !flushLock.tryLock()) {
+            return;
+        }
+
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Writes the pending deltas. Callers hold the flush lock.
+     */
+    private void flushPending() {
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Integer, Slot> entry : slots.entrySet()) {
+            long delta = entry.getValue().pendingDelta.sumThenReset();
+            if (delta != 0) {
+                batch.add(new Object[]{delta, Timestamp.valueOf(LocalDateTime.now()), entry.getKey()});
+            }
+        }
+
+        int batchSize = Math.max(1, inventoryProperties.getLedger().getFlushBatchSize());
+        for (int from = 0; from < batch.size(); from += batchSize) {
+            List<Object[]> chunk = batch.subList(from, Math.min(from + batchSize, batch.size()));
+            try {
+                jdbcTemplate.batchUpdate(FLUSH_SQL, chunk);
+            } catch (DataAccessException e) {
+                log.error("Stock ledger flush of {} deltas failed, will retry: {}", chunk.size(), e.getMessage());
+                chunk.forEach(args -> slots.get((Integer) args[2]).pendingDelta.add((Long) args[0]));
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            log.debug("Stock ledger flushed {} product deltas", batch.size());
+        }
+    }
+
+    private void adjust(int productId, int delta) {
+        Slot slot = slotFor(productId);
+        slot.available.addAndGet(delta);
+        slot.pendingDelta.add(delta);
+    }
+
+    private void compensateOnRollback(int productId, int reservedQuantity) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    adjust(productId, reservedQuantity);
+                }
+            }
+        });
+    }
+
+    private Slot slotFor(int productId) {
+        Slot slot = slots.get(productId);
+        if (slot != null) {
+            return slot;
+        }
+        return slots.computeIfAbsent(productId, id -> {
+            try {
+                Integer quantity = jdbcTemplate.queryForObject(LOAD_ONE_SQL, Integer.class, id);
+                return new Slot(quantity != null ? quantity : 0);
+            } catch (EmptyResultDataAccessException e) {
+                throw new ResourceNotFoundException("Inventory", "productId", id);
+            }
+        });
+    }
+}
@@ -0,0 +1,189 @@
+package com.shopjoy.service.impl;
+
+import com.shopjoy.config.InventoryProperties;
+import com.shopjoy.entity.Inventory;
+import com.shopjoy.entity.ReservationStatus;
+import com.shopjoy.entity.StockReservation;
+import com.shopjoy.repository.StockReservationRepository;
+import com.shopjoy.service.InventoryService;
+import com.shopjoy.service.StockReservationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of StockReservationService backed by the stock_reservations table
+ * and the reserved_quantity counter on inventory.
+ */
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class StockReservationServiceImpl implements StockReservationService {
+
+    private final StockReservationRepository stockReservationRepository;
+    private final InventoryService inventoryService;
+    private final InventoryProperties inventoryProperties;
+    private final StockLedger stockLedger;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Holds are off when disabled and in LEDGER mode, where the in-memory ledger
+     * owns available stock and orders keep committing at creation.
+     */
+    private boolean holdsActive() {
+        return inventoryProperties.getHolds().isEnabled() && !stockLedger.isEnabled();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
+    public Map<Integer, Inventory> reserveForOrder(Integer orderId, Map<Integer, Integer> quantitiesByProductId) {
+        if (!holdsActive()) {
+            return inventoryService.reserveAll(quantitiesByProductId);
+        }
+
+        Map<Integer, Inventory> inventoryByProductId = inventoryService.holdAll(quantitiesByProductId);
+
+        LocalDateTime expiresAt = LocalDateTime.now().plus(inventoryProperties.getHolds().getTtl());
+        List<StockReservation> reservations = quantitiesByProductId.entrySet().stream()
+                .map(entry -> StockReservation.builder()
+                        .orderId(orderId)
+                        .product(inventoryByProductId.get(entry.getKey()).getProduct())
+                        .quantity(entry.getValue())
+                        .status(ReservationStatus.HELD)
+                        .expiresAt(expiresAt)
+                        .build())
+                .toList();
+        stockReservationRepository.saveAll(reservations);
+
+        return inventoryByProductId;
+    }
+
+    /**
+     * HOLD COMMIT LOGIC
+     * <p>
+     * The reservations of the order are locked first, so the sweeper (which skips
+     * locked rows) cannot expire a hold while it is being committed. Live holds are
+     * committed with one batch that moves them out of both reserved and on-hand stock.
+     * Holds the sweeper already expired no longer count as reserved, so they go through
+     * the normal guarded decrement and fail the payment if the stock has been sold since.
+     */
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
+    public void commitForOrder(Integer orderId) {
+        List<StockReservation> reservations = stockReservationRepository.findByOrderIdForUpdate(orderId);
+        if (reservations.isEmpty()) {
+            return;
+        }
+
+        List<StockReservation> held = withStatus(reservations, ReservationStatus.HELD);
+        List<StockReservation> expired = withStatus(reservations, ReservationStatus.EXPIRED);
+
+        if (!held.isEmpty()) {
+            inventoryService.commitHolds(sumByProduct(held));
+        }
+        if (!expired.isEmpty()) {
+            inventoryService.reserveAll(sumByProduct(expired));
+        }
+
+        markAs(held, ReservationStatus.COMMITTED);
+        markAs(expired, ReservationStatus.COMMITTED);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
+    public void releaseForOrder(Integer orderId, Map<Integer, Integer> quantitiesByProductId) {
+        List<StockReservation> reservations = stockReservationRepository.findByOrderIdForUpdate(orderId);
+        if (reservations.isEmpty()) {
+            inventoryService.releaseAll(quantitiesByProductId);
+            return;
+        }
+
+        List<StockReservation> held = withStatus(reservations, ReservationStatus.HELD);
+        List<StockReservation> committed = withStatus(reservations, ReservationStatus.COMMITTED);
+
+        if (!held.isEmpty()) {
+            inventoryService.releaseHolds(sumByProduct(held));
+        }
+        if (!committed.isEmpty()) {
+            inventoryService.releaseAll(sumByProduct(committed));
+        }
+
+        markAs(held, ReservationStatus.RELEASED);
+        markAs(committed, ReservationStatus.RELEASED);
+    }
+
+    /**
+     * HOLD SWEEPER
+     * <p>
+     * Expires holds in batches of app.inventory.holds.sweep-batch-size, one transaction
+     * per batch. Each batch costs three statements regardless of its size: a locking
+     * SELECT ... SKIP LOCKED of the oldest expired holds, one JDBC batch returning the
+     * held quantity per product, and one bulk status UPDATE.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${app.inventory.holds.sweep-interval-ms:60000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int expireHolds() {
+        if (!inventoryProperties.getHolds().isEnabled()) {
+            return 0;
+        }
+
+        int batchSize = Math.max(1, inventoryProperties.getHolds().getSweepBatchSize());
+        LocalDateTime now = LocalDateTime.now();
+        int total = 0;
+        int expired;
+        do {
+            Integer count = transactionTemplate.execute(_ -> expireBatch(now, batchSize));
+            expired = count != null ? count : 0;
+            total += expired;
+        } while (expired == batchSize);
+
+        if (total > 0) {
+            log.info("Expired {} stock hold(s)", total);
+        }
+        return total;
+    }
+
+    private int expireBatch(LocalDateTime now, int batchSize) {
+        List<StockReservation> expired = stockReservationRepository.findExpiredForUpdate(
+                ReservationStatus.HELD, now, PageRequest.of(0, batchSize));
+        if (expired.isEmpty()) {
+            return 0;
+        }
+
+        inventoryService.releaseHolds(sumByProduct(expired));
+        markAs(expired, ReservationStatus.EXPIRED);
+        return expired.size();
+    }
+
+    private void markAs(List<StockReservation> reservations, ReservationStatus status) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+        stockReservationRepository.updateStatus(
+                reservations.stream().map(StockReservation::getId).toList(), status, LocalDateTime.now());
+    }
+
+    private static List<StockReservation> withStatus(List<StockReservation> reservations, ReservationStatus status) {
+        return reservations.stream()
+                .filter(reservation -> reservation.getStatus() == status)
+                .toList();
+    }
+
+    private static Map<Integer, Integer> sumByProduct(List<StockReservation> reservations) {
+        return reservations.stream()
+                .collect(Collectors.toMap(reservation -> reservation.getProduct().getId(),
+                        StockReservation::getQuantity, Integer::sum));
+    }
+}
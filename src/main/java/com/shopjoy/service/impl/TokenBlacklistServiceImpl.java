@@ -1,85 +1,258 @@
 package com.shopjoy.service.impl;
 
+import com.shopjoy.config.TokenBlacklistProperties;
 import com.shopjoy.service.TokenBlacklistService;
+import com.shopjoy.util.CountingBloomFilter;
 import com.shopjoy.util.JwtUtil;
-import lombok.RequiredArgsConstructor;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Token blacklist service with ConcurrentHashMap and scheduled cleanup.
+ * Token blacklist keyed by a 128-bit hash of the token's jti.
+ * <p>
+ * Revocations are kept in a map from hash to expiry, in minute buckets ordered by expiry,
+ * and in a counting Bloom filter. Most tokens are not revoked, and for them the check is
+ * one Bloom filter lookup that allocates nothing. Cleanup removes whole expired buckets,
+ * so its cost depends only on the number of expired entries.
+ * Revocations are stored in revoked_tokens. They are loaded on startup, and each node
+ * reads the revocations made by other nodes every few seconds.
+ * Tokens issued without a jti are keyed by a hash of the whole token.
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class TokenBlacklistServiceImpl implements TokenBlacklistService {
 
+    private static final long BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final HexFormat HEX = HexFormat.of();
+
+    private static final String INSERT_SQL =
+            "INSERT INTO revoked_tokens (token_hash, expires_at, revoked_at) VALUES (?, ?, ?)";
+    private static final String SYNC_SQL =
+            "SELECT token_hash, expires_at, revoked_at FROM revoked_tokens WHERE revoked_at >= ? AND expires_at > ?";
+    private static final String DELETE_EXPIRED_SQL = "DELETE FROM revoked_tokens WHERE expires_at <= ?";
+
     private final JwtUtil jwtUtil;
-    
-    private final Map<String, LocalDateTime> blacklistedTokens = new ConcurrentHashMap<>();
-    
-    private static final int MAX_BLACKLIST_SIZE = 10000;
+    private final JdbcTemplate jdbcTemplate;
+    private final TokenBlacklistProperties properties;
+    private final CountingBloomFilter bloomFilter;
+
+    private final Map<TokenHash, Long> revoked = new ConcurrentHashMap<>();
+    private final TreeMap<Long, List<TokenHash>> expiryBuckets = new TreeMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile LocalDateTime lastSync = LocalDateTime.MIN;
+
+    /**
+     * 128-bit hash of a jti, built from two independent 64-bit hashes.
+     */
+    record TokenHash(long hash1, long hash2) {
+
+        static TokenHash parse(String hex) {
+            return new TokenHash(HEX.fromHexDigitsToLong(hex, 0, 16), HEX.fromHexDigitsToLong(hex, 16, 32));
+        }
+
+        String toHex() {
+            return HEX.toHexDigits(hash1) + HEX.toHexDigits(hash2);
+        }
+    }
+
+    public TokenBlacklistServiceImpl(JwtUtil jwtUtil, JdbcTemplate jdbcTemplate, TokenBlacklistProperties properties) {
+        this.jwtUtil = jwtUtil;
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.bloomFilter = new CountingBloomFilter(properties.getExpectedEntries(), properties.getFalsePositiveRate());
+    }
 
     @Override
     public void blacklistToken(String token) {
+        Claims claims;
         try {
-            if (blacklistedTokens.size() >= MAX_BLACKLIST_SIZE) {
-                log.warn("Blacklist approaching maximum size ({}). Running cleanup...", MAX_BLACKLIST_SIZE);
-                removeExpiredTokens();
-            }
-            
-            Date expiration = jwtUtil.extractExpiration(token);
-            LocalDateTime expirationTime = expiration.toInstant()
-                    .atZone(ZoneId.systemDefault())
-                    .toLocalDateTime();
-            
-            blacklistedTokens.put(token, expirationTime);
-            
-            log.debug("Token blacklisted. Total blacklisted tokens: {}", blacklistedTokens.size());
-            
-        } catch (Exception e) {
-            log.error("Failed to blacklist token: {}", e.getMessage());
-            blacklistedTokens.put(token, LocalDateTime.now().plusDays(1));
+            claims = jwtUtil.verify(token);
+        } catch (JwtException e) {
+            log.debug("Not blacklisting a token that no longer authenticates: {}", e.getMessage());
+            return;
+        }
+
+        String key = revocationKey(claims, token);
+        TokenHash hash = new TokenHash(hash1(key), hash2(key));
+        long expiresAt = claims.getExpiration().getTime();
+        if (!remember(hash, expiresAt)) {
+            return;
         }
+
+        try {
+            jdbcTemplate.update(INSERT_SQL, hash.toHex(), new Timestamp(expiresAt), Timestamp.valueOf(LocalDateTime.now()));
+        } catch (DuplicateKeyException e) {
+            log.debug("Token already revoked by another node");
+        } catch (DataAccessException e) {
+            log.error("Failed to persist token revocation, it only applies to this node: {}", e.getMessage());
+        }
+        log.debug("Token blacklisted. Total blacklisted tokens: {}", revoked.size());
     }
 
     @Override
     public boolean isBlacklisted(String token) {
-        return blacklistedTokens.containsKey(token);
+        Claims claims;
+        try {
+            claims = jwtUtil.verify(token);
+        } catch (JwtException e) {
+            return false;
+        }
+        return isBlacklisted(token, claims);
+    }
+
+    @Override
+    public boolean isBlacklisted(String token, Claims claims) {
+        String key = revocationKey(claims, token);
+        long hash1 = hash1(key);
+        long hash2 = hash2(key);
+        if (!bloomFilter.mightContain(hash1, hash2)) {
+            return false;
+        }
+        Long expiresAt = revoked.get(new TokenHash(hash1, hash2));
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
     }
 
     /**
-     * Removes expired tokens. Runs hourly.
+     * Removes expired revocations from memory and from the database. Runs every minute.
      */
-    @Scheduled(fixedRate = 3600000)
+    @Scheduled(fixedDelayString = "${app.token-blacklist.cleanup-interval:60s}")
     @Override
     public void removeExpiredTokens() {
-        LocalDateTime now = LocalDateTime.now();
-        int initialSize = blacklistedTokens.size();
-        
-        blacklistedTokens.entrySet().removeIf(entry -> {
-            boolean isExpired = entry.getValue().isBefore(now);
-            if (isExpired) {
-                log.trace("Removing expired token from blacklist");
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        lock.lock();
+        try {
+            Map.Entry<Long, List<TokenHash>> bucket;
+            while ((bucket = expiryBuckets.firstEntry()) != null && bucket.getKey() * BUCKET_MILLIS + BUCKET_MILLIS <= now) {
+                expiryBuckets.pollFirstEntry();
+                for (TokenHash hash : bucket.getValue()) {
+                    if (revoked.remove(hash) != null) {
+                        bloomFilter.remove(hash.hash1(), hash.hash2());
+                        removed++;
+                    }
+                }
             }
-            return isExpired;
-        });
-        
-        int removedCount = initialSize - blacklistedTokens.size();
-        
-        if (removedCount > 0) {
-            log.info("Blacklist cleanup: Removed {} expired tokens. Current size: {}", 
-                    removedCount, blacklistedTokens.size());
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            jdbcTemplate.update(DELETE_EXPIRED_SQL, new Timestamp(now));
+        } catch (DataAccessException e) {
+            log.error("Failed to delete expired token revocations: {}", e.getMessage());
+        }
+
+        if (removed > 0) {
+            log.info("Blacklist cleanup: Removed {} expired tokens. Current size: {}", removed, revoked.size());
         } else {
-            log.debug("Blacklist cleanup: No expired tokens found. Current size: {}", 
-                    blacklistedTokens.size());
+            log.debug("Blacklist cleanup: No expired tokens found. Current size: {}", revoked.size());
         }
     }
+
+    /**
+     * Loads revocations made since the last sync, including those of other nodes.
+     * Runs once the application is ready and then every few seconds.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.token-blacklist.sync-interval:5s}")
+    public void sync() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = lastSync == LocalDateTime.MIN
+                ? LocalDateTime.of(1970, 1, 1, 0, 0)
+                : lastSync.minus(properties.getSyncOverlap());
+        try {
+            int[] loaded = new int[1];
+            jdbcTemplate.query(SYNC_SQL, rs -> {
+                if (remember(TokenHash.parse(rs.getString("token_hash")), rs.getTimestamp("expires_at").getTime())) {
+                    loaded[0]++;
+                }
+            }, Timestamp.valueOf(since), Timestamp.valueOf(now));
+            lastSync = now;
+            if (loaded[0] > 0) {
+                log.debug("Loaded {} token revocations from the database", loaded[0]);
+            }
+        } catch (DataAccessException e) {
+            log.error("Failed to load token revocations: {}", e.getMessage());
+        }
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    /**
+     * Adds a revocation to memory.
+     *
+     * @return false if it was already known
+     */
+    private boolean remember(TokenHash hash, long expiresAt) {
+        if (expiresAt <= System.currentTimeMillis()) {
+            return false;
+        }
+        lock.lock();
+        try {
+            if (revoked.putIfAbsent(hash, expiresAt) != null) {
+                return false;
+            }
+            expiryBuckets.computeIfAbsent(expiresAt / BUCKET_MILLIS, _ -> new ArrayList<>()).add(hash);
+            bloomFilter.add(hash.hash1(), hash.hash2());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String revocationKey(Claims claims, String token) {
+        String jti = claims.getId();
+        return jti != null ? jti : token;
+    }
+
+    /**
+     * FNV-1a over the characters, followed by a 64-bit finalizer.
+     */
+    static long hash1(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Multiply-rotate hash with a different seed and multiplier than {@link #hash1(String)}.
+     */
+    static long hash2(String value) {
+        long hash = 0x9E3779B97F4A7C15L ^ value.length();
+        for (int i = 0; i < value.length(); i++) {
+            hash = Long.rotateLeft(hash ^ (value.charAt(i) * 0xC2B2AE3D27D4EB4FL), 31) * 0x87C37B91114253D5L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
 }
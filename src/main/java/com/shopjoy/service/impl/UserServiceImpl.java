@@ -93,8 +93,8 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional()
     @Caching(
-        put = { @CachePut(value = "userProfile", key = "#userId", cacheManager = "cacheManager") },
-        evict = { @CacheEvict(value = {"userProfileEmail", "userProfileUsername", "usersByIds"}, allEntries = true, cacheManager = "cacheManager") }
+        put = { @CachePut(value = "userProfile", key = "#userId", cacheResolver = "writeThroughCacheResolver") },
+        evict = { @CacheEvict(value = {"userProfileEmail", "userProfileUsername", "usersByIds", "userStatus"}, allEntries = true, cacheManager = "cacheManager") }
     )
     public UserResponse updateUserProfile(Integer userId, UpdateUserRequest request) {
         if (!SecurityUtil.canAccessUser(userId)) {
@@ -122,7 +122,7 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional()
     @Caching(evict = {
-        @CacheEvict(value = {"userProfile", "userProfileEmail", "userProfileUsername", "usersByIds"}, allEntries = true, cacheManager = "cacheManager")
+        @CacheEvict(value = {"userProfile", "userProfileEmail", "userProfileUsername", "usersByIds", "userStatus"}, allEntries = true, cacheManager = "cacheManager")
     })
     public void deleteUser(Integer userId) {
         if (!userRepository.existsById(userId)) {
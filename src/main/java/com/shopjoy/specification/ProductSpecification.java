@@ -0,0 +1,65 @@
+package com.shopjoy.specification;
+
+import com.shopjoy.dto.filter.ProductFilter;
+import com.shopjoy.entity.Product;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductSpecification {
+
+    /**
+     * Builds the criteria of ProductRepository.findWithFilters as a specification.
+     * Returns null when the filter sets no criteria, so callers can tell an
+     * unfiltered listing apart.
+     */
+    public static Specification<Product> withFilters(ProductFilter filter) {
+        if (filter == null || !hasCriteria(filter)) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (StringUtils.hasText(filter.getSearchTerm())) {
+                String pattern = "%" + filter.getSearchTerm().toLowerCase() + "%";
+                predicates.add(cb.or(
+                        cb.like(cb.lower(root.get("productName")), pattern),
+                        cb.like(cb.lower(root.get("description")), pattern)));
+            }
+
+            if (filter.getCategoryId() != null) {
+                predicates.add(cb.equal(root.get("category").get("id"), filter.getCategoryId()));
+            }
+
+            if (filter.getMinPrice() != null) {
+                predicates.add(cb.ge(root.get("price"), filter.getMinPrice()));
+            }
+
+            if (filter.getMaxPrice() != null) {
+                predicates.add(cb.le(root.get("price"), filter.getMaxPrice()));
+            }
+
+            if (StringUtils.hasText(filter.getBrand())) {
+                predicates.add(cb.equal(root.get("brand"), filter.getBrand()));
+            }
+
+            if (filter.getActive() != null) {
+                predicates.add(cb.equal(root.get("active"), filter.getActive()));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private static boolean hasCriteria(ProductFilter filter) {
+        return StringUtils.hasText(filter.getSearchTerm())
+                || filter.getCategoryId() != null
+                || filter.getMinPrice() != null
+                || filter.getMaxPrice() != null
+                || StringUtils.hasText(filter.getBrand())
+                || filter.getActive() != null;
+    }
+}
@@ -0,0 +1,107 @@
+package com.shopjoy.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that adapts to measured latency.
+ * <p>
+ * Calls are admitted while fewer calls than the current limit are in flight. The
+ * latencies of completed calls are averaged over windows of a fixed number of samples.
+ * When the average of a window exceeds the target latency, the limit is cut by 10%.
+ * Otherwise it grows by one if it was reached during the window. Under overload, calls
+ * are shed at once instead of queueing for a database connection, and capacity comes
+ * back gradually as latency recovers. Admission and release are lock-free; only the
+ * thread that closes a window adjusts the limit.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    private static final double DECREASE_FACTOR = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final int sampleSize;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger samples = new AtomicInteger();
+    private final LongAdder latencySum = new LongAdder();
+    private final ReentrantLock adjustLock = new ReentrantLock();
+    private volatile int limit;
+    private volatile boolean saturated;
+
+    /**
+     * @param minLimit      the lowest the limit is cut to
+     * @param maxLimit      the initial and highest limit
+     * @param targetLatency the average latency above which the limit is cut
+     * @param sampleSize    the number of completed calls per adjustment
+     */
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, Duration targetLatency, int sampleSize) {
+        if (minLimit <= 0 || maxLimit < minLimit || sampleSize <= 0) {
+            throw new IllegalArgumentException("Limits must be positive with min <= max, and the sample size positive");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatency.toNanos();
+        this.sampleSize = sampleSize;
+        this.limit = maxLimit;
+    }
+
+    /**
+     * Admits a call if the limit allows it. Every admitted call must be followed by {@link #release(long)}.
+     *
+     * @return whether the call was admitted
+     */
+    public boolean tryAcquire() {
+        int current = inFlight.incrementAndGet();
+        int currentLimit = limit;
+        if (current > currentLimit) {
+            inFlight.decrementAndGet();
+            saturated = true;
+            return false;
+        }
+        if (current == currentLimit) {
+            saturated = true;
+        }
+        return true;
+    }
+
+    /**
+     * Ends an admitted call.
+     *
+     * @param latencyNanos how long the call took
+     */
+    public void release(long latencyNanos) {
+        inFlight.decrementAndGet();
+        latencySum.add(latencyNanos);
+        if (samples.incrementAndGet() >= sampleSize && adjustLock.tryLock()) {
+            try {
+                if (samples.get() >= sampleSize) {
+                    adjust();
+                }
+            } finally {
+                adjustLock.unlock();
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void adjust() {
+        int count = samples.getAndSet(0);
+        long average = latencySum.sumThenReset() / Math.max(1, count);
+        if (average > targetLatencyNanos) {
+            limit = Math.max(minLimit, (int) (limit * DECREASE_FACTOR));
+        } else if (saturated) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+        saturated = false;
+    }
+}
@@ -1,31 +1,78 @@
 package com.shopjoy.util;
 
 import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.shopjoy.cache.CacheDependencyRegistry;
+import com.shopjoy.cache.DependencyTrackingCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.jspecify.annotations.NonNull;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
-import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.stereotype.Component;
 
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Utility to extract native Caffeine cache statistics from Spring's CacheManagers.
+ * Also publishes them as Micrometer meters tagged with cache and cacheManager.
  */
 @Component
-public class CacheMetricsCollector {
+public class CacheMetricsCollector implements MeterBinder {
 
     private final Map<String, CacheManager> cacheManagers;
+    private final Map<String, CacheManager> cacheManagerTags;
+    private final CacheDependencyRegistry cacheDependencyRegistry;
 
     public CacheMetricsCollector(
-            CacheManager cacheManager, // Primary
-            CacheManager mediumCacheManager,
-            CacheManager shortCacheManager) {
+            @Qualifier("cacheManager") CacheManager cacheManager,
+            @Qualifier("mediumCacheManager") CacheManager mediumCacheManager,
+            @Qualifier("shortCacheManager") CacheManager shortCacheManager,
+            CacheDependencyRegistry cacheDependencyRegistry) {
+        this.cacheDependencyRegistry = cacheDependencyRegistry;
         this.cacheManagers = new LinkedHashMap<>();
         this.cacheManagers.put("Primary (30m)", cacheManager);
         this.cacheManagers.put("Medium (10m)", mediumCacheManager);
         this.cacheManagers.put("Short (2m)", shortCacheManager);
+        this.cacheManagerTags = new LinkedHashMap<>();
+        this.cacheManagerTags.put("primary", cacheManager);
+        this.cacheManagerTags.put("medium", mediumCacheManager);
+        this.cacheManagerTags.put("short", shortCacheManager);
+    }
+
+    /**
+     * Registers function counters and gauges for every cache. Values are read from the
+     * cache at scrape time, so caches rebuilt after binding are still reported and
+     * cache operations pay nothing extra.
+     */
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        cacheManagerTags.forEach((managerName, manager) -> {
+            for (String cacheName : manager.getCacheNames()) {
+                Tags tags = Tags.of("cache", cacheName, "cacheManager", managerName);
+                counter(registry, "cache.gets", tags.and("result", "hit"), "Cache hits",
+                        manager, cacheName, cache -> stat(cache, CacheStats::hitCount));
+                counter(registry, "cache.gets", tags.and("result", "miss"), "Cache misses",
+                        manager, cacheName, cache -> stat(cache, CacheStats::missCount));
+                counter(registry, "cache.evictions", tags, "Entries evicted by size or expiry",
+                        manager, cacheName, cache -> stat(cache, CacheStats::evictionCount));
+                counter(registry, "cache.invalidations", tags, "Entries evicted because an entity they reference changed",
+                        manager, cacheName, cache -> cache instanceof DependencyTrackingCache tracking ? tracking.getInvalidationCount() : 0);
+                counter(registry, "cache.clears", tags, "Full cache clears",
+                        manager, cacheName, cache -> cache instanceof DependencyTrackingCache tracking ? tracking.getClearCount() : 0);
+                gauge(registry, "cache.size", tags, "Estimated number of entries",
+                        manager, cacheName, this::sizeOf);
+                gauge(registry, "cache.weight", tags, "Estimated retained size of the entries in bytes",
+                        manager, cacheName, this::weightOf);
+            }
+        });
     }
 
     /**
@@ -43,9 +90,16 @@ public class CacheMetricsCollector {
                 Collection<String> cacheNames = caffeineManager.getCacheNames();
 
                 for (String cacheName : cacheNames) {
-                    CaffeineCache cache = (CaffeineCache) manager.getCache(cacheName);
-                    if (cache != null) {
-                        managerStats.put(cacheName, formatStats(cache.getNativeCache().stats()));
+                    Cache cache = manager.getCache(cacheName);
+                    CacheStats stats = statsOf(cache);
+                    if (stats != null) {
+                        Map<String, Object> cacheStats = formatStats(stats);
+                        putWeight(cache, cacheStats);
+                        if (cache instanceof DependencyTrackingCache trackingCache) {
+                            cacheStats.put("invalidations", trackingCache.getInvalidationCount());
+                            cacheStats.put("clears", trackingCache.getClearCount());
+                        }
+                        managerStats.put(cacheName, cacheStats);
                     }
                 }
                 allStats.put(managerName, managerStats);
@@ -63,18 +117,24 @@ public class CacheMetricsCollector {
         long totalMissCount = 0;
         long totalRequestCount = 0;
         long totalEvictionCount = 0;
+        long totalInvalidationCount = 0;
+        long totalClearCount = 0;
 
         for (CacheManager manager : cacheManagers.values()) {
             if (manager instanceof CaffeineCacheManager caffeineManager) {
                 for (String cacheName : caffeineManager.getCacheNames()) {
-                    CaffeineCache cache = (CaffeineCache) manager.getCache(cacheName);
-                    if (cache != null) {
-                        CacheStats stats = cache.getNativeCache().stats();
+                    Cache cache = manager.getCache(cacheName);
+                    CacheStats stats = statsOf(cache);
+                    if (stats != null) {
                         totalHitCount += stats.hitCount();
                         totalMissCount += stats.missCount();
                         totalRequestCount += stats.requestCount();
                         totalEvictionCount += stats.evictionCount();
                     }
+                    if (cache instanceof DependencyTrackingCache trackingCache) {
+                        totalInvalidationCount += trackingCache.getInvalidationCount();
+                        totalClearCount += trackingCache.getClearCount();
+                    }
                 }
             }
         }
@@ -87,10 +147,84 @@ public class CacheMetricsCollector {
         summary.put("totalMisses", totalMissCount);
         summary.put("totalRequests", totalRequestCount);
         summary.put("totalEvictions", totalEvictionCount);
+        summary.put("totalInvalidations", totalInvalidationCount);
+        summary.put("totalClears", totalClearCount);
 
         return summary;
     }
 
+    /**
+     * Gets per-cache counts of targeted invalidations (entries evicted because an entity
+     * they reference changed) and full clears.
+     */
+    public Map<String, Map<String, Long>> getInvalidationCounts() {
+        return cacheDependencyRegistry.getInvalidationCounts();
+    }
+
+    /**
+     * Adds the live estimated size and the size limit of a weight-bounded cache, in bytes.
+     */
+    private void putWeight(Cache cache, Map<String, Object> cacheStats) {
+        if (!(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache)) {
+            return;
+        }
+        nativeCache.policy().eviction().ifPresent(eviction -> {
+            cacheStats.put("entries", nativeCache.estimatedSize());
+            eviction.weightedSize().ifPresent(weight -> cacheStats.put("weightBytes", weight));
+            if (eviction.isWeighted()) {
+                cacheStats.put("maximumWeightBytes", eviction.getMaximum());
+            }
+        });
+    }
+
+    private CacheStats statsOf(Cache cache) {
+        com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache = nativeCacheOf(cache);
+        return nativeCache != null ? nativeCache.stats() : null;
+    }
+
+    private com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCacheOf(Cache cache) {
+        if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache) {
+            return nativeCache;
+        }
+        return null;
+    }
+
+    private double stat(Cache cache, ToDoubleFunction<CacheStats> stat) {
+        CacheStats stats = statsOf(cache);
+        return stats != null ? stat.applyAsDouble(stats) : 0;
+    }
+
+    private double sizeOf(Cache cache) {
+        com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache = nativeCacheOf(cache);
+        return nativeCache != null ? nativeCache.estimatedSize() : 0;
+    }
+
+    private double weightOf(Cache cache) {
+        com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache = nativeCacheOf(cache);
+        if (nativeCache == null) {
+            return 0;
+        }
+        return nativeCache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    private static void counter(MeterRegistry registry, String name, Tags tags, String description,
+                                CacheManager manager, String cacheName, ToDoubleFunction<Cache> value) {
+        FunctionCounter.builder(name, manager, m -> value.applyAsDouble(m.getCache(cacheName)))
+                .tags(tags)
+                .description(description)
+                .register(registry);
+    }
+
+    private static void gauge(MeterRegistry registry, String name, Tags tags, String description,
+                              CacheManager manager, String cacheName, ToDoubleFunction<Cache> value) {
+        Gauge.builder(name, manager, m -> value.applyAsDouble(m.getCache(cacheName)))
+                .tags(tags)
+                .description(description)
+                .register(registry);
+    }
+
     private Map<String, Object> formatStats(CacheStats stats) {
         Map<String, Object> map = new LinkedHashMap<>();
         map.put("hitRate", String.format("%.2f%%", stats.hitRate() * 100));
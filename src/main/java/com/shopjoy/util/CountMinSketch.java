@@ -0,0 +1,95 @@
+package com.shopjoy.util;
+
+import java.security.SecureRandom;
+
+/**
+ * Count-min sketch of string keys.
+ * <p>
+ * Counts any number of keys in fixed memory. An estimate is never below the true count
+ * and exceeds it by at most {@code e / width} of the total count with probability
+ * {@code 1 - e^-depth}. Every row hashes the full key to 64 bits with its own seed, and
+ * the seeds are drawn at random once per process, so keys that share a slot in one row
+ * rarely share it in the others and colliding keys cannot be worked out in advance.
+ * Counters saturate at {@link Integer#MAX_VALUE}. Writes are synchronized. Reads take no
+ * lock and allocate nothing; they read a volatile field first, so they see every
+ * completed write.
+ */
+public final class CountMinSketch {
+
+    private static final long PROCESS_SEED = new SecureRandom().nextLong();
+
+    private final int[] counters;
+    private final long[] seeds;
+    private final int width;
+    private final int depth;
+    private volatile long modifications;
+
+    /**
+     * @param width the number of counters per row, rounded up to a power of two
+     * @param depth the number of rows, each with its own hash seed
+     */
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("Width and depth must be positive");
+        }
+        this.width = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.depth = depth;
+        this.counters = new int[this.width * depth];
+        this.seeds = new long[depth];
+        for (int row = 0; row < depth; row++) {
+            seeds[row] = mix(PROCESS_SEED + (row + 1) * 0x9E3779B97F4A7C15L);
+        }
+    }
+
+    public synchronized void add(String key, int count) {
+        for (int row = 0; row < depth; row++) {
+            int index = index(key, row);
+            counters[index] = (int) Math.min(Integer.MAX_VALUE, (long) counters[index] + count);
+        }
+        modifications++;
+    }
+
+    /**
+     * Returns an upper bound of the count of the key, exact unless other keys collided with it in every row.
+     */
+    public int estimate(String key) {
+        if (modifications == 0) {
+            return 0;
+        }
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[index(key, row)]);
+        }
+        return estimate;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    private int index(String key, int row) {
+        return row * width + ((int) hash(key, seeds[row]) & (width - 1));
+    }
+
+    /**
+     * Seeded 64-bit hash of every character of the key: FNV-1a steps from the seed,
+     * finished with the MurmurHash3 mixer.
+     */
+    static long hash(String key, long seed) {
+        long h = seed ^ key.length();
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB93FE1A85B49L;
+        return h ^ (h >>> 33);
+    }
+}
@@ -0,0 +1,86 @@
+package com.shopjoy.util;
+
+/**
+ * Counting Bloom filter over pre-computed 128-bit hashes.
+ * <p>
+ * Each position holds an 8-bit counter instead of a bit, so entries can be removed again.
+ * Counters that reach 255 stay saturated and are never decremented. Writes are
+ * synchronized. Reads take no lock and allocate nothing; they read a volatile field
+ * first, so they see every completed write.
+ */
+public final class CountingBloomFilter {
+
+    private static final int SATURATED = 0xFF;
+
+    private final byte[] counters;
+    private final int hashFunctions;
+    private volatile long modifications;
+
+    /**
+     * Creates a filter sized for the expected number of entries and false positive rate.
+     *
+     * @param expectedEntries   the number of entries the filter is sized for
+     * @param falsePositiveRate the false positive rate at that number of entries
+     */
+    public CountingBloomFilter(int expectedEntries, double falsePositiveRate) {
+        if (expectedEntries <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Expected entries must be positive and the false positive rate between 0 and 1");
+        }
+        double ln2 = Math.log(2);
+        long size = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (ln2 * ln2));
+        this.counters = new byte[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(64, size))];
+        this.hashFunctions = Math.max(1, (int) Math.round((double) counters.length / expectedEntries * ln2));
+    }
+
+    public synchronized void add(long hash1, long hash2) {
+        for (int i = 0; i < hashFunctions; i++) {
+            int index = index(hash1, hash2, i);
+            int count = counters[index] & SATURATED;
+            if (count < SATURATED) {
+                counters[index] = (byte) (count + 1);
+            }
+        }
+        modifications++;
+    }
+
+    /**
+     * Removes an entry. Must only be called for entries that were added.
+     */
+    public synchronized void remove(long hash1, long hash2) {
+        for (int i = 0; i < hashFunctions; i++) {
+            int index = index(hash1, hash2, i);
+            int count = counters[index] & SATURATED;
+            if (count > 0 && count < SATURATED) {
+                counters[index] = (byte) (count - 1);
+            }
+        }
+        modifications++;
+    }
+
+    /**
+     * Returns false if the entry was certainly not added, true if it may have been.
+     */
+    public boolean mightContain(long hash1, long hash2) {
+        if (modifications == 0) {
+            return false;
+        }
+        for (int i = 0; i < hashFunctions; i++) {
+            if (counters[index(hash1, hash2, i)] == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return counters.length;
+    }
+
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    private int index(long hash1, long hash2, int i) {
+        return (int) Math.floorMod(hash1 + i * hash2, (long) counters.length);
+    }
+}
@@ -1,23 +1,37 @@
 package com.shopjoy.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.shopjoy.security.CustomUserDetails;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.jspecify.annotations.NonNull;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 /**
  * Utility class for JWT token generation and validation.
+ * The signing key and parser are built once. Verified claims are cached by the SHA-256
+ * hash of the token until the token expires, so a token is parsed and its signature
+ * checked only on its first use.
  */
 @Component
 public class JwtUtil {
@@ -28,6 +42,66 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    @Value("${jwt.claims-cache.max-size:10000}")
+    private long claimsCacheMaxSize;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private Cache<TokenHash, Claims> verifiedClaims;
+
+    /**
+     * SHA-256 hash of a token. Only tokens identical to a verified one share its hash.
+     */
+    private record TokenHash(long h0, long h1, long h2, long h3) {
+
+        static TokenHash of(String token) {
+            try {
+                ByteBuffer digest = ByteBuffer.wrap(MessageDigest.getInstance("SHA-256")
+                        .digest(token.getBytes(StandardCharsets.UTF_8)));
+                return new TokenHash(digest.getLong(), digest.getLong(), digest.getLong(), digest.getLong());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
+
+    /**
+     * Expires cached claims together with their token.
+     */
+    private static final class TokenExpiry implements Expiry<TokenHash, Claims> {
+
+        @Override
+        public long expireAfterCreate(@NonNull TokenHash key, @NonNull Claims claims, long currentTime) {
+            Date expiresAt = claims.getExpiration();
+            if (expiresAt == null) {
+                return 0;
+            }
+            return Math.max(0, TimeUnit.MILLISECONDS.toNanos(expiresAt.getTime() - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(@NonNull TokenHash key, @NonNull Claims claims, long currentTime,
+                                      long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(@NonNull TokenHash key, @NonNull Claims claims, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser().verifyWith(signingKey).build();
+        verifiedClaims = Caffeine.newBuilder()
+                .maximumSize(claimsCacheMaxSize)
+                .expireAfter(new TokenExpiry())
+                .build();
+    }
+
     /**
      * Generates a JWT token for the given user details.
      *
@@ -53,6 +127,7 @@ public class JwtUtil {
 
     /**
      * Creates a JWT token with specified claims and subject.
+     * Every token gets a random jti, which identifies it in the token blacklist.
      *
      * @param claims  the claims to include in the token
      * @param subject the subject (username)
@@ -64,6 +139,7 @@ public class JwtUtil {
 
         return Jwts.builder()
                 .claims(claims)
+                .id(UUID.randomUUID().toString())
                 .subject(subject)
                 .issuedAt(now)
                 .expiration(expiryDate)
@@ -103,6 +179,24 @@ public class JwtUtil {
         return claimsResolver.apply(claims);
     }
 
+    /**
+     * Verifies the token and returns its claims.
+     * Claims of a token verified before are returned from the cache without parsing it again.
+     *
+     * @param token the JWT token
+     * @return all claims
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, expired or not signed with our key
+     */
+    public Claims verify(String token) {
+        TokenHash hash = TokenHash.of(token);
+        Claims claims = verifiedClaims.getIfPresent(hash);
+        if (claims == null) {
+            claims = parser.parseSignedClaims(token).getPayload();
+            verifiedClaims.put(hash, claims);
+        }
+        return claims;
+    }
+
     /**
      * Extracts all claims from the JWT token.
      *
@@ -110,11 +204,7 @@ public class JwtUtil {
      * @return all claims
      */
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return verify(token);
     }
 
     /**
@@ -124,7 +214,17 @@ public class JwtUtil {
      * @return true if token is expired, false otherwise
      */
     public boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return isExpired(extractAllClaims(token));
+    }
+
+    /**
+     * Checks if verified claims have expired.
+     *
+     * @param claims the claims of a token
+     * @return true if the token is expired, false otherwise
+     */
+    public boolean isExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 
     /**
@@ -133,8 +233,7 @@ public class JwtUtil {
      * @return the signing key
      */
     private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signingKey;
     }
 
     /**
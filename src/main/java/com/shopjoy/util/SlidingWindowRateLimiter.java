@@ -0,0 +1,408 @@
+package com.shopjoy.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding-window rate limiter with a fixed memory budget.
+ * <p>
+ * The state of a key is a single {@code long} packing the number of the current fixed
+ * window and the counts of the current and the previous window. A key is limited once
+ * the previous count, weighted by how much of the previous window still overlaps the
+ * sliding window, plus the current count reaches the limit.
+ * <p>
+ * Keys live in open-addressing tables split across shards. A shard never grows: when it
+ * is full, keys whose windows have passed are swept out of it, and if that frees nothing,
+ * further keys are counted in a pair of count-min sketches instead, one per window, which
+ * may overestimate but never underestimate. The sketches are only consulted for keys
+ * without a slot; a key that later gets a slot starts from its sketch counts and is
+ * counted exactly from then on. Lookups are optimistic reads of a {@link StampedLock},
+ * so they take no lock and allocate nothing unless a write races with them. {@link #evictExpired(int)} sweeps a few shards per call, so expired keys
+ * are removed incrementally instead of in one full scan, and skips shards already swept
+ * in the current window.
+ */
+public final class SlidingWindowRateLimiter {
+
+    private static final long COUNT_MASK = 0xFFFF;
+    private static final int MAX_COUNT = 0xFFFF;
+    private static final double LOAD_FACTOR = 0.75;
+    private static final long MIN_WINDOW_MILLIS = 1000;
+    private static final long NOT_TRACKED = -1;
+
+    private final int limit;
+    private final long windowMillis;
+    private final LongSupplier clock;
+    private final Shard[] shards;
+    private final int sketchWidth;
+    private final int sketchDepth;
+    private final AtomicInteger sweepCursor = new AtomicInteger();
+    private volatile Sketches sketches;
+
+    private static final class Shard {
+        final StampedLock lock = new StampedLock();
+        final String[] keys;
+        final long[] states;
+        final int mask;
+        final int maxSize;
+        int size;
+        long sweptWindow = -1;
+
+        Shard(int maxSize) {
+            int capacity = Integer.highestOneBit((int) Math.ceil(maxSize / LOAD_FACTOR) - 1) << 1;
+            this.keys = new String[Math.max(4, capacity)];
+            this.states = new long[keys.length];
+            this.mask = keys.length - 1;
+            this.maxSize = maxSize;
+        }
+    }
+
+    /**
+     * Count-min sketches of the overflow keys for two consecutive windows.
+     */
+    private record Sketches(long window, CountMinSketch previous, CountMinSketch current) {
+    }
+
+    /**
+     * @param limit          the number of events allowed per window
+     * @param window         the length of the sliding window
+     * @param maxTrackedKeys the number of keys tracked exactly, spread evenly across the shards
+     * @param shardCount     the number of shards, rounded up to a power of two
+     * @param sketchWidth    counters per row of the overflow sketches
+     * @param sketchDepth    rows of the overflow sketches
+     * @param clock          the time source in epoch milliseconds
+     */
+    public SlidingWindowRateLimiter(int limit, Duration window, int maxTrackedKeys, int shardCount,
+                                    int sketchWidth, int sketchDepth, LongSupplier clock) {
+        if (limit <= 0 || limit >= MAX_COUNT || maxTrackedKeys <= 0 || shardCount <= 0) {
+            throw new IllegalArgumentException("Limit, tracked keys and shards must be positive, limit below " + MAX_COUNT);
+        }
+        if (window.toMillis() < MIN_WINDOW_MILLIS) {
+            // Window numbers are packed into 32 bits
+            throw new IllegalArgumentException("Window must be at least one second");
+        }
+        this.limit = limit;
+        this.windowMillis = window.toMillis();
+        this.clock = clock;
+        int shardTotal = Integer.highestOneBit(Math.max(1, shardCount - 1)) << (shardCount > 1 ? 1 : 0);
+        this.shards = new Shard[shardTotal];
+        int perShard = Math.max(1, (maxTrackedKeys + shardTotal - 1) / shardTotal);
+        for (int i = 0; i < shardTotal; i++) {
+            shards[i] = new Shard(perShard);
+        }
+        this.sketchWidth = sketchWidth;
+        this.sketchDepth = sketchDepth;
+    }
+
+    /**
+     * Counts one event for the key.
+     */
+    public void record(String key) {
+        acquire(key, false);
+    }
+
+    /**
+     * Counts one event for the key unless the key has already reached the limit.
+     * The check and the count are atomic for keys tracked exactly.
+     *
+     * @return whether the event was allowed and counted
+     */
+    public boolean tryAcquire(String key) {
+        return acquire(key, true);
+    }
+
+    /**
+     * Returns whether the key has reached the limit within the sliding window.
+     */
+    public boolean isLimited(String key) {
+        long now = clock.getAsLong();
+        long window = now / windowMillis;
+        long counts = counts(key, window);
+        return estimate(previousCount(counts, window), currentCount(counts, window), now) >= limit;
+    }
+
+    /**
+     * Returns the milliseconds until the key drops below the limit, or 0 if it is not limited.
+     */
+    public long retryAfterMillis(String key) {
+        long now = clock.getAsLong();
+        long window = now / windowMillis;
+        long counts = counts(key, window);
+        int previous = previousCount(counts, window);
+        int current = currentCount(counts, window);
+        if (estimate(previous, current, now) < limit) {
+            return 0;
+        }
+        long elapsed = now - window * windowMillis;
+        if (current < limit) {
+            // The weight of the previous window has to fall far enough during this window
+            double unlockAt = windowMillis * (1 - (double) (limit - current) / previous);
+            return Math.max(1, (long) Math.ceil(unlockAt) - elapsed + 1);
+        }
+        // The current window becomes the previous one and has to decay in the next window
+        double unlockAt = windowMillis * (1 - (double) limit / current);
+        return (windowMillis - elapsed) + (long) Math.ceil(unlockAt) + 1;
+    }
+
+    /**
+     * Clears the counts of the key. Counts of keys that overflowed into the sketches
+     * cannot be cleared and expire with their window.
+     */
+    public void reset(String key) {
+        int hash = spread(key.hashCode());
+        Shard shard = shard(hash);
+        long stamp = shard.lock.writeLock();
+        try {
+            int index = find(shard.keys, shard.mask, key, hash);
+            if (index >= 0) {
+                shard.states[index] = 0;
+            }
+        } finally {
+            shard.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes expired keys from the next shards in turn.
+     *
+     * @param shardCount how many shards to sweep
+     * @return the number of keys removed
+     */
+    public int evictExpired(int shardCount) {
+        long window = clock.getAsLong() / windowMillis;
+        int removed = 0;
+        for (int i = 0; i < Math.min(shardCount, shards.length); i++) {
+            Shard shard = shards[sweepCursor.getAndIncrement() & (shards.length - 1)];
+            long stamp = shard.lock.writeLock();
+            try {
+                if (shard.sweptWindow < window) {
+                    removed += sweep(shard, window);
+                }
+            } finally {
+                shard.lock.unlockWrite(stamp);
+            }
+        }
+        Sketches overflow = sketches;
+        if (overflow != null && overflow.window() < window - 1) {
+            sketches = null;
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the number of keys tracked exactly, including expired ones not yet swept.
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            long stamp = shard.lock.readLock();
+            try {
+                size += shard.size;
+            } finally {
+                shard.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns whether keys currently overflow into the approximate sketches.
+     */
+    public boolean isOverflowing() {
+        return sketches != null;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    private boolean acquire(String key, boolean enforceLimit) {
+        long now = clock.getAsLong();
+        long window = now / windowMillis;
+        int hash = spread(key.hashCode());
+        Shard shard = shard(hash);
+        boolean tracked;
+        long stamp = shard.lock.writeLock();
+        try {
+            if (enforceLimit) {
+                int index = find(shard.keys, shard.mask, key, hash);
+                long counts = index >= 0 ? shard.states[index] : sketchCounts(key, window);
+                if (estimate(previousCount(counts, window), currentCount(counts, window), now) >= limit) {
+                    return false;
+                }
+            }
+            tracked = increment(shard, key, hash, window);
+        } finally {
+            shard.lock.unlockWrite(stamp);
+        }
+        if (!tracked) {
+            sketches(window).current().add(key, 1);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the state of the key, or its overflow sketch counts if it has no slot.
+     */
+    private long counts(String key, long window) {
+        long state = state(key);
+        return state != NOT_TRACKED ? state : sketchCounts(key, window);
+    }
+
+    /**
+     * Returns the counts of the overflow sketches for the key, packed as a state of the given window.
+     */
+    private long sketchCounts(String key, long window) {
+        Sketches overflow = sketches;
+        if (overflow == null) {
+            return 0;
+        }
+        int previous = sketchCount(overflow, key, window - 1);
+        int current = sketchCount(overflow, key, window);
+        return pack(window, Math.min(MAX_COUNT, previous), Math.min(MAX_COUNT, current));
+    }
+
+    /**
+     * Returns the state of the key, or {@link #NOT_TRACKED} if it has no slot.
+     */
+    private long state(String key) {
+        int hash = spread(key.hashCode());
+        Shard shard = shard(hash);
+        long stamp = shard.lock.tryOptimisticRead();
+        int index = find(shard.keys, shard.mask, key, hash);
+        long state = index >= 0 ? shard.states[index] : NOT_TRACKED;
+        if (!shard.lock.validate(stamp)) {
+            stamp = shard.lock.readLock();
+            try {
+                index = find(shard.keys, shard.mask, key, hash);
+                state = index >= 0 ? shard.states[index] : NOT_TRACKED;
+            } finally {
+                shard.lock.unlockRead(stamp);
+            }
+        }
+        return state;
+    }
+
+    private boolean increment(Shard shard, String key, int hash, long window) {
+        int index = find(shard.keys, shard.mask, key, hash);
+        if (index < 0) {
+            if (shard.size >= shard.maxSize && (shard.sweptWindow == window || sweep(shard, window) == 0)) {
+                return false;
+            }
+            index = insert(shard, key, hash);
+            shard.states[index] = sketchCounts(key, window);
+        }
+        long state = shard.states[index];
+        int current = currentCount(state, window);
+        shard.states[index] = pack(window, previousCount(state, window), Math.min(MAX_COUNT, current + 1));
+        return true;
+    }
+
+    /**
+     * Rebuilds the table of a shard without the keys whose counts have all expired.
+     * Keys only expire when a window ends, so a shard is swept at most once per window.
+     * Must hold the write lock.
+     */
+    private static int sweep(Shard shard, long window) {
+        int live = 0;
+        String[] keys = new String[shard.size];
+        long[] states = new long[shard.size];
+        for (int i = 0; i < shard.keys.length; i++) {
+            String key = shard.keys[i];
+            if (key != null && (shard.states[i] >>> 32) >= window - 1) {
+                keys[live] = key;
+                states[live++] = shard.states[i];
+            }
+            shard.keys[i] = null;
+            shard.states[i] = 0;
+        }
+        int removed = shard.size - live;
+        shard.size = 0;
+        shard.sweptWindow = window;
+        for (int i = 0; i < live; i++) {
+            shard.states[insert(shard, keys[i], spread(keys[i].hashCode()))] = states[i];
+        }
+        return removed;
+    }
+
+    private static int insert(Shard shard, String key, int hash) {
+        int index = hash & shard.mask;
+        while (shard.keys[index] != null) {
+            index = (index + 1) & shard.mask;
+        }
+        shard.keys[index] = key;
+        shard.size++;
+        return index;
+    }
+
+    /**
+     * Finds the slot of a key. Tables are never full, so the probe always reaches an empty slot.
+     */
+    private static int find(String[] keys, int mask, String key, int hash) {
+        int index = hash & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            String candidate = keys[index];
+            if (candidate == null) {
+                return -1;
+            }
+            if (candidate.equals(key)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private Sketches sketches(long window) {
+        Sketches current = sketches;
+        if (current != null && current.window() == window) {
+            return current;
+        }
+        synchronized (this) {
+            current = sketches;
+            if (current == null || current.window() < window) {
+                CountMinSketch previous = current != null && current.window() == window - 1 ? current.current() : null;
+                current = new Sketches(window, previous, new CountMinSketch(sketchWidth, sketchDepth));
+                sketches = current;
+            }
+            return current;
+        }
+    }
+
+    private static int sketchCount(Sketches overflow, String key, long window) {
+        CountMinSketch sketch = window == overflow.window() ? overflow.current()
+                : window == overflow.window() - 1 ? overflow.previous() : null;
+        return sketch != null ? sketch.estimate(key) : 0;
+    }
+
+    private double estimate(int previous, int current, long now) {
+        long elapsed = now % windowMillis;
+        return previous * ((double) (windowMillis - elapsed) / windowMillis) + current;
+    }
+
+    private Shard shard(int hash) {
+        return shards[(hash >>> 16) & (shards.length - 1)];
+    }
+
+    private static long pack(long window, int previous, int current) {
+        return window << 32 | (long) previous << 16 | current;
+    }
+
+    private static int currentCount(long state, long window) {
+        return (state >>> 32) == window ? (int) (state & COUNT_MASK) : 0;
+    }
+
+    private static int previousCount(long state, long window) {
+        long stateWindow = state >>> 32;
+        if (stateWindow == window) {
+            return (int) (state >>> 16 & COUNT_MASK);
+        }
+        return stateWindow == window - 1 ? (int) (state & COUNT_MASK) : 0;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 15);
+    }
+}
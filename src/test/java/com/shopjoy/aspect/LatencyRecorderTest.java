@@ -0,0 +1,71 @@
+package com.shopjoy.aspect;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LatencyRecorderTest {
+
+    private static final long START = TimeUnit.HOURS.toNanos(100);
+
+    private final LatencyRecorder recorder = new LatencyRecorder();
+
+    @Test
+    void percentilesKeepSubMillisecondResolution() {
+        IntStream.rangeClosed(1, 1_000).forEach(i -> recorder.record(TimeUnit.MICROSECONDS.toNanos(i)));
+
+        Map<String, Object> stats = recorder.snapshot(START);
+
+        assertEquals(1_000L, stats.get("callCount"));
+        assertEquals(0.5, (double) stats.get("median"), 0.01);
+        assertEquals(0.95, (double) stats.get("p95"), 0.01);
+        assertEquals(1.0, (double) stats.get("max"), 0.01);
+    }
+
+    @Test
+    void oldValuesLeaveTheShortWindowsButStayInTheHour() {
+        recordAt(START, 100, TimeUnit.MILLISECONDS.toNanos(40));
+        recordAt(START + TimeUnit.MINUTES.toNanos(3), 10, TimeUnit.MILLISECONDS.toNanos(2));
+
+        Map<String, Object> windows = windows(recorder.snapshot(START + TimeUnit.MINUTES.toNanos(3)));
+
+        assertEquals(10L, window(windows, "1m").get("count"));
+        assertEquals(110L, window(windows, "5m").get("count"));
+        assertEquals(110L, window(windows, "1h").get("count"));
+
+        windows = windows(recorder.snapshot(START + TimeUnit.MINUTES.toNanos(70)));
+
+        assertEquals(0L, window(windows, "1h").get("count"));
+    }
+
+    @Test
+    void reusedSlotsDropTheirPreviousSlice() {
+        recordAt(START, 5, 1_000);
+        recordAt(START + TimeUnit.MINUTES.toNanos(5), 7, 1_000);
+
+        Map<String, Object> stats = recorder.snapshot(START + TimeUnit.MINUTES.toNanos(5));
+
+        assertEquals(12L, stats.get("callCount"));
+        assertEquals(7L, window(windows(stats), "5m").get("count"));
+        assertEquals(12L, window(windows(stats), "1h").get("count"));
+    }
+
+    private void recordAt(long now, int count, long nanos) {
+        IntStream.range(0, count).forEach(_ -> recorder.record(nanos));
+        recorder.harvest(now);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> windows(Map<String, Object> stats) {
+        return (Map<String, Object>) stats.get("windows");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> window(Map<String, Object> windows, String name) {
+        return (Map<String, Object>) windows.get(name);
+    }
+}
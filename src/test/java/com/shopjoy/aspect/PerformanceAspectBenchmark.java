@@ -0,0 +1,90 @@
+package com.shopjoy.aspect;
+
+import com.shopjoy.service.PerformanceAspectBenchmarkTarget;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of {@link PerformanceAspect} per proxied service call, against a plain call
+ * and a proxy without advice. The aspect records into both its latency recorder and a
+ * Prometheus-backed Micrometer timer, as in production.
+ * Run it with -prof gc to check the allocation rate per call.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.shopjoy.aspect.PerformanceAspectBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerformanceAspectBenchmark {
+
+    private final Pageable pageable = PageRequest.of(2, 20, Sort.by("price").descending());
+
+    private PerformanceAspectBenchmarkTarget plain;
+    private PerformanceAspectBenchmarkTarget unadvised;
+    private PerformanceAspectBenchmarkTarget advised;
+    private int id;
+
+    @Setup
+    public void setUp() {
+        plain = new PerformanceAspectBenchmarkTarget();
+
+        AspectJProxyFactory unadvisedFactory = new AspectJProxyFactory(new PerformanceAspectBenchmarkTarget());
+        unadvisedFactory.setProxyTargetClass(true);
+        unadvised = unadvisedFactory.getProxy();
+
+        AspectJProxyFactory advisedFactory = new AspectJProxyFactory(new PerformanceAspectBenchmarkTarget());
+        advisedFactory.setProxyTargetClass(true);
+        advisedFactory.addAspect(new PerformanceAspect(new PerformanceMetricsCollector(),
+                new PrometheusMeterRegistry(PrometheusConfig.DEFAULT)));
+        advised = advisedFactory.getProxy();
+    }
+
+    @Benchmark
+    public int plainCall() {
+        return plain.findById(id++);
+    }
+
+    @Benchmark
+    public int proxyWithoutAdvice() {
+        return unadvised.findById(id++);
+    }
+
+    @Benchmark
+    public int advisedCall() {
+        return advised.findById(id++);
+    }
+
+    @Benchmark
+    public int advisedSortedCall() {
+        return advised.findPage(pageable);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PerformanceAspectBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
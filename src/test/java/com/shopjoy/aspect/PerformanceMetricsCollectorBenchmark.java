@@ -0,0 +1,96 @@
+package com.shopjoy.aspect;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording throughput of the histogram-backed collector against the previous
+ * synchronized-list implementation, with 8 threads hitting a handful of keys.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.shopjoy.aspect.PerformanceMetricsCollectorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class PerformanceMetricsCollectorBenchmark {
+
+    private static final String[] KEYS = {
+            "ProductServiceImpl.getProductById",
+            "ProductServiceImpl.getActiveProducts",
+            "OrderServiceImpl.createOrder",
+            "InventoryServiceImpl.reserveStock"
+    };
+
+    @Param({"histogram", "list"})
+    public String implementation;
+
+    private PerformanceMetricsCollector collector;
+    private ListMetricsCollector listCollector;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        collector = new PerformanceMetricsCollector();
+        listCollector = new ListMetricsCollector();
+    }
+
+    @Benchmark
+    public void record() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String key = KEYS[random.nextInt(KEYS.length)];
+        long nanos = random.nextLong(50_000, 5_000_000);
+        if ("histogram".equals(implementation)) {
+            collector.recordNanos("service", key, nanos);
+        } else {
+            listCollector.recordMetric("service", key, nanos);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PerformanceMetricsCollectorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /**
+     * The recording path of the collector before it moved to histograms.
+     */
+    static class ListMetricsCollector {
+
+        private final Map<String, List<Long>> metrics = new ConcurrentHashMap<>();
+        private final Map<String, Long> callCounts = new ConcurrentHashMap<>();
+
+        void recordMetric(String category, String methodKey, long executionTime) {
+            String key = category + ":" + methodKey;
+            metrics.computeIfAbsent(key, _ -> Collections.synchronizedList(new ArrayList<>()))
+                   .add(executionTime);
+            callCounts.merge(key, 1L, Long::sum);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.shopjoy.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shopjoy.dto.response.ProductResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheEntryWeigherTest {
+
+    private final CacheEntryWeigher weigher = new CacheEntryWeigher();
+
+    @Test
+    void listWeighsRoughlyItsElementsCombined() {
+        ProductResponse single = product(1);
+        List<ProductResponse> list = IntStream.range(0, 300).mapToObj(this::product).toList();
+
+        int singleWeight = weigher.weigh(1, single);
+        int listWeight = weigher.weigh(1, list);
+
+        assertTrue(singleWeight > 100, "A DTO with strings should weigh more than its headers");
+        assertTrue(listWeight > singleWeight * 250, "A list should weigh about the sum of its elements");
+        assertTrue(listWeight < singleWeight * 400, "A list should not weigh much more than its elements");
+    }
+
+    @Test
+    void idListIsMuchLighterThanTheDtoList() {
+        List<ProductResponse> products = IntStream.range(0, 300).mapToObj(this::product).toList();
+        EntityIdList ids = new EntityIdList(EntityKey.PRODUCT, products.stream().map(ProductResponse::getId).toList());
+
+        assertTrue(weigher.weigh(1, ids) * 10 < weigher.weigh(1, products));
+    }
+
+    @Test
+    void maximumWeightBoundsLargeListsBeforeSmallEntries() {
+        Cache<Object, Object> cache = Caffeine.newBuilder()
+                .maximumWeight(weigher.weigh(1, product(1)) * 50L)
+                .weigher(weigher)
+                .executor(Runnable::run)
+                .build();
+
+        cache.put("big", IntStream.range(0, 300).mapToObj(this::product).toList());
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, product(i));
+        }
+        cache.cleanUp();
+
+        assertNull(cache.getIfPresent("big"), "An oversized list must not stay in the cache");
+        assertEquals(10, cache.asMap().size());
+    }
+
+    private ProductResponse product(int id) {
+        ProductResponse product = new ProductResponse();
+        product.setId(id);
+        product.setProductName("Product name " + id);
+        product.setDescription("A reasonably long product description for product " + id);
+        product.setCategoryName("Electronics");
+        product.setPrice(10.0 + id);
+        return product;
+    }
+}
@@ -0,0 +1,48 @@
+package com.shopjoy.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.interceptor.SimpleKey;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheInvalidationMessageTest {
+
+    @Test
+    void supportedKeysSurviveARoundTrip() {
+        List<CacheInvalidationMessage> messages = List.of(
+                CacheInvalidationMessage.evict("node a", "product", 42),
+                CacheInvalidationMessage.evict("node-a", "userProfileEmail", 7L),
+                CacheInvalidationMessage.evict("node-a", "userProfileEmail", "jané doe@example.com"),
+                CacheInvalidationMessage.evict("node-a", "userProfileEmail", ""),
+                CacheInvalidationMessage.evict("node-a", "activeProducts", SimpleKey.EMPTY),
+                CacheInvalidationMessage.evict("node-a", "inventory", EntityKey.of(EntityKey.PRODUCT, 5)),
+                CacheInvalidationMessage.evict("node-a", "productSearch", EntityKey.of("tag", "sale 50%")),
+                CacheInvalidationMessage.clear("node-a", "product"),
+                CacheInvalidationMessage.clearAll());
+
+        for (CacheInvalidationMessage message : messages) {
+            assertEquals(message, CacheInvalidationMessage.decode(message.encode()));
+        }
+    }
+
+    @Test
+    void otherKeysAreSentAsAClearOfTheCache() {
+        CacheInvalidationMessage message = CacheInvalidationMessage.evict("node-a", "productsByCategory", List.of(1, 2));
+
+        CacheInvalidationMessage decoded = CacheInvalidationMessage.decode(message.encode());
+
+        assertEquals(CacheInvalidationMessage.clear("node-a", "productsByCategory"), decoded);
+        assertTrue(decoded.isClear());
+    }
+
+    @Test
+    void malformedPayloadsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> CacheInvalidationMessage.decode("rO0ABXNyAC"));
+        assertThrows(IllegalArgumentException.class, () -> CacheInvalidationMessage.decode("1 a product int x "));
+        assertThrows(IllegalArgumentException.class, () -> CacheInvalidationMessage.decode("1 a product object 1 "));
+    }
+}
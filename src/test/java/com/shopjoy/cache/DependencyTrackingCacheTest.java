@@ -0,0 +1,82 @@
+package com.shopjoy.cache;
+
+import com.shopjoy.dto.response.ProductResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Dependent evictions that run while a value is being stored, simulated by a cache
+ * that runs the eviction right after it stores the value.
+ */
+class DependencyTrackingCacheTest {
+
+    private static final EntityKey PRODUCT_1 = EntityKey.of(EntityKey.PRODUCT, 1);
+
+    private Runnable afterStore = () -> { };
+
+    private final DependencyTrackingCache cache = new DependencyTrackingCache(new ConcurrentMapCache("products", false) {
+        @Override
+        public void put(Object key, Object value) {
+            super.put(key, value);
+            afterStore.run();
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            T value = super.get(key, valueLoader);
+            afterStore.run();
+            return value;
+        }
+    });
+
+    @Test
+    void evictionBetweenStoreAndTrackDoesNotLeaveAStaleEntry() {
+        afterStore = () -> cache.evictDependents(PRODUCT_1);
+
+        cache.put("list", List.of(product(1), product(2)));
+
+        assertNull(cache.get("list"));
+        assertEquals(0, cache.getTrackedEntityCount());
+    }
+
+    @Test
+    void evictionDuringALoadDoesNotLeaveAStaleEntry() {
+        afterStore = () -> cache.evictDependents(PRODUCT_1);
+
+        cache.get("list", () -> List.of(product(1)));
+
+        assertNull(cache.get("list"));
+    }
+
+    @Test
+    void evictionOfAnotherEntityKeepsTheEntry() {
+        afterStore = () -> cache.evictDependents(EntityKey.of(EntityKey.PRODUCT, 3));
+
+        cache.put("list", List.of(product(1), product(2)));
+
+        assertNotNull(cache.get("list"));
+        assertEquals(1, cache.evictDependents(PRODUCT_1));
+        assertNull(cache.get("list"));
+    }
+
+    @Test
+    void entityKeyCacheKeyIsADependency() {
+        cache.put(PRODUCT_1, true);
+
+        assertEquals(1, cache.evictDependents(PRODUCT_1));
+        assertNull(cache.get(PRODUCT_1));
+    }
+
+    private static ProductResponse product(int id) {
+        ProductResponse product = new ProductResponse();
+        product.setId(id);
+        return product;
+    }
+}
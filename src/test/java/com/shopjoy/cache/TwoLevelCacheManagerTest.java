@@ -0,0 +1,130 @@
+package com.shopjoy.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shopjoy.dto.response.ProductResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Runs two cache managers as two nodes sharing a loopback transport and one shared tier.
+ */
+class TwoLevelCacheManagerTest {
+
+    private LoopbackCacheInvalidationTransport transport;
+    private ConcurrentMapCacheManager sharedTier;
+    private TwoLevelCacheManager nodeA;
+    private TwoLevelCacheManager nodeB;
+
+    @BeforeEach
+    void setUp() {
+        transport = new LoopbackCacheInvalidationTransport();
+        sharedTier = new ConcurrentMapCacheManager("product", "userProfile");
+        nodeA = node("node-a");
+        nodeB = node("node-b");
+    }
+
+    @Test
+    void updateOnOneNodeEvictsStaleLocalCopyOnTheOthers() {
+        nodeA.getCache("product").put(1, product(1, "Old name"));
+        assertEquals("Old name", nodeB.getCache("product").get(1, ProductResponse.class).getProductName());
+
+        tracking(nodeA, "product").writeThrough(1, product(1, "New name"));
+
+        assertNull(local(nodeB, "product").get(1));
+        assertEquals("New name", nodeB.getCache("product").get(1, ProductResponse.class).getProductName());
+    }
+
+    @Test
+    void loadedValuesAreNotBroadcast() {
+        nodeB.getCache("product").put(2, product(2, "Loaded on B"));
+        AtomicInteger messages = new AtomicInteger();
+        transport.subscribe(_ -> messages.incrementAndGet());
+
+        nodeA.getCache("product").put(2, product(2, "Loaded on A"));
+        nodeA.getCache("product").get(5, () -> product(5, "Loaded on A"));
+
+        assertEquals(0, messages.get());
+        assertEquals("Loaded on B", local(nodeB, "product").get(2, ProductResponse.class).getProductName());
+    }
+
+    @Test
+    void missOnOneNodeIsServedFromTheSharedTier() {
+        AtomicInteger loads = new AtomicInteger();
+
+        nodeA.getCache("product").get(7, () -> {
+            loads.incrementAndGet();
+            return product(7, "Loaded once");
+        });
+        ProductResponse fromB = nodeB.getCache("product").get(7, () -> {
+            loads.incrementAndGet();
+            return product(7, "Loaded twice");
+        });
+
+        assertEquals(1, loads.get());
+        assertEquals("Loaded once", fromB.getProductName());
+    }
+
+    @Test
+    void dependencyEvictionIsBroadcast() {
+        nodeA.getCache("product").put(3, product(3, "Tracked"));
+        nodeB.getCache("product").get(3);
+
+        int evicted = ((DependencyTrackingCache) nodeA.getCache("product"))
+                .evictDependents(EntityKey.of(EntityKey.PRODUCT, 3));
+
+        assertEquals(1, evicted);
+        assertNull(local(nodeB, "product").get(3));
+        assertNull(sharedTier.getCache("product").get(3));
+    }
+
+    @Test
+    void clearOnOneNodeClearsOnlyThatCacheEverywhere() {
+        nodeB.getCache("product").put(1, product(1, "Product"));
+        nodeB.getCache("userProfile").put(1, "profile");
+
+        nodeA.getCache("product").clear();
+
+        assertNull(local(nodeB, "product").get(1));
+        assertEquals("profile", local(nodeB, "userProfile").get(1).get());
+    }
+
+    @Test
+    void reconnectClearsEveryLocalCache() {
+        nodeB.getCache("product").put(1, product(1, "Product"));
+        nodeB.getCache("userProfile").put(1, "profile");
+
+        transport.publish(CacheInvalidationMessage.clearAll());
+
+        assertNull(local(nodeB, "product").get(1));
+        assertNull(local(nodeB, "userProfile").get(1));
+    }
+
+    private TwoLevelCacheManager node(String nodeId) {
+        TwoLevelCacheManager manager = new TwoLevelCacheManager(new CacheDependencyRegistry(), nodeId,
+                transport, sharedTier, "product", "userProfile");
+        manager.setCaffeine(Caffeine.newBuilder().maximumSize(100).recordStats());
+        return manager;
+    }
+
+    private static DependencyTrackingCache tracking(TwoLevelCacheManager manager, String name) {
+        return (DependencyTrackingCache) manager.getCache(name);
+    }
+
+    private static Cache local(TwoLevelCacheManager manager, String name) {
+        return ((TwoLevelCache) tracking(manager, name).getDelegate()).getLocal();
+    }
+
+    private static ProductResponse product(int id, String name) {
+        ProductResponse product = new ProductResponse();
+        product.setId(id);
+        product.setProductName(name);
+        return product;
+    }
+}
@@ -0,0 +1,124 @@
+package com.shopjoy.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Runs requests through the filter with mock servlet objects: rate limits answer 429,
+ * saturated routes answer 503, both with Retry-After, and unmatched requests pass.
+ */
+class AdmissionControlFilterTest {
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void requestsOverTheIpLimitAreRejectedWithRetryAfter() throws Exception {
+        AdmissionControlFilter filter = filter(route("products", "/api/v1/products/**", 0, 3, 0));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, perform(filter, "/api/v1/products/1", new MockFilterChain()).getStatus());
+        }
+        MockHttpServletResponse rejected = perform(filter, "/api/v1/products/1", new MockFilterChain());
+
+        assertEquals(429, rejected.getStatus());
+        assertNotNull(rejected.getHeader("Retry-After"));
+        assertEquals(200, perform(filter, "/api/v1/categories", new MockFilterChain()).getStatus());
+    }
+
+    @Test
+    void forwardedForHeadersDoNotEscapeTheIpLimit() throws Exception {
+        AdmissionControlFilter filter = filter(route("products", "/api/v1/products/**", 0, 3, 0));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, performForwardedFor(filter, "198.51.100." + i).getStatus());
+        }
+
+        assertEquals(429, performForwardedFor(filter, "198.51.100.99").getStatus());
+    }
+
+    @Test
+    void principalLimitAppliesPerUser() throws Exception {
+        AdmissionControlFilter filter = filter(route("graphql", "/graphql", 1, 0, 0));
+
+        authenticate("alice");
+        assertEquals(200, perform(filter, "/graphql", new MockFilterChain()).getStatus());
+        assertEquals(429, perform(filter, "/graphql", new MockFilterChain()).getStatus());
+        authenticate("bob");
+        assertEquals(200, perform(filter, "/graphql", new MockFilterChain()).getStatus());
+    }
+
+    @Test
+    void requestsBeyondTheConcurrencyLimitAreShed() throws Exception {
+        AdmissionControlFilter filter = filter(route("filter", "/api/v1/products/filter", 0, 0, 1));
+        MockHttpServletResponse[] nested = new MockHttpServletResponse[1];
+        FilterChain slowRequest = (_, _) -> nested[0] = perform(filter, "/api/v1/products/filter", new MockFilterChain());
+
+        assertEquals(200, perform(filter, "/api/v1/products/filter", slowRequest).getStatus());
+
+        assertEquals(503, nested[0].getStatus());
+        assertEquals("1", nested[0].getHeader("Retry-After"));
+        assertEquals(200, perform(filter, "/api/v1/products/filter", new MockFilterChain()).getStatus());
+    }
+
+    private static MockHttpServletResponse perform(AdmissionControlFilter filter, String uri, FilterChain chain)
+            throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest(HttpMethod.GET.name(), uri);
+        request.setRemoteAddr("203.0.113.7");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static MockHttpServletResponse performForwardedFor(AdmissionControlFilter filter, String forwardedFor)
+            throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest(HttpMethod.GET.name(), "/api/v1/products/1");
+        request.setRemoteAddr("203.0.113.7");
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                username, null, List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER"))));
+    }
+
+    private static AdmissionControlFilter filter(RateLimitProperties.Route route) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getApi().setMaxTrackedKeys(100);
+        properties.getApi().setRoutes(List.of(route));
+        return new AdmissionControlFilter(properties);
+    }
+
+    private static RateLimitProperties.Route route(String name, String pattern, int principalLimit, int ipLimit,
+                                                   int maxConcurrency) {
+        RateLimitProperties.Route route = new RateLimitProperties.Route();
+        route.setName(name);
+        route.setPatterns(List.of(pattern));
+        route.setPrincipalLimit(principalLimit);
+        route.setIpLimit(ipLimit);
+        route.setWindow(Duration.ofMinutes(1));
+        route.setMaxConcurrency(maxConcurrency);
+        return route;
+    }
+}
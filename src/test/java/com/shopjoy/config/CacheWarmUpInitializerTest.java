@@ -0,0 +1,152 @@
+package com.shopjoy.config;
+
+import com.shopjoy.aspect.PerformanceMetricsCollector;
+import com.shopjoy.aspect.TraceSampler;
+import com.shopjoy.cache.CacheDependencyRegistry;
+import com.shopjoy.controller.PerformanceController;
+import com.shopjoy.dto.response.CategoryResponse;
+import com.shopjoy.dto.response.ProductResponse;
+import com.shopjoy.repository.ProductRepository;
+import com.shopjoy.service.CategoryService;
+import com.shopjoy.service.InventoryService;
+import com.shopjoy.service.ProductService;
+import com.shopjoy.util.CacheMetricsCollector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the warm-up against mocked services: loaders that block, fail or run
+ * concurrently, and the report served by the performance endpoint.
+ */
+class CacheWarmUpInitializerTest {
+
+    private final CacheProperties cacheProperties = new CacheProperties();
+    private final ProductService productService = mock(ProductService.class);
+    private final CategoryService categoryService = mock(CategoryService.class);
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+
+    private final CacheWarmUpInitializer initializer = new CacheWarmUpInitializer(cacheProperties, productService,
+            categoryService, mock(InventoryService.class), productRepository, new CacheDependencyRegistry());
+
+    @BeforeEach
+    void setUp() {
+        CacheProperties.WarmUp warmUp = cacheProperties.getWarmUp();
+        warmUp.setCaches(new LinkedHashSet<>(List.of("activeProducts", "categories", "product")));
+        warmUp.setTimeout(Duration.ofSeconds(10));
+        warmUp.setTopProducts(2);
+
+        when(productService.getActiveProducts()).thenReturn(List.of(new ProductResponse(), new ProductResponse()));
+        when(categoryService.getAllCategories()).thenReturn(List.of(new CategoryResponse()));
+        when(productRepository.findIds(any(Pageable.class))).thenReturn(List.of(1, 2));
+        when(productService.getProductsByIds(anyList())).thenReturn(List.of(new ProductResponse(), new ProductResponse()));
+    }
+
+    @Test
+    void loadsEveryCacheAndReportsTheEntries() {
+        initializer.run();
+
+        Map<String, Object> report = initializer.getLastReport();
+        assertEquals("COMPLETED", report.get("status"));
+        assertEquals(5, report.get("totalEntries"));
+        assertEquals(List.of("activeProducts", "categories", "product"), steps().stream().map(CacheWarmUpInitializer.Step::cache).toList());
+    }
+
+    @Test
+    void neverRunsMoreLoadersThanThreads() {
+        cacheProperties.getWarmUp().setThreads(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(productService.getActiveProducts()).thenAnswer(_ -> tracked(running, maxRunning, List.of()));
+        when(categoryService.getAllCategories()).thenAnswer(_ -> tracked(running, maxRunning, List.of()));
+        when(productService.getProductsByIds(anyList())).thenAnswer(_ -> tracked(running, maxRunning, List.of()));
+
+        initializer.run();
+
+        assertEquals("COMPLETED", initializer.getLastReport().get("status"));
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    void givesUpOnLoadersThatOutliveTheTimeout() {
+        cacheProperties.getWarmUp().setTimeout(Duration.ofMillis(200));
+        CountDownLatch never = new CountDownLatch(1);
+        when(productService.getActiveProducts()).thenAnswer(_ -> {
+            never.await();
+            return List.of();
+        });
+
+        long startedAt = System.nanoTime();
+        initializer.run();
+
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startedAt) < 5, "Warm-up should not wait past the timeout");
+        assertEquals("PARTIAL", initializer.getLastReport().get("status"));
+        assertEquals(List.of("TIMED_OUT", "COMPLETED", "COMPLETED"), statuses());
+    }
+
+    @Test
+    void aFailingLoaderDoesNotStopTheOthers() {
+        when(categoryService.getAllCategories()).thenThrow(new IllegalStateException("database unavailable"));
+
+        initializer.run();
+
+        assertEquals("PARTIAL", initializer.getLastReport().get("status"));
+        assertEquals(List.of("COMPLETED", "FAILED", "COMPLETED"), statuses());
+        assertEquals(4, initializer.getLastReport().get("totalEntries"));
+    }
+
+    @Test
+    void reportIsServedByThePerformanceEndpoint() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new PerformanceController(mock(PerformanceMetricsCollector.class),
+                mock(CacheMetricsCollector.class), initializer, mock(TraceSampler.class))).build();
+
+        mockMvc.perform(get("/api/v1/performance/cache/warm-up"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.status").value("NOT_RUN"));
+
+        initializer.run();
+
+        mockMvc.perform(get("/api/v1/performance/cache/warm-up"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.data.totalEntries").value(5))
+                .andExpect(jsonPath("$.data.caches[1].cache").value("categories"))
+                .andExpect(jsonPath("$.data.caches[1].entries").value(1));
+    }
+
+    private static <T> T tracked(AtomicInteger running, AtomicInteger maxRunning, T result) throws InterruptedException {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        Thread.sleep(200);
+        running.decrementAndGet();
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<CacheWarmUpInitializer.Step> steps() {
+        return (List<CacheWarmUpInitializer.Step>) initializer.getLastReport().get("caches");
+    }
+
+    private List<String> statuses() {
+        return steps().stream().map(CacheWarmUpInitializer.Step::status).toList();
+    }
+}
@@ -0,0 +1,138 @@
+package com.shopjoy.config;
+
+import com.shopjoy.entity.User;
+import com.shopjoy.entity.UserType;
+import com.shopjoy.repository.UserRepository;
+import com.shopjoy.security.CustomUserDetails;
+import com.shopjoy.security.UserStatus;
+import com.shopjoy.service.CustomUserDetailsService;
+import com.shopjoy.service.SecurityAuditService;
+import com.shopjoy.service.TokenBlacklistService;
+import com.shopjoy.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cost of authenticating one request with {@link JwtAuthenticationFilter}, and of the
+ * token verification inside it: the former three parses with a freshly derived key per
+ * parse, one parse with the shared parser, and a verified-claims cache hit.
+ * The user status lookup is served by a mocked repository, so the filter numbers exclude the database.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.shopjoy.config.JwtAuthenticationFilterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    private JwtUtil jwtUtil;
+    private JwtParser sharedParser;
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest request;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(jwtUtil, "claimsCacheMaxSize", 10_000L);
+        jwtUtil.init();
+        sharedParser = Jwts.parser().verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8))).build();
+
+        token = jwtUtil.generateToken(new CustomUserDetails(1, "alice", "hash", true, true, true, true,
+                List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER"))));
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(User.builder()
+                .id(1)
+                .username("alice")
+                .passwordHash("hash")
+                .userType(UserType.CUSTOMER)
+                .build()));
+        when(userRepository.findStatusByUsername("alice")).thenReturn(Optional.of(new UserStatus(1, UserType.CUSTOMER)));
+        TokenBlacklistService blacklist = mock(TokenBlacklistService.class);
+        filter = new JwtAuthenticationFilter(jwtUtil, new CustomUserDetailsService(userRepository),
+                mock(SecurityAuditService.class), blacklist);
+
+        request = new MockHttpServletRequest("GET", "/api/v1/orders");
+        request.addHeader("Authorization", "Bearer " + token);
+    }
+
+    @Benchmark
+    public Object filterRequest() throws Exception {
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Benchmark
+    public boolean previousVerification() {
+        String username = legacyParse().getSubject();
+        boolean expired = legacyParse().getExpiration().before(new Date());
+        return !expired && username.equals(legacyParse().getSubject());
+    }
+
+    @Benchmark
+    public Claims singleParse() {
+        return sharedParser.parseSignedClaims(token).getPayload();
+    }
+
+    @Benchmark
+    public Claims cachedVerification() {
+        return jwtUtil.verify(token);
+    }
+
+    private Claims legacyParse() {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtAuthenticationFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,98 @@
+package com.shopjoy.config;
+
+import com.shopjoy.entity.UserType;
+import com.shopjoy.repository.UserRepository;
+import com.shopjoy.security.CustomUserDetails;
+import com.shopjoy.security.UserStatus;
+import com.shopjoy.service.CustomUserDetailsService;
+import com.shopjoy.service.SecurityAuditService;
+import com.shopjoy.service.TokenBlacklistService;
+import com.shopjoy.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs requests through the filter with a real token: the token is verified once per
+ * request and the blacklist check reuses its claims.
+ */
+class JwtAuthenticationFilterTest {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    private final TokenBlacklistService blacklist = mock(TokenBlacklistService.class);
+    private final JwtUtil jwtUtil = spy(new JwtUtil());
+    private final JwtAuthenticationFilter filter;
+
+    JwtAuthenticationFilterTest() {
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(jwtUtil, "claimsCacheMaxSize", 1_000L);
+        jwtUtil.init();
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findStatusByUsername("alice")).thenReturn(Optional.of(new UserStatus(1, UserType.CUSTOMER)));
+        filter = new JwtAuthenticationFilter(jwtUtil, new CustomUserDetailsService(userRepository),
+                mock(SecurityAuditService.class), blacklist);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void tokenIsVerifiedOncePerRequest() throws Exception {
+        String token = token();
+
+        Authentication authentication = filter(token);
+
+        assertEquals("alice", authentication.getName());
+        verify(jwtUtil, times(1)).verify(token);
+        verify(blacklist).isBlacklisted(eq(token), any(Claims.class));
+        verify(blacklist, times(0)).isBlacklisted(anyString());
+    }
+
+    @Test
+    void blacklistedTokenDoesNotAuthenticate() throws Exception {
+        String token = token();
+        when(blacklist.isBlacklisted(eq(token), any(Claims.class))).thenReturn(true);
+
+        assertNull(filter(token));
+        verify(jwtUtil, times(1)).verify(token);
+    }
+
+    private Authentication filter(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/orders");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private String token() {
+        return jwtUtil.generateToken(new CustomUserDetails(1, "alice", "hash",
+                List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER"))));
+    }
+}
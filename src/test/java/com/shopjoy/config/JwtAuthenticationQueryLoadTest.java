@@ -0,0 +1,144 @@
+package com.shopjoy.config;
+
+import com.shopjoy.entity.User;
+import com.shopjoy.entity.UserType;
+import com.shopjoy.repository.UserRepository;
+import com.shopjoy.security.CustomUserDetails;
+import com.shopjoy.service.UserService;
+import com.shopjoy.util.JwtUtil;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Counts the SQL statements issued while authenticating the same bearer token many
+ * times: DATABASE mode loads the user on every request, CLAIMS mode only loads the
+ * user status once per cache TTL. A deleted user must still be rejected in CLAIMS mode,
+ * and its rejections are cached as well. The load test reports the same counts over
+ * more requests.
+ */
+@Slf4j
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class JwtAuthenticationQueryLoadTest {
+
+    private static final int REQUESTS = 50;
+    private static final int LOAD_REQUESTS = 2_000;
+
+    @Autowired
+    private JwtAuthenticationFilter filter;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private User user;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        user = userRepository.save(User.builder()
+                .username("jwt-load-user")
+                .email("jwt-load-user@example.com")
+                .passwordHash("hash")
+                .firstName("Jwt")
+                .lastName("Load")
+                .userType(UserType.CUSTOMER)
+                .build());
+        token = jwtUtil.generateToken(new CustomUserDetails(user.getId(), user.getUsername(), "hash",
+                List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER"))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(filter, "authenticationMode", JwtAuthenticationFilter.AuthenticationMode.CLAIMS);
+        userRepository.findByUsername("jwt-load-user").ifPresent(existing -> userService.deleteUser(existing.getId()));
+    }
+
+    @Test
+    void claimsModeAvoidsTheUserQueryPerRequest() throws Exception {
+        double databaseQueries = queriesPerRequest(JwtAuthenticationFilter.AuthenticationMode.DATABASE, REQUESTS);
+        double claimsQueries = queriesPerRequest(JwtAuthenticationFilter.AuthenticationMode.CLAIMS, REQUESTS);
+
+        assertTrue(databaseQueries >= 1.0, "DATABASE mode loads the user on every request");
+        assertTrue(claimsQueries * REQUESTS <= 1, "CLAIMS mode only loads the user status once per TTL");
+    }
+
+    @Test
+    @Tag("load")
+    void reportQueriesPerRequest() throws Exception {
+        double databaseQueries = queriesPerRequest(JwtAuthenticationFilter.AuthenticationMode.DATABASE, LOAD_REQUESTS);
+        double claimsQueries = queriesPerRequest(JwtAuthenticationFilter.AuthenticationMode.CLAIMS, LOAD_REQUESTS);
+
+        log.info("JWT authentication: DATABASE {} queries/request, CLAIMS {} queries/request",
+                String.format("%.3f", databaseQueries), String.format("%.3f", claimsQueries));
+    }
+
+    @Test
+    void deletedUserIsRejectedInClaimsMode() throws Exception {
+        assertNotNull(authenticate());
+
+        userService.deleteUser(user.getId());
+
+        assertNull(authenticate());
+        statistics.clear();
+        for (int i = 0; i < REQUESTS; i++) {
+            assertNull(authenticate());
+        }
+        assertEquals(0, statistics.getPrepareStatementCount(), "The missing user is cached as absent");
+    }
+
+    private double queriesPerRequest(JwtAuthenticationFilter.AuthenticationMode mode, int requests) throws Exception {
+        ReflectionTestUtils.setField(filter, "authenticationMode", mode);
+        statistics.clear();
+        for (int i = 0; i < requests; i++) {
+            Authentication authentication = authenticate();
+            assertNotNull(authentication);
+            assertEquals("jwt-load-user", authentication.getName());
+        }
+        return statistics.getPrepareStatementCount() / (double) requests;
+    }
+
+    private Authentication authenticate() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/orders");
+        request.addHeader("Authorization", "Bearer " + token);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
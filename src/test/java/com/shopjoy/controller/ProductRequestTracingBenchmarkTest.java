@@ -0,0 +1,148 @@
+package com.shopjoy.controller;
+
+import com.shopjoy.aspect.LoggingAspect;
+import com.shopjoy.aspect.TraceSampler;
+import com.shopjoy.aspect.TransactionAspect;
+import com.shopjoy.entity.Category;
+import com.shopjoy.entity.Product;
+import com.shopjoy.repository.CategoryRepository;
+import com.shopjoy.repository.ProductRepository;
+import com.shopjoy.service.ProductService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tracing of GET /api/v1/products/{id} calls through the controller proxy. The default test
+ * checks that sampled transactions log both their START and COMMIT lines; the load test
+ * reports the CPU time per call with every tracing line enabled and sampled, and with the
+ * low-overhead settings, where the logging and transaction aspects do no work.
+ */
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("test")
+@ExtendWith(OutputCaptureExtension.class)
+class ProductRequestTracingBenchmarkTest {
+
+    private static final int SAMPLED_CALLS = 200;
+    private static final int WARM_UP_REQUESTS = 2_000;
+    private static final int REQUESTS = 20_000;
+
+    @Autowired
+    private ProductController productController;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TraceSampler traceSampler;
+
+    @Autowired
+    private LoggingSystem loggingSystem;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    private Product product;
+
+    @AfterEach
+    void restoreTracing() {
+        loggingSystem.setLogLevel(LoggingAspect.class.getName(), null);
+        loggingSystem.setLogLevel(TransactionAspect.class.getName(), null);
+        traceSampler.setDefaultSampleRate(1.0);
+        if (product != null) {
+            productRepository.delete(product);
+            categoryRepository.delete(product.getCategory());
+        }
+    }
+
+    @Test
+    void sampledTransactionsLogBothTheirStartAndOutcome(CapturedOutput output) {
+        loggingSystem.setLogLevel(TransactionAspect.class.getName(), LogLevel.DEBUG);
+        traceSampler.setDefaultSampleRate(0.5);
+
+        for (int i = 0; i < SAMPLED_CALLS; i++) {
+            productService.getTotalProductCount();
+        }
+
+        long starts = output.getOut().lines().filter(line -> line.contains("TRANSACTION START: ")).count();
+        long commits = output.getOut().lines().filter(line -> line.contains("TRANSACTION COMMIT: ")).count();
+        assertTrue(starts > 0 && starts < SAMPLED_CALLS, "About half of the transactions should be traced");
+        assertEquals(starts, commits);
+    }
+
+    @Test
+    @Tag("load")
+    void lowOverheadTracingCostsLessCpuPerRequest() {
+        assertTrue(threadMXBean.isCurrentThreadCpuTimeSupported(), "Thread CPU time is not supported on this JVM");
+        int productId = createProduct();
+
+        setTracing(LogLevel.DEBUG, 1.0);
+        double fullNanos = cpuNanosPerRequest(productId);
+
+        setTracing(LogLevel.WARN, 0.0);
+        double lowOverheadNanos = cpuNanosPerRequest(productId);
+
+        log.info("GET /api/v1/products/{id}: full tracing {} us CPU/request, low-overhead {} us CPU/request ({}x)",
+                String.format("%.1f", fullNanos / 1_000), String.format("%.1f", lowOverheadNanos / 1_000),
+                String.format("%.1f", fullNanos / lowOverheadNanos));
+    }
+
+    private void setTracing(LogLevel level, double sampleRate) {
+        loggingSystem.setLogLevel(LoggingAspect.class.getName(), level);
+        loggingSystem.setLogLevel(TransactionAspect.class.getName(), level);
+        traceSampler.setDefaultSampleRate(sampleRate);
+    }
+
+    private double cpuNanosPerRequest(int productId) {
+        for (int i = 0; i < WARM_UP_REQUESTS; i++) {
+            request(productId);
+        }
+        long startedAt = threadMXBean.getCurrentThreadCpuTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            request(productId);
+        }
+        return (threadMXBean.getCurrentThreadCpuTime() - startedAt) / (double) REQUESTS;
+    }
+
+    private void request(int productId) {
+        assertEquals(productId, productController.getProductById(productId).getBody().getData().getId());
+    }
+
+    private int createProduct() {
+        long run = System.nanoTime();
+        Category category = categoryRepository.save(Category.builder()
+                .categoryName("Tracing benchmark " + run)
+                .build());
+
+        product = productRepository.save(Product.builder()
+                .productName("Traced product")
+                .category(category)
+                .price(BigDecimal.TEN)
+                .costPrice(BigDecimal.ONE)
+                .sku("TRACE-" + run)
+                .build());
+        return product.getId();
+    }
+}
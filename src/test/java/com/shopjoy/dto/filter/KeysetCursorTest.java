@@ -0,0 +1,40 @@
+package com.shopjoy.dto.filter;
+
+import com.shopjoy.exception.ValidationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetCursorTest {
+
+    @Test
+    void cursorRoundTripsThroughItsOpaqueForm() {
+        String encoded = KeysetCursor.after("productName", Sort.Direction.DESC, 42, "Laptop\u001F 15\" / Pro").encode();
+
+        KeysetCursor decoded = KeysetCursor.decode(encoded, "productName", Sort.Direction.DESC);
+
+        assertFalse(encoded.contains("/") || encoded.contains("+") || encoded.contains("="));
+        assertEquals(42, decoded.id());
+        assertEquals("Laptop\u001F 15\" / Pro", decoded.value());
+    }
+
+    @Test
+    void cursorIsRejectedForAnotherSortOrder() {
+        String encoded = KeysetCursor.after("price", Sort.Direction.ASC, 7, new BigDecimal("19.99")).encode();
+
+        assertThrows(ValidationException.class, () -> KeysetCursor.decode(encoded, "price", Sort.Direction.DESC));
+        assertThrows(ValidationException.class, () -> KeysetCursor.decode(encoded, "createdAt", Sort.Direction.ASC));
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(ValidationException.class, () -> KeysetCursor.decode("not a cursor!", "id", Sort.Direction.ASC));
+        assertThrows(ValidationException.class, () -> KeysetCursor.decode("aWQ", "id", Sort.Direction.ASC));
+        assertThrows(ValidationException.class, () -> KeysetCursor.direction("SIDEWAYS"));
+    }
+}
@@ -0,0 +1,58 @@
+package com.shopjoy.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IntIntHashMapTest {
+
+    @Test
+    void matchesAHashMapThroughPutsAndRemovals() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            // a small key range makes long probe runs and many removals inside them
+            int key = random.nextInt(5_000) * (random.nextBoolean() ? 1 : -65_536);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.getOrDefault(key, IntIntHashMap.MISSING), map.remove(key));
+                expected.remove(key);
+            } else {
+                int value = random.nextInt(Integer.MAX_VALUE);
+                map.put(key, value);
+                expected.put(key, value);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int key = -5_000 * 65_536; key <= 0; key += 65_536) {
+            assertEquals(expected.getOrDefault(key, IntIntHashMap.MISSING), map.get(key));
+        }
+        for (int key = 0; key < 5_000; key++) {
+            assertEquals(expected.getOrDefault(key, IntIntHashMap.MISSING), map.get(key));
+        }
+    }
+
+    @Test
+    void memoryFollowsTheEntriesNotTheKeys() {
+        IntIntHashMap map = new IntIntHashMap(16);
+        map.put(Integer.MAX_VALUE, 1);
+        map.put(1_000_000_000, 2);
+
+        assertEquals(1, map.get(Integer.MAX_VALUE));
+        assertEquals(2, map.get(1_000_000_000));
+        assertEquals(IntIntHashMap.MISSING, map.get(7));
+        assertEquals(16 + 2 * (16 + 4 * 32), map.estimatedBytes());
+    }
+
+    @Test
+    void negativeValuesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new IntIntHashMap(16).put(1, -1));
+    }
+}
@@ -0,0 +1,122 @@
+package com.shopjoy.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search latency over a synthetic catalog of a million products, with 4 threads.
+ * The catalog draws names from a few hundred words, so common terms match tens of
+ * thousands of products, the worst case for ranking. The index size is printed
+ * after it is built.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.shopjoy.search.ProductSearchBenchmark
+ */
+@Slf4j
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class ProductSearchBenchmark {
+
+    static final String[] BRANDS = {
+            "Acme", "Apple", "Asus", "Bosch", "Canon", "Dell", "Garmin", "Lenovo", "Logitech", "Nikon",
+            "Philips", "Samsung", "Sony", "Tefal", "Xiaomi"
+    };
+    static final String[] CATEGORIES = {
+            "Computers", "Phones", "Cameras", "Kitchen", "Audio", "Gaming", "Office", "Garden", "Sports", "Toys"
+    };
+    static final String[] ADJECTIVES = {
+            "wireless", "portable", "compact", "premium", "ergonomic", "smart", "waterproof", "silent",
+            "professional", "classic", "ultra", "mini", "digital", "rechargeable", "foldable", "heavy-duty"
+    };
+    static final String[] NOUNS = {
+            "laptop", "keyboard", "mouse", "monitor", "headphones", "speaker", "camera", "lens", "tripod",
+            "kettle", "blender", "toaster", "charger", "cable", "router", "drone", "watch", "tablet",
+            "printer", "scanner", "microphone", "controller", "backpack", "lamp", "fan", "heater"
+    };
+
+    @Param({"1000000"})
+    public int products;
+
+    private ProductSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new ProductSearchIndex(2, 50, 4, 8);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int id = 1; id <= products; id++) {
+            index.add(syntheticProduct(id, random));
+        }
+        System.gc();
+        ProductSearchIndex.Stats stats = index.stats();
+        log.info("Index of {} products: {} terms, {} postings, ~{} MB",
+                stats.documents(), stats.terms(), stats.postings(), stats.estimatedBytes() >> 20);
+    }
+
+    @Benchmark
+    public ProductSearchResult commonTerms() {
+        return index.search(ProductSearchQuery.of("wireless laptop", 0, 20));
+    }
+
+    @Benchmark
+    public ProductSearchResult prefix() {
+        return index.search(ProductSearchQuery.of("samsung head", 0, 20));
+    }
+
+    @Benchmark
+    public ProductSearchResult typo() {
+        return index.search(ProductSearchQuery.of("ergonmic keybord", 0, 20));
+    }
+
+    @Benchmark
+    public ProductSearchResult filteredAndSortedByPrice() {
+        return index.search(new ProductSearchQuery("portable speaker", 5, 20.0, 200.0, null, true,
+                ProductSearchQuery.Sort.PRICE, true, 0, 20));
+    }
+
+    @Benchmark
+    public ProductSearchResult rareSku() {
+        return index.search(ProductSearchQuery.of("sku-777777", 0, 20));
+    }
+
+    static ProductDocument syntheticProduct(int id, SplittableRandom random) {
+        String brand = BRANDS[random.nextInt(BRANDS.length)];
+        String noun = NOUNS[random.nextInt(NOUNS.length)];
+        String name = brand + " " + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + noun
+                + " " + (100 + random.nextInt(900));
+        String description = "A " + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + noun + " by " + brand
+                + ", model sku-" + id;
+        int category = random.nextInt(CATEGORIES.length);
+        return new ProductDocument(id, name, description, brand, category + 1, CATEGORIES[category],
+                random.nextInt(1, 2_000), random.nextInt(10) > 0, 1_600_000_000_000L + id * 60_000L,
+                random.nextInt(10) == 0 ? random.nextInt(1, 5_000) : random.nextInt(20));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProductSearchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
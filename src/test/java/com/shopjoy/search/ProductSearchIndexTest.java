@@ -0,0 +1,122 @@
+package com.shopjoy.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex(2, 50, 4, 8);
+        index.add(product(1, "Dell XPS 13 Laptop", "Ultrabook with an aluminium chassis", "Dell", 1, "Computers", 1299));
+        index.add(product(2, "Laptop Sleeve", "Padded sleeve for 13 inch laptops", "Tomtoc", 5, "Accessories", 29));
+        index.add(product(3, "Lenovo ThinkPad X1", "Business laptop", "Lenovo", 1, "Computers", 1499));
+        index.add(product(4, "Café Crème Coffee Beans", "Medium roast", "Lavazza", 9, "Grocery", 15));
+        index.add(product(5, "Wireless Mouse", "Works with any laptop", "Logitech", 5, "Accessories", 25));
+    }
+
+    @Test
+    void namesOutrankDescriptions() {
+        List<Integer> ids = search("laptop").productIds();
+
+        assertEquals(4, ids.size());
+        assertTrue(ids.indexOf(1) < ids.indexOf(5), "name match should rank above description match");
+        assertTrue(ids.indexOf(2) < ids.indexOf(5));
+    }
+
+    @Test
+    void everyTermMustMatch() {
+        assertEquals(List.of(1), search("dell laptop").productIds());
+        assertEquals(List.of(), search("dell mouse").productIds());
+    }
+
+    @Test
+    void lastWordMatchesAsPrefix() {
+        assertEquals(List.of(3), search("think").productIds());
+        assertEquals(List.of(5), search("wireless mou").productIds());
+    }
+
+    @Test
+    void pluralsAccentsAndCaseAreFolded() {
+        assertEquals(4, search("LAPTOPS").totalHits());
+        assertEquals(List.of(4), search("cafe creme").productIds());
+    }
+
+    @Test
+    void typosAreToleratedWithTheSameFirstLetter() {
+        assertEquals(List.of(3), search("lenvo").productIds());
+        assertEquals(List.of(4), search("coffe beens").productIds());
+        assertEquals(0, search("kenovo").totalHits());
+        assertEquals(0, search("xbs").totalHits(), "short terms must match exactly");
+    }
+
+    @Test
+    void filtersAndSortsApplyToMatches() {
+        ProductSearchQuery cheapAccessories = new ProductSearchQuery("laptop", 5, null, 50.0, null, null,
+                ProductSearchQuery.Sort.PRICE, true, 0, 10);
+        ProductSearchResult result = index.search(cheapAccessories);
+        assertEquals(List.of(5, 2), result.productIds());
+        assertEquals(2, result.totalHits());
+
+        ProductSearchQuery brand = new ProductSearchQuery("laptop", null, null, null, "DELL", null,
+                ProductSearchQuery.Sort.RELEVANCE, false, 0, 10);
+        assertEquals(List.of(1), index.search(brand).productIds());
+    }
+
+    @Test
+    void pagesReportTheTotalHits() {
+        ProductSearchResult secondPage = index.search(ProductSearchQuery.of("laptop", 2, 2));
+
+        assertEquals(2, secondPage.productIds().size());
+        assertEquals(4, secondPage.totalHits());
+    }
+
+    @Test
+    void addingAgainReplacesAndRemoveDrops() {
+        index.add(product(5, "Wireless Keyboard", "Quiet keys", "Logitech", 5, "Accessories", 45));
+
+        assertEquals(0, search("mouse").totalHits());
+        assertEquals(List.of(5), search("keyboard").productIds());
+        assertEquals(5, index.size());
+
+        assertTrue(index.remove(5));
+        assertFalse(index.remove(5));
+        assertFalse(index.contains(5));
+        assertEquals(0, search("keyboard").totalHits());
+    }
+
+    @Test
+    void compactionKeepsResultsIntact() {
+        for (int i = 100; i < 3_100; i++) {
+            index.add(product(i, "Gadget " + i, "Disposable", "Acme", 2, "Gadgets", i));
+        }
+        int termsBefore = index.stats().terms();
+        for (int i = 100; i < 3_100; i++) {
+            index.remove(i);
+        }
+
+        assertEquals(5, index.size());
+        assertTrue(index.stats().terms() < termsBefore);
+        assertEquals(0, search("gadget").totalHits());
+        assertEquals(List.of(3), search("thinkpad").productIds());
+        index.add(product(3, "Lenovo ThinkPad X1 Carbon", "Business laptop", "Lenovo", 1, "Computers", 1599));
+        assertEquals(List.of(3), search("carbon").productIds());
+    }
+
+    private ProductSearchResult search(String text) {
+        return index.search(ProductSearchQuery.of(text, 0, 10));
+    }
+
+    private static ProductDocument product(int id, String name, String description, String brand,
+                                           int categoryId, String categoryName, double price) {
+        return new ProductDocument(id, name, description, brand, categoryId, categoryName, price, true, id * 1000L, 0);
+    }
+}
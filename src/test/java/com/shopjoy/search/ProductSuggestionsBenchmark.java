@@ -0,0 +1,101 @@
+package com.shopjoy.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Autocomplete latency over the synthetic catalog of {@link ProductSearchBenchmark}, with
+ * 4 threads. The suggestion count, trie size and estimated heap footprint are printed
+ * after the suggestions are built.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.shopjoy.search.ProductSuggestionsBenchmark
+ */
+@Slf4j
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class ProductSuggestionsBenchmark {
+
+    @Param({"1000000"})
+    public int products;
+
+    private ProductSuggestions suggestions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        suggestions = new ProductSuggestions(10, 32, 6);
+        SplittableRandom random = new SplittableRandom(42);
+        long startTime = System.nanoTime();
+        suggestions.startBulkLoad();
+        for (int id = 1; id <= products; id++) {
+            suggestions.add(ProductSearchBenchmark.syntheticProduct(id, random));
+        }
+        suggestions.finishBulkLoad();
+        long buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        System.gc();
+        SuggestionIndex.Stats stats = suggestions.stats();
+        log.info("Suggestions for {} products built in {} ms: {} texts, {} keys, {} nodes, ~{} MB",
+                products, buildMillis, stats.texts(), stats.keys(), stats.nodes(), stats.estimatedBytes() >> 20);
+    }
+
+    @Benchmark
+    public List<Suggestion> singleLetter() {
+        return suggestions.suggest("s", 10);
+    }
+
+    @Benchmark
+    public List<Suggestion> brandPrefix() {
+        return suggestions.suggest("sam", 10);
+    }
+
+    @Benchmark
+    public List<Suggestion> twoWords() {
+        return suggestions.suggest("samsung wire", 10);
+    }
+
+    @Benchmark
+    public List<Suggestion> laterWord() {
+        return suggestions.suggest("laptop", 10);
+    }
+
+    @Benchmark
+    public List<Suggestion> deepPrefix() {
+        return suggestions.suggest("lenovo ergonomic keyboard 5", 10);
+    }
+
+    @Benchmark
+    public void updateProduct() {
+        int id = 1 + (int) (Thread.currentThread().threadId() % products);
+        suggestions.add(ProductSearchBenchmark.syntheticProduct(id, new SplittableRandom(id)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProductSuggestionsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,104 @@
+package com.shopjoy.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSuggestionsTest {
+
+    private ProductSuggestions suggestions;
+
+    @BeforeEach
+    void setUp() {
+        suggestions = new ProductSuggestions(10, 2, 6);
+        suggestions.startBulkLoad();
+        suggestions.add(product(1, "Dell XPS 13 Laptop", "Dell", 1, "Computers", 50, true));
+        suggestions.add(product(2, "Dell Inspiron 15", "Dell", 1, "Computers", 10, true));
+        suggestions.add(product(3, "Lenovo ThinkPad X1", "Lenovo", 1, "Computers", 30, true));
+        suggestions.add(product(4, "DeLonghi Espresso Machine", "DeLonghi", 9, "Kitchen", 5, true));
+        suggestions.add(product(5, "Dell Old Model", "Dell", 1, "Computers", 1_000, false));
+        suggestions.finishBulkLoad();
+    }
+
+    @Test
+    void brandsRankAboveTheirProducts() {
+        assertEquals(List.of("dell", "dell xps 13 laptop", "dell inspiron 15", "delonghi", "delonghi espresso machine"),
+                texts("Del"));
+        assertEquals(List.of("dell", "dell xps 13 laptop"), texts("del", 2));
+
+        Suggestion brand = suggestions.suggest("dell", 1).getFirst();
+        assertEquals(Suggestion.Type.BRAND, brand.type());
+        assertEquals(62, brand.popularity());
+    }
+
+    @Test
+    void categoriesAndLaterWordsAreSuggested() {
+        Suggestion category = suggestions.suggest("comp", 10).getFirst();
+        assertEquals(Suggestion.Type.CATEGORY, category.type());
+        assertEquals(1, category.id());
+        assertEquals(93, category.popularity());
+
+        Suggestion product = suggestions.suggest("thinkpad x", 10).getFirst();
+        assertEquals(Suggestion.Type.PRODUCT, product.type());
+        assertEquals(3, product.id());
+        assertEquals(List.of("lenovo thinkpad x1"), texts("x1"));
+        assertEquals(List.of(), texts("pad"));
+    }
+
+    @Test
+    void inactiveProductsAreNotSuggested() {
+        assertEquals(List.of(), texts("dell old"));
+
+        suggestions.add(product(5, "Dell Old Model", "Dell", 1, "Computers", 1_000, true));
+        assertEquals(List.of("dell old model"), texts("dell old"));
+        assertEquals(List.of("dell", "dell old model"), texts("dell", 2));
+        assertEquals(1_063, suggestions.suggest("dell", 1).getFirst().popularity());
+    }
+
+    @Test
+    void writesUpdateProductsBrandsAndCategories() {
+        assertTrue(suggestions.remove(1));
+        assertFalse(suggestions.remove(1));
+        assertEquals(List.of("dell", "dell inspiron 15"), texts("dell"));
+        assertEquals(11, suggestions.suggest("dell", 1).getFirst().popularity());
+
+        suggestions.remove(2);
+        assertEquals(List.of(), texts("dell"));
+
+        suggestions.add(product(3, "Lenovo Yoga", "Lenovo", 1, "Laptops", 30, true));
+        assertEquals(List.of(), texts("thinkpad"));
+        assertEquals(List.of("lenovo yoga"), texts("yoga"));
+        assertEquals(List.of("laptops"), texts("laptops"));
+        assertEquals(List.of(), texts("computers"));
+        assertEquals(6, suggestions.size());
+    }
+
+    @Test
+    void sparseProductIdsDoNotGrowTheIdTable() {
+        long before = suggestions.stats().estimatedBytes();
+        suggestions.add(product(2_000_000_000, "Sony Bravia Television", "Sony", 2, "Televisions", 40, true));
+
+        assertEquals(2_000_000_000, suggestions.suggest("bravia", 1).getFirst().id());
+        assertTrue(suggestions.stats().estimatedBytes() - before < 10_000);
+        assertTrue(suggestions.remove(2_000_000_000));
+        assertEquals(List.of(), texts("bravia"));
+    }
+
+    private List<String> texts(String prefix) {
+        return texts(prefix, 10);
+    }
+
+    private List<String> texts(String prefix, int limit) {
+        return suggestions.suggest(prefix, limit).stream().map(Suggestion::text).toList();
+    }
+
+    private static ProductDocument product(int id, String name, String brand, int categoryId, String categoryName,
+                                           long unitsSold, boolean active) {
+        return new ProductDocument(id, name, null, brand, categoryId, categoryName, 100, active, id * 1000L, unitsSold);
+    }
+}
@@ -0,0 +1,116 @@
+package com.shopjoy.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SuggestionIndexTest {
+
+    private static final String[] WORDS = {"a", "ab", "abc", "abd", "b", "ba", "bab", "cab", "cabc", "dab"};
+    private static final int TOP_SIZE = 5;
+    private static final int MAX_WORDS = 3;
+
+    @Test
+    void ranksByPopularityThenLength() {
+        SuggestionIndex index = new SuggestionIndex(3, 2, 4);
+        int laptop = index.add("Laptop", 5);
+        int sleeve = index.add("Laptop Sleeve", 5);
+        int stand = index.add("Laptop-Stand", 9);
+        index.add("Lamp", 1);
+
+        assertArrayEquals(new int[]{stand, laptop, sleeve}, index.suggest("LAP", 10));
+        assertArrayEquals(new int[]{stand, laptop}, index.suggest("lapt", 2));
+        assertArrayEquals(new int[]{sleeve}, index.suggest("slee", 10));
+        assertArrayEquals(new int[]{stand}, index.suggest("laptop st", 10));
+        assertEquals("laptop stand", index.text(stand));
+    }
+
+    @Test
+    void matchesBruteForceThroughAddsUpdatesAndRemovals() {
+        for (boolean bulk : new boolean[]{false, true}) {
+            Random random = new Random(7);
+            SuggestionIndex index = new SuggestionIndex(TOP_SIZE, 4, MAX_WORDS);
+            Map<Integer, Long> live = new HashMap<>();
+            if (bulk) {
+                index.startBulkLoad();
+            }
+            for (int i = 0; i < 2_000; i++) {
+                long popularity = random.nextInt(50);
+                live.put(index.add(randomText(random), popularity), popularity);
+            }
+            if (bulk) {
+                index.finishBulkLoad();
+            }
+            assertMatchesBruteForce(index, live);
+
+            List<Integer> slots = new ArrayList<>(live.keySet());
+            for (int i = 0; i < 1_000; i++) {
+                int slot = slots.get(random.nextInt(slots.size()));
+                if (!live.containsKey(slot)) {
+                    continue;
+                }
+                if (random.nextBoolean()) {
+                    index.remove(slot);
+                    live.remove(slot);
+                } else {
+                    long popularity = random.nextInt(50);
+                    index.update(slot, randomText(random), popularity);
+                    live.put(slot, popularity);
+                }
+            }
+            assertEquals(live.size(), index.size());
+            assertMatchesBruteForce(index, live);
+        }
+    }
+
+    private static void assertMatchesBruteForce(SuggestionIndex index, Map<Integer, Long> live) {
+        List<String> prefixes = new ArrayList<>();
+        for (String word : WORDS) {
+            prefixes.add(word);
+            prefixes.add(word.substring(0, 1));
+            prefixes.add(word + " a");
+            prefixes.add(word + " ab ca");
+        }
+        for (String prefix : prefixes) {
+            int[] expected = live.keySet().stream()
+                    .filter(slot -> matches(index.text(slot), prefix))
+                    .sorted(Comparator.<Integer>comparingLong(slot -> -live.get(slot))
+                            .thenComparingInt(slot -> index.text(slot).length())
+                            .thenComparing(index::text)
+                            .thenComparingInt(slot -> slot))
+                    .limit(TOP_SIZE)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            assertArrayEquals(expected, index.suggest(prefix, TOP_SIZE), "prefix '" + prefix + "'");
+        }
+    }
+
+    private static boolean matches(String text, String prefix) {
+        String[] words = text.split(" ");
+        for (int i = 0; i < Math.min(MAX_WORDS, words.length); i++) {
+            String suffix = String.join(" ", Arrays.copyOfRange(words, i, words.length));
+            if (suffix.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String randomText(Random random) {
+        int words = 1 + random.nextInt(4);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(i > 0 ? " " : "").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,18 @@
+package com.shopjoy.service;
+
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Minimal service for the aspect benchmark. It lives in the service package so the
+ * service pointcut matches it.
+ */
+public class PerformanceAspectBenchmarkTarget {
+
+    public int findById(int id) {
+        return id + 1;
+    }
+
+    public int findPage(Pageable pageable) {
+        return pageable.getPageNumber();
+    }
+}
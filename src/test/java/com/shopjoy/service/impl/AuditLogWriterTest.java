@@ -0,0 +1,190 @@
+package com.shopjoy.service.impl;
+
+import com.shopjoy.config.AuditProperties;
+import com.shopjoy.config.AuditProperties.OverflowPolicy;
+import com.shopjoy.entity.SecurityAuditLog;
+import com.shopjoy.entity.SecurityEventType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the audit writer without its background thread: events are only written by
+ * explicit flushes, so batches and overflow behaviour are deterministic.
+ */
+class AuditLogWriterTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 1, 10, 0);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    @Test
+    void replayStormIsCoalescedIntoOneRow() {
+        AuditLogWriter writer = writer(OverflowPolicy.DROP, 10_000);
+
+        IntStream.range(0, 5_000).forEach(i -> writer.submit(invalidToken("10.0.0.1", START.plusSeconds(i))));
+        writer.submit(invalidToken("10.0.0.2"));
+        writer.flush();
+
+        List<Object[]> rows = writtenRows();
+        assertEquals(2, rows.size());
+        assertEquals("Invalid token [repeated 5000 times, first at 2026-03-01 10:00:00.000, last at 2026-03-01 11:23:19.000]",
+                rows.get(0)[5]);
+        assertEquals(Timestamp.valueOf(START), rows.get(0)[4]);
+        assertEquals("Invalid token", rows.get(1)[5]);
+    }
+
+    @Test
+    void dropPolicyCountsEventsThatDoNotFit() {
+        AuditLogWriter writer = writer(OverflowPolicy.DROP, 100);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        writer.bindTo(registry);
+
+        IntStream.range(0, 150).forEach(i -> writer.submit(invalidToken("10.0.0." + i)));
+
+        assertEquals(100, writer.getQueueDepth());
+        assertEquals(50.0, registry.get("audit.events").tag("result", "dropped").functionCounter().count());
+        assertEquals(100.0, registry.get("audit.buffer.depth").gauge().value());
+    }
+
+    @Test
+    void samplePolicyThinsEventsBeforeTheBufferIsFull() {
+        AuditLogWriter writer = writer(OverflowPolicy.SAMPLE, 1_000);
+
+        IntStream.range(0, 10_000).forEach(i -> writer.submit(invalidToken("10.0.0." + i)));
+
+        assertTrue(writer.getQueueDepth() > 750, "Events below the threshold are all accepted");
+        assertTrue(writer.getQueueDepth() < 1_000, "Only a sample of events above the threshold is accepted");
+    }
+
+    @Test
+    void blockPolicyWritesEventsThatDoNotFitOnTheCallersThread() {
+        AuditLogWriter writer = writer(OverflowPolicy.BLOCK, 1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        writer.bindTo(registry);
+
+        assertTrue(writer.submit(invalidToken("10.0.0.1")));
+        assertTrue(writer.submit(invalidToken("10.0.0.2")));
+
+        assertEquals(1, writer.getQueueDepth());
+        List<Object[]> rows = writtenRows();
+        assertEquals(1, rows.size());
+        assertEquals("10.0.0.2", rows.getFirst()[2]);
+        assertEquals(1.0, registry.get("audit.events").tag("result", "written_directly").functionCounter().count());
+        assertEquals(0.0, registry.get("audit.events").tag("result", "dropped").functionCounter().count());
+    }
+
+    @Test
+    void oversizedFieldsAreCutToTheirColumnsSoTheBatchIsWritten() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            rows.forEach(AuditLogWriterTest::checkColumnLengths);
+            return new int[rows.size()];
+        });
+        AuditLogWriter writer = writer(OverflowPolicy.DROP, 10);
+
+        writer.submit(failedLogin("alice", "10.0.0.1", "Mozilla/5.0"));
+        writer.submit(failedLogin("x".repeat(300), "10.0.0.2", "A".repeat(10_000)));
+        writer.submit(failedLogin("bob", "10.0.0.3", "Mozilla/5.0"));
+        writer.flush();
+
+        List<Object[]> rows = writtenRows();
+        assertEquals(List.of("10.0.0.1", "10.0.0.2", "10.0.0.3"), rows.stream().map(row -> row[2]).toList());
+        assertEquals(100, ((String) rows.get(1)[0]).length());
+        assertEquals(500, ((String) rows.get(1)[3]).length());
+        assertEquals("Mozilla/5.0", rows.get(2)[3]);
+    }
+
+    @Test
+    void rejectedBatchIsRetriedRowByRowSoOnlyTheBadRowIsLost() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataIntegrityViolationException("value too long"));
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenAnswer(invocation -> {
+            if ("10.0.0.2".equals(invocation.getArgument(1, Object[].class)[2])) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            return 1;
+        });
+        AuditLogWriter writer = writer(OverflowPolicy.DROP, 10);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        writer.bindTo(registry);
+
+        writer.submit(failedLogin("alice", "10.0.0.1", "Mozilla/5.0"));
+        writer.submit(failedLogin("mallory", "10.0.0.2", "Mozilla/5.0"));
+        writer.submit(failedLogin("bob", "10.0.0.3", "Mozilla/5.0"));
+        writer.flush();
+
+        verify(jdbcTemplate, times(3)).update(anyString(), any(Object[].class));
+        assertEquals(2.0, registry.get("audit.events").tag("result", "written").functionCounter().count());
+        assertEquals(1.0, registry.get("audit.events").tag("result", "failed").functionCounter().count());
+    }
+
+    @Test
+    void blockIsTheDefaultPolicy() {
+        assertEquals(OverflowPolicy.BLOCK, new AuditProperties().getPipeline().getOverflowPolicy());
+    }
+
+    private AuditLogWriter writer(OverflowPolicy policy, int capacity) {
+        AuditProperties properties = new AuditProperties();
+        properties.getPipeline().setOverflowPolicy(policy);
+        properties.getPipeline().setBufferCapacity(capacity);
+        properties.getPipeline().setBatchSize(capacity);
+        properties.getPipeline().setBlockTimeoutMs(10);
+        return new AuditLogWriter(jdbcTemplate, properties, new AuditRollupStore(mock(JdbcTemplate.class), properties));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> writtenRows() {
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), captor.capture());
+        return new ArrayList<>(captor.getValue());
+    }
+
+    private static void checkColumnLengths(Object[] row) {
+        if (row[0] != null && ((String) row[0]).length() > 100 || row[3] != null && ((String) row[3]).length() > 500) {
+            throw new DataIntegrityViolationException("value too long");
+        }
+    }
+
+    private static SecurityAuditLog failedLogin(String username, String ipAddress, String userAgent) {
+        return SecurityAuditLog.builder()
+                .eventType(SecurityEventType.LOGIN_FAILURE)
+                .username(username)
+                .ipAddress(ipAddress)
+                .userAgent(userAgent)
+                .success(false)
+                .build();
+    }
+
+    private static SecurityAuditLog invalidToken(String ipAddress) {
+        return invalidToken(ipAddress, null);
+    }
+
+    private static SecurityAuditLog invalidToken(String ipAddress, LocalDateTime timestamp) {
+        return SecurityAuditLog.builder()
+                .timestamp(timestamp)
+                .eventType(SecurityEventType.TOKEN_INVALID)
+                .ipAddress(ipAddress)
+                .details("Invalid token")
+                .success(false)
+                .build();
+    }
+}
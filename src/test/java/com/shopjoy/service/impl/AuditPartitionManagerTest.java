@@ -0,0 +1,99 @@
+package com.shopjoy.service.impl;
+
+import com.shopjoy.config.AuditProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks partition creation and retention on a partitioned PostgreSQL table, and that
+ * unpartitioned tables such as the H2 test database are only purged when asked to.
+ */
+class AuditPartitionManagerTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AuditProperties properties = new AuditProperties();
+    private final AuditPartitionManager manager = new AuditPartitionManager(jdbcTemplate, properties);
+
+    @BeforeEach
+    void setUp() {
+        properties.getPartitions().setMonthsAhead(2);
+        properties.getPartitions().setRetentionMonths(6);
+    }
+
+    @Test
+    void unpartitionedTableKeepsItsRowsByDefault() {
+        databaseIs("H2");
+
+        manager.maintain();
+
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void unpartitionedTableDeletesExpiredRowsWhenEnabled() {
+        databaseIs("H2");
+        properties.getPartitions().setDeleteUnpartitioned(true);
+
+        manager.maintain();
+
+        LocalDate cutoff = YearMonth.now().minusMonths(6).atDay(1);
+        verify(jdbcTemplate).update(anyString(), eq(Timestamp.valueOf(cutoff.atStartOfDay())));
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void partitionedTableCreatesUpcomingAndDetachesExpiredPartitions() {
+        YearMonth current = YearMonth.now();
+        YearMonth expired = current.minusMonths(7);
+        YearMonth retained = current.minusMonths(6);
+        databaseIs("PostgreSQL");
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), any(Object[].class))).thenReturn(1);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any(Object[].class))).thenReturn(List.of(
+                AuditPartitionManager.partitionName(expired),
+                AuditPartitionManager.partitionName(retained),
+                "security_audit_logs_default"));
+
+        manager.maintain();
+
+        for (int i = 0; i <= 2; i++) {
+            YearMonth month = current.plusMonths(i);
+            verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS " + AuditPartitionManager.partitionName(month)
+                    + " PARTITION OF security_audit_logs FOR VALUES FROM ('" + month.atDay(1) + "') TO ('"
+                    + month.plusMonths(1).atDay(1) + "')");
+        }
+        verify(jdbcTemplate).execute("ALTER TABLE security_audit_logs DETACH PARTITION "
+                + AuditPartitionManager.partitionName(expired));
+        verify(jdbcTemplate, never()).execute("ALTER TABLE security_audit_logs DETACH PARTITION "
+                + AuditPartitionManager.partitionName(retained));
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    void retentionOfZeroKeepsEverything() {
+        assertNull(AuditPartitionManager.retentionCutoff(YearMonth.of(2026, 3), 0));
+        assertEquals(LocalDate.of(2025, 9, 1), AuditPartitionManager.retentionCutoff(YearMonth.of(2026, 3), 6));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void databaseIs(String productName) {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(productName);
+    }
+}
@@ -0,0 +1,83 @@
+package com.shopjoy.service.impl;
+
+import com.shopjoy.entity.AuditRollupDimension;
+import com.shopjoy.entity.AuditRollupGranularity;
+import com.shopjoy.entity.SecurityAuditLog;
+import com.shopjoy.entity.SecurityEventType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the rollup MERGE against the H2 schema: merging into buckets that already exist
+ * adds to their counts instead of replacing them. Each test rolls back its rollup rows.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class AuditRollupStoreIntegrationTest {
+
+    @Autowired
+    private AuditRollupStore store;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String username = "rollup-" + System.nanoTime();
+
+    @Test
+    void mergingTheSameBucketTwiceSumsTheCounts() {
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(2);
+        List<SecurityAuditLog> batch = List.of(
+                failedLogin(hour.plusMinutes(5)),
+                failedLogin(hour.plusMinutes(5).plusSeconds(30)));
+
+        store.record(batch);
+        store.record(batch);
+
+        assertEquals(4, store.count(SecurityEventType.LOGIN_FAILURE, AuditRollupDimension.USERNAME, username,
+                hour.plusMinutes(5), hour.plusMinutes(6)));
+        assertEquals(4, store.count(SecurityEventType.LOGIN_FAILURE, AuditRollupDimension.USERNAME, username,
+                hour, hour.plusHours(1)));
+        assertEquals(List.of(new AuditRollupStore.Point(hour, 4)), store.timeSeries(SecurityEventType.LOGIN_FAILURE,
+                AuditRollupDimension.USERNAME, username, AuditRollupGranularity.HOUR, hour, hour.plusHours(1)));
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM security_audit_rollups WHERE dimension_value = ?", Integer.class, username);
+        assertEquals(2, rows, "one MINUTE and one HOUR row for the user");
+    }
+
+    @Test
+    void recentEventsAreFoundInTheMinuteBuckets() {
+        LocalDateTime now = LocalDateTime.now();
+        assertFalse(store.mayHaveEventsSince(SecurityEventType.LOGIN_FAILURE, AuditRollupDimension.USERNAME, username,
+                now.minusMinutes(15)));
+
+        store.record(List.of(failedLogin(now.minusMinutes(10))));
+
+        assertTrue(store.mayHaveEventsSince(SecurityEventType.LOGIN_FAILURE, AuditRollupDimension.USERNAME, username,
+                now.minusMinutes(15)));
+        assertFalse(store.mayHaveEventsSince(SecurityEventType.LOGIN_FAILURE, AuditRollupDimension.USERNAME, username,
+                now.minusMinutes(5)));
+    }
+
+    private SecurityAuditLog failedLogin(LocalDateTime timestamp) {
+        return SecurityAuditLog.builder()
+                .username(username)
+                .eventType(SecurityEventType.LOGIN_FAILURE)
+                .ipAddress("10.0.0.1")
+                .timestamp(timestamp)
+                .success(false)
+                .build();
+    }
+}
@@ -0,0 +1,155 @@
+package com.shopjoy.service.impl;
+
+import com.shopjoy.config.AuditProperties;
+import com.shopjoy.entity.AuditRollupDimension;
+import com.shopjoy.entity.AuditRollupGranularity;
+import com.shopjoy.entity.SecurityAuditLog;
+import com.shopjoy.entity.SecurityEventType;
+import com.shopjoy.exception.ValidationException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks how events are aggregated into rollup rows and how a count is split into
+ * minute and hour bucket reads.
+ */
+class AuditRollupStoreTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AuditProperties properties = new AuditProperties();
+    private final AuditRollupStore store = new AuditRollupStore(jdbcTemplate, properties);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void eventsAreAggregatedPerBucketAndDimension() {
+        LocalDateTime time = LocalDateTime.of(2026, 10, 16, 9, 41, 5);
+        store.record(List.of(
+                failedLogin("alice", "10.0.0.1", time),
+                failedLogin("alice", "10.0.0.2", time.plusSeconds(10)),
+                failedLogin(null, "10.0.0.1", time.plusSeconds(20))));
+
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), captor.capture());
+        List<Object[]> rows = captor.getValue();
+
+        // ALL, USERNAME alice, IP 10.0.0.1 and IP 10.0.0.2, once per granularity
+        assertEquals(8, rows.size());
+        assertEquals(3L, count(rows, "MINUTE", "ALL", ""));
+        assertEquals(2L, count(rows, "HOUR", "USERNAME", "alice"));
+        assertEquals(2L, count(rows, "MINUTE", "IP_ADDRESS", "10.0.0.1"));
+        assertEquals(1L, count(rows, "HOUR", "IP_ADDRESS", "10.0.0.2"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void postgresAddsCountsWithAnUpsertThatConcurrentInsertsCannotFail() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("PostgreSQL");
+
+        store.record(List.of(failedLogin("alice", "10.0.0.1", LocalDateTime.of(2026, 10, 16, 9, 41, 5))));
+
+        verify(jdbcTemplate).batchUpdate(contains("ON CONFLICT (dimension, dimension_value, event_type, granularity, "
+                + "bucket_start) DO UPDATE"), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void oversizedUsernamesAreCutToTheColumn() {
+        LocalDateTime time = LocalDateTime.of(2026, 10, 16, 9, 41, 5);
+        store.record(List.of(failedLogin("x".repeat(300), "10.0.0.1", time)));
+
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("MERGE"), captor.capture());
+        assertEquals(1L, count(captor.getValue(), "MINUTE", "USERNAME", "x".repeat(100)));
+    }
+
+    @Test
+    void countReadsFullHoursFromHourBuckets() {
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(6);
+        LocalDateTime start = hour.plusMinutes(30);
+        LocalDateTime end = hour.plusHours(3).plusMinutes(15);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), any(Object[].class))).thenReturn(1L);
+
+        long count = store.count(SecurityEventType.LOGIN_FAILURE, AuditRollupDimension.ALL, null, start, end);
+
+        assertEquals(3, count);
+        verifySum("MINUTE", start, hour.plusHours(1));
+        verifySum("HOUR", hour.plusHours(1), hour.plusHours(3));
+        verifySum("MINUTE", hour.plusHours(3), end);
+    }
+
+    @Test
+    void recentEventsAreCheckedWithOneMinuteBucketRead() {
+        LocalDateTime since = LocalDateTime.now().minusMinutes(90);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), any(Object[].class))).thenReturn(0L);
+
+        assertFalse(store.mayHaveEventsSince(SecurityEventType.LOGIN_FAILURE, AuditRollupDimension.USERNAME, "alice", since));
+
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Long.class), any(Object[].class));
+        verify(jdbcTemplate).queryForObject(anyString(), eq(Long.class), eq("USERNAME"), eq("alice"),
+                eq("LOGIN_FAILURE"), eq("MINUTE"), eq(Timestamp.valueOf(since.truncatedTo(ChronoUnit.MINUTES))),
+                any(Timestamp.class));
+    }
+
+    @Test
+    void eventsOlderThanTheMinuteBucketsAreNotRuledOut() {
+        LocalDateTime since = LocalDateTime.now().minus(properties.getRollups().getMinuteRetention()).minusHours(1);
+
+        assertTrue(store.mayHaveEventsSince(SecurityEventType.LOGIN_FAILURE, AuditRollupDimension.USERNAME, "alice", since));
+
+        verify(jdbcTemplate, never()).queryForObject(anyString(), eq(Long.class), any(Object[].class));
+    }
+
+    @Test
+    void oversizedTimeSeriesIsRejected() {
+        properties.getRollups().setMaxSeriesPoints(60);
+        LocalDateTime start = LocalDateTime.of(2026, 10, 16, 9, 0);
+
+        assertThrows(ValidationException.class, () -> store.timeSeries(SecurityEventType.LOGIN_FAILURE,
+                AuditRollupDimension.ALL, null, AuditRollupGranularity.MINUTE, start, start.plusHours(2)));
+    }
+
+    private void verifySum(String granularity, LocalDateTime start, LocalDateTime end) {
+        verify(jdbcTemplate).queryForObject(anyString(), eq(Long.class), eq("ALL"), eq(""),
+                eq("LOGIN_FAILURE"), eq(granularity), eq(Timestamp.valueOf(start)), eq(Timestamp.valueOf(end)));
+    }
+
+    private static long count(List<Object[]> rows, String granularity, String dimension, String value) {
+        return rows.stream()
+                .filter(row -> row[0].equals(granularity) && row[3].equals(dimension) && row[4].equals(value))
+                .mapToLong(row -> (Long) row[5])
+                .sum();
+    }
+
+    private static SecurityAuditLog failedLogin(String username, String ipAddress, LocalDateTime timestamp) {
+        return SecurityAuditLog.builder()
+                .username(username)
+                .eventType(SecurityEventType.LOGIN_FAILURE)
+                .ipAddress(ipAddress)
+                .timestamp(timestamp)
+                .success(false)
+                .build();
+    }
+}
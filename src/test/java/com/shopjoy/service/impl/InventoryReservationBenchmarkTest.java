@@ -0,0 +1,231 @@
+package com.shopjoy.service.impl;
+
+import com.shopjoy.config.InventoryProperties;
+import com.shopjoy.config.InventoryProperties.ReservationMode;
+import com.shopjoy.entity.Category;
+import com.shopjoy.entity.Inventory;
+import com.shopjoy.entity.Product;
+import com.shopjoy.exception.InsufficientStockException;
+import com.shopjoy.repository.CategoryRepository;
+import com.shopjoy.repository.InventoryRepository;
+import com.shopjoy.repository.ProductRepository;
+import com.shopjoy.service.InventoryService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hammers a single hot product from several threads and checks that no engine oversells.
+ * The {@code load} test reports reservations/sec for each engine on a larger run; it is
+ * excluded from the default build and runs with {@code mvn test -Pload-tests}.
+ */
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("test")
+class InventoryReservationBenchmarkTest {
+
+    private static final int THREADS = 4;
+    private static final int INITIAL_STOCK = 100;
+    private static final int LOAD_THREADS = 16;
+    private static final int LOAD_STOCK = 2_000;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryProperties inventoryProperties;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private record BenchmarkResult(int reserved, int rejected, int failed, long elapsedNanos) {
+        double reservationsPerSecond() {
+            return reserved / (elapsedNanos / 1_000_000_000.0);
+        }
+    }
+
+    @AfterEach
+    void restoreReservationMode() {
+        inventoryProperties.setReservationMode(ReservationMode.DATABASE);
+    }
+
+    @Test
+    void databaseModeBaseline() throws InterruptedException {
+        int productId = createHotProduct("database", INITIAL_STOCK);
+
+        BenchmarkResult result = hammer(productId, THREADS, INITIAL_STOCK);
+
+        assertTrue(result.reserved() > 0, "Baseline should reserve at least some stock");
+        assertTrue(result.reserved() <= INITIAL_STOCK, "Baseline must not oversell");
+        assertEquals(INITIAL_STOCK - result.reserved(),
+                inventoryRepository.findByProductId(productId).orElseThrow().getQuantityInStock());
+    }
+
+    @Test
+    void conditionalUpdateModeNeverOversellsHotProduct() throws InterruptedException {
+        int productId = createHotProduct("conditional", INITIAL_STOCK);
+        inventoryProperties.setReservationMode(ReservationMode.CONDITIONAL_UPDATE);
+
+        BenchmarkResult result = hammer(productId, THREADS, INITIAL_STOCK);
+
+        assertEquals(0, result.failed());
+        assertEquals(INITIAL_STOCK, result.reserved());
+        assertEquals(0, inventoryRepository.findByProductId(productId).orElseThrow().getQuantityInStock());
+    }
+
+    @Test
+    void multiRowConditionalDecrementIsAllOrNothing() throws InterruptedException {
+        int firstProductId = createHotProduct("order-a", INITIAL_STOCK);
+        int secondProductId = createHotProduct("order-b", INITIAL_STOCK);
+        AtomicInteger committedOrders = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < INITIAL_STOCK * 2 / THREADS; i++) {
+                    Boolean committed = transactionTemplate.execute(status -> {
+                        List<Integer> rejected = inventoryRepository.decrementStockIfAvailable(
+                                Map.of(secondProductId, 2, firstProductId, 1));
+                        if (!rejected.isEmpty()) {
+                            status.setRollbackOnly();
+                            return false;
+                        }
+                        return true;
+                    });
+                    if (Boolean.TRUE.equals(committed)) {
+                        committedOrders.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES), "Benchmark did not finish in time");
+
+        assertEquals(INITIAL_STOCK / 2, committedOrders.get());
+        assertEquals(INITIAL_STOCK / 2,
+                inventoryRepository.findByProductId(firstProductId).orElseThrow().getQuantityInStock());
+        assertEquals(0, inventoryRepository.findByProductId(secondProductId).orElseThrow().getQuantityInStock());
+    }
+
+    @Test
+    void ledgerModeNeverOversellsHotProduct() throws InterruptedException {
+        int productId = createHotProduct("ledger", INITIAL_STOCK);
+        inventoryProperties.setReservationMode(ReservationMode.LEDGER);
+
+        BenchmarkResult result = hammer(productId, THREADS, INITIAL_STOCK);
+        stockLedger.flush();
+
+        assertEquals(INITIAL_STOCK, result.reserved());
+        assertEquals(0, stockLedger.getAvailable(productId));
+        assertEquals(0, inventoryRepository.findByProductId(productId).orElseThrow().getQuantityInStock());
+    }
+
+    @Test
+    @Tag("load")
+    void reservationThroughputPerMode() throws InterruptedException {
+        for (ReservationMode mode : ReservationMode.values()) {
+            int productId = createHotProduct("load-" + mode.name().toLowerCase(), LOAD_STOCK);
+            inventoryProperties.setReservationMode(mode);
+
+            BenchmarkResult result = hammer(productId, LOAD_THREADS, LOAD_STOCK);
+            log.info("[{}] {} threads on one product: reserved={} rejected={} failed={} -> {} reservations/sec",
+                    mode, LOAD_THREADS, result.reserved(), result.rejected(), result.failed(),
+                    Math.round(result.reservationsPerSecond()));
+
+            assertTrue(result.reserved() <= LOAD_STOCK, mode + " must not oversell");
+        }
+    }
+
+    /**
+     * Tries to reserve twice the stock, one unit at a time, spread over the threads.
+     */
+    private BenchmarkResult hammer(int productId, int threads, int stock) throws InterruptedException {
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        int attemptsPerThread = stock * 2 / threads;
+
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    try {
+                        inventoryService.reserveStock(productId, 1);
+                        reserved.incrementAndGet();
+                    } catch (InsufficientStockException e) {
+                        rejected.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES), "Benchmark did not finish in time");
+        long elapsed = System.nanoTime() - startedAt;
+
+        return new BenchmarkResult(reserved.get(), rejected.get(), failed.get(), elapsed);
+    }
+
+    private int createHotProduct(String suffix, int stock) {
+        Category category = categoryRepository.save(Category.builder()
+                .categoryName("Benchmark " + suffix)
+                .build());
+
+        Product product = productRepository.save(Product.builder()
+                .productName("Hot product " + suffix)
+                .category(category)
+                .price(BigDecimal.TEN)
+                .costPrice(BigDecimal.ONE)
+                .sku("HOT-" + suffix.toUpperCase())
+                .build());
+
+        inventoryRepository.save(Inventory.builder()
+                .product(product)
+                .quantityInStock(stock)
+                .reorderLevel(5)
+                .build());
+
+        return product.getId();
+    }
+}
@@ -0,0 +1,194 @@
+package com.shopjoy.service.impl;
+
+import com.shopjoy.dto.filter.KeysetCursor;
+import com.shopjoy.dto.filter.TotalCount;
+import com.shopjoy.dto.response.CursorPage;
+import com.shopjoy.dto.response.ProductResponse;
+import com.shopjoy.entity.Category;
+import com.shopjoy.repository.CategoryRepository;
+import com.shopjoy.service.ProductService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks keyset pagination against offset pagination on a small seeded catalog, sorted by
+ * a key with many ties. The load test grows the catalog and reports the latency of page 1
+ * and a deep page with offset pagination (PageRequest, including its count query) and
+ * keyset pagination (cursor): 120,000 products by default; run with -Pload-tests
+ * -Dbenchmark.products=1000000 for the full-size catalog.
+ */
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("test")
+class KeysetPaginationBenchmarkTest {
+
+    private static final int PRODUCTS = 2_000;
+    private static final int LOAD_PRODUCTS = Integer.getInteger("benchmark.products", 120_000);
+    private static final int PAGE_SIZE = 20;
+    private static final int ITERATIONS = 20;
+    private static final String SORT_BY = "price";
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Integer categoryId;
+
+    @BeforeEach
+    void seedCatalog() {
+        categoryId = categoryRepository.save(Category.builder()
+                .categoryName("Keyset benchmark")
+                .build()).getId();
+        seedProducts(0, PRODUCTS);
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_products_price_id ON products(price, product_id)");
+    }
+
+    private void seedProducts(int from, int to) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>(10_000);
+        for (int i = from; i < to; i++) {
+            batch.add(new Object[]{"Keyset product " + i, categoryId, new BigDecimal((i % 1_000) + ".99"),
+                    BigDecimal.ONE, "KEYSET-" + i, now, now});
+            if (batch.size() == 10_000 || i == to - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO products (product_name, category_id, price, cost_price, sku, " +
+                        "is_active, created_at, updated_at) VALUES (?, ?, ?, ?, ?, TRUE, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @AfterEach
+    void removeCatalog() {
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_products_price_id");
+        jdbcTemplate.update("DELETE FROM products WHERE category_id = ?", categoryId);
+        categoryRepository.deleteById(categoryId);
+    }
+
+    @Test
+    void keysetPagesMatchOffsetPages() {
+        assertPagesMatch(deepPage(PRODUCTS));
+    }
+
+    @Test
+    @Tag("load")
+    void keysetPagesDoNotSlowDownWithDepth() {
+        seedProducts(PRODUCTS, LOAD_PRODUCTS);
+        int deepPage = deepPage(LOAD_PRODUCTS);
+        assertPagesMatch(deepPage);
+
+        double offsetFirst = averageMillis(() -> offsetPage(0));
+        double offsetDeep = averageMillis(() -> offsetPage(deepPage));
+        String deepCursor = cursorBefore(deepPage);
+        double keysetFirst = averageMillis(() -> keysetPage(null));
+        double keysetDeep = averageMillis(() -> keysetPage(deepCursor));
+
+        log.info("[offset] {} products, page size {}: page 1 {} ms, page {} {} ms",
+                LOAD_PRODUCTS, PAGE_SIZE, String.format("%.2f", offsetFirst), deepPage + 1, String.format("%.2f", offsetDeep));
+        log.info("[keyset] {} products, page size {}: page 1 {} ms, page {} {} ms",
+                LOAD_PRODUCTS, PAGE_SIZE, String.format("%.2f", keysetFirst), deepPage + 1, String.format("%.2f", keysetDeep));
+    }
+
+    @Test
+    void walkingCursorsVisitsEveryProductOnce() {
+        CursorPage<ProductResponse> counted = productService.getProductsByCursor(null, null, 1, "id", "ASC",
+                TotalCount.EXACT);
+        assertNotNull(counted.getTotalElements());
+        long total = counted.getTotalElements();
+        assertTrue(total >= PRODUCTS);
+
+        int seen = 0;
+        Integer lastId = null;
+        String cursor = null;
+        do {
+            CursorPage<ProductResponse> page = productService.getProductsByCursor(null, cursor, 100, "id", "DESC",
+                    TotalCount.NONE);
+            for (ProductResponse product : page.getContent()) {
+                assertTrue(lastId == null || product.getId() < lastId, "Ids must strictly decrease");
+                lastId = product.getId();
+                seen++;
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null && seen <= total);
+
+        assertEquals(total, seen);
+    }
+
+    private void assertPagesMatch(int deepPage) {
+        for (int page : List.of(0, deepPage)) {
+            String cursor = cursorBefore(page);
+            List<Integer> offsetIds = ids(offsetPage(page).getContent());
+            List<Integer> keysetIds = ids(keysetPage(cursor).getContent());
+            assertEquals(PAGE_SIZE, keysetIds.size());
+            assertEquals(offsetIds, keysetIds, "Keyset page " + page + " differs from the offset page");
+        }
+    }
+
+    private static int deepPage(int products) {
+        return Math.min(5_000, products / PAGE_SIZE - 1);
+    }
+
+    private Page<ProductResponse> offsetPage(int page) {
+        return productService.getProductsPaginated(
+                PageRequest.of(page, PAGE_SIZE, Sort.by(SORT_BY, "id")), SORT_BY, "ASC");
+    }
+
+    private CursorPage<ProductResponse> keysetPage(String cursor) {
+        return productService.getProductsByCursor(null, cursor, PAGE_SIZE, SORT_BY, "ASC", TotalCount.NONE);
+    }
+
+    /**
+     * Builds the cursor a client would hold after reading the pages before {@code page}.
+     */
+    private String cursorBefore(int page) {
+        if (page == 0) {
+            return null;
+        }
+        Map<String, Object> last = jdbcTemplate.queryForMap(
+                "SELECT product_id, price FROM products ORDER BY price, product_id OFFSET ? ROWS FETCH NEXT 1 ROWS ONLY",
+                page * PAGE_SIZE - 1);
+        return KeysetCursor.after(SORT_BY, Sort.Direction.ASC, ((Number) last.get("product_id")).intValue(),
+                last.get("price")).encode();
+    }
+
+    private static double averageMillis(Supplier<?> query) {
+        for (int i = 0; i < 3; i++) {
+            query.get();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            query.get();
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS;
+    }
+
+    private static List<Integer> ids(List<ProductResponse> products) {
+        return products.stream().map(ProductResponse::getId).toList();
+    }
+}
@@ -0,0 +1,225 @@
+package com.shopjoy.service.impl;
+
+import com.shopjoy.dto.request.CreateOrderItemRequest;
+import com.shopjoy.dto.request.CreateOrderRequest;
+import com.shopjoy.dto.response.OrderItemResponse;
+import com.shopjoy.dto.response.OrderResponse;
+import com.shopjoy.entity.Category;
+import com.shopjoy.entity.Inventory;
+import com.shopjoy.entity.Product;
+import com.shopjoy.entity.User;
+import com.shopjoy.entity.UserType;
+import com.shopjoy.repository.CategoryRepository;
+import com.shopjoy.repository.InventoryRepository;
+import com.shopjoy.repository.ProductRepository;
+import com.shopjoy.repository.UserRepository;
+import com.shopjoy.service.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that createOrder prices every line from the preloaded inventory. The {@code load}
+ * test measures JDBC statements per order and p99 latency for 1-, 10- and 50-item orders;
+ * it runs with {@code mvn test -Pload-tests}.
+ */
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderPipelineBenchmarkTest {
+
+    private static final int WARMUP_ORDERS = 20;
+    private static final int MEASURED_ORDERS = 200;
+    private static final int MAX_ITEMS = 50;
+    private static final AtomicLong STATEMENTS = new AtomicLong();
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    private Integer userId;
+    private final List<Integer> productIds = new ArrayList<>();
+
+    @TestConfiguration
+    static class StatementCountingConfig {
+
+        private static final Set<String> STATEMENT_FACTORIES = Set.of("prepareStatement", "prepareCall", "createStatement");
+
+        @Bean
+        static BeanPostProcessor statementCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource && !(bean instanceof DelegatingDataSource)) {
+                        return new DelegatingDataSource(dataSource) {
+                            @Override
+                            public Connection getConnection() throws SQLException {
+                                return counting(super.getConnection());
+                            }
+
+                            @Override
+                            public Connection getConnection(String username, String password) throws SQLException {
+                                return counting(super.getConnection(username, password));
+                            }
+                        };
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        private static Connection counting(Connection target) {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (STATEMENT_FACTORIES.contains(method.getName())) {
+                            STATEMENTS.incrementAndGet();
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+
+    @BeforeEach
+    void seedCatalog() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "benchmark-admin", null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+
+        long run = System.nanoTime();
+        userId = userRepository.save(User.builder()
+                .username("order-benchmark-" + run)
+                .email("order-benchmark-" + run + "@shopjoy.com")
+                .passwordHash("not-used")
+                .firstName("Order")
+                .lastName("Benchmark")
+                .userType(UserType.CUSTOMER)
+                .build()).getId();
+
+        Category category = categoryRepository.save(Category.builder()
+                .categoryName("Order benchmark " + run)
+                .build());
+
+        for (int i = 0; i < MAX_ITEMS; i++) {
+            Product product = productRepository.save(Product.builder()
+                    .productName("Order benchmark product " + i)
+                    .category(category)
+                    .price(BigDecimal.valueOf(10 + i))
+                    .costPrice(BigDecimal.ONE)
+                    .sku("ORDER-BENCH-" + run + "-" + i)
+                    .build());
+            inventoryRepository.save(Inventory.builder()
+                    .product(product)
+                    .quantityInStock(1_000_000)
+                    .reorderLevel(5)
+                    .build());
+            productIds.add(product.getId());
+        }
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void pricesAndReservesEveryLine() {
+        OrderResponse order = orderService.createOrder(orderWith(10));
+
+        assertEquals(10, order.getOrderItems().size());
+        // prices 10..19 from the catalog, not the 1.0 total sent by the client
+        assertEquals(145.0, order.getTotalAmount(), 0.001);
+        for (OrderItemResponse item : order.getOrderItems()) {
+            assertEquals(1, item.getQuantity());
+        }
+    }
+
+    @Test
+    @Tag("load")
+    void statementsAndLatencyPerOrderSize() {
+        for (int items : new int[]{1, 10, 50}) {
+            CreateOrderRequest request = orderWith(items);
+
+            for (int i = 0; i < WARMUP_ORDERS; i++) {
+                orderService.createOrder(request);
+            }
+
+            long[] latencies = new long[MEASURED_ORDERS];
+            long statementsBefore = STATEMENTS.get();
+            for (int i = 0; i < MEASURED_ORDERS; i++) {
+                long start = System.nanoTime();
+                orderService.createOrder(request);
+                latencies[i] = System.nanoTime() - start;
+            }
+            double statementsPerOrder = (STATEMENTS.get() - statementsBefore) / (double) MEASURED_ORDERS;
+
+            Arrays.sort(latencies);
+            long p50 = latencies[MEASURED_ORDERS / 2];
+            long p99 = latencies[(int) Math.ceil(MEASURED_ORDERS * 0.99) - 1];
+            log.info("createOrder with {} items: {} statements/order, p50={} us, p99={} us",
+                    items, statementsPerOrder, p50 / 1_000, p99 / 1_000);
+
+            assertTrue(statementsPerOrder > 0, "Statement counter should observe the order pipeline");
+        }
+    }
+
+    private CreateOrderRequest orderWith(int items) {
+        List<CreateOrderItemRequest> lines = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            lines.add(CreateOrderItemRequest.builder()
+                    .productId(productIds.get(i))
+                    .quantity(1)
+                    .price(10.0 + i)
+                    .build());
+        }
+        return CreateOrderRequest.builder()
+                .userId(userId)
+                .shippingAddress("1 Benchmark Way")
+                .paymentMethod("CASH")
+                .orderItems(lines)
+                .totalAmount(1.0)
+                .build();
+    }
+}
@@ -0,0 +1,254 @@
+package com.shopjoy.service.impl;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.shopjoy.cache.DependencyTrackingCache;
+import com.shopjoy.dto.request.CreateProductRequest;
+import com.shopjoy.dto.response.ProductResponse;
+import com.shopjoy.entity.Category;
+import com.shopjoy.entity.Inventory;
+import com.shopjoy.entity.Product;
+import com.shopjoy.repository.CategoryRepository;
+import com.shopjoy.repository.InventoryRepository;
+import com.shopjoy.repository.ProductRepository;
+import com.shopjoy.service.InventoryService;
+import com.shopjoy.service.ProductService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks which product writes evict which cached lists. The load test runs a read-heavy
+ * mix of getActiveProducts calls with stock and price writes and compares the
+ * activeProducts hit rate of targeted invalidation with the previous behaviour of
+ * clearing every product list cache on each write; it only runs with -Pload-tests.
+ */
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductCacheInvalidationLoadTest {
+
+    private static final int PRODUCTS = 3;
+    private static final int LOAD_PRODUCTS = 200;
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 2_000;
+    private static final int WRITE_PERCENT = 5;
+    private static final List<String> PRODUCT_LIST_CACHES = List.of("products", "activeProducts", "productsByCategory");
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    private final List<Integer> productIds = new ArrayList<>();
+    private Category category;
+
+    private record LoadResult(long hits, long misses, long invalidations, long elapsedNanos) {
+        double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+
+    @BeforeEach
+    void seedCatalog() {
+        category = categoryRepository.save(Category.builder()
+                .categoryName("Cache load " + System.nanoTime())
+                .build());
+        seedProducts(PRODUCTS);
+    }
+
+    private void seedProducts(int count) {
+        for (int i = 0; i < count; i++) {
+            Product product = productRepository.save(Product.builder()
+                    .productName("Cached product " + i)
+                    .category(category)
+                    .price(BigDecimal.TEN)
+                    .costPrice(BigDecimal.ONE)
+                    .sku("CACHE-" + System.nanoTime() + "-" + i)
+                    .build());
+            inventoryRepository.save(Inventory.builder()
+                    .product(product)
+                    .quantityInStock(1_000_000)
+                    .reorderLevel(5)
+                    .build());
+            productIds.add(product.getId());
+        }
+    }
+
+    @Test
+    @Tag("load")
+    void targetedInvalidationKeepsActiveProductsWarm() throws InterruptedException {
+        seedProducts(LOAD_PRODUCTS - PRODUCTS);
+        LoadResult allEntries = run(true);
+        LoadResult targeted = run(false);
+
+        report("allEntries", allEntries);
+        report("targeted", targeted);
+
+        assertTrue(targeted.hitRate() > allEntries.hitRate(),
+                "Targeted invalidation should beat clearing the list caches on every write");
+        assertTrue(targeted.hitRate() > 0.99, "Stock and price writes should not evict the activeProducts list");
+    }
+
+    @Test
+    void deactivatingAProductEvictsOnlyListsThatContainIt() {
+        Integer productId = productIds.getFirst();
+        long clearsBefore = tracking("activeProducts").getClearCount();
+        assertTrue(productService.getActiveProducts().stream().anyMatch(p -> p.getId().equals(productId)));
+
+        productService.deactivateProduct(productId);
+
+        assertTrue(productService.getActiveProducts().stream().noneMatch(p -> p.getId().equals(productId)));
+        assertEquals(clearsBefore, tracking("activeProducts").getClearCount());
+    }
+
+    @Test
+    void stockAndPriceWritesKeepActiveProductsCached() {
+        Integer productId = productIds.getFirst();
+        productService.getActiveProducts();
+        long missesBefore = stats("activeProducts").missCount();
+
+        inventoryService.reserveStock(productId, 1);
+        productService.updateProductPrice(productId, 42);
+
+        ProductResponse updated = productService.getActiveProducts().stream()
+                .filter(p -> p.getId().equals(productId))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(42.0, updated.getPrice());
+        assertEquals(missesBefore, stats("activeProducts").missCount());
+    }
+
+    @Test
+    void creatingAProductEvictsOnlyItsCategoryList() {
+        Category otherCategory = categoryRepository.save(Category.builder()
+                .categoryName("Cache other " + System.nanoTime())
+                .build());
+        productService.getProductsByCategory(otherCategory.getId());
+        assertEquals(PRODUCTS, productService.getProductsByCategory(category.getId()).size());
+        long missesBefore = stats("productsByCategory").missCount();
+
+        ProductResponse created = productService.createProduct(CreateProductRequest.builder()
+                .productName("Cache new product")
+                .categoryId(category.getId())
+                .price(10.0)
+                .costPrice(1.0)
+                .sku("CACHE-NEW-" + System.nanoTime())
+                .initialStock(5)
+                .build());
+
+        assertTrue(productService.getProductsByCategory(category.getId()).stream()
+                .anyMatch(p -> p.getId().equals(created.getId())));
+        productService.getProductsByCategory(otherCategory.getId());
+        assertEquals(missesBefore + 1, stats("productsByCategory").missCount());
+    }
+
+    @Test
+    void stockWritesEvictTheInStockFlagOfTheirProductOnly() {
+        Integer soldOut = productIds.getFirst();
+        Integer other = productIds.get(1);
+        assertTrue(inventoryService.isProductInStock(soldOut));
+        assertTrue(inventoryService.isProductInStock(other));
+        long invalidationsBefore = tracking("inventory").getInvalidationCount();
+
+        inventoryService.updateStock(soldOut, 0);
+        inventoryService.reserveAll(Map.of(other, 1));
+
+        assertFalse(inventoryService.isProductInStock(soldOut));
+        assertTrue(inventoryService.isProductInStock(other));
+        assertEquals(invalidationsBefore + 1, tracking("inventory").getInvalidationCount());
+    }
+
+    private LoadResult run(boolean clearListsOnWrite) throws InterruptedException {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        productService.getActiveProducts();
+
+        CacheStats before = stats("activeProducts");
+        long invalidationsBefore = tracking("activeProducts").getInvalidationCount();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        for (int t = 0; t < THREADS; t++) {
+            long seed = t;
+            executor.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    if (random.nextInt(100) < WRITE_PERCENT) {
+                        write(productIds.get(random.nextInt(productIds.size())), random);
+                        if (clearListsOnWrite) {
+                            PRODUCT_LIST_CACHES.forEach(name -> cacheManager.getCache(name).clear());
+                        }
+                    } else {
+                        productService.getActiveProducts();
+                    }
+                }
+                return null;
+            });
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES), "Load test did not finish in time");
+        long elapsed = System.nanoTime() - startedAt;
+
+        CacheStats delta = stats("activeProducts").minus(before);
+        return new LoadResult(delta.hitCount(), delta.missCount(),
+                tracking("activeProducts").getInvalidationCount() - invalidationsBefore, elapsed);
+    }
+
+    private void write(Integer productId, Random random) {
+        if (random.nextBoolean()) {
+            inventoryService.reserveStock(productId, 1);
+        } else {
+            productService.updateProductPrice(productId, 10 + random.nextInt(90));
+        }
+    }
+
+    private void report(String mode, LoadResult result) {
+        log.info("[{}] getActiveProducts hit rate={}% (hits={} misses={} invalidations={}) in {} ms",
+                mode, String.format("%.2f", result.hitRate() * 100), result.hits(), result.misses(),
+                result.invalidations(), TimeUnit.NANOSECONDS.toMillis(result.elapsedNanos()));
+    }
+
+    private DependencyTrackingCache tracking(String name) {
+        return (DependencyTrackingCache) cacheManager.getCache(name);
+    }
+
+    private CacheStats stats(String name) {
+        return ((com.github.benmanes.caffeine.cache.Cache<?, ?>) cacheManager.getCache(name).getNativeCache()).stats();
+    }
+}
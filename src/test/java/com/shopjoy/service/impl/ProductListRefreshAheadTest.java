@@ -0,0 +1,169 @@
+package com.shopjoy.service.impl;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shopjoy.cache.CacheDependencyRegistry;
+import com.shopjoy.cache.DependencyTrackingCaffeineCacheManager;
+import com.shopjoy.config.SearchProperties;
+import com.shopjoy.dto.mapper.ProductMapperStruct;
+import com.shopjoy.dto.response.ProductResponse;
+import com.shopjoy.entity.Product;
+import com.shopjoy.repository.CategoryRepository;
+import com.shopjoy.repository.InventoryRepository;
+import com.shopjoy.repository.KeysetRepository;
+import com.shopjoy.repository.ProductRepository;
+import com.shopjoy.service.ProductSearchService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the product list caches with a fake clock: concurrent requests at an expired
+ * key must share one repository call, and a stale key must keep being served while
+ * a single background reload runs.
+ */
+class ProductListRefreshAheadTest {
+
+    private static final int REQUESTS = 500;
+    private static final Duration TTL = Duration.ofMinutes(30);
+    private static final Duration REFRESH_AFTER = Duration.ofMinutes(25);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger repositoryCalls = new AtomicInteger();
+    private final List<Product> catalog = new ArrayList<>();
+    private volatile CountDownLatch repositoryGate = new CountDownLatch(0);
+
+    private ExecutorService requests;
+    private ExecutorService reloads;
+    private ProductServiceImpl productService;
+
+    @BeforeEach
+    void setUp() {
+        IntStream.rangeClosed(1, 20).forEach(id -> catalog.add(product(id)));
+
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findAllWithInventory()).thenAnswer(_ -> {
+            repositoryCalls.incrementAndGet();
+            repositoryGate.await();
+            Thread.sleep(50);
+            return List.copyOf(catalog);
+        });
+        when(productRepository.findByIdIn(anyCollection())).thenAnswer(invocation -> catalog.stream()
+                .filter(product -> invocation.<Collection<?>>getArgument(0).contains(product.getId()))
+                .toList());
+
+        ProductMapperStruct productMapper = mock(ProductMapperStruct.class);
+        when(productMapper.toProductResponse(any(Product.class))).thenAnswer(invocation -> {
+            Product product = invocation.getArgument(0);
+            ProductResponse response = new ProductResponse();
+            response.setId(product.getId());
+            response.setProductName(product.getProductName());
+            response.setActive(product.isActive());
+            return response;
+        });
+
+        reloads = Executors.newSingleThreadExecutor();
+        requests = Executors.newVirtualThreadPerTaskExecutor();
+
+        DependencyTrackingCaffeineCacheManager cacheManager = new DependencyTrackingCaffeineCacheManager(
+                new CacheDependencyRegistry(), "products", "product", "activeProducts", "productsByCategory");
+        cacheManager.setBuilderFactory(name -> {
+            Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                    .ticker(nanos::get)
+                    .executor(reloads)
+                    .expireAfterWrite(TTL)
+                    .recordStats();
+            return cacheManager.hasCacheLoader(name) ? builder.refreshAfterWrite(REFRESH_AFTER) : builder;
+        });
+
+        productService = new ProductServiceImpl(productRepository, mock(InventoryRepository.class),
+                mock(CategoryRepository.class), mock(KeysetRepository.class), mock(ProductSearchService.class),
+                new SearchProperties(), productMapper, cacheManager, mock(PlatformTransactionManager.class));
+        productService.registerListLoaders();
+    }
+
+    @AfterEach
+    void tearDown() {
+        requests.shutdownNow();
+        reloads.shutdownNow();
+    }
+
+    @Test
+    void concurrentRequestsAtAnExpiredKeyCallTheRepositoryOnce() throws Exception {
+        productService.getActiveProducts();
+        advance(TTL.plusMinutes(1));
+        repositoryCalls.set(0);
+
+        List<Future<List<ProductResponse>>> results = fire();
+
+        for (Future<List<ProductResponse>> result : results) {
+            assertEquals(catalog.size(), result.get(30, TimeUnit.SECONDS).size());
+        }
+        assertEquals(1, repositoryCalls.get(), "Concurrent misses on one key must share one load");
+    }
+
+    @Test
+    void staleKeyIsServedWhileOneBackgroundReloadRuns() throws Exception {
+        productService.getActiveProducts();
+        advance(REFRESH_AFTER.plusMinutes(1));
+        repositoryCalls.set(0);
+        repositoryGate = new CountDownLatch(1);
+        catalog.add(product(21));
+
+        List<Future<List<ProductResponse>>> results = fire();
+
+        for (Future<List<ProductResponse>> result : results) {
+            assertEquals(20, result.get(30, TimeUnit.SECONDS).size(), "Readers must get the stale list, not wait");
+        }
+
+        repositoryGate.countDown();
+        reloads.submit(() -> { }).get(30, TimeUnit.SECONDS);
+
+        assertEquals(21, productService.getActiveProducts().size());
+        assertEquals(1, repositoryCalls.get(), "Only one reload may run for a stale key");
+    }
+
+    private List<Future<List<ProductResponse>>> fire() {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<ProductResponse>>> results = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            results.add(requests.submit(() -> {
+                start.await();
+                return productService.getActiveProducts();
+            }));
+        }
+        start.countDown();
+        return results;
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    private static Product product(int id) {
+        return Product.builder()
+                .id(id)
+                .productName("Product " + id)
+                .active(true)
+                .build();
+    }
+}
@@ -0,0 +1,231 @@
+package com.shopjoy.service.impl;
+
+import com.shopjoy.cache.CacheInvalidationMessage;
+import com.shopjoy.cache.CacheInvalidationTransport;
+import com.shopjoy.config.CacheProperties;
+import com.shopjoy.config.SearchProperties;
+import com.shopjoy.entity.Category;
+import com.shopjoy.entity.Product;
+import com.shopjoy.repository.CategoryRepository;
+import com.shopjoy.repository.ProductRepository;
+import com.shopjoy.search.ProductSearchQuery;
+import com.shopjoy.search.Suggestion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Keeps the search index in step with product and category writes against the H2 schema:
+ * writes reach the index only once their transaction commits, and writes made while the
+ * index is being rebuilt are replayed on the new index. Each test uses its own service,
+ * over a data source that can hold a rebuild or a reindex before it reads the products.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductSearchServiceImplTest {
+
+    @Autowired
+    private SearchProperties searchProperties;
+
+    @Autowired
+    private CacheProperties cacheProperties;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final CacheInvalidationTransport transport = mock(CacheInvalidationTransport.class);
+    private final String run = Long.toString(System.nanoTime(), 36);
+
+    private GatedDataSource gatedDataSource;
+    private ProductSearchServiceImpl searchService;
+    private Category category;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(Category.builder()
+                .categoryName("Searchcategory" + run)
+                .build());
+        product = productRepository.save(Product.builder()
+                .productName("Searchproduct" + run)
+                .category(category)
+                .price(BigDecimal.TEN)
+                .costPrice(BigDecimal.ONE)
+                .sku("SEARCH-" + run)
+                .build());
+
+        gatedDataSource = new GatedDataSource(dataSource);
+        searchService = new ProductSearchServiceImpl(searchProperties, new JdbcTemplate(gatedDataSource),
+                transactionManager, transport, cacheProperties);
+        searchService.rebuild();
+        assertEquals(List.of(product.getId()), found("Searchproduct" + run));
+    }
+
+    @AfterEach
+    void deleteProduct() {
+        productRepository.deleteById(product.getId());
+        categoryRepository.deleteById(category.getId());
+    }
+
+    @Test
+    void indexAfterCommitWaitsForTheCommit() {
+        transactionTemplate.executeWithoutResult(_ -> {
+            productRepository.findById(product.getId()).orElseThrow().setProductName("Renamed" + run);
+            searchService.indexAfterCommit(product.getId());
+
+            assertEquals(List.of(), found("Renamed" + run));
+            verify(transport, never()).publish(any());
+        });
+
+        assertEquals(List.of(product.getId()), found("Renamed" + run));
+        assertEquals(List.of(), found("Searchproduct" + run));
+        verify(transport).publish(any(CacheInvalidationMessage.class));
+    }
+
+    @Test
+    void indexAfterCommitIgnoresRolledBackWrites() {
+        transactionTemplate.executeWithoutResult(status -> {
+            productRepository.findById(product.getId()).orElseThrow().setProductName("Renamed" + run);
+            searchService.indexAfterCommit(product.getId());
+            status.setRollbackOnly();
+        });
+
+        assertEquals(List.of(), found("Renamed" + run));
+        assertEquals(List.of(product.getId()), found("Searchproduct" + run));
+        verify(transport, never()).publish(any());
+    }
+
+    @Test
+    void removeAfterCommitWaitsForTheCommit() {
+        transactionTemplate.executeWithoutResult(_ -> {
+            searchService.removeAfterCommit(product.getId());
+
+            assertEquals(List.of(product.getId()), found("Searchproduct" + run));
+        });
+
+        assertEquals(List.of(), found("Searchproduct" + run));
+        verify(transport).publish(any(CacheInvalidationMessage.class));
+    }
+
+    @Test
+    void reindexCategoryAfterCommitPicksUpTheNewCategoryName() {
+        transactionTemplate.executeWithoutResult(_ -> {
+            categoryRepository.findById(category.getId()).orElseThrow().setCategoryName("Renamedcategory" + run);
+            searchService.reindexCategoryAfterCommit(category.getId());
+
+            assertEquals(List.of(), found("Renamedcategory" + run));
+        });
+
+        assertEquals(List.of(product.getId()), found("Renamedcategory" + run));
+        assertEquals(List.of(), found("Searchcategory" + run));
+        Suggestion suggestion = searchService.suggest("Renamedcategory" + run, 1).getFirst();
+        assertEquals(Suggestion.Type.CATEGORY, suggestion.type());
+        assertEquals(category.getId(), suggestion.id());
+    }
+
+    @Test
+    void updatesDuringARebuildAreReplayedOnTheNewIndex() throws Exception {
+        gatedDataSource.arm();
+        Thread rebuild = Thread.ofPlatform().start(searchService::rebuild);
+        assertTrue(gatedDataSource.entered.await(10, TimeUnit.SECONDS), "The rebuild did not start reading");
+
+        // the product is still in the database, so only the replay keeps it out of the new index
+        searchService.removeAfterCommit(product.getId());
+        assertEquals(List.of(), found("Searchproduct" + run));
+
+        gatedDataSource.release.countDown();
+        rebuild.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(rebuild.isAlive(), "The rebuild did not finish in time");
+
+        assertEquals(List.of(), found("Searchproduct" + run));
+    }
+
+    @Test
+    void reindexesOfAProductApplyInTheOrderTheyRead() throws Exception {
+        gatedDataSource.arm();
+        Thread reindex = Thread.ofPlatform().start(() -> searchService.indexAfterCommit(product.getId()));
+        assertTrue(gatedDataSource.entered.await(10, TimeUnit.SECONDS), "The reindex did not start reading");
+
+        Thread remove = Thread.ofPlatform().start(() -> searchService.removeAfterCommit(product.getId()));
+        remove.join(200);
+        assertTrue(remove.isAlive(), "The removal should wait for the reindex that is reading the product");
+
+        gatedDataSource.release.countDown();
+        reindex.join(TimeUnit.SECONDS.toMillis(10));
+        remove.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(reindex.isAlive() || remove.isAlive(), "The updates did not finish in time");
+
+        assertEquals(List.of(), found("Searchproduct" + run));
+    }
+
+    private List<Integer> found(String text) {
+        return searchService.search(ProductSearchQuery.of(text, 0, 10)).productIds();
+    }
+
+    /**
+     * Holds the first connection requested after {@link #arm()} until released.
+     */
+    private static final class GatedDataSource extends DelegatingDataSource {
+
+        private final AtomicBoolean armed = new AtomicBoolean();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        GatedDataSource(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        void arm() {
+            armed.set(true);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (armed.compareAndSet(true, false)) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.getConnection();
+        }
+    }
+}
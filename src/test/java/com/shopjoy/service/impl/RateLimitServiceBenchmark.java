@@ -0,0 +1,92 @@
+package com.shopjoy.service.impl;
+
+import com.shopjoy.config.RateLimitProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link RateLimitServiceImpl#isRateLimited} with 16 threads checking
+ * random usernames and IP addresses, a fifth of which are over the limit. With
+ * {@code overflow} twice as many IP addresses are tracked as the table holds, so half
+ * of them are answered from the count-min sketch; 10% of the calls record an attempt.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.shopjoy.service.impl.RateLimitServiceBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class RateLimitServiceBenchmark {
+
+    private static final int TRACKED_KEYS = 50_000;
+
+    @Param({"tracked", "overflow"})
+    public String scenario;
+
+    private RateLimitServiceImpl rateLimitService;
+    private String[] usernames;
+    private String[] ipAddresses;
+
+    @Setup
+    public void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getLogin().setMaxTrackedKeys(TRACKED_KEYS);
+        rateLimitService = new RateLimitServiceImpl(properties);
+
+        int keys = "overflow".equals(scenario) ? TRACKED_KEYS * 2 : TRACKED_KEYS / 2;
+        usernames = new String[keys];
+        ipAddresses = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            usernames[i] = "user" + i;
+            ipAddresses[i] = "10." + (i >> 16 & 0xFF) + "." + (i >> 8 & 0xFF) + "." + (i & 0xFF);
+            int attempts = i % 5 == 0 ? 5 : 1;
+            for (int a = 0; a < attempts; a++) {
+                rateLimitService.recordLoginAttempt(usernames[i], ipAddresses[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean isRateLimited() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(usernames.length);
+        return rateLimitService.isRateLimited(usernames[i], ipAddresses[i]);
+    }
+
+    @Benchmark
+    public boolean checkAndRecord() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(usernames.length);
+        boolean limited = rateLimitService.isRateLimited(usernames[i], ipAddresses[i]);
+        if (random.nextInt(10) == 0) {
+            rateLimitService.recordLoginAttempt(usernames[i], ipAddresses[i]);
+        }
+        return limited;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RateLimitServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,246 @@
+package com.shopjoy.service.impl;
+
+import com.shopjoy.config.InventoryProperties;
+import com.shopjoy.entity.Category;
+import com.shopjoy.entity.Inventory;
+import com.shopjoy.entity.Product;
+import com.shopjoy.entity.ReservationStatus;
+import com.shopjoy.entity.StockReservation;
+import com.shopjoy.exception.InvalidOperationException;
+import com.shopjoy.repository.CategoryRepository;
+import com.shopjoy.repository.InventoryRepository;
+import com.shopjoy.repository.ProductRepository;
+import com.shopjoy.repository.StockReservationRepository;
+import com.shopjoy.service.InventoryService;
+import com.shopjoy.service.StockReservationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Soft holds against the H2 schema: holding, committing, releasing and expiring stock,
+ * and admin stock changes running concurrently with holds.
+ */
+@SpringBootTest(properties = {
+        "app.inventory.holds.enabled=true",
+        "app.inventory.holds.sweep-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+class StockReservationServiceImplTest {
+
+    private static final int INITIAL_STOCK = 100;
+    private static final AtomicInteger ORDER_IDS = new AtomicInteger(1_000_000);
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryProperties inventoryProperties;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private int productId;
+
+    @BeforeEach
+    void createProduct() {
+        long run = System.nanoTime();
+        Category category = categoryRepository.save(Category.builder()
+                .categoryName("Holds " + run)
+                .build());
+        Product product = productRepository.save(Product.builder()
+                .productName("Held product " + run)
+                .category(category)
+                .price(BigDecimal.TEN)
+                .costPrice(BigDecimal.ONE)
+                .sku("HOLD-" + run)
+                .build());
+        inventoryRepository.save(Inventory.builder()
+                .product(product)
+                .quantityInStock(INITIAL_STOCK)
+                .reorderLevel(5)
+                .build());
+        productId = product.getId();
+    }
+
+    @AfterEach
+    void restoreTtl() {
+        inventoryProperties.getHolds().setTtl(Duration.ofMinutes(15));
+    }
+
+    @Test
+    void holdMovesStockIntoReserved() {
+        int orderId = hold(3);
+
+        assertStock(INITIAL_STOCK, 3);
+        assertEquals(List.of(ReservationStatus.HELD), statuses(orderId));
+    }
+
+    @Test
+    void commitTakesTheHoldOutOfReservedAndOnHandStock() {
+        int orderId = hold(3);
+
+        stockReservationService.commitForOrder(orderId);
+
+        assertStock(INITIAL_STOCK - 3, 0);
+        assertEquals(List.of(ReservationStatus.COMMITTED), statuses(orderId));
+    }
+
+    @Test
+    void releaseReturnsTheHoldToAvailableStock() {
+        int orderId = hold(3);
+
+        stockReservationService.releaseForOrder(orderId, Map.of(productId, 3));
+
+        assertStock(INITIAL_STOCK, 0);
+        assertEquals(List.of(ReservationStatus.RELEASED), statuses(orderId));
+    }
+
+    @Test
+    void sweeperExpiresHoldsPastTheirTtl() {
+        inventoryProperties.getHolds().setTtl(Duration.ofSeconds(-1));
+        int expiredOrderId = hold(3);
+        inventoryProperties.getHolds().setTtl(Duration.ofMinutes(15));
+        int liveOrderId = hold(2);
+
+        assertTrue(stockReservationService.expireHolds() >= 1);
+
+        assertStock(INITIAL_STOCK, 2);
+        assertEquals(List.of(ReservationStatus.EXPIRED), statuses(expiredOrderId));
+        assertEquals(List.of(ReservationStatus.HELD), statuses(liveOrderId));
+
+        // paying after expiry reserves the stock again
+        stockReservationService.commitForOrder(expiredOrderId);
+        assertStock(INITIAL_STOCK - 3, 2);
+    }
+
+    @Test
+    void releasingMoreThanIsReservedFails() {
+        hold(2);
+
+        assertThrows(InvalidOperationException.class, () -> inventoryService.releaseHolds(Map.of(productId, 5)));
+        assertThrows(InvalidOperationException.class, () -> inventoryService.commitHolds(Map.of(productId, 5)));
+        assertStock(INITIAL_STOCK, 2);
+    }
+
+    @Test
+    void adminUpdateWaitsForTheRowInsteadOfOverwritingAHold() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch holdStarted = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> holder = executor.submit(() -> {
+                locked.await();
+                holdStarted.countDown();
+                return hold(4);
+            });
+
+            transactionTemplate.executeWithoutResult(_ -> {
+                inventoryService.addStock(productId, 10);
+                locked.countDown();
+                try {
+                    holdStarted.await();
+                    // give the hold time to reach the row lock held by this transaction
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            holder.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertStock(INITIAL_STOCK + 10, 4);
+    }
+
+    @Test
+    void concurrentAdminUpdatesAndHoldsKeepEveryChange() throws Exception {
+        int threads = 4;
+        int iterations = 20;
+        AtomicInteger added = new AtomicInteger();
+        AtomicInteger held = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (int t = 0; t < threads; t++) {
+            boolean admin = t % 2 == 0;
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < iterations; i++) {
+                    if (admin) {
+                        inventoryService.addStock(productId, 1);
+                        added.incrementAndGet();
+                    } else {
+                        hold(1);
+                        held.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES), "Updates did not finish in time");
+
+        assertEquals(threads / 2 * iterations, added.get());
+        assertEquals(threads / 2 * iterations, held.get());
+        assertStock(INITIAL_STOCK + added.get(), held.get());
+    }
+
+    private int hold(int quantity) {
+        int orderId = ORDER_IDS.incrementAndGet();
+        stockReservationService.reserveForOrder(orderId, Map.of(productId, quantity));
+        return orderId;
+    }
+
+    private void assertStock(int onHand, int reserved) {
+        Inventory inventory = inventoryRepository.findByProductId(productId).orElseThrow();
+        assertEquals(onHand, inventory.getQuantityInStock(), "quantity_in_stock");
+        assertEquals(reserved, inventory.getReservedQuantity(), "reserved_quantity");
+        assertFalse(inventory.getAvailableQuantity() < 0);
+    }
+
+    private List<ReservationStatus> statuses(int orderId) {
+        return transactionTemplate.execute(_ -> stockReservationRepository.findByOrderIdForUpdate(orderId).stream()
+                .map(StockReservation::getStatus)
+                .toList());
+    }
+}
@@ -0,0 +1,78 @@
+package com.shopjoy.service.impl;
+
+import com.shopjoy.config.TokenBlacklistProperties;
+import com.shopjoy.security.CustomUserDetails;
+import com.shopjoy.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Revokes real tokens against a mocked database: only the revoked token is reported,
+ * tokens of the same user stay valid, and each revocation is persisted once.
+ */
+class TokenBlacklistServiceImplTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final JwtUtil jwtUtil = new JwtUtil();
+    private TokenBlacklistServiceImpl blacklist;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(jwtUtil, "secret", "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(jwtUtil, "claimsCacheMaxSize", 1_000L);
+        jwtUtil.init();
+        blacklist = new TokenBlacklistServiceImpl(jwtUtil, jdbcTemplate, new TokenBlacklistProperties());
+    }
+
+    @Test
+    void onlyTheRevokedTokenIsBlacklisted() {
+        String revoked = token();
+        String other = token();
+
+        blacklist.blacklistToken(revoked);
+        blacklist.blacklistToken(revoked);
+
+        assertTrue(blacklist.isBlacklisted(revoked));
+        assertFalse(blacklist.isBlacklisted(other));
+        assertEquals(1, blacklist.size());
+        verify(jdbcTemplate, times(1)).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    void malformedTokensAreIgnored() {
+        blacklist.blacklistToken("not-a-jwt");
+
+        assertFalse(blacklist.isBlacklisted("not-a-jwt"));
+        assertEquals(0, blacklist.size());
+    }
+
+    @Test
+    void hashesRoundTripThroughTheirHexForm() {
+        TokenBlacklistServiceImpl.TokenHash hash = new TokenBlacklistServiceImpl.TokenHash(
+                TokenBlacklistServiceImpl.hash1("jti"), TokenBlacklistServiceImpl.hash2("jti"));
+
+        assertEquals(32, hash.toHex().length());
+        assertEquals(hash, TokenBlacklistServiceImpl.TokenHash.parse(hash.toHex()));
+    }
+
+    private String token() {
+        return jwtUtil.generateToken(new CustomUserDetails(7, "alice", "hash",
+                List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER"))));
+    }
+}
@@ -0,0 +1,69 @@
+package com.shopjoy.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(800);
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(20);
+
+    @Test
+    void callsBeyondTheLimitAreRejected() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 2, Duration.ofMillis(500), 10);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.release(FAST);
+        assertTrue(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    void limitFallsWhileSlowAndRecoversWhenFast() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 20, Duration.ofMillis(500), 10);
+
+        for (int window = 0; window < 10; window++) {
+            completeWindow(limiter, SLOW);
+        }
+        assertEquals(5, limiter.getLimit());
+        for (int window = 0; window < 100; window++) {
+            completeWindow(limiter, SLOW);
+        }
+        assertEquals(2, limiter.getLimit());
+
+        for (int i = 0; i < 20; i++) {
+            saturate(limiter);
+        }
+        assertTrue(limiter.getLimit() > 2);
+        for (int i = 0; i < 1_000; i++) {
+            saturate(limiter);
+        }
+        assertEquals(20, limiter.getLimit());
+    }
+
+    private static void completeWindow(AdaptiveConcurrencyLimiter limiter, long latency) {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(latency);
+        }
+    }
+
+    private static void saturate(AdaptiveConcurrencyLimiter limiter) {
+        int limit = limiter.getLimit();
+        for (int i = 0; i < limit; i++) {
+            limiter.tryAcquire();
+        }
+        for (int i = 0; i < limit; i++) {
+            limiter.release(FAST);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.shopjoy.util;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shopjoy.cache.CacheDependencyRegistry;
+import com.shopjoy.cache.DependencyTrackingCaffeineCacheManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CacheMetricsCollectorTest {
+
+    @Test
+    void cacheStatisticsArePublishedPerCacheAndManager() {
+        CacheDependencyRegistry registry = new CacheDependencyRegistry();
+        DependencyTrackingCaffeineCacheManager primary = manager(registry, "product");
+        DependencyTrackingCaffeineCacheManager medium = manager(registry, "orders");
+        DependencyTrackingCaffeineCacheManager shortLived = manager(registry, "inventoryByProduct");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        new CacheMetricsCollector(primary, medium, shortLived, registry).bindTo(meterRegistry);
+
+        Cache products = primary.getCache("product");
+        products.put(1, "one");
+        products.get(1);
+        products.get(1);
+        products.get(2);
+        // A cache rebuilt after binding is still reported.
+        primary.setBuilderFactory(_ -> Caffeine.newBuilder().recordStats());
+        primary.getCache("product").get(3);
+
+        assertEquals(1.0, meterRegistry.get("cache.gets")
+                .tags("cache", "product", "cacheManager", "primary", "result", "miss").functionCounter().count());
+        assertEquals(0.0, meterRegistry.get("cache.gets")
+                .tags("cache", "orders", "cacheManager", "medium", "result", "hit").functionCounter().count());
+        assertEquals(0.0, meterRegistry.get("cache.size")
+                .tags("cache", "inventoryByProduct", "cacheManager", "short").gauge().value());
+    }
+
+    private static DependencyTrackingCaffeineCacheManager manager(CacheDependencyRegistry registry, String cacheName) {
+        DependencyTrackingCaffeineCacheManager manager = new DependencyTrackingCaffeineCacheManager(registry, cacheName);
+        manager.setCaffeine(Caffeine.newBuilder().recordStats());
+        return manager;
+    }
+}
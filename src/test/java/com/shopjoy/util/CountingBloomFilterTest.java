@@ -0,0 +1,47 @@
+package com.shopjoy.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CountingBloomFilterTest {
+
+    private static final int ENTRIES = 10_000;
+
+    @Test
+    void addedEntriesAreAlwaysFoundAndFalsePositivesStayNearTheTarget() {
+        CountingBloomFilter filter = new CountingBloomFilter(ENTRIES, 0.01);
+        SplittableRandom random = new SplittableRandom(42);
+        long[][] added = new long[ENTRIES][];
+        for (int i = 0; i < ENTRIES; i++) {
+            added[i] = new long[]{random.nextLong(), random.nextLong()};
+            filter.add(added[i][0], added[i][1]);
+        }
+
+        for (long[] hash : added) {
+            assertTrue(filter.mightContain(hash[0], hash[1]));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(random.nextLong(), random.nextLong())) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "False positive rate was " + falsePositives / 1000.0 + "%");
+    }
+
+    @Test
+    void removedEntriesAreNoLongerFound() {
+        CountingBloomFilter filter = new CountingBloomFilter(100, 0.01);
+        filter.add(1L, 2L);
+        filter.add(3L, 4L);
+
+        filter.remove(1L, 2L);
+
+        assertFalse(filter.mightContain(1L, 2L));
+        assertTrue(filter.mightContain(3L, 4L));
+    }
+}
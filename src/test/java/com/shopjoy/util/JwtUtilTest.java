@@ -0,0 +1,87 @@
+package com.shopjoy.util;
+
+import com.shopjoy.security.CustomUserDetails;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that the verified-claims cache never answers for a token the parser would reject.
+ */
+class JwtUtilTest {
+
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    @Test
+    void verifiedClaimsAreCachedPerToken() {
+        JwtUtil jwtUtil = jwtUtil(TimeUnit.HOURS.toMillis(1));
+        String token = token(jwtUtil, "alice");
+
+        Claims claims = jwtUtil.verify(token);
+
+        assertEquals("alice", claims.getSubject());
+        assertSame(claims, jwtUtil.verify(token));
+    }
+
+    @Test
+    void cachedTokenStillExpiresAtItsExp() throws InterruptedException {
+        JwtUtil jwtUtil = jwtUtil(1_000);
+        String token = token(jwtUtil, "alice");
+        Claims claims = jwtUtil.verify(token);
+
+        // exp has second precision, so wait until the second after it has started
+        Thread.sleep(Math.max(0, claims.getExpiration().getTime() + 1_000 - System.currentTimeMillis()));
+
+        assertThrows(ExpiredJwtException.class, () -> jwtUtil.verify(token));
+    }
+
+    @Test
+    void tamperedTokenIsNeverAnsweredFromTheCache() {
+        JwtUtil jwtUtil = jwtUtil(TimeUnit.HOURS.toMillis(1));
+        String token = token(jwtUtil, "alice");
+        jwtUtil.verify(token);
+
+        String[] parts = token.split("\\.");
+        String payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+        String forgedPayload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.replace("\"alice\"", "\"admin\"").getBytes(StandardCharsets.UTF_8));
+        String forged = parts[0] + "." + forgedPayload + "." + parts[2];
+        String badSignature = parts[0] + "." + parts[1] + "." + flipFirstCharacter(parts[2]);
+
+        assertThrows(JwtException.class, () -> jwtUtil.verify(forged));
+        assertThrows(JwtException.class, () -> jwtUtil.verify(badSignature));
+        assertEquals("alice", jwtUtil.verify(token).getSubject());
+    }
+
+    private static JwtUtil jwtUtil(long expirationMillis) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", expirationMillis);
+        ReflectionTestUtils.setField(jwtUtil, "claimsCacheMaxSize", 1_000L);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    private static String token(JwtUtil jwtUtil, String username) {
+        return jwtUtil.generateToken(new CustomUserDetails(7, username, "hash",
+                List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER"))));
+    }
+
+    private static String flipFirstCharacter(String signature) {
+        // every bit of the first character is significant, unlike the padding bits of the last
+        char first = signature.charAt(0);
+        return (first == 'A' ? 'B' : 'A') + signature.substring(1);
+    }
+}
@@ -0,0 +1,109 @@
+package com.shopjoy.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlidingWindowRateLimiterTest {
+
+    private static final Duration WINDOW = Duration.ofMinutes(15);
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.DAYS.toMillis(1));
+
+    @Test
+    void keyIsLimitedAtTheLimitUntilTheSlidingWindowPasses() {
+        SlidingWindowRateLimiter limiter = limiter(1_000);
+        for (int i = 0; i < 4; i++) {
+            limiter.record("alice");
+        }
+        assertFalse(limiter.isLimited("alice"));
+
+        limiter.record("alice");
+        assertTrue(limiter.isLimited("alice"));
+        assertFalse(limiter.isLimited("bob"));
+
+        long retryAfter = limiter.retryAfterMillis("alice");
+        assertTrue(retryAfter > 0 && retryAfter <= WINDOW.toMillis() + 1, "Retry after " + retryAfter);
+        clock.addAndGet(retryAfter - 1_000);
+        assertTrue(limiter.isLimited("alice"));
+        clock.addAndGet(1_000);
+        assertFalse(limiter.isLimited("alice"));
+        assertEquals(0, limiter.retryAfterMillis("alice"));
+    }
+
+    @Test
+    void resetClearsTheCount() {
+        SlidingWindowRateLimiter limiter = limiter(1_000);
+        for (int i = 0; i < 5; i++) {
+            limiter.record("alice");
+        }
+
+        limiter.reset("alice");
+
+        assertFalse(limiter.isLimited("alice"));
+    }
+
+    @Test
+    void expiredKeysAreEvicted() {
+        SlidingWindowRateLimiter limiter = limiter(1_000);
+        for (int i = 0; i < 100; i++) {
+            limiter.record("10.0.0." + i);
+        }
+        assertEquals(100, limiter.size());
+
+        clock.addAndGet(WINDOW.toMillis() * 2);
+        int removed = limiter.evictExpired(limiter.getShardCount());
+
+        assertEquals(100, removed);
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    void keysBeyondTheCapAreCountedApproximately() {
+        SlidingWindowRateLimiter limiter = limiter(64);
+        for (int i = 0; i < 10_000; i++) {
+            limiter.record("10.0." + (i >> 8) + "." + (i & 0xFF));
+        }
+        for (int i = 0; i < 5; i++) {
+            limiter.record("attacker");
+        }
+
+        assertTrue(limiter.size() <= 64);
+        assertTrue(limiter.isOverflowing());
+        assertTrue(limiter.isLimited("attacker"));
+        int falsePositives = 0;
+        for (int i = 0; i < 1_000; i++) {
+            if (limiter.isLimited("192.168." + (i >> 8) + "." + (i & 0xFF))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 10, falsePositives + " unseen keys were limited");
+    }
+
+    @Test
+    void keysWithTheSameStringHashAreCountedSeparatelyInTheSketches() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        SlidingWindowRateLimiter limiter = limiter(8);
+        for (int i = 0; i < 200; i++) {
+            limiter.record("10.0.0." + i);
+        }
+        for (int i = 0; i < 5; i++) {
+            limiter.record("Aa");
+        }
+
+        assertTrue(limiter.isOverflowing());
+        assertTrue(limiter.isLimited("Aa"));
+        assertFalse(limiter.isLimited("BB"));
+        assertTrue(limiter.tryAcquire("BB"));
+    }
+
+    private SlidingWindowRateLimiter limiter(int maxTrackedKeys) {
+        return new SlidingWindowRateLimiter(5, WINDOW, maxTrackedKeys, 8, 4_096, 4, clock::get);
+    }
+}